@@ -35,6 +35,12 @@ android {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
     }
+    testOptions {
+        unitTests.all {
+            // *Benchmark classes are skipped unless run with -Pbenchmark
+            it.systemProperty("benchmark", project.hasProperty("benchmark"))
+        }
+    }
 }
 
 dependencies {
@@ -0,0 +1,309 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthRecentLoginRequiredException;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ACCOUNT DELETION MANAGER - Cascading cleanup of everything a user owns
+ *
+ * Runs as unique WorkManager work while the user is still signed in, so it
+ * survives the app being closed. The job is a fixed list of steps and the
+ * index of the next step is checkpointed in prefs, so a retry or a restart
+ * resumes where it stopped. Every step is safe to repeat.
+ *
+ * STEPS:
+ * - COLLECT: remember the links that live in other users' nodes (referrer,
+ *   referral code, team, circles) before the profile is gone
+ * - UNLINK: remove those links in bounded multi-path batches
+ * - DRAIN: empty each large list in batches of BATCH_SIZE keys
+ * - ROOTS: remove the user's top-level nodes in one multi-path write
+ * - AUTH: delete the Firebase Auth user last, once nothing is left to write
+ */
+public class AccountDeletionManager {
+    private static final String TAG = "AccountDeletionManager";
+    private static final String WORK_NAME = "account_deletion_work";
+    private static final String PREFS_NAME = "account_deletion";
+
+    public static final String KEY_USER_ID = "userId";
+    public static final String KEY_ERROR = "error";
+    public static final String ERROR_REAUTH = "reauth";
+
+    private static final int BATCH_SIZE = 100;
+    private static final long QUERY_TIMEOUT_SECONDS = 30;
+
+    // Lists that can grow without bound - emptied key by key before the roots go
+    private static final String[] DRAIN_PATHS = {
+            "transactions/{uid}",
+            "earnings/{uid}/daily",
+            "users/{uid}/commissions",
+            "users/{uid}/notifications",
+            "users/{uid}/referrals",
+            "users/{uid}/treasures",
+            "analytics/smart_notifications/{uid}"
+    };
+
+    private static final String[] ROOT_PATHS = {
+            "users/{uid}",
+            "transactions/{uid}",
+            "earnings/{uid}",
+            "analytics/{uid}",
+            "securityCircle/{uid}",
+            "streaks/{uid}",
+            "user_quest_progress/{uid}"
+    };
+
+    // Step indices: COLLECT, UNLINK, one per drain path, ROOTS, AUTH
+    private static final int STEP_COLLECT = 0;
+    private static final int STEP_UNLINK = 1;
+    private static final int STEP_FIRST_DRAIN = 2;
+    private static final int STEP_ROOTS = STEP_FIRST_DRAIN + DRAIN_PATHS.length;
+    private static final int STEP_AUTH = STEP_ROOTS + 1;
+    private static final int STEP_DONE = STEP_AUTH + 1;
+
+    private AccountDeletionManager() {}
+
+    /**
+     * Start (or keep running) the deletion job for the signed-in user.
+     * The caller must have re-authenticated just before, since the final
+     * step deletes the Auth user.
+     */
+    public static UUID enqueue(Context context, String userId) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(DeletionWorker.class)
+                .setInputData(new Data.Builder().putString(KEY_USER_ID, userId).build())
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.REPLACE, request);
+        return request.getId();
+    }
+
+    /**
+     * Run the remaining steps. Blocks - worker thread only.
+     */
+    static void run(Context context, String userId) throws Exception {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        DatabaseReference rootRef = FirebaseDatabase.getInstance().getReference();
+        String stepKey = "step_" + userId;
+
+        for (int step = prefs.getInt(stepKey, STEP_COLLECT); step < STEP_DONE; step++) {
+            if (step == STEP_COLLECT) {
+                collect(context, prefs, rootRef, userId);
+            } else if (step == STEP_UNLINK) {
+                unlink(prefs, rootRef, userId);
+            } else if (step < STEP_ROOTS) {
+                drain(rootRef.child(DRAIN_PATHS[step - STEP_FIRST_DRAIN].replace("{uid}", userId)));
+            } else if (step == STEP_ROOTS) {
+                Map<String, Object> deletes = new HashMap<>();
+                for (String path : ROOT_PATHS) {
+                    deletes.put(path.replace("{uid}", userId), null);
+                }
+                await(rootRef.updateChildren(deletes));
+            } else {
+                FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+                if (user != null && userId.equals(user.getUid())) {
+                    await(user.delete());
+                }
+            }
+
+            // Synchronous, so a process death right after a step cannot lose it
+            prefs.edit().putInt(stepKey, step + 1).commit();
+            Log.d(TAG, "Account deletion step " + step + " done");
+        }
+
+        prefs.edit().clear().apply();
+    }
+
+    /**
+     * Read the cross-user links once and keep them in prefs, because the
+     * profile they come from is removed by a later step.
+     */
+    private static void collect(Context context, SharedPreferences prefs, DatabaseReference rootRef,
+                                String userId) throws Exception {
+        DatabaseReference userRef = rootRef.child("users").child(userId);
+        String referrer = await(userRef.child("referredBy").get()).getValue(String.class);
+        String code = await(userRef.child("referralCode").get()).getValue(String.class);
+        String teamId = await(userRef.child("teamId").get()).getValue(String.class);
+        DataSnapshot circle = await(rootRef.child("securityCircle").child(userId).get());
+
+        if (code == null) {
+            code = ReferralCodeAllocator.getInstance(context).getCachedCode(userId);
+        }
+
+        prefs.edit()
+                .putString("referrer_" + userId, referrer)
+                .putString("code_" + userId, code != null ? ReferralCodeIndex.normalize(code) : null)
+                .putString("team_" + userId, teamId)
+                .putString("members_" + userId, TextUtils.join(",", keys(circle.child("members"))))
+                .putString("trustedBy_" + userId, TextUtils.join(",", keys(circle.child("trustedBy"))))
+                .commit();
+    }
+
+    /**
+     * Remove the user from other users' nodes. Paths are written in batches
+     * of BATCH_SIZE; deleting an already-deleted path is a no-op, so a
+     * retried batch does no harm.
+     */
+    private static void unlink(SharedPreferences prefs, DatabaseReference rootRef, String userId) throws Exception {
+        Map<String, Object> deletes = new HashMap<>();
+
+        String referrer = prefs.getString("referrer_" + userId, null);
+        if (referrer != null) {
+            DatabaseReference referralsRef = rootRef.child("users").child(referrer).child("referrals");
+            deletes.put("users/" + referrer + "/referrals/" + userId, null);
+            // Entries written before referrals were keyed by the referred user
+            DataSnapshot legacy = await(referralsRef.orderByChild("userId").equalTo(userId).get());
+            for (String key : keys(legacy)) {
+                deletes.put("users/" + referrer + "/referrals/" + key, null);
+            }
+        }
+
+        String code = prefs.getString("code_" + userId, null);
+        if (code != null && !code.isEmpty()) {
+            String owner = await(rootRef.child("referralCodes").child(code).get()).getValue(String.class);
+            if (userId.equals(owner)) {
+                deletes.put("referralCodes/" + code, null);
+            }
+        }
+
+        String teamId = prefs.getString("team_" + userId, null);
+        if (teamId != null) {
+            // Only decrement while the membership still exists, so a retry can't count twice
+            if (await(rootRef.child("teams").child(teamId).child("members").child(userId).get()).exists()) {
+                deletes.put("teams/" + teamId + "/members/" + userId, null);
+                deletes.put("teams/" + teamId + "/memberCount", ServerValue.increment(-1));
+            }
+        }
+
+        for (String owner : split(prefs.getString("trustedBy_" + userId, ""))) {
+            deletes.put("securityCircle/" + owner + "/members/" + userId, null);
+        }
+        for (String member : split(prefs.getString("members_" + userId, ""))) {
+            deletes.put("securityCircle/" + member + "/trustedBy/" + userId, null);
+        }
+
+        Map<String, Object> batch = new HashMap<>();
+        for (Map.Entry<String, Object> entry : deletes.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() >= BATCH_SIZE) {
+                await(rootRef.updateChildren(batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            await(rootRef.updateChildren(batch));
+        }
+    }
+
+    /**
+     * Remove a list's children BATCH_SIZE keys at a time until it is empty.
+     */
+    private static void drain(DatabaseReference listRef) throws Exception {
+        int removed = 0;
+        while (true) {
+            DataSnapshot page = await(listRef.orderByKey().limitToFirst(BATCH_SIZE).get());
+            if (!page.hasChildren()) break;
+
+            Map<String, Object> deletes = new HashMap<>();
+            for (String key : keys(page)) {
+                deletes.put(key, null);
+            }
+            await(listRef.updateChildren(deletes));
+            removed += deletes.size();
+
+            if (deletes.size() < BATCH_SIZE) break;
+        }
+        if (removed > 0) {
+            Log.d(TAG, "Removed " + removed + " entries from " + listRef.getKey());
+        }
+    }
+
+    private static List<String> keys(DataSnapshot snapshot) {
+        List<String> keys = new ArrayList<>();
+        for (DataSnapshot child : snapshot.getChildren()) {
+            keys.add(child.getKey());
+        }
+        return keys;
+    }
+
+    private static List<String> split(String joined) {
+        if (joined == null || joined.isEmpty()) return Collections.emptyList();
+        List<String> parts = new ArrayList<>();
+        for (String part : joined.split(",")) {
+            if (!part.isEmpty()) parts.add(part);
+        }
+        return parts;
+    }
+
+    private static <T> T await(Task<T> task) throws Exception {
+        return Tasks.await(task, QUERY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static class DeletionWorker extends Worker {
+
+        public DeletionWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+            super(context, params);
+        }
+
+        @NonNull
+        @Override
+        public Result doWork() {
+            String userId = getInputData().getString(KEY_USER_ID);
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            if (userId == null || user == null || !userId.equals(user.getUid())) {
+                // Every step needs the user's own credentials
+                Log.e(TAG, "Account deletion needs the user to be signed in");
+                return Result.failure();
+            }
+
+            try {
+                run(getApplicationContext(), userId);
+                return Result.success();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof FirebaseAuthRecentLoginRequiredException) {
+                    // Data is gone; only the Auth user is left and it needs a fresh sign-in
+                    return Result.failure(new Data.Builder().putString(KEY_ERROR, ERROR_REAUTH).build());
+                }
+                Log.e(TAG, "Account deletion step failed, will retry", e);
+                return Result.retry();
+            } catch (Exception e) {
+                Log.e(TAG, "Account deletion step failed, will retry", e);
+                return Result.retry();
+            }
+        }
+    }
+}
@@ -12,10 +12,22 @@ import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * ACHIEVEMENT MANAGER - Event-driven unlocks and the achievement boost
+ *
+ * - Each threshold achievement belongs to one Metric (coins, streak,
+ *   referrals, spins). Per metric the achievements are sorted by threshold
+ *   and a cursor points at the next one not yet unlocked, so a metric update
+ *   compares against a single threshold
+ * - Everything a single update unlocks goes out in one multi-path write
+ * - The total boost is kept as a running sum, so BoostManager's rate
+ *   calculation reads a field instead of scanning the list
+ */
 public class AchievementManager {
     private static final String TAG = "AchievementManager";
     private static AchievementManager instance;
@@ -24,23 +36,41 @@ public class AchievementManager {
     private SharedPreferences prefs;
     private DatabaseReference userRef;
     private String userId;
-    private List<Achievement> unlockedAchievements = new ArrayList<>();
     private List<AchievementListener> listeners = new ArrayList<>();
 
+    // Unlock state by AchievementType ordinal
+    private final boolean[] unlocked = new boolean[AchievementType.values().length];
+    private final long[] unlockedAt = new long[AchievementType.values().length];
+
+    // Per Metric ordinal: index into BY_THRESHOLD of the next locked achievement
+    private final int[] cursors = new int[Metric.values().length];
+
+    private volatile float totalBoost = 0f;
+
+    /**
+     * Quantities that threshold achievements are measured against.
+     */
+    public enum Metric {
+        COINS, STREAK, REFERRALS, SPINS
+    }
+
+    // Per Metric ordinal: its achievements, lowest threshold first
+    private static final AchievementType[][] BY_THRESHOLD = indexByThreshold();
+
     public enum AchievementType {
-        FIRST_MINING("first_mining", "First Steps", "Complete your first mining session", "⛏️", 0.0f, 10),
-        MINING_NOVICE("mining_novice", "Mining Novice", "Mine 100 LYX tokens", "🥉", 0.02f, 50),
-        MINING_APPRENTICE("mining_apprentice", "Mining Apprentice", "Mine 500 LYX tokens", "🥈", 0.05f, 100),
-        MINING_EXPERT("mining_expert", "Mining Expert", "Mine 2,000 LYX tokens", "🥇", 0.08f, 250),
-        MINING_MASTER("mining_master", "Mining Master", "Mine 10,000 LYX tokens", "💎", 0.12f, 500),
-        STREAK_STARTER("streak_starter", "Streak Starter", "Maintain a 3-day streak", "🔥", 0.01f, 20),
-        STREAK_KEEPER("streak_keeper", "Streak Keeper", "Maintain a 7-day streak", "🔥🔥", 0.03f, 50),
-        STREAK_CHAMPION("streak_champion", "Streak Champion", "Maintain a 30-day streak", "🏆", 0.10f, 250),
-        FIRST_REFERRAL("first_referral", "Social Butterfly", "Invite your first friend", "🦋", 0.02f, 30),
-        REFERRAL_STAR("referral_star", "Referral Star", "Invite 5 friends", "⭐", 0.05f, 100),
-        LUCKY_SPINNER("lucky_spinner", "Lucky Spinner", "Complete 10 spins", "🎰", 0.01f, 25),
-        EARLY_BIRD("early_bird", "Early Bird", "Claim reward before 8 AM", "🌅", 0.02f, 30),
-        LOYAL_USER("loyal_user", "Loyal User", "Use the app for 30 days", "❤️", 0.08f, 200);
+        FIRST_MINING("first_mining", "First Steps", "Complete your first mining session", "⛏️", 0.0f, 10, Metric.COINS, 1),
+        MINING_NOVICE("mining_novice", "Mining Novice", "Mine 100 LYX tokens", "🥉", 0.02f, 50, Metric.COINS, 100),
+        MINING_APPRENTICE("mining_apprentice", "Mining Apprentice", "Mine 500 LYX tokens", "🥈", 0.05f, 100, Metric.COINS, 500),
+        MINING_EXPERT("mining_expert", "Mining Expert", "Mine 2,000 LYX tokens", "🥇", 0.08f, 250, Metric.COINS, 2000),
+        MINING_MASTER("mining_master", "Mining Master", "Mine 10,000 LYX tokens", "💎", 0.12f, 500, Metric.COINS, 10000),
+        STREAK_STARTER("streak_starter", "Streak Starter", "Maintain a 3-day streak", "🔥", 0.01f, 20, Metric.STREAK, 3),
+        STREAK_KEEPER("streak_keeper", "Streak Keeper", "Maintain a 7-day streak", "🔥🔥", 0.03f, 50, Metric.STREAK, 7),
+        STREAK_CHAMPION("streak_champion", "Streak Champion", "Maintain a 30-day streak", "🏆", 0.10f, 250, Metric.STREAK, 30),
+        FIRST_REFERRAL("first_referral", "Social Butterfly", "Invite your first friend", "🦋", 0.02f, 30, Metric.REFERRALS, 1),
+        REFERRAL_STAR("referral_star", "Referral Star", "Invite 5 friends", "⭐", 0.05f, 100, Metric.REFERRALS, 5),
+        LUCKY_SPINNER("lucky_spinner", "Lucky Spinner", "Complete 10 spins", "🎰", 0.01f, 25, Metric.SPINS, 10),
+        EARLY_BIRD("early_bird", "Early Bird", "Claim reward before 8 AM", "🌅", 0.02f, 30, null, 0),
+        LOYAL_USER("loyal_user", "Loyal User", "Use the app for 30 days", "❤️", 0.08f, 200, null, 0);
 
         private final String id;
         private final String title;
@@ -48,14 +78,19 @@ public class AchievementManager {
         private final String icon;
         private final float boostBonus;
         private final int tokenReward;
+        private final Metric metric;
+        private final double threshold;
 
-        AchievementType(String id, String title, String description, String icon, float boostBonus, int tokenReward) {
+        AchievementType(String id, String title, String description, String icon, float boostBonus, int tokenReward,
+                        Metric metric, double threshold) {
             this.id = id;
             this.title = title;
             this.description = description;
             this.icon = icon;
             this.boostBonus = boostBonus;
             this.tokenReward = tokenReward;
+            this.metric = metric;
+            this.threshold = threshold;
         }
 
         public String getId() { return id; }
@@ -64,6 +99,9 @@ public class AchievementManager {
         public String getIcon() { return icon; }
         public float getBoostBonus() { return boostBonus; }
         public int getTokenReward() { return tokenReward; }
+        /** Null for achievements that are not unlocked by a threshold. */
+        public Metric getMetric() { return metric; }
+        public double getThreshold() { return threshold; }
     }
 
     public static class Achievement {
@@ -109,6 +147,15 @@ public class AchievementManager {
             userId = auth.getCurrentUser().getUid();
             prefs = context.getSharedPreferences("Achievements_" + userId, Context.MODE_PRIVATE);
             userRef = FirebaseDatabase.getInstance().getReference("users").child(userId);
+
+            // Unlocks made on this device count before the network answers
+            for (AchievementType type : AchievementType.values()) {
+                if (prefs.getBoolean(type.getId() + "_unlocked", false)) {
+                    unlocked[type.ordinal()] = true;
+                    unlockedAt[type.ordinal()] = prefs.getLong(type.getId() + "_time", 0);
+                }
+            }
+            rebuildIndex();
             loadAchievements();
         } catch (Exception e) {
             Log.e(TAG, "Error initializing AchievementManager", e);
@@ -121,18 +168,15 @@ public class AchievementManager {
         userRef.child("achievements").addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot snapshot) {
-                unlockedAchievements.clear();
-                for (AchievementType type : AchievementType.values()) {
-                    boolean unlocked = false;
-                    long unlockedAt = 0;
-
-                    if (snapshot.child(type.getId()).exists()) {
-                        unlocked = true;
-                        Long time = snapshot.child(type.getId()).child("unlockedAt").getValue(Long.class);
-                        unlockedAt = time != null ? time : 0;
+                synchronized (AchievementManager.this) {
+                    for (AchievementType type : AchievementType.values()) {
+                        DataSnapshot child = snapshot.child(type.getId());
+                        if (!child.exists()) continue;
+                        Long time = child.child("unlockedAt").getValue(Long.class);
+                        unlocked[type.ordinal()] = true;
+                        unlockedAt[type.ordinal()] = time != null ? time : 0;
                     }
-
-                    unlockedAchievements.add(new Achievement(type, unlocked, unlockedAt));
+                    rebuildIndex();
                 }
                 notifyAchievementsLoaded();
             }
@@ -144,103 +188,143 @@ public class AchievementManager {
         });
     }
 
+    /**
+     * Convenience for callers that have all metrics at hand; unlocks from
+     * all of them are written together.
+     */
     public void checkAchievements(double totalCoins, int referrals, int streak, int spins) {
-        checkAndUnlock(AchievementType.FIRST_MINING, totalCoins >= 1);
-        checkAndUnlock(AchievementType.MINING_NOVICE, totalCoins >= 100);
-        checkAndUnlock(AchievementType.MINING_APPRENTICE, totalCoins >= 500);
-        checkAndUnlock(AchievementType.MINING_EXPERT, totalCoins >= 2000);
-        checkAndUnlock(AchievementType.MINING_MASTER, totalCoins >= 10000);
-        checkAndUnlock(AchievementType.STREAK_STARTER, streak >= 3);
-        checkAndUnlock(AchievementType.STREAK_KEEPER, streak >= 7);
-        checkAndUnlock(AchievementType.STREAK_CHAMPION, streak >= 30);
-        checkAndUnlock(AchievementType.FIRST_REFERRAL, referrals >= 1);
-        checkAndUnlock(AchievementType.REFERRAL_STAR, referrals >= 5);
-        checkAndUnlock(AchievementType.LUCKY_SPINNER, spins >= 10);
+        if (prefs == null) return;
+        List<AchievementType> unlocks = new ArrayList<>();
+        synchronized (this) {
+            advance(Metric.COINS, totalCoins, unlocks);
+            advance(Metric.REFERRALS, referrals, unlocks);
+            advance(Metric.STREAK, streak, unlocks);
+            advance(Metric.SPINS, spins, unlocks);
+        }
+        unlockAll(unlocks);
     }
 
-    private void checkAndUnlock(AchievementType type, boolean condition) {
-        if (!condition) return;
-        if (isAchievementUnlocked(type)) return;
-        unlockAchievement(type);
+    /**
+     * A metric has a new value. Only the next locked threshold for the
+     * metric is compared, so this is constant time unless something unlocks.
+     */
+    public void recordMetric(Metric metric, double value) {
+        if (prefs == null) return;
+        List<AchievementType> unlocks = new ArrayList<>();
+        synchronized (this) {
+            advance(metric, value, unlocks);
+        }
+        unlockAll(unlocks);
     }
 
-    private boolean isAchievementUnlocked(AchievementType type) {
-        for (Achievement a : unlockedAchievements) {
-            if (a.getType() == type && a.isUnlocked()) {
-                return true;
+    private void advance(Metric metric, double value, List<AchievementType> unlocks) {
+        AchievementType[] ladder = BY_THRESHOLD[metric.ordinal()];
+        int cursor = cursors[metric.ordinal()];
+        while (cursor < ladder.length && value >= ladder[cursor].getThreshold()) {
+            if (!unlocked[ladder[cursor].ordinal()]) {
+                unlocks.add(ladder[cursor]);
             }
+            cursor++;
         }
-        return prefs.getBoolean(type.getId() + "_unlocked", false);
+        cursors[metric.ordinal()] = cursor;
     }
 
-    private void unlockAchievement(AchievementType type) {
+    private void unlockAll(List<AchievementType> types) {
+        if (types.isEmpty()) return;
         long now = System.currentTimeMillis();
 
-        prefs.edit()
-                .putBoolean(type.getId() + "_unlocked", true)
-                .putLong(type.getId() + "_time", now)
-                .apply();
+        SharedPreferences.Editor editor = prefs.edit();
+        Map<String, Object> updates = new HashMap<>();
+        synchronized (this) {
+            for (AchievementType type : types) {
+                unlocked[type.ordinal()] = true;
+                unlockedAt[type.ordinal()] = now;
+                totalBoost += type.getBoostBonus();
+
+                editor.putBoolean(type.getId() + "_unlocked", true)
+                        .putLong(type.getId() + "_time", now);
+
+                Map<String, Object> achievementData = new HashMap<>();
+                achievementData.put("unlockedAt", now);
+                achievementData.put("tokenReward", type.getTokenReward());
+                achievementData.put("boostBonus", type.getBoostBonus());
+                updates.put("achievements/" + type.getId(), achievementData);
+            }
+        }
+        editor.apply();
 
         if (userRef != null) {
-            Map<String, Object> achievementData = new HashMap<>();
-            achievementData.put("unlockedAt", now);
-            achievementData.put("tokenReward", type.getTokenReward());
-            achievementData.put("boostBonus", type.getBoostBonus());
-            userRef.child("achievements").child(type.getId()).setValue(achievementData);
-
-            userRef.child("totalcoins").addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(DataSnapshot snapshot) {
-                    Double current = snapshot.getValue(Double.class);
-                    if (current == null) current = 0.0;
-                    userRef.child("totalcoins").setValue(current + type.getTokenReward())
-                        .addOnCompleteListener(task -> {
-                            // FIXED: Notify WalletManager so balance updates immediately
-                            if (task.isSuccessful()) {
-                                try {
-                                    WalletManager.getInstance(context).refreshBalance();
-                                } catch (Exception e) {
-                                    Log.w(TAG, "Failed to notify WalletManager", e);
-                                }
-                            }
-                        });
-                }
+            // All unlocks from this update in one write
+            userRef.updateChildren(updates);
 
-                @Override
-                public void onCancelled(DatabaseError error) {}
-            });
+            WalletManager wallet = WalletManager.getInstance(context);
+            for (AchievementType type : types) {
+                wallet.addTokens(type.getTokenReward(), "bonus", "Achievement: " + type.getTitle());
+            }
         }
 
-        Achievement achievement = new Achievement(type, true, now);
-        for (int i = 0; i < unlockedAchievements.size(); i++) {
-            if (unlockedAchievements.get(i).getType() == type) {
-                unlockedAchievements.set(i, achievement);
-                break;
+        for (AchievementType type : types) {
+            notifyAchievementUnlocked(new Achievement(type, true, now));
+            Log.d(TAG, "Achievement unlocked: " + type.getTitle() + " | Reward: " + type.getTokenReward() + " LYX");
+        }
+    }
+
+    /**
+     * Recompute the cursors and the boost after unlock state was loaded.
+     */
+    private synchronized void rebuildIndex() {
+        for (Metric metric : Metric.values()) {
+            AchievementType[] ladder = BY_THRESHOLD[metric.ordinal()];
+            int cursor = 0;
+            while (cursor < ladder.length && unlocked[ladder[cursor].ordinal()]) {
+                cursor++;
             }
+            cursors[metric.ordinal()] = cursor;
         }
 
-        notifyAchievementUnlocked(achievement);
-        Log.d(TAG, "Achievement unlocked: " + type.getTitle() + " | Reward: " + type.getTokenReward() + " LYX");
+        float boost = 0f;
+        for (AchievementType type : AchievementType.values()) {
+            if (unlocked[type.ordinal()]) {
+                boost += type.getBoostBonus();
+            }
+        }
+        totalBoost = boost;
     }
 
-    public float getTotalAchievementBoost() {
-        float totalBoost = 0f;
-        for (Achievement a : unlockedAchievements) {
-            if (a.isUnlocked()) {
-                totalBoost += a.getType().getBoostBonus();
+    private static AchievementType[][] indexByThreshold() {
+        AchievementType[][] index = new AchievementType[Metric.values().length][];
+        for (Metric metric : Metric.values()) {
+            List<AchievementType> ladder = new ArrayList<>();
+            for (AchievementType type : AchievementType.values()) {
+                if (type.getMetric() == metric) ladder.add(type);
             }
+            AchievementType[] sorted = ladder.toArray(new AchievementType[0]);
+            Arrays.sort(sorted, (a, b) -> Double.compare(a.getThreshold(), b.getThreshold()));
+            index[metric.ordinal()] = sorted;
         }
+        return index;
+    }
+
+    /**
+     * Sum of the boosts of all unlocked achievements. Kept up to date on
+     * unlock, so it is safe to call from the mining rate calculation.
+     */
+    public float getTotalAchievementBoost() {
         return totalBoost;
     }
 
-    public List<Achievement> getAllAchievements() {
-        return new ArrayList<>(unlockedAchievements);
+    public synchronized List<Achievement> getAllAchievements() {
+        List<Achievement> all = new ArrayList<>();
+        for (AchievementType type : AchievementType.values()) {
+            all.add(new Achievement(type, unlocked[type.ordinal()], unlockedAt[type.ordinal()]));
+        }
+        return all;
     }
 
-    public int getUnlockedCount() {
+    public synchronized int getUnlockedCount() {
         int count = 0;
-        for (Achievement a : unlockedAchievements) {
-            if (a.isUnlocked()) count++;
+        for (boolean u : unlocked) {
+            if (u) count++;
         }
         return count;
     }
@@ -272,7 +356,7 @@ public class AchievementManager {
     private void notifyAchievementsLoaded() {
         for (AchievementListener listener : listeners) {
             try {
-                listener.onAchievementsLoaded(unlockedAchievements);
+                listener.onAchievementsLoaded(getAllAchievements());
             } catch (Exception e) {
                 Log.e(TAG, "Error notifying listener", e);
             }
@@ -289,7 +373,6 @@ public class AchievementManager {
     public static synchronized void resetInstance() {
         if (instance != null) {
             instance.listeners.clear();
-            instance.unlockedAchievements.clear();
             instance = null;
         }
     }
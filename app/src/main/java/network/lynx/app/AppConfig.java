@@ -1,9 +1,27 @@
 package network.lynx.app;
 
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.util.AtomicFile;
 import android.util.Log;
 
+import com.google.firebase.database.FirebaseDatabase;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * Centralized App Configuration Manager
  *
@@ -12,10 +30,22 @@ import android.util.Log;
  * - Easy to modify values without hunting through code
  * - Supports remote config integration
  * - Type-safe configuration access
+ *
+ * REMOTE CONFIG:
+ * - Tunable values come from one versioned document at config/app
+ * - Each version is parsed once into an immutable Snapshot; current() is a
+ *   volatile read, so hot paths (mining rate, tier lookups) never lock
+ * - The last snapshot is cached on disk and applied at startup on a
+ *   background thread, then the remote document is fetched; only a higher
+ *   version replaces the current snapshot, and ChangeListeners are told
+ * - Missing or invalid values fall back to the constants below
  */
 public final class AppConfig {
     private static final String TAG = "AppConfig";
-    private static final String PREFS_NAME = "app_config";
+    private static final String CONFIG_PATH = "config/app";
+    private static final String FILE_NAME = "app_config_snapshot.json";
+    // Tier overrides were kept here before the snapshot file; deleted on start
+    private static final String LEGACY_PREFS_NAME = "app_config";
 
     // ============================================
     // APP INFO
@@ -35,6 +65,7 @@ public final class AppConfig {
     // REFERRAL CONFIGURATION
     // ============================================
     public static final double REFERRAL_COMMISSION_RATE = 0.10; // 10% commission
+    public static final double MAX_REFERRAL_COMMISSION_RATE = 0.25; // cap for remote values
     public static final int REFERRAL_BOOST_THRESHOLD = 3; // 3 referrals for permanent boost
     public static final float REFERRAL_PERMANENT_BOOST = 1.5f; // 50% permanent boost
 
@@ -66,12 +97,43 @@ public final class AppConfig {
     public static final int DAILY_CHECKIN_BASE_REWARD = 1; // Base LYX for checkin
     public static final int STREAK_BONUS_MULTIPLIER = 7; // Max streak bonus day
 
+    // ============================================
+    // TIER TABLES (ascending thresholds)
+    // ============================================
+    // Coins a user must exceed for levels 2-5
+    public static final TierIndex DEFAULT_LEVEL_TIERS = TierIndex.of(100, 250, 500, 1000);
+    // Coins required for Bronze, Silver, Gold, Platinum, Diamond
+    public static final TierIndex DEFAULT_VIP_TIERS = TierIndex.of(0, 500, 2000, 10000, 50000);
+    // Total users at which phases 2-4 start, and the last phase's display target
+    public static final TierIndex DEFAULT_MINING_PHASE_TIERS =
+            TierIndex.of(100_000, 1_000_000, 10_000_000, 100_000_000);
+    // Base rate per phase (LYX per hour)
+    public static final double[] DEFAULT_MINING_PHASE_RATES = {2.0, 1.0, 0.5, 0.25};
+
+    // ============================================
+    // REMOTE CONFIG KEYS (fields of config/app)
+    // ============================================
+    public static final String KEY_VERSION = "version";
+    public static final String KEY_MINING_RATE_PER_SECOND = "miningRatePerSecond";
+    public static final String KEY_AD_BOOST_MULTIPLIER = "adBoostMultiplier";
+    public static final String KEY_TEMPORARY_BOOST_MULTIPLIER = "temporaryBoostMultiplier";
+    public static final String KEY_TWITTER_BOOST_MULTIPLIER = "twitterBoostMultiplier";
+    public static final String KEY_DAILY_CHECKIN_MULTIPLIER = "dailyCheckinMultiplier";
+    public static final String KEY_REFERRAL_COMMISSION_RATE = "referralCommissionRate";
+    public static final String KEY_AD_COOLDOWN_MS = "adCooldownMs";
+    public static final String KEY_MAX_DAILY_ADS = "maxDailyAds";
+    public static final String KEY_LEVEL_TIERS = "levelTiers";
+    public static final String KEY_VIP_TIERS = "vipTiers";
+    public static final String KEY_MINING_PHASE_TIERS = "miningPhaseTiers";
+    public static final String KEY_MINING_PHASE_RATES = "miningPhaseRates";
+
     // ============================================
     // CACHE & SYNC CONFIGURATION
     // ============================================
     public static final long USER_CACHE_TTL_MS = 2 * 60 * 1000; // 2 minutes
     public static final long BALANCE_FETCH_DEBOUNCE_MS = 30 * 1000; // 30 seconds
     public static final long SYNC_INTERVAL_MS = 5 * 60 * 1000; // 5 minutes
+    public static final long CONFIG_REFRESH_INTERVAL_MS = 15 * 60 * 1000; // 15 minutes
 
     // ============================================
     // NETWORK CONFIGURATION
@@ -104,13 +166,134 @@ public final class AppConfig {
     public static final String EVENT_REFERRAL_USED = "referral_used";
     public static final String EVENT_CHECKIN_COMPLETED = "checkin_completed";
 
+    private static volatile Snapshot current = new Snapshot(Collections.emptyMap());
+
     // Singleton instance
     private static AppConfig instance;
-    private SharedPreferences prefs;
+    private final AtomicFile file;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private volatile long lastFetchAt;
+
+    /**
+     * One version of the remote document, parsed and validated. Immutable.
+     */
+    public static final class Snapshot {
+        public final long version;
+        public final float miningRatePerSecond;
+        public final float adBoostMultiplier;
+        public final float temporaryBoostMultiplier;
+        public final float twitterBoostMultiplier;
+        public final float dailyCheckinMultiplier;
+        public final double referralCommissionRate;
+        public final long adCooldownMs;
+        public final int maxDailyAds;
+        public final TierIndex levelTiers;
+        public final TierIndex vipTiers;
+        public final TierIndex miningPhaseTiers;
+        private final double[] miningPhaseRates;
+
+        // Source document, for the disk cache
+        private final Map<String, Object> values;
+
+        private Snapshot(Map<String, Object> doc) {
+            values = Collections.unmodifiableMap(new HashMap<>(doc));
+            Object v = doc.get(KEY_VERSION);
+            version = v instanceof Number ? ((Number) v).longValue() : 0;
+
+            miningRatePerSecond = (float) positive(doc, KEY_MINING_RATE_PER_SECOND, BASE_MINING_RATE_PER_SECOND);
+            adBoostMultiplier = (float) positive(doc, KEY_AD_BOOST_MULTIPLIER, AD_BOOST_MULTIPLIER);
+            temporaryBoostMultiplier = (float) positive(doc, KEY_TEMPORARY_BOOST_MULTIPLIER, TEMPORARY_BOOST_MULTIPLIER);
+            twitterBoostMultiplier = (float) positive(doc, KEY_TWITTER_BOOST_MULTIPLIER, TWITTER_BOOST_MULTIPLIER);
+            dailyCheckinMultiplier = (float) positive(doc, KEY_DAILY_CHECKIN_MULTIPLIER, DAILY_CHECKIN_MULTIPLIER);
+            referralCommissionRate = atMost(KEY_REFERRAL_COMMISSION_RATE,
+                    positive(doc, KEY_REFERRAL_COMMISSION_RATE, REFERRAL_COMMISSION_RATE), MAX_REFERRAL_COMMISSION_RATE);
+            adCooldownMs = (long) positive(doc, KEY_AD_COOLDOWN_MS, AD_COOLDOWN_MS);
+            maxDailyAds = (int) positive(doc, KEY_MAX_DAILY_ADS, MAX_DAILY_REWARDED_ADS);
+
+            levelTiers = tiers(doc, KEY_LEVEL_TIERS, DEFAULT_LEVEL_TIERS);
+            vipTiers = tiers(doc, KEY_VIP_TIERS, DEFAULT_VIP_TIERS);
+            miningPhaseTiers = tiers(doc, KEY_MINING_PHASE_TIERS, DEFAULT_MINING_PHASE_TIERS);
+            miningPhaseRates = rates(doc, KEY_MINING_PHASE_RATES, DEFAULT_MINING_PHASE_RATES);
+        }
+
+        /**
+         * Base rate (LYX per hour) of a 1-based mining phase.
+         */
+        public double miningPhaseRate(int phase) {
+            return miningPhaseRates[phase - 1];
+        }
+
+        public int miningPhaseCount() {
+            return miningPhaseRates.length;
+        }
+
+        private static double positive(Map<String, Object> doc, String key, double fallback) {
+            Object value = doc.get(key);
+            if (value == null) return fallback;
+            if (value instanceof Number) {
+                double d = ((Number) value).doubleValue();
+                if (d > 0 && !Double.isInfinite(d)) return d;
+            }
+            Log.w(TAG, "Ignoring invalid " + key + ": " + value);
+            return fallback;
+        }
+
+        private static double atMost(String key, double value, double max) {
+            if (value <= max) return value;
+            Log.w(TAG, "Clamping " + key + " " + value + " to " + max);
+            return max;
+        }
+
+        // Tier counts are fixed: each tier maps to a level, VIP tier or phase
+        private static TierIndex tiers(Map<String, Object> doc, String key, TierIndex fallback) {
+            Object value = doc.get(key);
+            if (value == null) return fallback;
+            try {
+                TierIndex parsed = TierIndex.parse(String.valueOf(value));
+                if (parsed.size() == fallback.size()) return parsed;
+            } catch (IllegalArgumentException e) {
+                // fall through
+            }
+            Log.w(TAG, "Ignoring invalid " + key + ": " + value);
+            return fallback;
+        }
+
+        private static double[] rates(Map<String, Object> doc, String key, double[] fallback) {
+            Object value = doc.get(key);
+            if (value == null) return fallback;
+            try {
+                String[] parts = String.valueOf(value).split(",");
+                double[] parsed = new double[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    parsed[i] = Double.parseDouble(parts[i].trim());
+                    if (!(parsed[i] > 0)) throw new NumberFormatException(parts[i]);
+                }
+                if (parsed.length == fallback.length) return parsed;
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+            Log.w(TAG, "Ignoring invalid " + key + ": " + value);
+            return fallback;
+        }
+    }
+
+    /**
+     * Told on a background thread after a new snapshot has replaced the old one.
+     */
+    public interface ChangeListener {
+        void onConfigChanged(Snapshot previous, Snapshot current);
+    }
 
     private AppConfig(Context context) {
-        this.prefs = context.getApplicationContext()
-                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        Context appContext = context.getApplicationContext();
+        this.file = new AtomicFile(new File(appContext.getFilesDir(), FILE_NAME));
+        // Cached snapshot, then the remote document; the caller never waits
+        executor.execute(() -> {
+            appContext.deleteSharedPreferences(LEGACY_PREFS_NAME);
+            loadCached();
+            fetchRemote();
+        });
     }
 
     public static synchronized AppConfig getInstance(Context context) {
@@ -120,57 +303,151 @@ public final class AppConfig {
         return instance;
     }
 
+    /**
+     * The snapshot in effect. Lock-free; safe on any hot path.
+     */
+    public static Snapshot current() {
+        return current;
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
     // ============================================
-    // REMOTE CONFIG SUPPORT (Future Integration)
+    // TUNABLE VALUES
     // ============================================
 
-    /**
-     * Get mining rate - can be overridden by remote config
-     */
     public float getMiningRatePerHour() {
-        return prefs.getFloat("mining_rate_per_hour", BASE_MINING_RATE_PER_HOUR);
+        return current.miningRatePerSecond * 3600;
     }
 
-    /**
-     * Get ad cooldown - can be overridden by remote config
-     */
     public long getAdCooldown() {
-        return prefs.getLong("ad_cooldown", AD_COOLDOWN_MS);
+        return current.adCooldownMs;
     }
 
-    /**
-     * Get max daily ads - can be overridden by remote config
-     */
     public int getMaxDailyAds() {
-        return prefs.getInt("max_daily_ads", MAX_DAILY_REWARDED_ADS);
+        return current.maxDailyAds;
     }
 
-    /**
-     * Get referral commission rate - can be overridden by remote config
-     */
     public double getReferralCommissionRate() {
-        return (double) prefs.getFloat("referral_commission_rate", (float) REFERRAL_COMMISSION_RATE);
+        return current.referralCommissionRate;
+    }
+
+    public static TierIndex levelTiers() {
+        return current.levelTiers;
+    }
+
+    public static TierIndex vipTiers() {
+        return current.vipTiers;
+    }
+
+    public static TierIndex miningPhaseTiers() {
+        return current.miningPhaseTiers;
     }
 
     /**
-     * Update config from remote (call when Firebase Remote Config fetches)
+     * Fetch config/app again, e.g. when the app returns to the foreground.
+     * Does nothing within CONFIG_REFRESH_INTERVAL_MS of the last fetch.
      */
-    public void updateFromRemote(float miningRate, long adCooldown, int maxDailyAds, float commissionRate) {
-        prefs.edit()
-                .putFloat("mining_rate_per_hour", miningRate)
-                .putLong("ad_cooldown", adCooldown)
-                .putInt("max_daily_ads", maxDailyAds)
-                .putFloat("referral_commission_rate", commissionRate)
-                .apply();
-        Log.d(TAG, "Config updated from remote");
+    public void refresh() {
+        if (System.currentTimeMillis() - lastFetchAt < CONFIG_REFRESH_INTERVAL_MS) return;
+        executor.execute(this::fetchRemote);
     }
 
     /**
-     * Reset to default values
+     * Drop the cached snapshot and go back to the built-in values
      */
     public void resetToDefaults() {
-        prefs.edit().clear().apply();
-        Log.d(TAG, "Config reset to defaults");
+        executor.execute(() -> {
+            file.delete();
+            swap(new Snapshot(Collections.emptyMap()));
+            Log.d(TAG, "Config reset to defaults");
+        });
+    }
+
+    // ============================================
+    // LOADING
+    // ============================================
+
+    private void fetchRemote() {
+        lastFetchAt = System.currentTimeMillis();
+        FirebaseDatabase.getInstance().getReference(CONFIG_PATH).get()
+                .addOnSuccessListener(snapshot -> {
+                    Object value = snapshot.getValue();
+                    if (!(value instanceof Map)) return;
+                    Map<String, Object> doc = new HashMap<>();
+                    for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                        doc.put(String.valueOf(entry.getKey()), entry.getValue());
+                    }
+                    executor.execute(() -> offer(new Snapshot(doc), true));
+                })
+                .addOnFailureListener(e -> Log.w(TAG, "Remote config fetch failed, keeping v" + current.version, e));
     }
-}
 
+    private void loadCached() {
+        try (FileInputStream fis = file.openRead()) {
+            byte[] bytes = new byte[fis.available()];
+            int read = 0;
+            while (read < bytes.length) {
+                int n = fis.read(bytes, read, bytes.length - read);
+                if (n < 0) break;
+                read += n;
+            }
+            JSONObject json = new JSONObject(new String(bytes, 0, read, StandardCharsets.UTF_8));
+            Map<String, Object> doc = new HashMap<>();
+            Iterator<String> keys = json.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                doc.put(key, json.get(key));
+            }
+            offer(new Snapshot(doc), false);
+        } catch (FileNotFoundException e) {
+            // Nothing cached yet
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read cached config", e);
+        }
+    }
+
+    /**
+     * Apply a snapshot if it is newer than the current one. Executor thread only.
+     */
+    private void offer(Snapshot next, boolean persist) {
+        if (next.version <= current.version) return;
+        if (persist) save(next);
+        swap(next);
+        Log.d(TAG, "Config v" + next.version + " applied");
+    }
+
+    private void swap(Snapshot next) {
+        Snapshot previous = current;
+        current = next;
+        for (ChangeListener listener : listeners) {
+            try {
+                listener.onConfigChanged(previous, next);
+            } catch (Exception e) {
+                Log.e(TAG, "Error notifying config listener", e);
+            }
+        }
+    }
+
+    private void save(Snapshot snapshot) {
+        FileOutputStream fos = null;
+        try {
+            fos = file.startWrite();
+            fos.write(new JSONObject(snapshot.values).toString().getBytes(StandardCharsets.UTF_8));
+            file.finishWrite(fos);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to cache config", e);
+            if (fos != null) {
+                file.failWrite(fos);
+            }
+        }
+    }
+}
@@ -11,8 +11,6 @@ import android.widget.ImageView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
-
 import java.util.List;
 
 public class BannerAdapter extends RecyclerView.Adapter<BannerAdapter.BannerViewHolder> {
@@ -35,11 +33,12 @@ public class BannerAdapter extends RecyclerView.Adapter<BannerAdapter.BannerView
     public void onBindViewHolder(@NonNull BannerViewHolder holder, int position) {
         Banner banner = bannerList.get(position);
 
-        // Load image using Glide
-        Glide.with(context)
-                .load(banner.getImageUrl())
-                .centerCrop()
-                .into(holder.imageView);
+        // Decoded at the view's size; warm the next banner at the same size
+        ImagePipeline.loadBanner(holder.imageView, banner.getImageUrl());
+        if (position + 1 < bannerList.size()) {
+            ImagePipeline.preloadBanner(context, bannerList.get(position + 1).getImageUrl(),
+                    holder.imageView.getWidth(), holder.imageView.getHeight());
+        }
 
         // Set up click listener for the banner
         holder.itemView.setOnClickListener(v -> {
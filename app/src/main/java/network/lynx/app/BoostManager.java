@@ -20,12 +20,7 @@ public class BoostManager {
     private DatabaseReference userRef;
     private String userId;
 
-    // Enhanced base rates for better rewards
-    private static final float BASE_RATE_PER_SECOND = 0.00125f;  // ~4.5 LYX/hour base
-    private static final float AD_BOOST_MULTIPLIER = 2.0f;       // 2x when ad is watched
-    private static final float TEMPORARY_BOOST_MULTIPLIER = 1.5f; // 1.5x temporary boost
-    private static final float TWITTER_BOOST_MULTIPLIER = 1.2f;   // 1.2x Twitter follow
-    private static final float DAILY_CHECKIN_MULTIPLIER = 1.1f;   // 1.1x daily checkin
+    // Base rate and boost multipliers come from AppConfig.current()
 
     // Current boost states
     private boolean isAdWatched = false;
@@ -229,11 +224,12 @@ public class BoostManager {
 
     // RATE CALCULATION METHODS
     public float getCurrentMiningRatePerSecond() {
-        float rate = BASE_RATE_PER_SECOND;
+        AppConfig.Snapshot config = AppConfig.current();
+        float rate = config.miningRatePerSecond;
 
         // Apply ad boost
         if (isAdWatched) {
-            rate *= AD_BOOST_MULTIPLIER;
+            rate *= config.adBoostMultiplier;
         }
 
         // Apply permanent boost
@@ -243,17 +239,17 @@ public class BoostManager {
 
         // Apply temporary boost
         if (isTemporaryBoostActive && System.currentTimeMillis() <= temporaryBoostExpirationTime) {
-            rate *= TEMPORARY_BOOST_MULTIPLIER;
+            rate *= config.temporaryBoostMultiplier;
         }
 
         // Apply Twitter boost
         if (isTwitterBoostActive && System.currentTimeMillis() <= twitterBoostExpirationTime) {
-            rate *= TWITTER_BOOST_MULTIPLIER;
+            rate *= config.twitterBoostMultiplier;
         }
 
         // Apply daily checkin boost
         if (isDailyCheckinBoostActive && System.currentTimeMillis() <= dailyCheckinBoostExpirationTime) {
-            rate *= DAILY_CHECKIN_MULTIPLIER;
+            rate *= config.dailyCheckinMultiplier;
         }
 
         // NEW: Apply mining streak multiplier
@@ -291,17 +287,18 @@ public class BoostManager {
     }
 
     public float getTotalMultiplier() {
+        AppConfig.Snapshot config = AppConfig.current();
         float multiplier = 1.0f;
-        if (isAdWatched) multiplier *= AD_BOOST_MULTIPLIER;
+        if (isAdWatched) multiplier *= config.adBoostMultiplier;
         if (hasPermanentBoost) multiplier *= permanentBoostMultiplier;
         if (isTemporaryBoostActive && System.currentTimeMillis() <= temporaryBoostExpirationTime) {
-            multiplier *= TEMPORARY_BOOST_MULTIPLIER;
+            multiplier *= config.temporaryBoostMultiplier;
         }
         if (isTwitterBoostActive && System.currentTimeMillis() <= twitterBoostExpirationTime) {
-            multiplier *= TWITTER_BOOST_MULTIPLIER;
+            multiplier *= config.twitterBoostMultiplier;
         }
         if (isDailyCheckinBoostActive && System.currentTimeMillis() <= dailyCheckinBoostExpirationTime) {
-            multiplier *= DAILY_CHECKIN_MULTIPLIER;
+            multiplier *= config.dailyCheckinMultiplier;
         }
         return multiplier;
     }
@@ -440,6 +437,7 @@ public class BoostManager {
     }
 
     public String getBoostInfo() {
+        AppConfig.Snapshot config = AppConfig.current();
         List<String> activeBoosts = new ArrayList<>();
 
         if (hasPermanentBoost) {
@@ -448,20 +446,20 @@ public class BoostManager {
         if (isTemporaryBoostActive()) {
             long timeRemaining = getTemporaryBoostTimeRemaining();
             activeBoosts.add(String.format("⚡ Temporary +%.0f%% (%dm left)",
-                    (TEMPORARY_BOOST_MULTIPLIER - 1) * 100, timeRemaining / 60000));
+                    (config.temporaryBoostMultiplier - 1) * 100, timeRemaining / 60000));
         }
         if (isTwitterBoostActive()) {
             long timeRemaining = twitterBoostExpirationTime - System.currentTimeMillis();
             activeBoosts.add(String.format("📱 Twitter +%.0f%% (%dh left)",
-                    (TWITTER_BOOST_MULTIPLIER - 1) * 100, timeRemaining / (60 * 60 * 1000)));
+                    (config.twitterBoostMultiplier - 1) * 100, timeRemaining / (60 * 60 * 1000)));
         }
         if (isDailyCheckinBoostActive()) {
             long timeRemaining = dailyCheckinBoostExpirationTime - System.currentTimeMillis();
             activeBoosts.add(String.format("💎 Daily +%.0f%% (%dh left)",
-                    (DAILY_CHECKIN_MULTIPLIER - 1) * 100, timeRemaining / (60 * 60 * 1000)));
+                    (config.dailyCheckinMultiplier - 1) * 100, timeRemaining / (60 * 60 * 1000)));
         }
         if (isAdWatched) {
-            activeBoosts.add("📺 Ad Boost +100%");
+            activeBoosts.add(String.format("📺 Ad Boost +%.0f%%", (config.adBoostMultiplier - 1) * 100));
         }
 
         if (activeBoosts.isEmpty()) {
@@ -487,12 +485,13 @@ public class BoostManager {
      * Get detailed rate breakdown for debugging - THIS WAS THE MISSING METHOD
      */
     public String getRateBreakdown() {
+        AppConfig.Snapshot config = AppConfig.current();
         StringBuilder breakdown = new StringBuilder();
         breakdown.append("=== BOOST RATE BREAKDOWN ===\n");
-        breakdown.append("Base rate: ").append(String.format("%.6f", BASE_RATE_PER_SECOND)).append("/sec (").append(String.format("%.4f", BASE_RATE_PER_SECOND * 3600)).append("/hour)\n");
+        breakdown.append("Base rate: ").append(String.format("%.6f", config.miningRatePerSecond)).append("/sec (").append(String.format("%.4f", config.miningRatePerSecond * 3600)).append("/hour)\n");
 
         if (isAdWatched) {
-            breakdown.append("Ad boost: x").append(AD_BOOST_MULTIPLIER).append(" (+").append((AD_BOOST_MULTIPLIER - 1) * 100).append("%)\n");
+            breakdown.append("Ad boost: x").append(config.adBoostMultiplier).append(" (+").append((config.adBoostMultiplier - 1) * 100).append("%)\n");
         }
 
         if (hasPermanentBoost) {
@@ -501,17 +500,17 @@ public class BoostManager {
 
         if (isTemporaryBoostActive && System.currentTimeMillis() <= temporaryBoostExpirationTime) {
             long timeRemaining = temporaryBoostExpirationTime - System.currentTimeMillis();
-            breakdown.append("Temporary boost: x").append(TEMPORARY_BOOST_MULTIPLIER).append(" (+").append((TEMPORARY_BOOST_MULTIPLIER - 1) * 100).append("%) - ").append(timeRemaining / 60000).append("m left\n");
+            breakdown.append("Temporary boost: x").append(config.temporaryBoostMultiplier).append(" (+").append((config.temporaryBoostMultiplier - 1) * 100).append("%) - ").append(timeRemaining / 60000).append("m left\n");
         }
 
         if (isTwitterBoostActive && System.currentTimeMillis() <= twitterBoostExpirationTime) {
             long timeRemaining = twitterBoostExpirationTime - System.currentTimeMillis();
-            breakdown.append("Twitter boost: x").append(TWITTER_BOOST_MULTIPLIER).append(" (+").append((TWITTER_BOOST_MULTIPLIER - 1) * 100).append("%) - ").append(timeRemaining / (60 * 60 * 1000)).append("h left\n");
+            breakdown.append("Twitter boost: x").append(config.twitterBoostMultiplier).append(" (+").append((config.twitterBoostMultiplier - 1) * 100).append("%) - ").append(timeRemaining / (60 * 60 * 1000)).append("h left\n");
         }
 
         if (isDailyCheckinBoostActive && System.currentTimeMillis() <= dailyCheckinBoostExpirationTime) {
             long timeRemaining = dailyCheckinBoostExpirationTime - System.currentTimeMillis();
-            breakdown.append("Daily checkin boost: x").append(DAILY_CHECKIN_MULTIPLIER).append(" (+").append((DAILY_CHECKIN_MULTIPLIER - 1) * 100).append("%) - ").append(timeRemaining / (60 * 60 * 1000)).append("h left\n");
+            breakdown.append("Daily checkin boost: x").append(config.dailyCheckinMultiplier).append(" (+").append((config.dailyCheckinMultiplier - 1) * 100).append("%) - ").append(timeRemaining / (60 * 60 * 1000)).append("h left\n");
         }
 
         breakdown.append("---\n");
@@ -0,0 +1,294 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Commission totals maintained at write time
+ *
+ * users/{uid}/commissionRollups:
+ * - total:              all-time sum
+ * - hourly/{epochHour}: sum per UTC hour
+ * - backfilled:         true once pre-rollup commissions were folded in
+ *
+ * Commissions are written by the miner's device, which does not know the
+ * referrer's time zone, so buckets are zone-free hours. The referrer sums
+ * the hours since their local midnight / local Monday, in one range read.
+ * (Zones with half-hour offsets round the boundary down to the hour.)
+ *
+ * Every commission entry is written together with its rollup increments and
+ * a "rolledUp" flag, so the headline totals cost two small reads. Hours
+ * before the current week are never read again; the owner deletes them once
+ * a week.
+ */
+public class CommissionRollupManager {
+    private static final String TAG = "CommissionRollups";
+    private static final String NODE = "commissionRollups";
+    private static final String PREFS_NAME = "commission_rollups";
+    private static final String KEY_BACKFILLED = "backfilled_";
+    private static final String KEY_PRUNED_WEEK = "prunedWeek_";
+    private static final long HOUR_MS = 60L * 60 * 1000;
+
+    public static class Totals {
+        public double today;
+        public double week;
+        public double allTime;
+    }
+
+    public interface TotalsCallback {
+        void onTotals(Totals totals);
+    }
+
+    /**
+     * Add the commission entry and its rollup increments to a multi-path
+     * update rooted at the referrer's user node.
+     */
+    public static void addCommission(Map<String, Object> updates, String commissionId,
+                                     Map<String, Object> commissionData, double amount, long timestamp) {
+        commissionData.put("rolledUp", true);
+        updates.put("commissions/" + commissionId, commissionData);
+        updates.put(NODE + "/total", ServerValue.increment(amount));
+        updates.put(NODE + "/hourly/" + hourOf(timestamp), ServerValue.increment(amount));
+    }
+
+    private static long hourOf(long timestamp) {
+        return timestamp / HOUR_MS;
+    }
+
+    /**
+     * Start of the local day and of the local (Monday-based) week containing now.
+     */
+    static long[] localBoundaries(long now, TimeZone zone) {
+        Calendar cal = Calendar.getInstance(zone);
+        cal.setTimeInMillis(now);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        long dayStart = cal.getTimeInMillis();
+
+        int sinceMonday = (cal.get(Calendar.DAY_OF_WEEK) + 5) % 7;
+        cal.add(Calendar.DAY_OF_MONTH, -sinceMonday);
+        return new long[]{dayStart, cal.getTimeInMillis()};
+    }
+
+    /**
+     * Today, this week and all-time totals - three scalar reads. Backfills
+     * once for accounts that have commissions from before rollups existed.
+     */
+    public static void loadTotals(Context context, String userId, TotalsCallback callback) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        DatabaseReference userRef = FirebaseDatabase.getInstance().getReference("users").child(userId);
+        DatabaseReference rollupRef = userRef.child(NODE);
+        long now = System.currentTimeMillis();
+
+        if (!prefs.getBoolean(KEY_BACKFILLED + userId, false)) {
+            rollupRef.child("backfilled").addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    if (Boolean.TRUE.equals(snapshot.getValue(Boolean.class))) {
+                        prefs.edit().putBoolean(KEY_BACKFILLED + userId, true).apply();
+                        loadTotals(context, userId, callback);
+                    } else {
+                        backfill(userRef,
+                                () -> prefs.edit().putBoolean(KEY_BACKFILLED + userId, true).apply(),
+                                callback);
+                    }
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    Log.e(TAG, "Failed to read backfill flag", error.toException());
+                    callback.onTotals(new Totals());
+                }
+            });
+            return;
+        }
+
+        Totals totals = new Totals();
+        int[] pending = {2};
+        Runnable done = () -> {
+            if (--pending[0] == 0) callback.onTotals(totals);
+        };
+
+        long[] bounds = localBoundaries(now, TimeZone.getDefault());
+        long dayHour = hourOf(bounds[0]);
+        pruneOldHours(prefs, rollupRef, userId, hourOf(bounds[1]));
+        rollupRef.child("hourly").orderByKey().startAt(String.valueOf(hourOf(bounds[1])))
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        for (DataSnapshot hour : snapshot.getChildren()) {
+                            double value = valueOf(hour);
+                            totals.week += value;
+                            if (Long.parseLong(hour.getKey()) >= dayHour) totals.today += value;
+                        }
+                        done.run();
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        Log.e(TAG, "Failed to read hourly rollups", error.toException());
+                        done.run();
+                    }
+                });
+        rollupRef.child("total").addListenerForSingleValueEvent(new SimpleListener(value -> {
+            totals.allTime = value;
+            done.run();
+        }));
+    }
+
+    /**
+     * Delete the hourly buckets before this week's first hour, at most once
+     * per week per user.
+     */
+    private static void pruneOldHours(SharedPreferences prefs, DatabaseReference rollupRef,
+                                      String userId, long weekHour) {
+        if (prefs.getLong(KEY_PRUNED_WEEK + userId, 0) >= weekHour) return;
+
+        DatabaseReference hourlyRef = rollupRef.child("hourly");
+        hourlyRef.orderByKey().endAt(String.valueOf(weekHour - 1)).get()
+                .addOnSuccessListener(snapshot -> {
+                    Map<String, Object> stale = new HashMap<>();
+                    for (DataSnapshot hour : snapshot.getChildren()) {
+                        stale.put(hour.getKey(), null);
+                    }
+                    if (stale.isEmpty()) {
+                        prefs.edit().putLong(KEY_PRUNED_WEEK + userId, weekHour).apply();
+                        return;
+                    }
+                    hourlyRef.updateChildren(stale)
+                            .addOnSuccessListener(aVoid -> {
+                                prefs.edit().putLong(KEY_PRUNED_WEEK + userId, weekHour).apply();
+                                Log.d(TAG, "Pruned " + stale.size() + " hourly rollups");
+                            })
+                            .addOnFailureListener(e -> Log.w(TAG, "Failed to prune hourly rollups", e));
+                })
+                .addOnFailureListener(e -> Log.w(TAG, "Failed to read old hourly rollups", e));
+    }
+
+    /**
+     * One-time fold of commissions written before rollups existed (those
+     * without "rolledUp"). Runs as a transaction so it is applied at most once.
+     */
+    private static void backfill(DatabaseReference userRef, Runnable onBackfilled, TotalsCallback callback) {
+        userRef.child("commissions").addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                long[] bounds = localBoundaries(System.currentTimeMillis(), TimeZone.getDefault());
+                long dayHour = hourOf(bounds[0]);
+                long weekHour = hourOf(bounds[1]);
+                double legacyTotal = 0;
+                // Only hours in the current week are ever read back
+                Map<Long, Double> legacyHours = new HashMap<>();
+
+                for (DataSnapshot commission : snapshot.getChildren()) {
+                    if (Boolean.TRUE.equals(commission.child("rolledUp").getValue(Boolean.class))) continue;
+                    Double amount = commission.child("amount").getValue(Double.class);
+                    Long timestamp = commission.child("timestamp").getValue(Long.class);
+                    if (amount == null) continue;
+
+                    legacyTotal += amount;
+                    if (timestamp != null && hourOf(timestamp) >= weekHour) {
+                        Double sum = legacyHours.get(hourOf(timestamp));
+                        legacyHours.put(hourOf(timestamp), (sum != null ? sum : 0) + amount);
+                    }
+                }
+                double allTime = legacyTotal;
+
+                userRef.child(NODE).runTransaction(new Transaction.Handler() {
+                    @NonNull
+                    @Override
+                    public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                        if (Boolean.TRUE.equals(currentData.child("backfilled").getValue(Boolean.class))) {
+                            return Transaction.abort();
+                        }
+                        add(currentData.child("total"), allTime);
+                        for (Map.Entry<Long, Double> hour : legacyHours.entrySet()) {
+                            add(currentData.child("hourly").child(String.valueOf(hour.getKey())), hour.getValue());
+                        }
+                        currentData.child("backfilled").setValue(true);
+                        return Transaction.success(currentData);
+                    }
+
+                    @Override
+                    public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                        if (error != null) {
+                            Log.e(TAG, "Rollup backfill failed", error.toException());
+                        } else {
+                            onBackfilled.run();
+                        }
+                        Totals totals = new Totals();
+                        if (currentData != null) {
+                            totals.allTime = valueOf(currentData.child("total"));
+                            for (DataSnapshot hour : currentData.child("hourly").getChildren()) {
+                                long key = Long.parseLong(hour.getKey());
+                                if (key < weekHour) continue;
+                                totals.week += valueOf(hour);
+                                if (key >= dayHour) totals.today += valueOf(hour);
+                            }
+                        }
+                        callback.onTotals(totals);
+                    }
+                });
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "Failed to read commissions for backfill", error.toException());
+                callback.onTotals(new Totals());
+            }
+        });
+    }
+
+    private static void add(MutableData data, double amount) {
+        Object current = data.getValue();
+        double base = current instanceof Number ? ((Number) current).doubleValue() : 0;
+        data.setValue(base + amount);
+    }
+
+    private static double valueOf(DataSnapshot snapshot) {
+        Double value = snapshot.getValue(Double.class);
+        return value != null ? value : 0;
+    }
+
+    private interface DoubleCallback {
+        void onValue(double value);
+    }
+
+    private static class SimpleListener implements ValueEventListener {
+        private final DoubleCallback callback;
+
+        SimpleListener(DoubleCallback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            callback.onValue(valueOf(snapshot));
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            Log.e(TAG, "Failed to read rollup", error.toException());
+            callback.onValue(0);
+        }
+    }
+}
@@ -18,12 +18,10 @@ import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 
 import network.lynx.app.R;
@@ -32,14 +30,20 @@ import network.lynx.app.CommissionInfo;
 
 public class CommissionsTabFragment extends Fragment {
 
+    private static final int PAGE_SIZE = 25;
+    private static final int LOAD_MORE_THRESHOLD = 5;
+
     private TextView todayCommission, weekCommission, totalCommission, emptyCommissionsText;
     private RecyclerView commissionsRecyclerView;
     private CommissionAdapter commissionAdapter;
     private List<CommissionInfo> commissionList = new ArrayList<>();
 
-    // Track listeners for cleanup
-    private ValueEventListener commissionsListener;
-    private DatabaseReference userRef;
+    // Paging state: newest first, cursor is the oldest item loaded so far
+    private DatabaseReference commissionsRef;
+    private Long cursorTimestamp = null;
+    private String cursorKey = null;
+    private boolean isLoadingPage = false;
+    private boolean endReached = false;
 
     @Nullable
     @Override
@@ -52,100 +56,81 @@ public class CommissionsTabFragment extends Fragment {
         emptyCommissionsText = view.findViewById(R.id.emptyCommissionsText);
         commissionsRecyclerView = view.findViewById(R.id.commissionsRecyclerView);
 
+        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        commissionsRef = FirebaseDatabase.getInstance().getReference("users").child(userId).child("commissions");
+
         setupRecyclerView();
-        initializeCommissionsNode();
-        loadCommissionData();
+        loadCommissionTotals(userId);
+        loadNextPage();
 
         return view;
     }
 
     private void setupRecyclerView() {
         commissionAdapter = new CommissionAdapter(commissionList);
-        commissionsRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        commissionsRecyclerView.setLayoutManager(layoutManager);
         commissionsRecyclerView.setAdapter(commissionAdapter);
-    }
 
-    private void initializeCommissionsNode() {
-        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        DatabaseReference userRef = FirebaseDatabase.getInstance().getReference("users").child(userId);
-
-        userRef.child("commissions").addListenerForSingleValueEvent(new ValueEventListener() {
+        commissionsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                if (!snapshot.exists()) {
-                    userRef.child("commissions").setValue(new HashMap<>());
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0) return;
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= commissionList.size() - LOAD_MORE_THRESHOLD) {
+                    loadNextPage();
                 }
             }
+        });
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                // Handle error
-            }
+    private void loadCommissionTotals(String userId) {
+        // Headline totals come from write-time rollups - three scalar reads
+        CommissionRollupManager.loadTotals(requireContext(), userId, totals -> {
+            if (!isAdded()) return;
+            todayCommission.setText(String.format("%.2f LYX", totals.today));
+            weekCommission.setText(String.format("%.2f LYX", totals.week));
+            totalCommission.setText(String.format("%.2f LYX", totals.allTime));
         });
     }
 
-    private void loadCommissionData() {
-        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        userRef = FirebaseDatabase.getInstance().getReference("users").child(userId);
+    private void loadNextPage() {
+        if (isLoadingPage || endReached) return;
+        isLoadingPage = true;
 
-        // Remove existing listener to prevent duplicates
-        if (commissionsListener != null) {
-            userRef.child("commissions").removeEventListener(commissionsListener);
+        Query query = commissionsRef.orderByChild("timestamp");
+        if (cursorTimestamp != null) {
+            query = query.endBefore(cursorTimestamp, cursorKey);
         }
 
-        // OPTIMIZATION: Use single value event listener to reduce Firebase reads
-        commissionsListener = new ValueEventListener() {
+        query.limitToLast(PAGE_SIZE).addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
+                isLoadingPage = false;
                 if (!isAdded()) return;
 
-                commissionList.clear();
-                double todayTotal = 0.0;
-                double weekTotal = 0.0;
-                double allTimeTotal = 0.0;
-
-                // Get current time
-                Calendar calendar = Calendar.getInstance();
-                long currentTime = calendar.getTimeInMillis();
-
-                // Start of today
-                calendar.set(Calendar.HOUR_OF_DAY, 0);
-                calendar.set(Calendar.MINUTE, 0);
-                calendar.set(Calendar.SECOND, 0);
-                calendar.set(Calendar.MILLISECOND, 0);
-                long startOfToday = calendar.getTimeInMillis();
-
-                // Start of this week (assuming week starts on Monday)
-                calendar.set(Calendar.DAY_OF_WEEK, calendar.getFirstDayOfWeek());
-                long startOfWeek = calendar.getTimeInMillis();
-
+                // Results arrive oldest first; the list shows newest first
+                List<CommissionInfo> page = new ArrayList<>();
                 for (DataSnapshot commissionSnapshot : snapshot.getChildren()) {
                     CommissionInfo commission = commissionSnapshot.getValue(CommissionInfo.class);
-
                     if (commission != null) {
-                        commissionList.add(commission);
-                        allTimeTotal += commission.getAmount();
-
-                        if (commission.getTimestamp() >= startOfToday) {
-                            todayTotal += commission.getAmount();
-                        }
-
-                        if (commission.getTimestamp() >= startOfWeek) {
-                            weekTotal += commission.getAmount();
-                        }
+                        commission.setId(commissionSnapshot.getKey());
+                        page.add(0, commission);
                     }
                 }
 
-                // Sort by timestamp (newest first)
-                Collections.sort(commissionList, (c1, c2) ->
-                        Long.compare(c2.getTimestamp(), c1.getTimestamp()));
-
-                // Update UI
-                todayCommission.setText(String.format("%.2f LYX", todayTotal));
-                weekCommission.setText(String.format("%.2f LYX", weekTotal));
-                totalCommission.setText(String.format("%.2f LYX", allTimeTotal));
-
-                commissionAdapter.notifyDataSetChanged();
+                if (snapshot.getChildrenCount() < PAGE_SIZE) {
+                    endReached = true;
+                }
+                if (!page.isEmpty()) {
+                    CommissionInfo oldest = page.get(page.size() - 1);
+                    cursorTimestamp = oldest.getTimestamp();
+                    cursorKey = oldest.getId();
+
+                    int start = commissionList.size();
+                    commissionList.addAll(page);
+                    commissionAdapter.notifyItemRangeInserted(start, page.size());
+                }
 
                 // Show empty state if no commissions
                 if (commissionList.isEmpty()) {
@@ -159,20 +144,14 @@ public class CommissionsTabFragment extends Fragment {
 
             @Override
             public void onCancelled(@NonNull DatabaseError error) {
-                // Handle error
+                isLoadingPage = false;
             }
-        };
-
-        userRef.child("commissions").addListenerForSingleValueEvent(commissionsListener);
+        });
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
-        // OPTIMIZATION: Clean up Firebase listeners
-        if (commissionsListener != null && userRef != null) {
-            userRef.child("commissions").removeEventListener(commissionsListener);
-            commissionsListener = null;
-        }
+        commissionsRecyclerView.clearOnScrollListeners();
     }
-}
\ No newline at end of file
+}
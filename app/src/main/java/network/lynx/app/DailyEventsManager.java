@@ -9,15 +9,12 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ServerValue;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Random;
 
 /**
  * DailyEventsManager - Manages daily challenges, events, and engagement features
@@ -38,7 +35,6 @@ public class DailyEventsManager {
     private SharedPreferences prefs;
     private DatabaseReference userRef;
     private String userId;
-    private Random random = new Random();
 
     // ==================== DAILY CHALLENGES ====================
 
@@ -205,7 +201,7 @@ public class DailyEventsManager {
     }
 
     private String getTodayKey() {
-        return new SimpleDateFormat("yyyyMMdd", Locale.US).format(new Date());
+        return StreakEngine.formatDay(StreakEngine.today(), false);
     }
 
     private void checkAndResetDaily() {
@@ -308,16 +304,8 @@ public class DailyEventsManager {
         if (userRef != null) {
             Map<String, Object> updates = new HashMap<>();
             updates.put("totalcoins", ServerValue.increment(challenge.reward));
-            userRef.updateChildren(updates).addOnCompleteListener(task -> {
-                // FIXED: Notify WalletManager so balance updates immediately
-                if (task.isSuccessful()) {
-                    try {
-                        WalletManager.getInstance(context).refreshBalance();
-                    } catch (Exception e) {
-                        Log.w(TAG, "Failed to notify WalletManager", e);
-                    }
-                }
-            });
+            // The wallet's balance listener picks the increment up as a local event
+            userRef.updateChildren(updates);
         }
 
         callback.onClaimed(challenge.reward);
@@ -346,26 +334,25 @@ public class DailyEventsManager {
     public CheckInStatus getCheckInStatus() {
         CheckInStatus status = new CheckInStatus();
 
-        status.currentStreak = prefs.getInt("checkInStreak", 0);
-        status.longestStreak = prefs.getInt("longestStreak", 0);
-        status.checkedInToday = prefs.getString("lastCheckIn", "").equals(getTodayKey());
+        StreakEngine engine = StreakEngine.getInstance(context);
+        StreakEngine.Record record = engine.get(StreakEngine.CHECK_IN);
+        status.currentStreak = engine.current(StreakEngine.CHECK_IN, 0);
+        status.longestStreak = engine.best(StreakEngine.CHECK_IN);
+        status.checkedInToday = engine.claimedToday(StreakEngine.CHECK_IN);
 
-        // Calculate weekly check-ins
+        // This week (Sunday first); checked-in days are the ones covered by the current run
         status.weeklyCheckIns = new int[7];
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.DAY_OF_WEEK, Calendar.SUNDAY);
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd", Locale.US);
-
+        int today = StreakEngine.today();
+        int weekStart = today - StreakEngine.dayOfWeek(today);
         for (int i = 0; i < 7; i++) {
-            String dayKey = sdf.format(cal.getTime());
-            boolean isToday = dayKey.equals(getTodayKey());
+            int day = weekStart + i;
+            boolean checked = record != null && day <= record.lastDay && day > record.lastDay - record.count;
 
-            if (isToday) {
-                status.weeklyCheckIns[i] = status.checkedInToday ? 1 : 2;
+            if (day == today) {
+                status.weeklyCheckIns[i] = checked ? 1 : 2;
             } else {
-                status.weeklyCheckIns[i] = prefs.getBoolean("checkin_" + dayKey, false) ? 1 : 0;
+                status.weeklyCheckIns[i] = checked ? 1 : 0;
             }
-            cal.add(Calendar.DAY_OF_MONTH, 1);
         }
 
         // Calculate rewards
@@ -395,52 +382,39 @@ public class DailyEventsManager {
     }
 
     public void performCheckIn(CheckInCallback callback) {
-        String today = getTodayKey();
-        if (prefs.getString("lastCheckIn", "").equals(today)) {
-            callback.onAlreadyCheckedIn();
+        if (userId == null) {
+            callback.onError("Not logged in");
             return;
         }
 
-        String yesterday = getYesterdayKey();
-        int streak = prefs.getInt("checkInStreak", 0);
-
-        // Check if streak continues or resets
-        if (prefs.getString("lastCheckIn", "").equals(yesterday)) {
-            streak++;
-        } else {
-            streak = 1;
-        }
-
-        int longestStreak = Math.max(streak, prefs.getInt("longestStreak", 0));
-
-        prefs.edit()
-            .putString("lastCheckIn", today)
-            .putBoolean("checkin_" + today, true)
-            .putInt("checkInStreak", streak)
-            .putInt("longestStreak", longestStreak)
-            .apply();
-
-        // Calculate reward
-        int streakDay = Math.min((streak - 1) % 7, 6);
-        double reward = CheckInStatus.DAILY_REWARDS[streakDay];
+        // Streak record and reward in one write; the rules refuse a second claim today
+        StreakEngine.getInstance(context).claim(StreakEngine.CHECK_IN, 0,
+                (streak, updates) -> updates.put("users/" + userId + "/totalcoins",
+                        ServerValue.increment(checkInReward(streak))),
+                new StreakEngine.ClaimCallback() {
+                    @Override
+                    public void onClaimed(int streak) {
+                        // Update check-in challenge
+                        updateChallengeProgress(ChallengeType.CHECK_IN, 1);
 
-        // Add reward to user's balance
-        if (userRef != null) {
-            Map<String, Object> updates = new HashMap<>();
-            updates.put("totalcoins", ServerValue.increment(reward));
-            userRef.updateChildren(updates);
-        }
+                        callback.onCheckInSuccess(checkInReward(streak), streak);
+                    }
 
-        // Update check-in challenge
-        updateChallengeProgress(ChallengeType.CHECK_IN, 1);
+                    @Override
+                    public void onAlreadyClaimed() {
+                        callback.onAlreadyCheckedIn();
+                    }
 
-        callback.onCheckInSuccess(reward, streak);
+                    @Override
+                    public void onError(String message) {
+                        callback.onError(message);
+                    }
+                });
     }
 
-    private String getYesterdayKey() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_MONTH, -1);
-        return new SimpleDateFormat("yyyyMMdd", Locale.US).format(cal.getTime());
+    private static double checkInReward(int streak) {
+        int streakDay = Math.min((streak - 1) % 7, 6);
+        return CheckInStatus.DAILY_REWARDS[streakDay];
     }
 
     public void claimWeeklyBonus(CheckInCallback callback) {
@@ -494,17 +468,17 @@ public class DailyEventsManager {
         result.tier = tier;
 
         // Random reward calculation
-        double range = tier.maxReward - tier.minReward;
-        result.reward = tier.minReward + (random.nextDouble() * range);
+        RewardEngine engine = RewardEngine.getInstance(context);
+        result.reward = engine.between(tier.minReward, tier.maxReward);
         result.reward = Math.round(result.reward * 100.0) / 100.0;
 
         // Random bonus type
-        int bonusRoll = random.nextInt(100);
-        if (bonusRoll < 70) {
+        int bonus = engine.draw(RewardEngine.MYSTERY_BONUS);
+        if (bonus == RewardEngine.BONUS_TOKENS) {
             result.bonusType = "tokens";
             result.bonusAmount = 0;
             result.message = String.format(Locale.US, "You won %.2f LYX!", result.reward);
-        } else if (bonusRoll < 90) {
+        } else if (bonus == RewardEngine.BONUS_SCRATCH_CARDS) {
             result.bonusType = "scratch_cards";
             result.bonusAmount = tier == MysteryBoxTier.GOLD ? 2 : 1;
             result.message = String.format(Locale.US, "You won %.2f LYX + %d Scratch Card(s)!", result.reward, result.bonusAmount);
@@ -516,9 +490,7 @@ public class DailyEventsManager {
 
         // Apply rewards
         if (userRef != null) {
-            Map<String, Object> updates = new HashMap<>();
-            updates.put("totalcoins", ServerValue.increment(result.reward));
-            userRef.updateChildren(updates);
+            engine.credit(result.reward, "games", tier.name + " mystery box");
         }
 
         callback.onBoxOpened(result);
@@ -608,21 +580,9 @@ public class DailyEventsManager {
 
         prefs.edit().putInt("dailySpinsUsed", prefs.getInt("dailySpinsUsed", 0) + 1).apply();
 
-        // Calculate weighted random segment
-        double totalWeight = 0;
-        for (double w : SpinWheelResult.SEGMENT_WEIGHTS) totalWeight += w;
-
-        double roll = random.nextDouble() * totalWeight;
-        double cumulative = 0;
-        int segment = 0;
-
-        for (int i = 0; i < SpinWheelResult.SEGMENT_WEIGHTS.length; i++) {
-            cumulative += SpinWheelResult.SEGMENT_WEIGHTS[i];
-            if (roll <= cumulative) {
-                segment = i;
-                break;
-            }
-        }
+        // Weighted random segment
+        RewardEngine engine = RewardEngine.getInstance(context);
+        int segment = engine.draw(RewardEngine.DAILY_SPIN);
 
         SpinWheelResult result = new SpinWheelResult();
         result.segment = segment;
@@ -642,9 +602,7 @@ public class DailyEventsManager {
 
         // Apply token rewards immediately
         if (result.rewardType.equals("tokens") && userRef != null) {
-            Map<String, Object> updates = new HashMap<>();
-            updates.put("totalcoins", ServerValue.increment(result.reward));
-            userRef.updateChildren(updates);
+            engine.credit(result.reward, "spin", "Daily spin: " + result.displayText);
         }
 
         // Track ads watched
@@ -213,8 +213,8 @@ public class DailyGamesActivity extends AppCompatActivity {
 
                     if (status.currentTier != status.nextTier) {
                         vipProgressText.setText(String.format(Locale.US,
-                            "%.0f / %d to %s",
-                            status.currentCoins, status.nextTier.requiredCoins, status.nextTier.name));
+                            "%.0f / %.0f to %s",
+                            status.currentCoins, status.nextTier.getRequiredCoins(), status.nextTier.name));
                         vipProgressBar.setProgress((int) (status.progressToNextTier * 100));
                     } else {
                         vipProgressText.setText("MAX LEVEL REACHED! 👑");
@@ -309,13 +309,6 @@ public class DailyGamesActivity extends AppCompatActivity {
                     predictionStatus.setAlpha(0f);
                     predictionStatus.animate().alpha(1f).setDuration(500).start();
 
-                    // FIXED: Refresh wallet to sync balance with MiningFragment
-                    try {
-                        WalletManager.getInstance(DailyGamesActivity.this).refreshBalance();
-                    } catch (Exception e) {
-                        // Wallet manager not initialized
-                    }
-
                     loadBalance();
                     ToastUtils.showInfo(DailyGamesActivity.this, message);
                 });
@@ -433,13 +426,6 @@ public class DailyGamesActivity extends AppCompatActivity {
                                     String.format(Locale.US, "😔 You lost %.0f LYX", game.betAmount));
                             }
 
-                            // FIXED: Refresh wallet to sync balance with MiningFragment
-                            try {
-                                WalletManager.getInstance(DailyGamesActivity.this).refreshBalance();
-                            } catch (Exception e) {
-                                // Wallet manager not initialized
-                            }
-
                             loadBalance();
                         });
                     }
@@ -11,13 +11,10 @@ import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
 
@@ -149,8 +146,8 @@ public class DailyMissionsManager {
             generateDailyMissions();
             prefs.edit()
                     .putString("lastMissionDate", today)
-                    .putInt("missionStreak", getMissionStreak(lastDate))
                     .apply();
+            recordMissionDay();
         } else {
             // Load existing missions
             loadMissionsFromPrefs();
@@ -159,23 +156,21 @@ public class DailyMissionsManager {
         notifyListener();
     }
 
-    private int getMissionStreak(String lastDate) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd", Locale.getDefault());
-            Date last = sdf.parse(lastDate);
-            Date today = sdf.parse(getTodayDate());
-
-            if (last != null && today != null) {
-                long diff = (today.getTime() - last.getTime()) / (24 * 60 * 60 * 1000);
-                if (diff == 1) {
-                    // Consecutive day
-                    return prefs.getInt("missionStreak", 0) + 1;
-                }
+    private void recordMissionDay() {
+        StreakEngine.getInstance(context).claim(StreakEngine.MISSIONS, 0, null, new StreakEngine.ClaimCallback() {
+            @Override
+            public void onClaimed(int newCount) {
+                notifyListener();
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error calculating streak", e);
-        }
-        return 0; // Streak broken
+
+            @Override
+            public void onAlreadyClaimed() {}
+
+            @Override
+            public void onError(String message) {
+                Log.e(TAG, "Error recording mission streak: " + message);
+            }
+        });
     }
 
     /**
@@ -308,40 +303,21 @@ public class DailyMissionsManager {
             return;
         }
 
-        // Update Firebase - FIXED: Use 'totalcoins' (lowercase) to match rest of app
-        dbRef.child("users").child(currentUserId).child("totalcoins")
-                .get().addOnSuccessListener(snapshot -> {
-                    double current = 0;
-                    if (snapshot.exists() && snapshot.getValue() != null) {
-                        current = ((Number) snapshot.getValue()).doubleValue();
+        // Shown in the wallet at once; no read of the balance before or after
+        WalletManager.getInstance(context).addTokens(lyx, "bonus", "Mission reward");
+
+        // Update XP
+        dbRef.child("users").child(currentUserId).child("xp")
+                .get().addOnSuccessListener(xpSnap -> {
+                    int currentXp = 0;
+                    if (xpSnap.exists() && xpSnap.getValue() != null) {
+                        currentXp = ((Number) xpSnap.getValue()).intValue();
                     }
-                    dbRef.child("users").child(currentUserId).child("totalcoins")
-                            .setValue(current + lyx)
-                            .addOnCompleteListener(task -> {
-                                // FIXED: Notify WalletManager so balance updates immediately
-                                if (task.isSuccessful()) {
-                                    try {
-                                        WalletManager.getInstance(context).refreshBalance();
-                                    } catch (Exception e) {
-                                        Log.w(TAG, "Failed to notify WalletManager", e);
-                                    }
-                                }
-                            });
-
-                    // Update XP
                     dbRef.child("users").child(currentUserId).child("xp")
-                            .get().addOnSuccessListener(xpSnap -> {
-                                int currentXp = 0;
-                                if (xpSnap.exists() && xpSnap.getValue() != null) {
-                                    currentXp = ((Number) xpSnap.getValue()).intValue();
-                                }
-                                dbRef.child("users").child(currentUserId).child("xp")
-                                        .setValue(currentXp + xp);
-                            });
-
-                    callback.onSuccess(lyx, xp);
-                })
-                .addOnFailureListener(e -> callback.onError(e.getMessage()));
+                            .setValue(currentXp + xp);
+                });
+
+        callback.onSuccess(lyx, xp);
     }
 
     private double calculateMegaBonus() {
@@ -378,7 +354,7 @@ public class DailyMissionsManager {
     }
 
     public int getMissionStreak() {
-        return prefs.getInt("missionStreak", 0);
+        return StreakEngine.getInstance(context).current(StreakEngine.MISSIONS, 0);
     }
 
     public float getCompletionPercent() {
@@ -386,7 +362,7 @@ public class DailyMissionsManager {
     }
 
     private String getTodayDate() {
-        return new SimpleDateFormat("yyyyMMdd", Locale.getDefault()).format(new Date());
+        return StreakEngine.formatDay(StreakEngine.today(), false);
     }
 
     public interface ClaimCallback {
@@ -0,0 +1,180 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DATA RETENTION MANAGER - TTL garbage collection for per-user lists
+ *
+ * Append-only lists (treasures, notifications, transactions) are compacted
+ * with indexed range queries: entries whose indexed timestamp is older than
+ * the policy cutoff are removed in bounded multi-path batches. Each list
+ * needs a matching ".indexOn" in firebase_database_rules.json.
+ *
+ * RewardOutbox recognises delivered rewards by their journal keys, but only
+ * while a reward is still queued - hours, at worst days. The journal is kept
+ * for far longer than that.
+ */
+public class DataRetentionManager {
+    private static final String TAG = "DataRetentionManager";
+    private static final String WORK_NAME = "data_retention_work";
+
+    // Bounded work per run - anything left over is picked up next run
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_BATCHES_PER_POLICY = 5;
+    private static final long QUERY_TIMEOUT_SECONDS = 30;
+
+    /**
+     * A list under the database root and the timestamp it expires on.
+     * Entries with indexField < now - retentionMs are removed. If the list
+     * has a counter (e.g. unread notifications), removed entries that still
+     * have countedField are subtracted from it in the same write.
+     */
+    public static class RetentionPolicy {
+        public final String pathTemplate;
+        public final String indexField;
+        public final long retentionMs;
+        public final String counterTemplate;
+        public final String countedField;
+
+        public RetentionPolicy(String pathTemplate, String indexField, long retentionMs) {
+            this(pathTemplate, indexField, retentionMs, null, null);
+        }
+
+        public RetentionPolicy(String pathTemplate, String indexField, long retentionMs,
+                               String counterTemplate, String countedField) {
+            this.pathTemplate = pathTemplate;
+            this.indexField = indexField;
+            this.retentionMs = retentionMs;
+            this.counterTemplate = counterTemplate;
+            this.countedField = countedField;
+        }
+
+        String pathFor(String userId) {
+            return pathTemplate.replace("{uid}", userId);
+        }
+    }
+
+    public static final RetentionPolicy TREASURES = new RetentionPolicy(
+            "users/{uid}/treasures", "expiresAt", TimeUnit.HOURS.toMillis(1));
+    public static final RetentionPolicy NOTIFICATIONS = new RetentionPolicy(
+            "users/{uid}/notifications", "timestamp", TimeUnit.DAYS.toMillis(30),
+            "users/{uid}/unreadNotifications", "unreadTs");
+    public static final RetentionPolicy TRANSACTIONS = new RetentionPolicy(
+            "transactions/{uid}", "timestamp", TimeUnit.DAYS.toMillis(180));
+
+    private static final RetentionPolicy[] POLICIES = {TREASURES, NOTIFICATIONS, TRANSACTIONS};
+
+    private DataRetentionManager() {}
+
+    /**
+     * Compact every policy for the current user. Blocks - worker thread only.
+     * Returns the number of entries removed.
+     */
+    static int compactAll(String userId) throws Exception {
+        int removed = 0;
+        for (RetentionPolicy policy : POLICIES) {
+            removed += compact(userId, policy, System.currentTimeMillis());
+        }
+        return removed;
+    }
+
+    static int compact(String userId, RetentionPolicy policy, long now) throws Exception {
+        DatabaseReference rootRef = FirebaseDatabase.getInstance().getReference();
+        String listPath = policy.pathFor(userId);
+        DatabaseReference listRef = rootRef.child(listPath);
+        long cutoff = now - policy.retentionMs;
+        int removed = 0;
+
+        for (int batch = 0; batch < MAX_BATCHES_PER_POLICY; batch++) {
+            DataSnapshot expired = Tasks.await(
+                    // startAt(1): entries without the field sort first and have no age
+                    listRef.orderByChild(policy.indexField)
+                            .startAt(1)
+                            .endAt(cutoff)
+                            .limitToFirst(BATCH_SIZE)
+                            .get(),
+                    QUERY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            if (!expired.hasChildren()) break;
+
+            Map<String, Object> updates = new HashMap<>();
+            int deleted = 0;
+            int counted = 0;
+            for (DataSnapshot child : expired.getChildren()) {
+                updates.put(listPath + "/" + child.getKey(), null);
+                deleted++;
+                if (policy.countedField != null && child.hasChild(policy.countedField)) counted++;
+            }
+            if (counted > 0) {
+                updates.put(policy.counterTemplate.replace("{uid}", userId), ServerValue.increment(-counted));
+            }
+            Tasks.await(rootRef.updateChildren(updates), QUERY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            removed += deleted;
+
+            if (deleted < BATCH_SIZE) break;
+        }
+
+        if (removed > 0) {
+            Log.d(TAG, "Removed " + removed + " expired entries from " + policy.pathTemplate);
+        }
+        return removed;
+    }
+
+    public static void schedule(Context context) {
+        PeriodicWorkRequest workRequest = new PeriodicWorkRequest.Builder(
+                RetentionWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP,
+                workRequest);
+    }
+
+    public static class RetentionWorker extends Worker {
+
+        public RetentionWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+            super(context, params);
+        }
+
+        @NonNull
+        @Override
+        public Result doWork() {
+            if (FirebaseAuth.getInstance().getCurrentUser() == null) {
+                return Result.success();
+            }
+
+            try {
+                compactAll(FirebaseAuth.getInstance().getCurrentUser().getUid());
+                return Result.success();
+            } catch (Exception e) {
+                Log.e(TAG, "Retention run failed", e);
+                return Result.retry();
+            }
+        }
+    }
+}
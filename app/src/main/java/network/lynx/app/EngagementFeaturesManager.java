@@ -11,9 +11,7 @@ import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.MutableData;
 import com.google.firebase.database.ServerValue;
-import com.google.firebase.database.Transaction;
 import com.google.firebase.database.ValueEventListener;
 
 import androidx.annotation.NonNull;
@@ -93,6 +91,9 @@ public class EngagementFeaturesManager {
 
     // ==================== PROGRESSIVE JACKPOT ====================
 
+    // Contributions, a ShardedCounter; winner details stay under globalEvents/jackpot
+    private static final String JACKPOT_POOL_PATH = "globalEvents/jackpotPool";
+
     public static class JackpotInfo {
         public double currentAmount;
         public double minWin;
@@ -151,40 +152,39 @@ public class EngagementFeaturesManager {
     // ==================== VIP TIER SYSTEM ====================
 
     public enum VIPTier {
-        BRONZE(0, "🥉", "Bronze", 0.0f, 0),
-        SILVER(500, "🥈", "Silver", 0.05f, 1),
-        GOLD(2000, "🥇", "Gold", 0.10f, 2),
-        PLATINUM(10000, "💎", "Platinum", 0.20f, 3),
-        DIAMOND(50000, "👑", "Diamond", 0.35f, 5);
+        // Required coins come from AppConfig.vipTiers(), in this order
+        BRONZE("🥉", "Bronze", 0.0f, 0),
+        SILVER("🥈", "Silver", 0.05f, 1),
+        GOLD("🥇", "Gold", 0.10f, 2),
+        PLATINUM("💎", "Platinum", 0.20f, 3),
+        DIAMOND("👑", "Diamond", 0.35f, 5);
 
-        public final int requiredCoins;
         public final String icon;
         public final String name;
         public final float miningBonus; // Permanent mining rate bonus
         public final int extraSpins; // Extra daily spins
 
-        VIPTier(int requiredCoins, String icon, String name, float miningBonus, int extraSpins) {
-            this.requiredCoins = requiredCoins;
+        VIPTier(String icon, String name, float miningBonus, int extraSpins) {
             this.icon = icon;
             this.name = name;
             this.miningBonus = miningBonus;
             this.extraSpins = extraSpins;
         }
 
+        private static final VIPTier[] TIERS = values();
+
         public static VIPTier fromCoins(double totalCoins) {
-            VIPTier result = BRONZE;
-            for (VIPTier tier : values()) {
-                if (totalCoins >= tier.requiredCoins) {
-                    result = tier;
-                }
-            }
-            return result;
+            return TIERS[Math.max(0, AppConfig.vipTiers().floor(totalCoins))];
+        }
+
+        public double getRequiredCoins() {
+            return AppConfig.vipTiers().threshold(ordinal());
         }
 
         public VIPTier getNextTier() {
             int ordinal = this.ordinal();
-            if (ordinal < values().length - 1) {
-                return values()[ordinal + 1];
+            if (ordinal < TIERS.length - 1) {
+                return TIERS[ordinal + 1];
             }
             return this;
         }
@@ -388,8 +388,9 @@ public class EngagementFeaturesManager {
             return;
         }
 
-        String today = new SimpleDateFormat(DATE_FORMAT, Locale.getDefault()).format(new Date());
         String weekKey = getWeekKey();
+        // One calendar day per calendar day: the next one unlocks tomorrow once today is claimed
+        boolean claimedToday = StreakEngine.getInstance(context).claimedToday(StreakEngine.LOGIN);
 
         userRef.child("loginCalendar").child(weekKey).addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
@@ -405,8 +406,9 @@ public class EngagementFeaturesManager {
                     }
 
                     double reward = DAILY_REWARDS[i - 1];
-                    boolean isToday = (i == claimedDays + 1) && !claimed;
-                    boolean isLocked = i > claimedDays + 1;
+                    boolean isNext = (i == claimedDays + 1) && !claimed;
+                    boolean isToday = isNext && !claimedToday;
+                    boolean isLocked = i > claimedDays + 1 || (isNext && claimedToday);
 
                     status.days.add(new LoginCalendarDay(i, reward, claimed, isToday, isLocked));
                 }
@@ -465,32 +467,33 @@ public class EngagementFeaturesManager {
                     return;
                 }
 
-                // Claim the reward
-                Map<String, Object> updates = new HashMap<>();
-                updates.put("loginCalendar/" + weekKey + "/day" + dayNumber, true);
-                updates.put("loginCalendar/" + weekKey + "/lastClaimDate",
-                    new SimpleDateFormat(DATE_FORMAT, Locale.getDefault()).format(new Date()));
-                updates.put("totalcoins", ServerValue.increment(reward));
-
-                userRef.updateChildren(updates).addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
+                // Claim the reward together with today's login streak day
+                String calendarPath = "users/" + userId + "/loginCalendar/" + weekKey;
+                StreakEngine.getInstance(context).claim(StreakEngine.LOGIN, 0, (count, updates) -> {
+                    updates.put(calendarPath + "/day" + dayNumber, true);
+                    updates.put(calendarPath + "/lastClaimDate", StreakEngine.formatDay(StreakEngine.today(), true));
+                    updates.put("users/" + userId + "/totalcoins", ServerValue.increment(reward));
+                }, new StreakEngine.ClaimCallback() {
+                    @Override
+                    public void onClaimed(int newCount) {
                         String message = String.format(Locale.US,
                             "🎉 Day %d claimed! +%.0f LYX", dayNumber, reward);
 
-                        // FIXED: Notify WalletManager so balance updates immediately across all fragments
-                        try {
-                            WalletManager.getInstance(context).refreshBalance();
-                        } catch (Exception e) {
-                            Log.w(TAG, "Failed to notify WalletManager", e);
-                        }
-
                         // Check if week completed
                         if (dayNumber == 7) {
                             claimWeeklyBonus(weekKey, callback, reward);
                         } else {
                             callback.onSuccess(reward, message);
                         }
-                    } else {
+                    }
+
+                    @Override
+                    public void onAlreadyClaimed() {
+                        callback.onError("Already claimed today");
+                    }
+
+                    @Override
+                    public void onError(String message) {
                         callback.onError("Failed to claim reward");
                     }
                 });
@@ -552,9 +555,11 @@ public class EngagementFeaturesManager {
                 status.nextTier = status.currentTier.getNextTier();
 
                 if (status.currentTier != status.nextTier) {
-                    status.coinsToNextTier = status.nextTier.requiredCoins - status.currentCoins;
-                    status.progressToNextTier = (float) (status.currentCoins - status.currentTier.requiredCoins) /
-                        (status.nextTier.requiredCoins - status.currentTier.requiredCoins);
+                    double currentRequired = status.currentTier.getRequiredCoins();
+                    double nextRequired = status.nextTier.getRequiredCoins();
+                    status.coinsToNextTier = nextRequired - status.currentCoins;
+                    status.progressToNextTier = (float) ((status.currentCoins - currentRequired) /
+                        (nextRequired - currentRequired));
                 } else {
                     status.coinsToNextTier = 0;
                     status.progressToNextTier = 1.0f;
@@ -628,17 +633,19 @@ public class EngagementFeaturesManager {
             return;
         }
 
-        userRef.child("treasures").addListenerForSingleValueEvent(new ValueEventListener() {
+        // Only live entries - expired ones are removed by DataRetentionManager
+        long now = System.currentTimeMillis();
+        userRef.child("treasures").orderByChild("expiresAt").startAfter(now)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
                 List<TreasureSpot> treasures = new ArrayList<>();
-                long now = System.currentTimeMillis();
 
                 for (DataSnapshot child : snapshot.getChildren()) {
                     Long expiresAt = child.child("expiresAt").getValue(Long.class);
                     Boolean claimed = child.child("claimed").getValue(Boolean.class);
 
-                    if (expiresAt != null && expiresAt > now && !Boolean.TRUE.equals(claimed)) {
+                    if (expiresAt != null && !Boolean.TRUE.equals(claimed)) {
                         String location = child.child("location").getValue(String.class);
                         Double reward = child.child("reward").getValue(Double.class);
 
@@ -787,15 +794,15 @@ public class EngagementFeaturesManager {
     // ==================== PROGRESSIVE JACKPOT METHODS ====================
 
     public void getJackpotInfo(JackpotCallback callback) {
-        dbRef.child("globalEvents").child("jackpot").addListenerForSingleValueEvent(new ValueEventListener() {
+        ShardedCounter.forPath(context, JACKPOT_POOL_PATH).getTotal(pool ->
+                dbRef.child("globalEvents").child("jackpot").addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
                 JackpotInfo info = new JackpotInfo();
+                // Contributions sit on top of the starting amount
+                info.currentAmount += pool;
 
                 if (snapshot.exists()) {
-                    Double amount = snapshot.child("currentAmount").getValue(Double.class);
-                    info.currentAmount = amount != null ? amount : 1000;
-
                     Long lastWon = snapshot.child("lastWonTimestamp").getValue(Long.class);
                     info.lastWonTimestamp = lastWon != null ? lastWon : 0;
 
@@ -813,29 +820,12 @@ public class EngagementFeaturesManager {
             public void onCancelled(@NonNull DatabaseError error) {
                 callback.onResult(new JackpotInfo());
             }
-        });
+        }));
     }
 
     public void contributeToJackpot(double amount) {
-        // Called after each spin - adds to global jackpot
-        dbRef.child("globalEvents").child("jackpot").child("currentAmount")
-            .runTransaction(new Transaction.Handler() {
-                @NonNull
-                @Override
-                public Transaction.Result doTransaction(@NonNull MutableData mutableData) {
-                    Double current = mutableData.getValue(Double.class);
-                    if (current == null) current = 1000.0;
-                    mutableData.setValue(current + amount * 0.1); // 10% of spin goes to jackpot
-                    return Transaction.success(mutableData);
-                }
-
-                @Override
-                public void onComplete(DatabaseError error, boolean committed, DataSnapshot snapshot) {
-                    if (committed) {
-                        Log.d(TAG, "Contributed to jackpot: " + amount * 0.1);
-                    }
-                }
-            });
+        // Called after each spin - 10% of the spin goes to the sharded pool
+        ShardedCounter.forPath(context, JACKPOT_POOL_PATH).increment(amount * 0.1);
     }
 
     public interface JackpotCallback {
@@ -866,7 +856,8 @@ public class EngagementFeaturesManager {
                 }
 
                 // Play the game
-                boolean isHeads = random.nextBoolean();
+                RewardEngine engine = RewardEngine.getInstance(context);
+                boolean isHeads = engine.chance(0.5);
                 boolean won = (isHeads == predictHeads);
 
                 CoinFlipGame game = new CoinFlipGame();
@@ -874,27 +865,19 @@ public class EngagementFeaturesManager {
                 game.isHeads = isHeads;
                 game.won = won;
 
-                double change = won ? betAmount : -betAmount;
                 game.winAmount = won ? betAmount * 2 : 0;
 
-                Map<String, Object> updates = new HashMap<>();
-                updates.put("totalcoins", ServerValue.increment(change));
-                updates.put("stats/coinFlipPlayed", ServerValue.increment(1));
                 if (won) {
-                    updates.put("stats/coinFlipWon", ServerValue.increment(1));
+                    engine.credit(betAmount, "games", "Coin flip win");
+                    recordCoinFlip(game, callback);
+                    return;
                 }
-
-                userRef.updateChildren(updates).addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        // FIXED: Refresh WalletManager to sync balance
-                        try {
-                            WalletManager.getInstance(context).refreshBalance();
-                        } catch (Exception e) {
-                            Log.w(TAG, "Failed to refresh wallet after coin flip", e);
-                        }
-                        callback.onResult(game);
+                // The balance may have dropped since the check; the wallet transaction refuses to overdraw
+                engine.debit(betAmount, "games", "Coin flip loss", applied -> {
+                    if (applied) {
+                        recordCoinFlip(game, callback);
                     } else {
-                        callback.onError("Game failed");
+                        callback.onError("Insufficient balance");
                     }
                 });
             }
@@ -906,6 +889,22 @@ public class EngagementFeaturesManager {
         });
     }
 
+    private void recordCoinFlip(CoinFlipGame game, CoinFlipCallback callback) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("stats/coinFlipPlayed", ServerValue.increment(1));
+        if (game.won) {
+            updates.put("stats/coinFlipWon", ServerValue.increment(1));
+        }
+
+        userRef.updateChildren(updates).addOnCompleteListener(task -> {
+            if (task.isSuccessful()) {
+                callback.onResult(game);
+            } else {
+                callback.onError("Game failed");
+            }
+        });
+    }
+
     public interface CoinFlipCallback {
         void onResult(CoinFlipGame game);
         void onError(String error);
@@ -955,13 +954,6 @@ public class EngagementFeaturesManager {
 
                 userRef.updateChildren(updates).addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
-                        // FIXED: Refresh WalletManager to sync balance
-                        try {
-                            WalletManager.getInstance(context).refreshBalance();
-                        } catch (Exception e) {
-                            Log.w(TAG, "Failed to refresh wallet after prediction", e);
-                        }
-
                         String message;
                         if (won) {
                             message = String.format(Locale.US,
@@ -9,20 +9,14 @@ import android.content.SharedPreferences;
 import android.os.Build;
 import android.util.Log;
 
-import androidx.annotation.NonNull;
 import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
-import androidx.work.Constraints;
-import androidx.work.ExistingPeriodicWorkPolicy;
-import androidx.work.NetworkType;
-import androidx.work.PeriodicWorkRequest;
 import androidx.work.WorkManager;
-import androidx.work.Worker;
-import androidx.work.WorkerParameters;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Random;
-import java.util.concurrent.TimeUnit;
 
 /**
  * ENGAGEMENT NOTIFICATION MANAGER
@@ -46,6 +40,9 @@ public class EngagementNotificationManager {
     private static final int NOTIF_EVENT_ALERT = 1004;
     private static final int NOTIF_DAILY_EARNINGS = 1005;
 
+    // Planner slot type for the nightly streak check
+    public static final int ENGAGEMENT_CHECK = 2001;
+
     private static EngagementNotificationManager instance;
     private final Context context;
     private final SharedPreferences prefs;
@@ -296,49 +293,30 @@ public class EngagementNotificationManager {
                 .apply();
     }
 
+    /**
+     * Nightly streak check, run by NotificationPlanner in the same wakeup as
+     * any other notification due around that time.
+     */
     public void scheduleEngagementChecks() {
-        PeriodicWorkRequest checkRequest = new PeriodicWorkRequest.Builder(
-                EngagementCheckWorker.class, 1, TimeUnit.HOURS)
-                .setConstraints(new Constraints.Builder()
-                        .setRequiredNetworkType(NetworkType.CONNECTED)
-                        .build())
-                .build();
-
-        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
-                "engagement_check",
-                ExistingPeriodicWorkPolicy.KEEP,
-                checkRequest);
-    }
-
-    public static class EngagementCheckWorker extends Worker {
+        // Drop the old hourly worker if it is still registered
+        WorkManager.getInstance(context).cancelUniqueWork("engagement_check");
 
-        public EngagementCheckWorker(@NonNull Context context, @NonNull WorkerParameters params) {
-            super(context, params);
-        }
+        List<NotificationPlanner.Slot> slots = new ArrayList<>();
+        slots.add(new NotificationPlanner.Slot(ENGAGEMENT_CHECK, 22, 0, 0, false));
+        NotificationPlanner.getInstance(context).replacePlan(NotificationPlanner.SOURCE_ENGAGEMENT, slots);
+    }
 
-        @NonNull
-        @Override
-        public Result doWork() {
-            try {
-                EngagementNotificationManager manager = getInstance(getApplicationContext());
-
-                Calendar cal = Calendar.getInstance();
-                if (cal.get(Calendar.HOUR_OF_DAY) >= 22) {
-                    SharedPreferences prefs = getApplicationContext()
-                            .getSharedPreferences("engagement_notif", Context.MODE_PRIVATE);
-
-                    String today = String.valueOf(cal.get(Calendar.DAY_OF_YEAR));
-                    if (!prefs.getBoolean("streak_warned_" + today, false)) {
-                        prefs.edit().putBoolean("streak_warned_" + today, true).apply();
-                    }
+    void runEngagementCheck() {
+        try {
+            Calendar cal = Calendar.getInstance();
+            if (cal.get(Calendar.HOUR_OF_DAY) >= 22) {
+                String today = String.valueOf(cal.get(Calendar.DAY_OF_YEAR));
+                if (!prefs.getBoolean("streak_warned_" + today, false)) {
+                    prefs.edit().putBoolean("streak_warned_" + today, true).apply();
                 }
-
-                return Result.success();
-            } catch (Exception e) {
-                Log.e(TAG, "Engagement check failed", e);
-                return Result.retry();
             }
+        } catch (Exception e) {
+            Log.e(TAG, "Engagement check failed", e);
         }
     }
 }
-
@@ -1,22 +1,21 @@
 package network.lynx.app;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.HashMap;
-import java.util.Locale;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Centralized Error Handler & Crash Reporter
@@ -27,16 +26,17 @@ import java.util.Map;
  * - Provides user-friendly error messages
  * - Prevents app crashes where possible
  * - Tracks error patterns for optimization
+ * - Errors and crashes go to a memory-mapped ring (ErrorRingBuffer) and are
+ *   uploaded in de-duplicated batches by ErrorUploadWorker
  */
 public class ErrorHandler implements Thread.UncaughtExceptionHandler {
     private static final String TAG = "ErrorHandler";
-    private static final String PREFS_NAME = "error_handler";
-    private static final int MAX_LOCAL_ERRORS = 50;
+    private static final long UPLOAD_TIMEOUT_SECONDS = 30;
 
     private static ErrorHandler instance;
     private final Context context;
     private final Thread.UncaughtExceptionHandler defaultHandler;
-    private final SharedPreferences prefs;
+    private final ErrorRingBuffer ring;
     private final Handler mainHandler;
 
     // Error categories
@@ -53,7 +53,7 @@ public class ErrorHandler implements Thread.UncaughtExceptionHandler {
     private ErrorHandler(Context context) {
         this.context = context.getApplicationContext();
         this.defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
-        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.ring = ErrorRingBuffer.open(this.context);
         this.mainHandler = new Handler(Looper.getMainLooper());
 
         // Set as default handler
@@ -74,15 +74,11 @@ public class ErrorHandler implements Thread.UncaughtExceptionHandler {
     @Override
     public void uncaughtException(Thread thread, Throwable throwable) {
         try {
-            // Log the crash
-            logError(ErrorCategory.UNKNOWN, "CRASH", throwable);
+            Log.e(TAG, "CRASH on thread " + thread.getName(), throwable);
 
-            // Try to save crash info locally
+            // Save crash to the ring; ErrorUploadWorker sends it on its next 6-hourly run
             saveCrashLocally(thread, throwable);
 
-            // Report to Firebase if possible
-            reportToFirebase(thread, throwable);
-
         } catch (Exception e) {
             Log.e(TAG, "Error in error handler", e);
         } finally {
@@ -97,13 +93,7 @@ public class ErrorHandler implements Thread.UncaughtExceptionHandler {
      * Log a non-fatal error
      */
     public static void logError(ErrorCategory category, String message, Throwable throwable) {
-        String errorLog = String.format(Locale.US, "[%s] %s: %s - %s",
-                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date()),
-                category.name(),
-                message,
-                throwable != null ? throwable.getMessage() : "No exception");
-
-        Log.e(TAG, errorLog, throwable);
+        Log.e(TAG, category.name() + ": " + message, throwable);
 
         if (instance != null) {
             instance.saveErrorLocally(category, message, throwable);
@@ -139,84 +129,86 @@ public class ErrorHandler implements Thread.UncaughtExceptionHandler {
     }
 
     private void saveCrashLocally(Thread thread, Throwable throwable) {
+        if (ring == null) return;
         try {
-            StringWriter sw = new StringWriter();
-            PrintWriter pw = new PrintWriter(sw);
-            throwable.printStackTrace(pw);
-
-            String crashInfo = String.format(Locale.US,
-                    "Thread: %s\nTime: %s\nStack:\n%s",
-                    thread.getName(),
-                    new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date()),
-                    sw.toString());
-
-            prefs.edit()
-                    .putString("last_crash", crashInfo)
-                    .putLong("last_crash_time", System.currentTimeMillis())
-                    .apply();
-
+            ring.append(ErrorRingBuffer.TYPE_CRASH, ErrorCategory.UNKNOWN,
+                    "Thread: " + thread.getName(), throwable);
+            // Process is about to die - push the pages out now
+            ring.flush();
         } catch (Exception e) {
             Log.e(TAG, "Failed to save crash locally", e);
         }
     }
 
     private void saveErrorLocally(ErrorCategory category, String message, Throwable throwable) {
+        if (ring == null) return;
         try {
-            int errorCount = prefs.getInt("error_count", 0);
-
-            // Rotate errors if too many
-            if (errorCount >= MAX_LOCAL_ERRORS) {
-                prefs.edit().putInt("error_count", 0).apply();
-                errorCount = 0;
-            }
-
-            String key = "error_" + errorCount;
-            String errorInfo = String.format(Locale.US, "%s|%s|%s|%s",
-                    System.currentTimeMillis(),
-                    category.name(),
-                    message,
-                    throwable != null ? throwable.getMessage() : "none");
-
-            prefs.edit()
-                    .putString(key, errorInfo)
-                    .putInt("error_count", errorCount + 1)
-                    .apply();
-
+            ring.append(ErrorRingBuffer.TYPE_ERROR, category, message, throwable);
         } catch (Exception e) {
             Log.e(TAG, "Failed to save error locally", e);
         }
     }
 
-    private void reportToFirebase(Thread thread, Throwable throwable) {
-        try {
-            String userId = null;
-            if (FirebaseAuth.getInstance().getCurrentUser() != null) {
-                userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+    /**
+     * Upload pending ring entries, one report per stack signature, and advance
+     * the ring checkpoint once the write is acknowledged. Blocks - call from
+     * ErrorUploadWorker only. Returns the number of reports sent.
+     */
+    int uploadPendingErrors() throws Exception {
+        if (ring == null) return 0;
+
+        List<ErrorRingBuffer.Entry> pending = ring.readPending();
+        if (pending.isEmpty()) return 0;
+
+        Map<Integer, Map<String, Object>> bySignature = new LinkedHashMap<>();
+        for (ErrorRingBuffer.Entry entry : pending) {
+            Map<String, Object> report = bySignature.get(entry.signature);
+            if (report == null) {
+                report = new HashMap<>();
+                report.put("type", entry.type == ErrorRingBuffer.TYPE_CRASH ? "crash" : "error");
+                report.put("category", entry.category.name());
+                report.put("signature", Integer.toHexString(entry.signature));
+                report.put("stackTrace", entry.text);
+                report.put("firstSeen", entry.timestamp);
+                report.put("count", 0);
+                report.put("appVersion", "4.0");
+                report.put("appVersionCode", 22);
+                bySignature.put(entry.signature, report);
             }
+            report.put("count", (Integer) report.get("count") + 1);
+            report.put("lastSeen", entry.timestamp);
+        }
 
-            if (userId == null) return;
+        Task<Void> task = reportToFirebase(bySignature.values());
+        if (task == null) return 0;
 
-            StringWriter sw = new StringWriter();
-            PrintWriter pw = new PrintWriter(sw);
-            throwable.printStackTrace(pw);
+        Tasks.await(task, UPLOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        ring.markUploaded(pending.get(pending.size() - 1).stamp);
+        return bySignature.size();
+    }
 
-            Map<String, Object> crashData = new HashMap<>();
-            crashData.put("thread", thread.getName());
-            crashData.put("message", throwable.getMessage());
-            crashData.put("stackTrace", sw.toString().substring(0, Math.min(sw.toString().length(), 5000)));
-            crashData.put("timestamp", System.currentTimeMillis());
-            crashData.put("appVersion", "4.0");
-            crashData.put("appVersionCode", 22);
+    /**
+     * Write all reports under crashes/{uid} with a single multi-path update.
+     */
+    private Task<Void> reportToFirebase(Iterable<Map<String, Object>> reports) {
+        try {
+            if (FirebaseAuth.getInstance().getCurrentUser() == null) return null;
+            String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
 
-            DatabaseReference crashRef = FirebaseDatabase.getInstance()
+            DatabaseReference crashesRef = FirebaseDatabase.getInstance()
                     .getReference("crashes")
-                    .child(userId)
-                    .push();
+                    .child(userId);
+
+            Map<String, Object> updates = new HashMap<>();
+            for (Map<String, Object> report : reports) {
+                updates.put(crashesRef.push().getKey(), report);
+            }
 
-            crashRef.setValue(crashData);
+            return crashesRef.updateChildren(updates);
 
         } catch (Exception e) {
-            Log.e(TAG, "Failed to report crash to Firebase", e);
+            Log.e(TAG, "Failed to report errors to Firebase", e);
+            return null;
         }
     }
 
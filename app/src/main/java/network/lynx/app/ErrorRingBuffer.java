@@ -0,0 +1,279 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size memory-mapped ring buffer for errors and crashes
+ *
+ * - One file, mapped once; writes are plain stores into the page cache,
+ *   so entries survive process death (including the crash that wrote them)
+ * - Lock-free write path: a slot is claimed with an atomic sequence counter
+ * - Each slot is stamped with its sequence number last, so a slot torn by a
+ *   crash is skipped when the file is loaded on the next start
+ * - Within a process, readers never touch the mapped slots: every append also
+ *   publishes an immutable Entry through an AtomicReferenceArray
+ * - The uploader keeps its checkpoint in the file header
+ */
+public class ErrorRingBuffer {
+    private static final String TAG = "ErrorRingBuffer";
+    private static final String FILE_NAME = "error_ring.bin";
+
+    private static final int MAGIC = 0x4C594E58; // "LYNX"
+    private static final int SLOT_COUNT = 128;
+    private static final int SLOT_SIZE = 512;
+    private static final int HEADER_SIZE = 64;
+    private static final int FILE_SIZE = HEADER_SIZE + SLOT_COUNT * SLOT_SIZE;
+
+    // Header layout
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_SLOTS = 4;
+    private static final int HEADER_UPLOADED_SEQ = 8;
+
+    // Slot layout: stamp(8) time(8) type(1) category(1) signature(4) len(2) text
+    private static final int SLOT_STAMP = 0;
+    private static final int SLOT_TIME = 8;
+    private static final int SLOT_TYPE = 16;
+    private static final int SLOT_CATEGORY = 17;
+    private static final int SLOT_SIGNATURE = 18;
+    private static final int SLOT_TEXT_LEN = 22;
+    private static final int SLOT_TEXT = 24;
+    private static final int MAX_TEXT = SLOT_SIZE - SLOT_TEXT;
+
+    private static final long STAMP_WRITING = -1L;
+    private static final int STACK_FRAMES = 4;
+
+    public static final byte TYPE_ERROR = 0;
+    public static final byte TYPE_CRASH = 1;
+
+    private final MappedByteBuffer buffer;
+    private final AtomicLong nextSeq;
+    // Published copy of each slot, the only thing readPending() looks at
+    private final AtomicReferenceArray<Entry> slots = new AtomicReferenceArray<>(SLOT_COUNT);
+
+    private ErrorRingBuffer(MappedByteBuffer buffer, long nextSeq) {
+        this.buffer = buffer;
+        this.nextSeq = new AtomicLong(nextSeq);
+    }
+
+    /**
+     * Map the ring file, creating or resetting it when the layout does not match.
+     * Returns null if the file cannot be mapped.
+     */
+    public static ErrorRingBuffer open(Context context) {
+        return open(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    static ErrorRingBuffer open(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            boolean fresh = raf.length() != FILE_SIZE;
+            if (fresh) {
+                raf.setLength(FILE_SIZE);
+            }
+
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+
+            if (fresh || mapped.getInt(HEADER_MAGIC) != MAGIC || mapped.getInt(HEADER_SLOTS) != SLOT_COUNT) {
+                for (int i = 0; i < FILE_SIZE; i += 8) {
+                    mapped.putLong(i, 0L);
+                }
+                mapped.putInt(HEADER_MAGIC, MAGIC);
+                mapped.putInt(HEADER_SLOTS, SLOT_COUNT);
+            }
+
+            // Resume after the newest committed slot
+            long maxStamp = 0;
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                long stamp = mapped.getLong(slotOffset(slot) + SLOT_STAMP);
+                if (stamp > maxStamp) {
+                    maxStamp = stamp;
+                }
+            }
+
+            // No writers yet, so the committed slots can be read as they are
+            ErrorRingBuffer ring = new ErrorRingBuffer(mapped, maxStamp);
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                Entry entry = ring.readSlot(slot);
+                if (entry != null) {
+                    ring.slots.set(slot, entry);
+                }
+            }
+            return ring;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to map error ring", e);
+            return null;
+        }
+    }
+
+    /**
+     * Append an entry. Safe to call from any thread, including the crashing one.
+     */
+    public void append(byte type, ErrorHandler.ErrorCategory category, String message, Throwable throwable) {
+        long seq = nextSeq.getAndIncrement();
+        int slotIndex = (int) (seq % SLOT_COUNT);
+        int offset = slotOffset(slotIndex);
+
+        byte[] text = truncate(describe(message, throwable).getBytes(StandardCharsets.UTF_8));
+        Entry entry = new Entry(seq + 1, System.currentTimeMillis(), type, category,
+                signature(category, message, throwable), new String(text, StandardCharsets.UTF_8));
+
+        buffer.putLong(offset + SLOT_STAMP, STAMP_WRITING);
+        buffer.putLong(offset + SLOT_TIME, entry.timestamp);
+        buffer.put(offset + SLOT_TYPE, type);
+        buffer.put(offset + SLOT_CATEGORY, (byte) category.ordinal());
+        buffer.putInt(offset + SLOT_SIGNATURE, entry.signature);
+        buffer.putShort(offset + SLOT_TEXT_LEN, (short) text.length);
+
+        ByteBuffer slot = buffer.duplicate();
+        slot.position(offset + SLOT_TEXT);
+        slot.put(text);
+
+        buffer.putLong(offset + SLOT_STAMP, entry.stamp);
+
+        // A slower writer that claimed this slot a lap earlier must not win
+        Entry current;
+        do {
+            current = slots.get(slotIndex);
+            if (current != null && current.stamp > entry.stamp) return;
+        } while (!slots.compareAndSet(slotIndex, current, entry));
+    }
+
+    /**
+     * Committed entries newer than the upload checkpoint, oldest first.
+     */
+    public List<Entry> readPending() {
+        long uploaded = buffer.getLong(HEADER_UPLOADED_SEQ);
+        long newest = nextSeq.get();
+        long oldest = Math.max(uploaded, newest - SLOT_COUNT);
+
+        List<Entry> entries = new ArrayList<>();
+        for (long seq = oldest; seq < newest; seq++) {
+            Entry entry = slots.get((int) (seq % SLOT_COUNT));
+            if (entry != null && entry.stamp == seq + 1) {
+                entries.add(entry); // Otherwise overwritten or not yet published
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Decode a committed slot from the file, or null if it is empty or torn.
+     */
+    private Entry readSlot(int slot) {
+        int offset = slotOffset(slot);
+        long stamp = buffer.getLong(offset + SLOT_STAMP);
+        if (stamp <= 0) {
+            return null;
+        }
+
+        int len = Math.min(buffer.getShort(offset + SLOT_TEXT_LEN) & 0xFFFF, MAX_TEXT);
+        byte[] text = new byte[len];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + SLOT_TEXT);
+        view.get(text);
+
+        return new Entry(
+                stamp,
+                buffer.getLong(offset + SLOT_TIME),
+                buffer.get(offset + SLOT_TYPE),
+                categoryOf(buffer.get(offset + SLOT_CATEGORY)),
+                buffer.getInt(offset + SLOT_SIGNATURE),
+                new String(text, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Record that every entry up to and including the given stamp was uploaded.
+     */
+    public void markUploaded(long stamp) {
+        if (stamp > buffer.getLong(HEADER_UPLOADED_SEQ)) {
+            buffer.putLong(HEADER_UPLOADED_SEQ, stamp);
+        }
+    }
+
+    public void flush() {
+        try {
+            buffer.force();
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to flush error ring", e);
+        }
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static byte[] truncate(byte[] bytes) {
+        if (bytes.length <= MAX_TEXT) {
+            return bytes;
+        }
+        byte[] cut = new byte[MAX_TEXT];
+        System.arraycopy(bytes, 0, cut, 0, MAX_TEXT);
+        return cut;
+    }
+
+    private static String describe(String message, Throwable throwable) {
+        StringBuilder sb = new StringBuilder(message != null ? message : "");
+        if (throwable != null) {
+            sb.append('\n').append(throwable.getClass().getName())
+                    .append(": ").append(throwable.getMessage());
+            StackTraceElement[] frames = throwable.getStackTrace();
+            for (int i = 0; i < Math.min(frames.length, STACK_FRAMES); i++) {
+                sb.append("\n  at ").append(frames[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stack signature used for de-duplication: category, exception type and
+     * top frames. Falls back to the message when there is no throwable.
+     */
+    private static int signature(ErrorHandler.ErrorCategory category, String message, Throwable throwable) {
+        int hash = category.ordinal();
+        if (throwable == null) {
+            return 31 * hash + (message != null ? message.hashCode() : 0);
+        }
+        hash = 31 * hash + throwable.getClass().getName().hashCode();
+        StackTraceElement[] frames = throwable.getStackTrace();
+        for (int i = 0; i < Math.min(frames.length, STACK_FRAMES); i++) {
+            hash = 31 * hash + frames[i].hashCode();
+        }
+        return hash;
+    }
+
+    private static ErrorHandler.ErrorCategory categoryOf(byte ordinal) {
+        ErrorHandler.ErrorCategory[] values = ErrorHandler.ErrorCategory.values();
+        return ordinal >= 0 && ordinal < values.length ? values[ordinal] : ErrorHandler.ErrorCategory.UNKNOWN;
+    }
+
+    public static class Entry {
+        public final long stamp;
+        public final long timestamp;
+        public final byte type;
+        public final ErrorHandler.ErrorCategory category;
+        public final int signature;
+        public final String text;
+
+        Entry(long stamp, long timestamp, byte type, ErrorHandler.ErrorCategory category,
+              int signature, String text) {
+            this.stamp = stamp;
+            this.timestamp = timestamp;
+            this.type = type;
+            this.category = category;
+            this.signature = signature;
+            this.text = text;
+        }
+    }
+}
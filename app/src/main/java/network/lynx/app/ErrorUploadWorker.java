@@ -0,0 +1,60 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains ErrorRingBuffer in batches, de-duplicated by stack signature.
+ * Runs off the main thread and only when the network is available.
+ */
+public class ErrorUploadWorker extends Worker {
+    private static final String TAG = "ErrorUploadWorker";
+    private static final String WORK_NAME = "error_upload_work";
+
+    public ErrorUploadWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        ErrorHandler handler = ErrorHandler.getInstance();
+        if (handler == null) {
+            return Result.success();
+        }
+
+        try {
+            int sent = handler.uploadPendingErrors();
+            Log.d(TAG, "Uploaded " + sent + " error reports");
+            return Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Error upload failed", e);
+            return Result.retry();
+        }
+    }
+
+    public static void schedule(Context context) {
+        PeriodicWorkRequest workRequest = new PeriodicWorkRequest.Builder(
+                ErrorUploadWorker.class, 6, TimeUnit.HOURS)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP,
+                workRequest);
+    }
+}
@@ -293,7 +293,7 @@ public class FirebaseManager {
     // ==================== REFERRAL CODE HANDLING ====================
 
     /**
-     * Get or generate referral code
+     * Get or issue the current user's referral code via ReferralCodeAllocator
      */
     public void ensureReferralCode(DataCallback<String> callback) {
         String userId = getCurrentUserId();
@@ -302,55 +302,19 @@ public class FirebaseManager {
             return;
         }
 
-        DatabaseReference codeRef = getUserRef().child("referralCode");
-        codeRef.addListenerForSingleValueEvent(new ValueEventListener() {
+        ReferralCodeAllocator.getInstance(context).getCode(userId, new ReferralCodeAllocator.CodeCallback() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                String code = snapshot.getValue(String.class);
-
-                if (code == null || code.isEmpty() || code.equals("XXXXXX") || code.equals("null")) {
-                    // Generate new code
-                    String newCode = generateReferralCode(userId);
-                    codeRef.setValue(newCode)
-                        .addOnSuccessListener(aVoid -> callback.onSuccess(newCode))
-                        .addOnFailureListener(e -> {
-                            // Return generated code even if save fails
-                            callback.onSuccess(newCode);
-                        });
-                } else {
-                    callback.onSuccess(code);
-                }
+            public void onCode(String code) {
+                callback.onSuccess(code);
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                // Return a generated code as fallback
-                String fallbackCode = generateReferralCode(userId);
-                callback.onSuccess(fallbackCode);
+            public void onError(Exception e) {
+                callback.onError(e);
             }
         });
     }
 
-    /**
-     * Generate deterministic referral code from user ID
-     */
-    public String generateReferralCode(String userId) {
-        if (userId == null || userId.isEmpty()) {
-            return "LYNX" + System.currentTimeMillis() % 10000;
-        }
-        try {
-            String encoded = android.util.Base64.encodeToString(userId.getBytes(), android.util.Base64.NO_WRAP);
-            String code = encoded.replaceAll("[^A-Za-z0-9]", "").toUpperCase();
-            if (code.length() >= 6) {
-                return code.substring(0, 6);
-            } else {
-                return code + Math.abs(userId.hashCode() % 1000);
-            }
-        } catch (Exception e) {
-            return "LYX" + Math.abs(userId.hashCode() % 100000);
-        }
-    }
-
     // ==================== LISTENER MANAGEMENT ====================
 
     /**
@@ -509,13 +473,13 @@ public class FirebaseManager {
     private ReferralData parseReferralData(DataSnapshot snapshot, String userId) {
         ReferralData data = new ReferralData();
         if (!snapshot.exists()) {
-            data.referralCode = generateReferralCode(userId);
+            data.referralCode = ReferralCodeAllocator.getInstance(context).getCachedCode(userId);
             return data;
         }
 
         String code = snapshot.child("referralCode").getValue(String.class);
         if (code == null || code.isEmpty() || code.equals("XXXXXX")) {
-            data.referralCode = generateReferralCode(userId);
+            data.referralCode = ReferralCodeAllocator.getInstance(context).getCachedCode(userId);
         } else {
             data.referralCode = code;
         }
@@ -0,0 +1,211 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * GLOBAL STATS - Network-wide mining numbers for social proof
+ *
+ * Each day has two ShardedCounters under globalStats/shards/{epochDay}:
+ * "miners" counts session starts and "mined" adds up the payouts of
+ * completed sessions. Registered users are the stats/users counter. The
+ * counters handle contention-free writes and caching themselves; this class
+ * only combines today's and yesterday's totals into a Snapshot.
+ *
+ * totalUsers sets the mining phase, so it is guarded twice. The rules let
+ * each account add exactly 1, once (marked under stats/usersCounted), and
+ * cap what one write may add to the day counters. On the client, the total
+ * may not grow faster than MAX_NEW_USERS_PER_DAY since the last accepted
+ * value.
+ *
+ * Every day counter write also stamps the day's lastWriteAt with server
+ * time. Days older than CLEANUP_AGE_DAYS are deleted, oldest first, by at
+ * most one call per install per day; the rules only allow deleting days
+ * that have not been written for a day.
+ */
+public class GlobalStats {
+    private static final String TAG = "GlobalStats";
+    private static final String PREFS_NAME = "global_stats";
+    private static final String KEY_CLEANED_DAY = "cleanedDay";
+    private static final String KEY_USERS = "users";
+    private static final String KEY_USERS_AT = "usersAt";
+    private static final String ROOT = "globalStats";
+    // Registered users, a ShardedCounter
+    private static final String USER_COUNT_PATH = "stats/users";
+    // One entry per account already in the user count
+    private static final String USERS_COUNTED_PATH = "stats/usersCounted";
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000;
+    // Yesterday still feeds activeMiners; the rules only allow deleting days no longer written
+    private static final int CLEANUP_AGE_DAYS = 3;
+    private static final int CLEANUP_BATCH = 10;
+    private static final long MAX_NEW_USERS_PER_DAY = 100_000;
+
+    private static GlobalStats instance;
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final DatabaseReference rootRef;
+    private final ShardedCounter userCount;
+
+    /**
+     * Combined view of the counters.
+     */
+    public static class Snapshot {
+        public final long activeMiners;
+        public final double minedToday;
+        public final long totalUsers;
+
+        Snapshot(long activeMiners, double minedToday, long totalUsers) {
+            this.activeMiners = activeMiners;
+            this.minedToday = minedToday;
+            this.totalUsers = totalUsers;
+        }
+    }
+
+    public interface StatsCallback {
+        void onStats(Snapshot snapshot);
+    }
+
+    private GlobalStats(Context context) {
+        this.context = context.getApplicationContext();
+        this.prefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.rootRef = FirebaseDatabase.getInstance().getReference(ROOT);
+        this.userCount = ShardedCounter.forPath(this.context, USER_COUNT_PATH);
+    }
+
+    public static synchronized GlobalStats getInstance(Context context) {
+        if (instance == null) {
+            instance = new GlobalStats(context);
+        }
+        return instance;
+    }
+
+    // ============================================
+    // WRITE SIDE
+    // ============================================
+
+    public void recordSessionStarted() {
+        if (FirebaseAuth.getInstance().getCurrentUser() == null) return;
+        addToDay("miners", 1);
+    }
+
+    public void recordSessionCompleted(double minedTokens) {
+        if (minedTokens <= 0 || FirebaseAuth.getInstance().getCurrentUser() == null) return;
+        addToDay("mined", minedTokens);
+    }
+
+    private void addToDay(String name, double delta) {
+        long day = epochDay(System.currentTimeMillis());
+        Map<String, Object> updates = new HashMap<>();
+        dayCounter(day, name).addIncrement(updates, delta);
+        updates.put(ROOT + "/shards/" + day + "/lastWriteAt", ServerValue.TIMESTAMP);
+
+        FirebaseDatabase.getInstance().getReference().updateChildren(updates)
+                .addOnFailureListener(e -> Log.w(TAG, "Failed to record " + name, e));
+    }
+
+    /**
+     * Count the signed-in account once. Safe to call again: the rules refuse
+     * a second increment for an account that is already marked.
+     */
+    public void recordUserJoined() {
+        if (FirebaseAuth.getInstance().getCurrentUser() == null) return;
+        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+
+        Map<String, Object> updates = new HashMap<>();
+        userCount.addIncrement(updates, 1);
+        updates.put(USERS_COUNTED_PATH + "/" + userId, true);
+
+        FirebaseDatabase.getInstance().getReference().updateChildren(updates)
+                .addOnFailureListener(e -> Log.d(TAG, "User not counted: " + e.getMessage()));
+    }
+
+    private ShardedCounter dayCounter(long day, String name) {
+        return ShardedCounter.forPath(context, ROOT + "/shards/" + day + "/" + name);
+    }
+
+    // ============================================
+    // READ SIDE
+    // ============================================
+
+    /**
+     * Deliver stats from the counters' cached totals; each counter only
+     * reads again once its copy is stale. Not called back until the user
+     * count has been read at least once.
+     *
+     * Sessions last 24h, so miners still active are today's starts plus the
+     * share of yesterday's starts that have not run out yet.
+     */
+    public void getStats(@NonNull StatsCallback callback) {
+        long now = System.currentTimeMillis();
+        long today = epochDay(now);
+        float remainingOfYesterday = 1f - (float) (now % DAY_MS) / DAY_MS;
+
+        dayCounter(today, "miners").getTotal(startsToday ->
+                dayCounter(today - 1, "miners").getTotal(startsYesterday ->
+                        dayCounter(today, "mined").getTotal(minedToday ->
+                                userCount.getTotal(users -> {
+                                    if (users <= 0) return;
+                                    long activeMiners = Math.round(startsToday + startsYesterday * remainingOfYesterday);
+                                    callback.onStats(new Snapshot(activeMiners, minedToday,
+                                            plausibleUsers(Math.round(users), now)));
+                                }))));
+
+        cleanUpOldDays(today);
+    }
+
+    /**
+     * The user count may not grow faster than MAX_NEW_USERS_PER_DAY since
+     * the last value accepted here; a larger jump is cut down to that.
+     */
+    private synchronized long plausibleUsers(long users, long now) {
+        long accepted = prefs.getLong(KEY_USERS, 0);
+        long acceptedAt = prefs.getLong(KEY_USERS_AT, 0);
+        if (accepted > 0 && users > accepted) {
+            long elapsed = Math.max(0, now - acceptedAt);
+            long limit = accepted + (long) Math.ceil((double) MAX_NEW_USERS_PER_DAY * elapsed / DAY_MS);
+            if (users > limit) {
+                Log.w(TAG, "Implausible user count " + users + ", using " + limit);
+                users = limit;
+            }
+        }
+        if (users != accepted) {
+            prefs.edit().putLong(KEY_USERS, users).putLong(KEY_USERS_AT, now).apply();
+        }
+        return users;
+    }
+
+    private void cleanUpOldDays(long today) {
+        if (prefs.getLong(KEY_CLEANED_DAY, 0) >= today) return;
+        if (FirebaseAuth.getInstance().getCurrentUser() == null) return;
+        prefs.edit().putLong(KEY_CLEANED_DAY, today).apply();
+
+        // Oldest first, a bounded batch a day; another install usually got there first
+        rootRef.child("shards").orderByKey().endAt(String.valueOf(today - CLEANUP_AGE_DAYS))
+                .limitToFirst(CLEANUP_BATCH).get()
+                .addOnSuccessListener(days -> {
+                    for (DataSnapshot day : days.getChildren()) {
+                        day.getRef().removeValue()
+                                .addOnFailureListener(e -> Log.d(TAG, "Old stats day " + day.getKey()
+                                        + " not deleted: " + e.getMessage()));
+                    }
+                })
+                .addOnFailureListener(e -> Log.d(TAG, "Failed to list old stats days: " + e.getMessage()));
+    }
+
+    private static long epochDay(long millis) {
+        return millis / DAY_MS;
+    }
+}
@@ -5,11 +5,8 @@ import android.content.SharedPreferences;
 import android.util.Log;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -161,41 +158,19 @@ public class HourlyBonusManager {
                 .apply();
 
         if (userRef != null) {
-            userRef.child("totalcoins").addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(DataSnapshot snapshot) {
-                    Double current = snapshot.getValue(Double.class);
-                    if (current == null) current = 0.0;
-                    double newBalance = current + bonusAmount;
-                    userRef.child("totalcoins").setValue(newBalance).addOnCompleteListener(task -> {
-                        // FIXED: Notify WalletManager so balance updates immediately
-                        if (task.isSuccessful()) {
-                            try {
-                                WalletManager.getInstance(context).refreshBalance();
-                            } catch (Exception e) {
-                                Log.w(TAG, "Failed to notify WalletManager", e);
-                            }
-                        }
-                    });
-
-                    String today = new java.text.SimpleDateFormat("yyyyMMdd", java.util.Locale.getDefault())
-                            .format(new java.util.Date());
-                    userRef.child("hourlyBonusClaims").child(today).child(String.valueOf(currentTime))
-                            .setValue(bonusAmount);
-
-                    if (callback != null) {
-                        callback.onClaimSuccess(bonusAmount, newBalance, MAX_CLAIMS_PER_DAY - newClaimsCount);
-                    }
-                    Log.d(TAG, "Hourly bonus claimed: " + bonusAmount + " LYX");
-                }
-
-                @Override
-                public void onCancelled(DatabaseError error) {
-                    if (callback != null) {
-                        callback.onClaimFailed("Database error: " + error.getMessage());
-                    }
-                }
-            });
+            // Shown in the wallet at once; no read of the balance before or after
+            WalletManager wallet = WalletManager.getInstance(context);
+            wallet.addTokens(bonusAmount, "bonus", "Hourly bonus");
+
+            String today = new java.text.SimpleDateFormat("yyyyMMdd", java.util.Locale.getDefault())
+                    .format(new java.util.Date());
+            userRef.child("hourlyBonusClaims").child(today).child(String.valueOf(currentTime))
+                    .setValue(bonusAmount);
+
+            if (callback != null) {
+                callback.onClaimSuccess(bonusAmount, wallet.getTotalBalance(), MAX_CLAIMS_PER_DAY - newClaimsCount);
+            }
+            Log.d(TAG, "Hourly bonus claimed: " + bonusAmount + " LYX");
         } else {
             if (callback != null) {
                 callback.onClaimFailed("Not connected to database");
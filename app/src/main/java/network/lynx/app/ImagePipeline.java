@@ -0,0 +1,140 @@
+package network.lynx.app;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.View;
+import android.widget.ImageView;
+
+import androidx.core.content.ContextCompat;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.request.RequestOptions;
+import com.lelloman.identicon.view.ClassicIdenticonView;
+
+/**
+ * IMAGE PIPELINE - Sized image loads for list rows
+ *
+ * - Avatars are decoded at the size of the view they go into (override),
+ *   and the resized result is what gets disk cached, so a 40dp avatar never
+ *   holds a full-size profile photo in memory
+ * - preload() uses the exact same options as load(), so a prefetched image
+ *   is a memory-cache hit when its row binds
+ * - Identicons are rendered once per (hash, size) into a bitmap LRU instead
+ *   of being redrawn by a view on every bind
+ * - trimMemory()/clearMemory() are called from LynxApplication
+ */
+public final class ImagePipeline {
+    private static final String TAG = "ImagePipeline";
+
+    private static final int IDENTICON_CACHE_BYTES = 2 * 1024 * 1024;
+
+    private static final LruCache<String, Bitmap> identicons = new LruCache<String, Bitmap>(IDENTICON_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+
+    private ImagePipeline() {}
+
+    private static RequestOptions avatarOptions(int sizePx) {
+        return new RequestOptions()
+                .override(sizePx, sizePx)
+                .centerCrop()
+                .format(DecodeFormat.PREFER_RGB_565)
+                .diskCacheStrategy(DiskCacheStrategy.RESOURCE);
+    }
+
+    /**
+     * Load a square avatar decoded at sizePx.
+     */
+    public static void loadAvatar(ImageView target, String url, int sizePx) {
+        Glide.with(target)
+                .load(url)
+                .apply(avatarOptions(sizePx))
+                .into(target);
+    }
+
+    /**
+     * Warm the memory cache for an avatar that is about to scroll into view.
+     */
+    public static void preloadAvatar(Context context, String url, int sizePx) {
+        Glide.with(context)
+                .load(url)
+                .apply(avatarOptions(sizePx))
+                .preload(sizePx, sizePx);
+    }
+
+    /**
+     * Load a banner at the size its view is laid out to. Banners are opaque
+     * photos, so they decode as RGB_565 and only the resized copy is cached.
+     */
+    public static void loadBanner(ImageView target, String url) {
+        Glide.with(target)
+                .load(url)
+                .centerCrop()
+                .format(DecodeFormat.PREFER_RGB_565)
+                .diskCacheStrategy(DiskCacheStrategy.AUTOMATIC)
+                .into(target);
+    }
+
+    /**
+     * Warm the cache for a banner that will be shown in a view of the given size.
+     */
+    public static void preloadBanner(Context context, String url, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+        Glide.with(context)
+                .load(url)
+                .centerCrop()
+                .format(DecodeFormat.PREFER_RGB_565)
+                .diskCacheStrategy(DiskCacheStrategy.AUTOMATIC)
+                .preload(width, height);
+    }
+
+    /**
+     * Identicon for a hash, rendered once and then served from memory.
+     * Must be called on the main thread (it draws a view).
+     */
+    public static Bitmap identicon(Context context, int hash, int sizePx) {
+        String key = hash + ":" + sizePx;
+        Bitmap bitmap = identicons.get(key);
+        if (bitmap != null) return bitmap;
+
+        ClassicIdenticonView view = new ClassicIdenticonView(context);
+        view.setBackgroundColor(ContextCompat.getColor(context, R.color.iconBackground));
+        view.setHash(hash);
+        int spec = View.MeasureSpec.makeMeasureSpec(sizePx, View.MeasureSpec.EXACTLY);
+        view.measure(spec, spec);
+        view.layout(0, 0, sizePx, sizePx);
+
+        // Opaque (solid background), so RGB_565 is enough
+        bitmap = Bitmap.createBitmap(sizePx, sizePx, Bitmap.Config.RGB_565);
+        view.draw(new Canvas(bitmap));
+        identicons.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Release memory in proportion to how hard the system is asking.
+     */
+    public static void trimMemory(Context context, int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            identicons.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            identicons.trimToSize(IDENTICON_CACHE_BYTES / 2);
+        }
+        Glide.get(context).trimMemory(level);
+    }
+
+    public static void clearMemory(Context context) {
+        identicons.evictAll();
+        Glide.get(context).clearMemory();
+        Log.d(TAG, "Image caches cleared");
+    }
+}
@@ -0,0 +1,273 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * INBOX MANAGER - Per-user notifications with a server-side unread counter
+ *
+ * Layout under users/{uid}:
+ * - notifications/{id}: the notification; "unreadTs" mirrors timestamp while
+ *   unread and is removed on read, so unread pages are one indexed query
+ * - unreadNotifications: counter, only ever changed with ServerValue.increment
+ *
+ * Sending is one multi-path write (notification + counter). A launch reads
+ * only the counter, and fetches unread pages only when it is non-zero.
+ */
+public class InboxManager {
+    private static final String TAG = "InboxManager";
+    private static final String PREFS_NAME = "inbox_manager";
+    private static final String KEY_SENDER_NAME = "sender_name_";
+    private static final String KEY_SENDER_NAME_AT = "sender_name_at_";
+    // Profiles have no rename hook, so a cached name is read again after a day
+    private static final long SENDER_NAME_TTL_MS = 24 * 60 * 60 * 1000;
+    private static final String DEFAULT_SENDER_NAME = "Your referrer";
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static InboxManager instance;
+    private final SharedPreferences prefs;
+    private final DatabaseReference usersRef;
+
+    public interface SendCallback {
+        void onComplete(boolean success);
+    }
+
+    public interface CountCallback {
+        void onCount(int unread);
+    }
+
+    public interface PageCallback {
+        /**
+         * @param page       newest first
+         * @param nextCursor pass to fetchUnreadPage for the next page, or 0 when done
+         */
+        void onPage(List<NotificationInfo> page, long nextCursor);
+        void onError(String error);
+    }
+
+    private InboxManager(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.usersRef = FirebaseDatabase.getInstance().getReference("users");
+    }
+
+    public static synchronized InboxManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new InboxManager(context);
+        }
+        return instance;
+    }
+
+    // ============================================
+    // SENDING
+    // ============================================
+
+    /**
+     * Send a notification from the current user to a recipient.
+     * Costs one multi-path write once the sender name is cached.
+     */
+    public void send(String recipientId, String type, String title, String messageTemplate,
+                     SendCallback callback) {
+        if (FirebaseAuth.getInstance().getCurrentUser() == null) {
+            callback.onComplete(false);
+            return;
+        }
+        String senderId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+
+        resolveSenderName(senderId, senderName -> {
+            String notificationId = usersRef.child(recipientId).child("notifications").push().getKey();
+            if (notificationId == null) {
+                callback.onComplete(false);
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            Map<String, Object> notification = new HashMap<>();
+            notification.put("id", notificationId);
+            notification.put("type", type);
+            notification.put("title", title);
+            notification.put("message", String.format(messageTemplate, senderName));
+            notification.put("senderId", senderId);
+            notification.put("senderName", senderName);
+            notification.put("timestamp", now);
+            notification.put("unreadTs", now);
+            notification.put("read", false);
+
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(recipientId + "/notifications/" + notificationId, notification);
+            updates.put(recipientId + "/unreadNotifications", ServerValue.increment(1));
+
+            usersRef.updateChildren(updates)
+                    .addOnSuccessListener(aVoid -> callback.onComplete(true))
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Failed to send notification", e);
+                        callback.onComplete(false);
+                    });
+        });
+    }
+
+    private interface NameCallback {
+        void onName(String name);
+    }
+
+    /**
+     * Sender display name: username, else the older "name" field. Cached for
+     * SENDER_NAME_TTL_MS so a rename shows up within a day.
+     */
+    private void resolveSenderName(String senderId, NameCallback callback) {
+        String cached = prefs.getString(KEY_SENDER_NAME + senderId, null);
+        long cachedAt = prefs.getLong(KEY_SENDER_NAME_AT + senderId, 0);
+        if (cached != null && System.currentTimeMillis() - cachedAt < SENDER_NAME_TTL_MS) {
+            callback.onName(cached);
+            return;
+        }
+
+        readNameField(senderId, "username", name -> {
+            if (name != null) {
+                cacheSenderName(senderId, name, callback);
+            } else {
+                readNameField(senderId, "name", legacy -> {
+                    if (legacy != null) {
+                        cacheSenderName(senderId, legacy, callback);
+                    } else {
+                        callback.onName(cached != null ? cached : DEFAULT_SENDER_NAME);
+                    }
+                });
+            }
+        });
+    }
+
+    private void cacheSenderName(String senderId, String name, NameCallback callback) {
+        prefs.edit()
+                .putString(KEY_SENDER_NAME + senderId, name)
+                .putLong(KEY_SENDER_NAME_AT + senderId, System.currentTimeMillis())
+                .apply();
+        callback.onName(name);
+    }
+
+    // Calls back with null when the field is missing, empty or unreadable
+    private void readNameField(String userId, String field, NameCallback callback) {
+        usersRef.child(userId).child(field).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                String name = snapshot.getValue(String.class);
+                callback.onName(name == null || name.isEmpty() ? null : name);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.w(TAG, "Failed to read sender " + field, error.toException());
+                callback.onName(null);
+            }
+        });
+    }
+
+    // ============================================
+    // READING
+    // ============================================
+
+    public void getUnreadCount(String userId, CountCallback callback) {
+        usersRef.child(userId).child("unreadNotifications").addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Integer count = snapshot.getValue(Integer.class);
+                callback.onCount(count != null ? Math.max(count, 0) : 0);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "Failed to read unread count", error.toException());
+                callback.onCount(0);
+            }
+        });
+    }
+
+    /**
+     * Fetch one page of unread notifications, newest first.
+     *
+     * @param cursor 0 for the first page, otherwise the nextCursor of the previous page
+     */
+    public void fetchUnreadPage(String userId, long cursor, int pageSize, PageCallback callback) {
+        // startAt(1): read and legacy rows have no unreadTs and would sort first
+        Query query = usersRef.child(userId).child("notifications").orderByChild("unreadTs").startAt(1);
+        if (cursor > 0) {
+            query = query.endBefore(cursor);
+        }
+
+        query.limitToLast(pageSize).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                List<NotificationInfo> page = new ArrayList<>();
+                for (DataSnapshot child : snapshot.getChildren()) {
+                    if (!child.hasChild("unreadTs")) continue;
+                    Long timestamp = child.child("timestamp").getValue(Long.class);
+                    page.add(0, new NotificationInfo(
+                            child.getKey(),
+                            child.child("type").getValue(String.class),
+                            child.child("title").getValue(String.class),
+                            child.child("message").getValue(String.class),
+                            child.child("senderId").getValue(String.class),
+                            child.child("senderName").getValue(String.class),
+                            timestamp != null ? timestamp : 0,
+                            false));
+                }
+
+                long nextCursor = page.size() < pageSize || page.isEmpty()
+                        ? 0 : page.get(page.size() - 1).getTimestamp();
+                callback.onPage(page, nextCursor);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onError(error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Set the counter back to 0 when the unread query found nothing, e.g.
+     * after a failed write left it too high.
+     */
+    public void resetUnreadCount(String userId) {
+        usersRef.child(userId).child("unreadNotifications").setValue(0)
+                .addOnFailureListener(e -> Log.w(TAG, "Failed to reset unread count", e));
+    }
+
+    /**
+     * Mark notifications read and decrement the counter in one write.
+     * Only entries that were still unread count towards the decrement.
+     */
+    public void markAsRead(String userId, List<NotificationInfo> notifications) {
+        Map<String, Object> updates = new HashMap<>();
+        int wasUnread = 0;
+        for (NotificationInfo notification : notifications) {
+            if (notification.isRead()) continue;
+            updates.put("notifications/" + notification.getId() + "/read", true);
+            updates.put("notifications/" + notification.getId() + "/unreadTs", null);
+            notification.setRead(true);
+            wasUnread++;
+        }
+        if (wasUnread == 0) return;
+        updates.put("unreadNotifications", ServerValue.increment(-wasUnread));
+
+        usersRef.child(userId).updateChildren(updates)
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to mark notifications read", e));
+    }
+}
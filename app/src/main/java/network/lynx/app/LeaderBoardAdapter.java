@@ -9,11 +9,10 @@ import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
-import com.bumptech.glide.load.engine.DiskCacheStrategy;
-import com.lelloman.identicon.view.IdenticonView;
 
 import java.text.DecimalFormat;
 import java.util.List;
@@ -24,6 +23,11 @@ public class LeaderBoardAdapter extends RecyclerView.Adapter<LeaderBoardViewHold
     private List<LeaderBoardModel> items;
     private String currentUid;
     private GradientDrawable currentUserBackground;
+    private final int avatarSizePx;
+    private int prefetchedUpTo = -1;
+
+    private static final int PREFETCH_AHEAD = 10;
+    private static final int[] MEDALS = {R.drawable.medalgold, R.drawable.silver_medal, R.drawable.bronze_medal};
 
     public LeaderBoardAdapter(Context context, List<LeaderBoardModel> items, String currentUid) {
         this.context = context;
@@ -36,6 +40,7 @@ public class LeaderBoardAdapter extends RecyclerView.Adapter<LeaderBoardViewHold
                         ContextCompat.getColor(context, R.color.card1)}
         );
         currentUserBackground.setCornerRadius(25f);
+        avatarSizePx = context.getResources().getDimensionPixelSize(R.dimen.profile_image_sm);
     }
 
     @NonNull
@@ -49,47 +54,30 @@ public class LeaderBoardAdapter extends RecyclerView.Adapter<LeaderBoardViewHold
     public void onBindViewHolder(@NonNull LeaderBoardViewHolder holder, int position) {
         LeaderBoardModel model = items.get(position);
 
-        // Reset visibility
-        holder.imageView.setVisibility(View.VISIBLE);
+        // Avatars and identicons both render into profilePic at avatarSizePx
+        holder.imageView.setVisibility(View.GONE);
         holder.medalImage.setVisibility(View.GONE);
         holder.profilePic.setVisibility(View.GONE);
 
-        // Image loading
-        if (model.getImage() != null) {
-            Glide.with(context)
-                    .load(model.getImage())
-                    .diskCacheStrategy(DiskCacheStrategy.ALL)
-                    .centerCrop()
-                    .into(holder.profilePic);
+        // Highlight top 3 users with medals - no avatar is shown for them
+        if (position < 3) {
+            Glide.with(holder.profilePic).clear(holder.profilePic);
+            holder.medalImage.setImageResource(MEDALS[position]);
+            holder.medalImage.setVisibility(View.VISIBLE);
+        } else if (model.getImage() != null) {
+            ImagePipeline.loadAvatar(holder.profilePic, model.getImage(), avatarSizePx);
             holder.profilePic.setVisibility(View.VISIBLE);
-            holder.imageView.setVisibility(View.GONE);
         } else {
-            holder.imageView.setHash(model.getUsername().hashCode());
-            holder.imageView.setVisibility(View.VISIBLE);
+            Glide.with(holder.profilePic).clear(holder.profilePic);
+            holder.profilePic.setImageBitmap(
+                    ImagePipeline.identicon(context, model.getUsername().hashCode(), avatarSizePx));
+            holder.profilePic.setVisibility(View.VISIBLE);
         }
 
         // Set username and coins
         holder.username.setText(model.getUsername());
         holder.coins.setText(formatNumber(model.getCoins()));
 
-        // Highlight top 3 users with medals
-        if (position == 0) {
-            holder.medalImage.setImageResource(R.drawable.medalgold);
-            holder.medalImage.setVisibility(View.VISIBLE);
-            holder.imageView.setVisibility(View.GONE);
-            holder.profilePic.setVisibility(View.GONE);
-        } else if (position == 1) {
-            holder.medalImage.setImageResource(R.drawable.silver_medal);
-            holder.medalImage.setVisibility(View.VISIBLE);
-            holder.imageView.setVisibility(View.GONE);
-            holder.profilePic.setVisibility(View.GONE);
-        } else if (position == 2) {
-            holder.medalImage.setImageResource(R.drawable.bronze_medal);
-            holder.medalImage.setVisibility(View.VISIBLE);
-            holder.imageView.setVisibility(View.GONE);
-            holder.profilePic.setVisibility(View.GONE);
-        }
-
         // Apply gradient background for current user
         if (model.getUid().equals(currentUid)) {
             holder.itemView.setBackground(currentUserBackground);
@@ -98,6 +86,42 @@ public class LeaderBoardAdapter extends RecyclerView.Adapter<LeaderBoardViewHold
         }
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        recyclerView.addOnScrollListener(prefetchListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnScrollListener(prefetchListener);
+    }
+
+    /**
+     * Warm the next PREFETCH_AHEAD rows' avatars while the user scrolls down,
+     * so they bind from memory.
+     */
+    private final RecyclerView.OnScrollListener prefetchListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            if (dy <= 0 || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) return;
+
+            int lastVisible = ((LinearLayoutManager) recyclerView.getLayoutManager()).findLastVisibleItemPosition();
+            int from = Math.max(lastVisible + 1, prefetchedUpTo + 1);
+            int to = Math.min(lastVisible + PREFETCH_AHEAD, items.size() - 1);
+            for (int i = from; i <= to; i++) {
+                LeaderBoardModel model = items.get(i);
+                if (model.getImage() != null) {
+                    ImagePipeline.preloadAvatar(context, model.getImage(), avatarSizePx);
+                } else {
+                    ImagePipeline.identicon(context, model.getUsername().hashCode(), avatarSizePx);
+                }
+            }
+            prefetchedUpTo = Math.max(prefetchedUpTo, to);
+        }
+    };
+
     @Override
     public int getItemCount() {
         return items.size();
@@ -127,6 +151,7 @@ public class LeaderBoardAdapter extends RecyclerView.Adapter<LeaderBoardViewHold
         });
         items.clear();
         items.addAll(newItems);
+        prefetchedUpTo = -1;
         diffResult.dispatchUpdatesTo(this);
     }
 
@@ -30,13 +30,12 @@ public class LevelSystem {
             new Level(10, 250000, 150, 50)
     );
 
+    /**
+     * Level for a coin total: 1, or 2-5 once the total exceeds the matching
+     * threshold in AppConfig's level tiers.
+     */
     public static int getNewLevel(double totalCoins, int referrals) {
-        // Logic based on coins & referrals.
-        if (totalCoins > 1000) return 5;
-        else if (totalCoins > 500) return 4;
-        else if (totalCoins > 250) return 3;
-        else if (totalCoins > 100) return 2;
-        return 1;
+        return AppConfig.levelTiers().lower(totalCoins) + 2;
     }
 
     public static String getLevelBenefits(int level) {
@@ -7,7 +7,6 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.text.TextUtils;
-import android.util.Base64;
 import android.util.Log;
 import android.view.View;
 import android.widget.EditText;
@@ -174,7 +173,6 @@ public class LoginActivity extends AppCompatActivity {
         String email = user.getEmail();
         String displayName = getDisplayName(user);
         String profilePicUrl = (user.getPhotoUrl() != null) ? user.getPhotoUrl().toString() : "";
-        String referralCode = generateReferralCode(id);
 
         databaseReference = database.getReference("users").child(id);
 
@@ -192,7 +190,6 @@ public class LoginActivity extends AppCompatActivity {
                     updates.put("username", displayName);
                     updates.put("email", email);
                     updates.put("profilePicUrl",profilePicUrl);
-                    updates.put("referralCode", referralCode);
 
                     databaseReference.updateChildren(updates).addOnCompleteListener(task -> {
                         if (task.isSuccessful()) {
@@ -249,6 +246,7 @@ public class LoginActivity extends AppCompatActivity {
                 BoostManager.resetInstance();
                 MiningSyncManager.resetInstance();
                 MiningStreakManager.resetInstance();
+                StreakEngine.resetInstance();
                 AchievementManager.resetInstance();
                 HourlyBonusManager.resetInstance();
             } catch (Exception e) {
@@ -265,8 +263,8 @@ public class LoginActivity extends AppCompatActivity {
         editor.putString("profilePicUrl", user.getPhotoUrl() != null ? user.getPhotoUrl().toString() : null);
         editor.apply();
 
-        // Generate referral code for immediate local caching
-        String referralCode = generateReferralCode(newUserId);
+        // Referral code is known locally once ReferralCodeAllocator has issued it
+        String referralCode = ReferralCodeAllocator.getInstance(this).getCachedCode(newUserId);
 
         // Save to ReferralUtils for centralized access (email, name, referral code)
         ReferralUtils.saveProfileToPrefs(this, newUserId, user.getDisplayName(), user.getEmail(), referralCode);
@@ -282,28 +280,17 @@ public class LoginActivity extends AppCompatActivity {
     }
 
     private void ensureReferralCodeExists(String userId) {
-        DatabaseReference userRef = database.getReference("users").child(userId);
-        userRef.child("referralCode").addListenerForSingleValueEvent(new ValueEventListener() {
+        FirebaseManager.getInstance(this).ensureReferralCode(new FirebaseManager.DataCallback<String>() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                String existingCode = snapshot.getValue(String.class);
-                if (existingCode == null || existingCode.isEmpty() || existingCode.equals("XXXXXX")) {
-                    // Generate and save a new referral code
-                    String newCode = generateReferralCode(userId);
-                    userRef.child("referralCode").setValue(newCode);
-                    // Also save to local prefs
-                    ReferralUtils.saveProfileToPrefs(LoginActivity.this, userId, null, null, newCode);
-                    Log.d(TAG, "Generated new referral code for user: " + newCode);
-                } else {
-                    // Save existing code to local prefs for quick access
-                    ReferralUtils.saveProfileToPrefs(LoginActivity.this, userId, null, null, existingCode);
-                    Log.d(TAG, "Cached existing referral code: " + existingCode);
-                }
+            public void onSuccess(String code) {
+                // Save the code to local prefs for quick access
+                ReferralUtils.saveProfileToPrefs(LoginActivity.this, userId, null, null, code);
+                Log.d(TAG, "Referral code ready: " + code);
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e(TAG, "Error checking referral code", error.toException());
+            public void onError(Exception e) {
+                Log.e(TAG, "Error checking referral code", e);
             }
         });
     }
@@ -318,18 +305,4 @@ public class LoginActivity extends AppCompatActivity {
         }
         return "User";
     }
-
-    public static String generateReferralCode(String userId) {
-        try {
-            String encoded = Base64.encodeToString(userId.getBytes(), Base64.NO_WRAP);
-            String cleaned = encoded.replaceAll("[^A-Za-z0-9]", "").toUpperCase();
-            if (cleaned.length() >= 6) {
-                return cleaned.substring(0, 6);
-            } else {
-                return cleaned + String.valueOf(Math.abs(userId.hashCode()) % 10000);
-            }
-        } catch (Exception e) {
-            return "LYX" + String.valueOf(Math.abs(userId.hashCode()) % 100000);
-        }
-    }
 }
@@ -30,6 +30,9 @@ public class LynxApplication extends Application {
         // STEP 2: Initialize Firebase with offline persistence
         initializeFirebase();
 
+        // Stored remote overrides (tier tables etc.) before anything reads them
+        AppConfig.getInstance(this);
+
         // STEP 3: Initialize Network Utils for connectivity monitoring
         initializeNetworkUtils();
 
@@ -127,6 +130,18 @@ public class LynxApplication extends Application {
         // Schedule daily activity check
         ActivityCheckWorker.scheduleDaily(this);
 
+        // Upload buffered errors and crashes in batches
+        ErrorUploadWorker.schedule(this);
+
+        // Expire old treasures, notifications and transactions
+        DataRetentionManager.schedule(this);
+
+        // Deliver rewards queued before the last process death
+        RewardOutbox.getInstance(this).drainIfPending();
+
+        // Collect referral bonuses left by users who signed up with our code
+        ReferralCommissionManager.claimPendingCredits(this);
+
         // Schedule smart notifications
         SmartNotificationScheduler.scheduleSmartNotifications(this);
 
@@ -164,6 +179,20 @@ public class LynxApplication extends Application {
         if (adManager != null) {
             adManager.cleanupExpiredAds();
         }
+
+        // Drop decoded images and rendered identicons
+        ImagePipeline.clearMemory(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        ImagePipeline.trimMemory(this, level);
+
+        // UI hidden: the process may be killed from here on, so save the open history
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            UserBehaviorModel.getInstance(this).checkpoint();
+        }
     }
 
     // ============================================
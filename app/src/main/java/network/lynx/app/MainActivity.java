@@ -7,7 +7,6 @@ import android.widget.FrameLayout;
 
 import androidx.activity.EdgeToEdge;
 import androidx.activity.OnBackPressedCallback;
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
@@ -19,17 +18,14 @@ import com.google.android.gms.ads.RequestConfiguration;
 import com.google.android.gms.ads.initialization.AdapterStatus;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 import com.inmobi.sdk.InMobiSdk;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 public class MainActivity extends AppCompatActivity {
@@ -248,33 +244,38 @@ public class MainActivity extends AppCompatActivity {
             }
 
             String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-            DatabaseReference userRef = FirebaseDatabase.getInstance().getReference("users").child(userId);
-
-            userRef.child("notifications").orderByChild("read").equalTo(false)
-                    .addListenerForSingleValueEvent(new ValueEventListener() {
-                        @Override
-                        public void onDataChange(@NonNull DataSnapshot snapshot) {
-                            if (snapshot.exists()) {
-                                int unreadCount = (int) snapshot.getChildrenCount();
-                                userRef.child("unreadNotifications").setValue(unreadCount);
-
-                                for (DataSnapshot notificationSnapshot : snapshot.getChildren()) {
-                                    String type = notificationSnapshot.child("type").getValue(String.class);
-                                    String message = notificationSnapshot.child("message").getValue(String.class);
-                                    if ("referral_ping".equals(type) && message != null) {
-                                        if (!isFinishing() && !isDestroyed()) {
-                                            ToastUtils.showInfo(MainActivity.this, message);
-                                        }
-                                    }
+            InboxManager inbox = InboxManager.getInstance(this);
+
+            // One counter read per launch; only fetch notifications when there are some
+            inbox.getUnreadCount(userId, unread -> {
+                if (unread == 0) return;
+
+                inbox.fetchUnreadPage(userId, 0, InboxManager.DEFAULT_PAGE_SIZE, new InboxManager.PageCallback() {
+                    @Override
+                    public void onPage(List<NotificationInfo> page, long nextCursor) {
+                        if (page.isEmpty()) {
+                            // The counter is out of step with the list; repair it
+                            inbox.resetUnreadCount(userId);
+                            return;
+                        }
+                        List<NotificationInfo> shown = new ArrayList<>();
+                        for (NotificationInfo notification : page) {
+                            if ("referral_ping".equals(notification.getType()) && notification.getMessage() != null) {
+                                if (!isFinishing() && !isDestroyed()) {
+                                    ToastUtils.showInfo(MainActivity.this, notification.getMessage());
+                                    shown.add(notification);
                                 }
                             }
                         }
-
-                        @Override
-                        public void onCancelled(@NonNull DatabaseError error) {
-                            Log.e(TAG, "Failed to check notifications", error.toException());
-                        }
-                    });
+                        inbox.markAsRead(userId, shown);
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        Log.e(TAG, "Failed to check notifications: " + error);
+                    }
+                });
+            });
         } catch (Exception e) {
             Log.e(TAG, "Error checking notifications", e);
         }
@@ -252,17 +252,7 @@ public class MiningFragment extends Fragment implements BoostManager.BoostChange
                 Log.d(TAG, "Invite button clicked in MiningFragment");
                 Context context = getSafeContext();
                 if (context != null) {
-                    // Ensure we have a referral code before sharing
-                    if (referralCode == null || referralCode.isEmpty()) {
-                        String userId = null;
-                        if (FirebaseAuth.getInstance().getCurrentUser() != null) {
-                            userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-                        }
-                        if (userId != null) {
-                            referralCode = ReferralUtils.generateReferralCode(userId);
-                            ReferralUtils.saveProfileToPrefs(context, userId, null, null, referralCode);
-                        }
-                    }
+                    // Issues a referral code first if the user has none yet
                     ReferralUtils.shareReferral(context);
                 } else {
                     Log.e(TAG, "Context is null, cannot share referral");
@@ -868,6 +858,16 @@ public class MiningFragment extends Fragment implements BoostManager.BoostChange
             Log.w(TAG, "Could not record mining streak", e);
         }
 
+        // Count as active in every security circle this user belongs to
+        if (securityCircleManager != null) {
+            securityCircleManager.recordMiningStart();
+        }
+
+        Context statsContext = getSafeContext();
+        if (statsContext != null) {
+            GlobalStats.getInstance(statsContext).recordSessionStarted();
+        }
+
         try {
             String userID = FirebaseAuth.getInstance().getCurrentUser().getUid();
 
@@ -1082,6 +1082,16 @@ public class MiningFragment extends Fragment implements BoostManager.BoostChange
                                     // Distribute commission to referrers
                                     ReferralCommissionManager.distributeMiningCommission(userID, minedTokens);
 
+                                    // Count the session towards the user's team
+                                    if (teamMiningManager != null && teamMiningManager.hasTeam()) {
+                                        teamMiningManager.contributeToTeam(minedTokens);
+                                    }
+
+                                    Context ctx = getSafeContext();
+                                    if (ctx != null) {
+                                        GlobalStats.getInstance(ctx).recordSessionCompleted(minedTokens);
+                                    }
+
                                     // Check achievements after mining
                                     checkAchievementsAfterMining(updatedTotal);
                                 })
@@ -1385,6 +1395,17 @@ public class MiningFragment extends Fragment implements BoostManager.BoostChange
                 smartPreloadAds();
             }
 
+            // Cheap when fresh: GlobalStats serves its cached copy
+            if (miningPhaseManager != null) {
+                miningPhaseManager.refresh();
+            }
+
+            // Likewise throttled: config/app is fetched at most every 15 minutes
+            Context context = getSafeContext();
+            if (context != null) {
+                AppConfig.getInstance(context).refresh();
+            }
+
             // NEW: Notify sync manager app is in foreground for smart sync
             if (syncManager != null) {
                 syncManager.onAppForeground();
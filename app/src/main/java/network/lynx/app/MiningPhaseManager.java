@@ -2,16 +2,9 @@ package network.lynx.app;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
 
-import androidx.annotation.NonNull;
-
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 
 import java.util.Locale;
 
@@ -25,17 +18,10 @@ public class MiningPhaseManager {
     private static final String TAG = "MiningPhaseManager";
     private static final String PREFS_NAME = "mining_phase";
 
-    // Phase thresholds
-    public static final long PHASE_1_THRESHOLD = 100_000;
-    public static final long PHASE_2_THRESHOLD = 1_000_000;
-    public static final long PHASE_3_THRESHOLD = 10_000_000;
-    public static final long PHASE_4_THRESHOLD = 100_000_000;
+    // Phase thresholds (user counts) come from AppConfig.miningPhaseTiers()
 
     // Base rates per phase (LYX per hour)
-    public static final double PHASE_1_RATE = 2.0;
-    public static final double PHASE_2_RATE = 1.0;
-    public static final double PHASE_3_RATE = 0.5;
-    public static final double PHASE_4_RATE = 0.25;
+    // Phase rates come from AppConfig.current().miningPhaseRate(phase)
 
     // Phase names
     public static final String PHASE_1_NAME = "Pioneer";
@@ -46,11 +32,10 @@ public class MiningPhaseManager {
     private static MiningPhaseManager instance;
     private final Context context;
     private final SharedPreferences prefs;
-    private final DatabaseReference dbRef;
 
     private long totalUsers = 0;
     private int currentPhase = 1;
-    private double currentBaseRate = PHASE_1_RATE;
+    private double currentBaseRate = AppConfig.DEFAULT_MINING_PHASE_RATES[0];
     private PhaseUpdateListener listener;
 
     public static class PhaseInfo {
@@ -75,10 +60,12 @@ public class MiningPhaseManager {
     private MiningPhaseManager(Context context) {
         this.context = context.getApplicationContext();
         this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        this.dbRef = FirebaseDatabase.getInstance().getReference();
 
         loadCachedData();
-        startListening();
+        refresh();
+        // Re-derive the phase when thresholds or rates change remotely
+        AppConfig.getInstance(context).addChangeListener((previous, current) ->
+                new Handler(Looper.getMainLooper()).post(this::onConfigChanged));
     }
 
     public static synchronized MiningPhaseManager getInstance(Context context) {
@@ -95,57 +82,49 @@ public class MiningPhaseManager {
     private void loadCachedData() {
         totalUsers = prefs.getLong("totalUsers", 1000);
         currentPhase = prefs.getInt("currentPhase", 1);
-        currentBaseRate = prefs.getFloat("currentBaseRate", (float) PHASE_1_RATE);
-    }
-
-    private void startListening() {
-        dbRef.child("stats").child("totalUsers").addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                if (snapshot.exists() && snapshot.getValue() != null) {
-                    long newTotal = ((Number) snapshot.getValue()).longValue();
-
-                    if (newTotal != totalUsers) {
-                        totalUsers = newTotal;
-                        int oldPhase = currentPhase;
-                        updatePhase();
-
-                        if (currentPhase != oldPhase && listener != null) {
-                            listener.onPhaseChanged(oldPhase, currentPhase);
-                        }
-
-                        prefs.edit()
-                                .putLong("totalUsers", totalUsers)
-                                .putInt("currentPhase", currentPhase)
-                                .putFloat("currentBaseRate", (float) currentBaseRate)
-                                .apply();
-
-                        notifyListener();
-                    }
-                }
+        currentBaseRate = prefs.getFloat("currentBaseRate", (float) AppConfig.DEFAULT_MINING_PHASE_RATES[0]);
+    }
+
+    /**
+     * Total users come from the folded global stats, read at most once per
+     * cache interval instead of through a permanent listener.
+     */
+    public void refresh() {
+        GlobalStats.getInstance(context).getStats(stats -> {
+            if (stats.totalUsers <= 0 || stats.totalUsers == totalUsers) return;
+            totalUsers = stats.totalUsers;
+            int oldPhase = currentPhase;
+            updatePhase();
+
+            if (currentPhase != oldPhase && listener != null) {
+                listener.onPhaseChanged(oldPhase, currentPhase);
             }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e(TAG, "Error listening to user count", error.toException());
-            }
+            prefs.edit()
+                    .putLong("totalUsers", totalUsers)
+                    .putInt("currentPhase", currentPhase)
+                    .putFloat("currentBaseRate", (float) currentBaseRate)
+                    .apply();
+
+            notifyListener();
         });
     }
 
-    private void updatePhase() {
-        if (totalUsers < PHASE_1_THRESHOLD) {
-            currentPhase = 1;
-            currentBaseRate = PHASE_1_RATE;
-        } else if (totalUsers < PHASE_2_THRESHOLD) {
-            currentPhase = 2;
-            currentBaseRate = PHASE_2_RATE;
-        } else if (totalUsers < PHASE_3_THRESHOLD) {
-            currentPhase = 3;
-            currentBaseRate = PHASE_3_RATE;
-        } else {
-            currentPhase = 4;
-            currentBaseRate = PHASE_4_RATE;
+    private void onConfigChanged() {
+        int oldPhase = currentPhase;
+        updatePhase();
+        if (currentPhase != oldPhase && listener != null) {
+            listener.onPhaseChanged(oldPhase, currentPhase);
         }
+        notifyListener();
+    }
+
+    private void updatePhase() {
+        // Phase n+2 starts at threshold n; the last threshold is only a display target
+        AppConfig.Snapshot config = AppConfig.current();
+        int startedAt = config.miningPhaseTiers.floor(totalUsers);
+        currentPhase = Math.min(config.miningPhaseCount(), startedAt + 2);
+        currentBaseRate = config.miningPhaseRate(currentPhase);
     }
 
     private void notifyListener() {
@@ -162,27 +141,14 @@ public class MiningPhaseManager {
         info.baseRate = currentBaseRate;
         info.currentUsers = totalUsers;
 
-        switch (currentPhase) {
-            case 1:
-                info.nextPhaseThreshold = PHASE_1_THRESHOLD;
-                info.nextPhaseRate = PHASE_2_RATE;
-                info.nextPhaseName = PHASE_2_NAME;
-                break;
-            case 2:
-                info.nextPhaseThreshold = PHASE_2_THRESHOLD;
-                info.nextPhaseRate = PHASE_3_RATE;
-                info.nextPhaseName = PHASE_3_NAME;
-                break;
-            case 3:
-                info.nextPhaseThreshold = PHASE_3_THRESHOLD;
-                info.nextPhaseRate = PHASE_4_RATE;
-                info.nextPhaseName = PHASE_4_NAME;
-                break;
-            default:
-                info.nextPhaseThreshold = PHASE_4_THRESHOLD;
-                info.nextPhaseRate = PHASE_4_RATE;
-                info.nextPhaseName = "Final";
-                break;
+        AppConfig.Snapshot config = AppConfig.current();
+        info.nextPhaseThreshold = (long) config.miningPhaseTiers.threshold(currentPhase - 1);
+        if (currentPhase < config.miningPhaseCount()) {
+            info.nextPhaseRate = config.miningPhaseRate(currentPhase + 1);
+            info.nextPhaseName = getPhaseName(currentPhase + 1);
+        } else {
+            info.nextPhaseRate = config.miningPhaseRate(currentPhase);
+            info.nextPhaseName = "Final";
         }
 
         info.usersToNextPhase = Math.max(0, info.nextPhaseThreshold - totalUsers);
@@ -208,12 +174,7 @@ public class MiningPhaseManager {
     }
 
     private long getPreviousThreshold(int phase) {
-        switch (phase) {
-            case 2: return PHASE_1_THRESHOLD;
-            case 3: return PHASE_2_THRESHOLD;
-            case 4: return PHASE_3_THRESHOLD;
-            default: return 0;
-        }
+        return phase <= 1 ? 0 : (long) AppConfig.miningPhaseTiers().threshold(phase - 2);
     }
 
     private long getUserJoinPosition() {
@@ -224,9 +185,7 @@ public class MiningPhaseManager {
         if (!prefs.contains("userJoinPosition")) {
             prefs.edit().putLong("userJoinPosition", totalUsers).apply();
 
-            if (FirebaseAuth.getInstance().getCurrentUser() != null) {
-                dbRef.child("stats").child("totalUsers").setValue(totalUsers + 1);
-            }
+            GlobalStats.getInstance(context).recordUserJoined();
         }
     }
 
@@ -1,36 +1,26 @@
 package network.lynx.app;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.util.Log;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
+import com.google.firebase.database.ServerValue;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 
 /**
  * Mining Streak Multiplier System
  * Consecutive days of mining = increasing multiplier
  * Encourages daily engagement
+ * Day counting and the stored record live in StreakEngine (kind "mining")
  */
 public class MiningStreakManager {
     private static final String TAG = "MiningStreakManager";
     private static MiningStreakManager instance;
 
     private Context context;
-    private SharedPreferences prefs;
-    private DatabaseReference userRef;
     private String userId;
     private List<StreakListener> listeners = new ArrayList<>();
 
@@ -66,6 +56,9 @@ public class MiningStreakManager {
             new StreakMilestone(365, 3.0f, "💎", "Diamond Miner", 2500)
     };
 
+    // Days required per milestone, for binary-search lookups
+    private static final TierIndex MILESTONE_TIERS = milestoneTiers();
+
     public static class StreakStatus {
         public int currentStreak;
         public int longestStreak;
@@ -130,8 +123,6 @@ public class MiningStreakManager {
                 return;
             }
             userId = auth.getCurrentUser().getUid();
-            prefs = context.getSharedPreferences("MiningStreak_" + userId, Context.MODE_PRIVATE);
-            userRef = FirebaseDatabase.getInstance().getReference("users").child(userId);
 
             checkAndUpdateStreak();
         } catch (Exception e) {
@@ -139,28 +130,13 @@ public class MiningStreakManager {
         }
     }
 
-    private String getTodayDate() {
-        return new SimpleDateFormat("yyyyMMdd", Locale.getDefault()).format(new Date());
-    }
-
-    private String getYesterdayDate() {
-        long yesterday = System.currentTimeMillis() - (24 * 60 * 60 * 1000);
-        return new SimpleDateFormat("yyyyMMdd", Locale.getDefault()).format(new Date(yesterday));
-    }
-
     public StreakStatus getStreakStatus() {
-        int currentStreak = prefs.getInt("currentStreak", 0);
-        int longestStreak = prefs.getInt("longestStreak", 0);
-        String lastMiningDate = prefs.getString("lastMiningDate", "");
-        boolean minedToday = getTodayDate().equals(lastMiningDate);
-
-        // Check if streak should be broken
-        String yesterday = getYesterdayDate();
-        if (!lastMiningDate.isEmpty() && !lastMiningDate.equals(getTodayDate()) && !lastMiningDate.equals(yesterday)) {
-            // Streak broken - user missed a day
-            currentStreak = 0;
-            prefs.edit().putInt("currentStreak", 0).apply();
-        }
+        StreakEngine engine = StreakEngine.getInstance(context);
+        int currentStreak = engine.current(StreakEngine.MINING, 0);
+        int longestStreak = engine.best(StreakEngine.MINING);
+        StreakEngine.Record record = engine.get(StreakEngine.MINING);
+        String lastMiningDate = record != null ? StreakEngine.formatDay(record.lastDay, false) : "";
+        boolean minedToday = engine.claimedToday(StreakEngine.MINING);
 
         float currentMultiplier = getMultiplierForStreak(currentStreak);
         StreakMilestone currentMilestone = getMilestoneForStreak(currentStreak);
@@ -172,153 +148,84 @@ public class MiningStreakManager {
     }
 
     private void checkAndUpdateStreak() {
-        String today = getTodayDate();
-        String yesterday = getYesterdayDate();
-        String lastMiningDate = prefs.getString("lastMiningDate", "");
-
-        // If already mined today, do nothing
-        if (today.equals(lastMiningDate)) {
-            return;
-        }
-
-        int currentStreak = prefs.getInt("currentStreak", 0);
-
-        // Check if streak should be broken
-        if (!lastMiningDate.isEmpty() && !lastMiningDate.equals(yesterday)) {
-            // Missed a day, break streak
-            int previousStreak = currentStreak;
-            currentStreak = 0;
-            prefs.edit().putInt("currentStreak", 0).apply();
-            notifyStreakBroken(previousStreak);
-            Log.d(TAG, "Mining streak broken! Previous: " + previousStreak + " days");
-        }
+        StreakEngine engine = StreakEngine.getInstance(context);
+        engine.whenLoaded(() -> {
+            StreakEngine.Record record = engine.get(StreakEngine.MINING);
+            // Missed a day: the engine already reads it as 0, just tell listeners
+            if (record != null && record.count > 0 && engine.current(StreakEngine.MINING, 0) == 0) {
+                notifyStreakBroken(record.count);
+                Log.d(TAG, "Mining streak broken! Previous: " + record.count + " days");
+            }
+        });
     }
 
     // Call this when user starts mining for the day
     public void recordMiningSession() {
-        String today = getTodayDate();
-        String lastMiningDate = prefs.getString("lastMiningDate", "");
-
-        // Already mined today
-        if (today.equals(lastMiningDate)) {
-            Log.d(TAG, "Already recorded mining for today");
-            return;
-        }
-
-        int currentStreak = prefs.getInt("currentStreak", 0);
-        int longestStreak = prefs.getInt("longestStreak", 0);
-        String yesterday = getYesterdayDate();
-
-        // Check if continuing streak or starting fresh
-        if (lastMiningDate.isEmpty() || lastMiningDate.equals(yesterday)) {
-            // Continue streak
-            currentStreak++;
-        } else {
-            // Streak broken, start fresh
-            currentStreak = 1;
-        }
+        if (userId == null) return;
 
-        // Update longest streak
-        if (currentStreak > longestStreak) {
-            longestStreak = currentStreak;
-        }
-
-        // Check for milestone
-        StreakMilestone previousMilestone = getMilestoneForStreak(currentStreak - 1);
-        StreakMilestone newMilestone = getMilestoneForStreak(currentStreak);
-
-        // Save to preferences
-        prefs.edit()
-                .putInt("currentStreak", currentStreak)
-                .putInt("longestStreak", longestStreak)
-                .putString("lastMiningDate", today)
-                .apply();
-
-        // Save to Firebase
-        saveToFirebase(currentStreak, longestStreak, today);
-
-        // Check if hit new milestone
-        if (newMilestone != null && (previousMilestone == null ||
-            newMilestone.daysRequired > previousMilestone.daysRequired)) {
-            if (currentStreak == newMilestone.daysRequired) {
-                awardMilestoneBonus(newMilestone);
-                notifyMilestoneReached(newMilestone);
+        // Streak record and milestone bonus go out as one write
+        StreakEngine.getInstance(context).claim(StreakEngine.MINING, 0, (count, updates) -> {
+            StreakMilestone milestone = getMilestoneForStreak(count);
+            if (milestone != null && milestone.daysRequired == count && milestone.bonusTokens > 0) {
+                updates.put("users/" + userId + "/totalcoins", ServerValue.increment(milestone.bonusTokens));
+            }
+        }, new StreakEngine.ClaimCallback() {
+            @Override
+            public void onClaimed(int count) {
+                StreakMilestone milestone = getMilestoneForStreak(count);
+                if (milestone != null && milestone.daysRequired == count) {
+                    if (milestone.bonusTokens > 0) {
+                        Log.d(TAG, "Awarded " + milestone.bonusTokens + " LYX for reaching " + milestone.title + " milestone!");
+                    }
+                    notifyMilestoneReached(milestone);
+                }
+
+                notifyStreakUpdated(getStreakStatus());
+                AchievementManager.getInstance(context).recordMetric(AchievementManager.Metric.STREAK, count);
+                Log.d(TAG, "Mining streak: " + count + " days | Multiplier: " + getMultiplierForStreak(count) + "x");
             }
-        }
-
-        // Notify listeners
-        notifyStreakUpdated(getStreakStatus());
-        Log.d(TAG, "Mining streak: " + currentStreak + " days | Multiplier: " + getMultiplierForStreak(currentStreak) + "x");
-    }
-
-    private void saveToFirebase(int currentStreak, int longestStreak, String lastMiningDate) {
-        if (userRef == null) return;
-
-        Map<String, Object> streakData = new HashMap<>();
-        streakData.put("currentStreak", currentStreak);
-        streakData.put("longestStreak", longestStreak);
-        streakData.put("lastMiningDate", lastMiningDate);
-        streakData.put("multiplier", getMultiplierForStreak(currentStreak));
-
-        StreakMilestone milestone = getMilestoneForStreak(currentStreak);
-        if (milestone != null) {
-            streakData.put("currentMilestone", milestone.title);
-            streakData.put("currentBadge", milestone.badge);
-        }
-
-        userRef.child("miningStreak").setValue(streakData);
-    }
-
-    private void awardMilestoneBonus(StreakMilestone milestone) {
-        if (userRef == null || milestone.bonusTokens <= 0) return;
 
-        userRef.child("totalcoins").addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                Double current = snapshot.getValue(Double.class);
-                if (current == null) current = 0.0;
-                userRef.child("totalcoins").setValue(current + milestone.bonusTokens);
-                Log.d(TAG, "Awarded " + milestone.bonusTokens + " LYX for reaching " + milestone.title + " milestone!");
+            public void onAlreadyClaimed() {
+                Log.d(TAG, "Already recorded mining for today");
             }
 
             @Override
-            public void onCancelled(DatabaseError error) {}
+            public void onError(String message) {
+                Log.e(TAG, "Failed to record mining streak: " + message);
+            }
         });
     }
 
     public float getMultiplierForStreak(int streak) {
-        float multiplier = 1.0f;
-        for (int i = MILESTONES.length - 1; i >= 0; i--) {
-            if (streak >= MILESTONES[i].daysRequired) {
-                multiplier = MILESTONES[i].multiplier;
-                break;
-            }
-        }
-        return multiplier;
+        StreakMilestone milestone = getMilestoneForStreak(streak);
+        return milestone != null ? milestone.multiplier : 1.0f;
     }
 
-    public StreakMilestone getMilestoneForStreak(int streak) {
-        StreakMilestone result = null;
-        for (int i = MILESTONES.length - 1; i >= 0; i--) {
-            if (streak >= MILESTONES[i].daysRequired) {
-                result = MILESTONES[i];
-                break;
-            }
-        }
-        return result;
+    public static StreakMilestone getMilestoneForStreak(int streak) {
+        int i = MILESTONE_TIERS.floor(streak);
+        return i >= 0 ? MILESTONES[i] : null;
     }
 
     public StreakMilestone getNextMilestone(int streak) {
-        for (StreakMilestone milestone : MILESTONES) {
-            if (streak < milestone.daysRequired) {
-                return milestone;
-            }
-        }
-        return null; // Max milestone reached
+        int i = MILESTONE_TIERS.floor(streak) + 1;
+        return i < MILESTONES.length ? MILESTONES[i] : null; // null: max milestone reached
     }
 
+    /**
+     * Multiplier for the current streak. Called from the mining rate
+     * calculation, so it skips building a full StreakStatus.
+     */
     public float getCurrentMultiplier() {
-        return getStreakStatus().currentMultiplier;
+        return getMultiplierForStreak(StreakEngine.getInstance(context).current(StreakEngine.MINING, 0));
+    }
+
+    private static TierIndex milestoneTiers() {
+        double[] days = new double[MILESTONES.length];
+        for (int i = 0; i < MILESTONES.length; i++) {
+            days[i] = MILESTONES[i].daysRequired;
+        }
+        return TierIndex.of(days);
     }
 
     public int getCurrentStreak() {
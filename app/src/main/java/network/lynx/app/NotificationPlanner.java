@@ -0,0 +1,374 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NOTIFICATION PLANNER - One wakeup for all scheduled notification types
+ *
+ * Callers (SmartNotificationScheduler, EngagementNotificationManager) hand
+ * over a plan of daily/weekly slots per source. The planner:
+ * - computes the next occurrences across every source
+ * - coalesces slots within COALESCE_WINDOW_MS into a single wakeup
+ * - keeps exactly one pending wakeup (unique work, REPLACE), so replanning
+ *   never stacks alarms
+ * - counts wakeups and notifications separately per local day and defers
+ *   to tomorrow once either MAX_WAKEUPS_PER_DAY or MAX_NOTIFICATIONS_PER_DAY
+ *   is reached. The engagement check posts nothing itself, so it only costs
+ *   a wakeup. Counters are committed after the batch ran, so a retried
+ *   wakeup is not counted twice, and earlier days' counters are removed.
+ */
+public class NotificationPlanner {
+    private static final String TAG = "NotificationPlanner";
+    private static final String PREFS_NAME = "notification_planner";
+    private static final String WORK_NAME = "notification_planner_wakeup";
+    private static final String KEY_PLAN = "plan_";
+    private static final String KEY_LAST_FIRED = "last_fired_";
+    private static final String KEY_SENT = "sent_";
+    private static final String KEY_WAKEUPS = "wakeups_";
+    private static final String KEY_SOURCES = "sources";
+    private static final String INPUT_TYPES = "types";
+
+    public static final String SOURCE_SMART = "smart";
+    public static final String SOURCE_ENGAGEMENT = "engagement";
+
+    private static final long COALESCE_WINDOW_MS = TimeUnit.MINUTES.toMillis(45);
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+    private static final int MAX_NOTIFICATIONS_PER_DAY = 4;
+    private static final int MAX_WAKEUPS_PER_DAY = 6;
+    private static final int MAX_JITTER_MINUTES = 30;
+
+    private static NotificationPlanner instance;
+    private final Context context;
+    private final SharedPreferences prefs;
+
+    /**
+     * A recurring slot. dayOfWeek is a Calendar.DAY_OF_WEEK value, or 0 for daily.
+     */
+    public static class Slot {
+        public final int type;
+        public final int hour;
+        public final int minute;
+        public final int dayOfWeek;
+        public final boolean jitter;
+
+        public Slot(int type, int hour, int minute, int dayOfWeek, boolean jitter) {
+            this.type = type;
+            this.hour = ((hour % 24) + 24) % 24;
+            this.minute = minute;
+            this.dayOfWeek = dayOfWeek;
+            this.jitter = jitter;
+        }
+
+        public static Slot daily(int type, int hour, int minute) {
+            return new Slot(type, hour, minute, 0, true);
+        }
+
+        public static Slot weekly(int type, int dayOfWeek, int hour, int minute) {
+            return new Slot(type, hour, minute, dayOfWeek, false);
+        }
+
+        String encode() {
+            return type + ":" + hour + ":" + minute + ":" + dayOfWeek + ":" + (jitter ? 1 : 0);
+        }
+
+        static Slot decode(String value) {
+            String[] parts = value.split(":");
+            return new Slot(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2]), Integer.parseInt(parts[3]), "1".equals(parts[4]));
+        }
+    }
+
+    private static class Occurrence implements Comparable<Occurrence> {
+        final int type;
+        final long time;
+
+        Occurrence(int type, long time) {
+            this.type = type;
+            this.time = time;
+        }
+
+        @Override
+        public int compareTo(Occurrence other) {
+            return Long.compare(time, other.time);
+        }
+    }
+
+    private NotificationPlanner(Context context) {
+        this.context = context.getApplicationContext();
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized NotificationPlanner getInstance(Context context) {
+        if (instance == null) {
+            instance = new NotificationPlanner(context);
+        }
+        return instance;
+    }
+
+    // ============================================
+    // PLANNING
+    // ============================================
+
+    /**
+     * Replace all slots owned by a source and re-plan the next wakeup.
+     * Calling this again with the same slots is a no-op for the device.
+     */
+    public synchronized void replacePlan(String source, List<Slot> slots) {
+        StringBuilder sb = new StringBuilder();
+        for (Slot slot : slots) {
+            if (sb.length() > 0) sb.append(';');
+            sb.append(slot.encode());
+        }
+
+        String sources = prefs.getString(KEY_SOURCES, "");
+        if (!(";" + sources + ";").contains(";" + source + ";")) {
+            sources = sources.isEmpty() ? source : sources + ";" + source;
+        }
+
+        prefs.edit()
+                .putString(KEY_PLAN + source, sb.toString())
+                .putString(KEY_SOURCES, sources)
+                .apply();
+
+        scheduleNextWakeup(System.currentTimeMillis(), ExistingWorkPolicy.REPLACE);
+    }
+
+    private List<Slot> loadSlots() {
+        List<Slot> slots = new ArrayList<>();
+        String sources = prefs.getString(KEY_SOURCES, "");
+        if (sources.isEmpty()) return slots;
+
+        for (String source : sources.split(";")) {
+            String plan = prefs.getString(KEY_PLAN + source, "");
+            if (plan.isEmpty()) continue;
+            for (String encoded : plan.split(";")) {
+                try {
+                    slots.add(Slot.decode(encoded));
+                } catch (Exception e) {
+                    Log.w(TAG, "Dropping malformed slot: " + encoded);
+                }
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Next {@code count} occurrences across all plans, earliest first.
+     */
+    List<Occurrence> computeNextSlots(long from, int count) {
+        List<Occurrence> occurrences = new ArrayList<>();
+        for (Slot slot : loadSlots()) {
+            long lastFired = prefs.getLong(KEY_LAST_FIRED + slot.type, 0);
+            long next = nextOccurrence(slot, Math.max(from, lastFired + 1));
+            occurrences.add(new Occurrence(slot.type, next));
+        }
+        Collections.sort(occurrences);
+        return occurrences.size() > count ? occurrences.subList(0, count) : occurrences;
+    }
+
+    private static long nextOccurrence(Slot slot, long from) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(from);
+        cal.set(Calendar.HOUR_OF_DAY, slot.hour);
+        cal.set(Calendar.MINUTE, slot.minute);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+
+        if (slot.dayOfWeek != 0) {
+            cal.set(Calendar.DAY_OF_WEEK, slot.dayOfWeek);
+        }
+
+        // Step forward until the (jittered) time is after from
+        for (int i = 0; i < 8; i++) {
+            long candidate = cal.getTimeInMillis() + jitterFor(slot, cal);
+            if (candidate >= from) {
+                return candidate;
+            }
+            cal.add(slot.dayOfWeek != 0 ? Calendar.WEEK_OF_YEAR : Calendar.DAY_OF_MONTH, 1);
+        }
+        return cal.getTimeInMillis();
+    }
+
+    /**
+     * ±30 minutes, stable for a given type and day so replanning is idempotent.
+     */
+    private static long jitterFor(Slot slot, Calendar day) {
+        if (!slot.jitter) return 0;
+        int seed = 31 * slot.type + day.get(Calendar.YEAR) * 400 + day.get(Calendar.DAY_OF_YEAR);
+        int minutes = Math.floorMod(seed * 0x9E3779B1, 2 * MAX_JITTER_MINUTES + 1) - MAX_JITTER_MINUTES;
+        return TimeUnit.MINUTES.toMillis(minutes);
+    }
+
+    private synchronized void scheduleNextWakeup(long now, ExistingWorkPolicy policy) {
+        long from = now;
+        if (getSentToday() >= MAX_NOTIFICATIONS_PER_DAY || getWakeupsToday() >= MAX_WAKEUPS_PER_DAY) {
+            Calendar tomorrow = Calendar.getInstance();
+            tomorrow.setTimeInMillis(now);
+            tomorrow.add(Calendar.DAY_OF_MONTH, 1);
+            tomorrow.set(Calendar.HOUR_OF_DAY, 0);
+            tomorrow.set(Calendar.MINUTE, 0);
+            tomorrow.set(Calendar.SECOND, 0);
+            tomorrow.set(Calendar.MILLISECOND, 0);
+            from = tomorrow.getTimeInMillis();
+        }
+
+        List<Occurrence> next = computeNextSlots(from, 8);
+        WorkManager workManager = WorkManager.getInstance(context);
+        if (next.isEmpty()) {
+            if (policy == ExistingWorkPolicy.REPLACE) {
+                workManager.cancelUniqueWork(WORK_NAME);
+            }
+            return;
+        }
+
+        // Everything close to the first slot rides the same wakeup
+        long wakeAt = next.get(0).time;
+        List<Integer> batch = new ArrayList<>();
+        List<Long> batchTimes = new ArrayList<>();
+        for (Occurrence occurrence : next) {
+            if (occurrence.time - wakeAt > COALESCE_WINDOW_MS) break;
+            if (!batch.contains(occurrence.type)) {
+                batch.add(occurrence.type);
+                batchTimes.add(occurrence.time);
+            }
+        }
+
+        int[] types = new int[batch.size()];
+        long[] times = new long[batch.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = batch.get(i);
+            times[i] = batchTimes.get(i);
+        }
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(PlannerWorker.class)
+                .setInitialDelay(Math.max(0, wakeAt - now), TimeUnit.MILLISECONDS)
+                .setInputData(new Data.Builder()
+                        .putIntArray(INPUT_TYPES, types)
+                        .putLongArray(INPUT_TYPES + "_times", times)
+                        .build())
+                .build();
+
+        workManager.enqueueUniqueWork(WORK_NAME, policy, request);
+        Log.d(TAG, "Next wakeup in " + TimeUnit.MILLISECONDS.toMinutes(wakeAt - now)
+                + " min for " + types.length + " notification types");
+    }
+
+    // ============================================
+    // WAKEUPS
+    // ============================================
+
+    private synchronized void onWakeup(int[] types, long[] times) {
+        long now = System.currentTimeMillis();
+        long today = localDay(now);
+        int sent = prefs.getInt(KEY_SENT + today, 0);
+        int wakeups = prefs.getInt(KEY_WAKEUPS + today, 0);
+
+        // Each smart type takes one slot of the daily budget
+        List<Integer> smartTypes = new ArrayList<>();
+        boolean engagementCheck = false;
+        for (int type : types) {
+            if (type == EngagementNotificationManager.ENGAGEMENT_CHECK) {
+                engagementCheck = true;
+            } else if (sent + smartTypes.size() < MAX_NOTIFICATIONS_PER_DAY) {
+                smartTypes.add(type);
+            } else {
+                Log.d(TAG, "Daily notification cap reached - skipping type " + type);
+            }
+        }
+
+        if (engagementCheck) {
+            EngagementNotificationManager.getInstance(context).runEngagementCheck();
+        }
+        if (!smartTypes.isEmpty()) {
+            int[] batch = new int[smartTypes.size()];
+            for (int i = 0; i < batch.length; i++) batch[i] = smartTypes.get(i);
+            sent += SmartNotificationService.evaluateBatch(context, batch);
+        }
+
+        // Only now the batch ran; a retry after an exception starts from the old counts
+        SharedPreferences.Editor editor = prefs.edit();
+        for (int i = 0; i < types.length; i++) {
+            editor.putLong(KEY_LAST_FIRED + types[i], times[i]);
+        }
+        editor.putInt(KEY_SENT + today, sent)
+                .putInt(KEY_WAKEUPS + today, wakeups + 1);
+        removeOldCounters(editor, today);
+        editor.apply();
+
+        // Chain after this run instead of replacing (and cancelling) it
+        scheduleNextWakeup(now, ExistingWorkPolicy.APPEND_OR_REPLACE);
+    }
+
+    private void removeOldCounters(SharedPreferences.Editor editor, long today) {
+        String suffix = String.valueOf(today);
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            String key = entry.getKey();
+            if ((key.startsWith(KEY_SENT) || key.startsWith(KEY_WAKEUPS)) && !key.endsWith("_" + suffix)) {
+                editor.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Notifications handed out today, for diagnostics.
+     */
+    public int getSentToday() {
+        return prefs.getInt(KEY_SENT + localDay(System.currentTimeMillis()), 0);
+    }
+
+    /**
+     * Planner wakeups run today, for diagnostics.
+     */
+    public int getWakeupsToday() {
+        return prefs.getInt(KEY_WAKEUPS + localDay(System.currentTimeMillis()), 0);
+    }
+
+    // Day number in the user's time zone, so the budget resets at local midnight
+    private static long localDay(long millis) {
+        return (millis + TimeZone.getDefault().getOffset(millis)) / DAY_MS;
+    }
+
+    public static class PlannerWorker extends Worker {
+
+        public PlannerWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+            super(context, params);
+        }
+
+        @NonNull
+        @Override
+        public Result doWork() {
+            int[] types = getInputData().getIntArray(INPUT_TYPES);
+            long[] times = getInputData().getLongArray(INPUT_TYPES + "_times");
+            if (types == null || times == null || types.length != times.length) {
+                return Result.success();
+            }
+
+            try {
+                getInstance(getApplicationContext()).onWakeup(types, times);
+                return Result.success();
+            } catch (Exception e) {
+                // Retrying keeps the self-scheduling chain alive
+                Log.e(TAG, "Planner wakeup failed", e);
+                return Result.retry();
+            }
+        }
+    }
+}
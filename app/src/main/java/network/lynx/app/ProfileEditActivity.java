@@ -15,6 +15,8 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
 
 import com.google.firebase.auth.AuthCredential;
 import com.google.firebase.auth.EmailAuthProvider;
@@ -30,6 +32,8 @@ import com.google.firebase.database.ValueEventListener;
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
 
+import java.util.UUID;
+
 public class ProfileEditActivity extends AppCompatActivity {
 
     private TextView emailView, referralCodeView;
@@ -96,34 +100,16 @@ public class ProfileEditActivity extends AppCompatActivity {
             }
         }
 
+        loadReferralCode();
+
         if (databaseReference != null) {
-            databaseReference.addListenerForSingleValueEvent(new ValueEventListener() {
+            databaseReference.child("email").addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    if (snapshot.exists()) {
-                        String email = snapshot.child("email").getValue(String.class);
-                        String referralCode = snapshot.child("referralCode").getValue(String.class);
-
-                        if (email != null) {
-                            emailView.setText(email);
-                        }
-
-                        // If referral code is null or placeholder, generate a new one
-                        if (referralCode == null || referralCode.isEmpty() || referralCode.equals("XXXXXX")) {
-                            String usrId = sharedPreferences.getString("userid", null);
-                            if (usrId != null) {
-                                referralCode = generateReferralCode(usrId);
-                                // Save to Firebase
-                                databaseReference.child("referralCode").setValue(referralCode);
-                            }
-                        }
-
-                        if (referralCode != null && referralCodeView != null) {
-                            referralCodeView.setText(referralCode);
-                            // Save to ReferralUtils cache
-                            String usrId = sharedPreferences.getString("userid", null);
-                            ReferralUtils.saveProfileToPrefs(ProfileEditActivity.this, usrId, null, email, referralCode);
-                        }
+                    String email = snapshot.getValue(String.class);
+                    if (email != null) {
+                        emailView.setText(email);
+                        ReferralUtils.saveProfileToPrefs(ProfileEditActivity.this, userId, null, email, null);
                     }
                 }
 
@@ -136,23 +122,25 @@ public class ProfileEditActivity extends AppCompatActivity {
     }
 
     /**
-     * Generate a unique referral code from user ID
+     * Show the user's referral code, issuing one on first use
      */
-    private String generateReferralCode(String uid) {
-        if (uid == null || uid.isEmpty()) {
-            return "LYNX" + System.currentTimeMillis() % 10000;
-        }
-        try {
-            String encoded = android.util.Base64.encodeToString(uid.getBytes(), android.util.Base64.NO_WRAP);
-            String code = encoded.replaceAll("[^A-Za-z0-9]", "").toUpperCase();
-            if (code.length() >= 6) {
-                return code.substring(0, 6);
-            } else {
-                return code + uid.hashCode() % 1000;
+    private void loadReferralCode() {
+        String usrId = sharedPreferences.getString("userid", null);
+        if (usrId == null) return;
+
+        ReferralCodeAllocator.getInstance(this).getCode(usrId, new ReferralCodeAllocator.CodeCallback() {
+            @Override
+            public void onCode(String code) {
+                if (referralCodeView != null && !isFinishing()) {
+                    referralCodeView.setText(code);
+                }
             }
-        } catch (Exception e) {
-            return "LYX" + Math.abs(uid.hashCode() % 100000);
-        }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w("ProfileEditActivity", "Could not load referral code", e);
+            }
+        });
     }
 
     private void copyReferralCode() {
@@ -193,6 +181,7 @@ public class ProfileEditActivity extends AppCompatActivity {
             BoostManager.resetInstance();
             MiningSyncManager.resetInstance();
             MiningStreakManager.resetInstance();
+            StreakEngine.resetInstance();
             AchievementManager.resetInstance();
             HourlyBonusManager.resetInstance();
             FirebaseManager.resetInstance();
@@ -323,20 +312,24 @@ public class ProfileEditActivity extends AppCompatActivity {
 
         currentUser.reauthenticate(credential).addOnCompleteListener(authTask -> {
             if (authTask.isSuccessful()) {
-                // Delete user data from Firebase Database
-                databaseReference.removeValue().addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        // Delete user from Firebase Authentication
-                        currentUser.delete().addOnCompleteListener(task1 -> {
-                            if (task1.isSuccessful()) {
-                                clearAppData(); // Clear storage and redirect
-                            } else {
-                                ToastUtils.showInfo(ProfileEditActivity.this, "Failed to delete account: " +
-                                        task1.getException().getMessage());
-                            }
-                        });
+                // Data and the Auth user are removed by a background job that survives the app closing
+                deleteAccountButton.setEnabled(false);
+                ToastUtils.showInfo(ProfileEditActivity.this, "Deleting account...");
+
+                UUID workId = AccountDeletionManager.enqueue(this, currentUser.getUid());
+                WorkManager.getInstance(this).getWorkInfoByIdLiveData(workId).observe(this, workInfo -> {
+                    if (workInfo == null || !workInfo.getState().isFinished()) return;
+
+                    if (workInfo.getState() == WorkInfo.State.SUCCEEDED) {
+                        clearAppData(); // Clear storage and redirect
                     } else {
-                        ToastUtils.showInfo(ProfileEditActivity.this, "Failed to delete user data");
+                        deleteAccountButton.setEnabled(true);
+                        String error = workInfo.getOutputData().getString(AccountDeletionManager.KEY_ERROR);
+                        if (AccountDeletionManager.ERROR_REAUTH.equals(error)) {
+                            ToastUtils.showInfo(ProfileEditActivity.this, "Please log in again to finish deleting your account");
+                        } else {
+                            ToastUtils.showInfo(ProfileEditActivity.this, "Failed to delete account");
+                        }
                     }
                 });
             } else {
@@ -18,15 +18,10 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.airbnb.lottie.LottieAnimationView;
 import com.google.android.material.button.MaterialButton;
-import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ServerValue;
-import com.google.firebase.database.ValueEventListener;
 
-import java.util.HashMap;
-import java.util.Map;
 
 public class ReferralActivity extends AppCompatActivity {
 
@@ -47,6 +42,9 @@ public class ReferralActivity extends AppCompatActivity {
         sharedPreferences = getSharedPreferences("userData", Context.MODE_PRIVATE);
         userId = sharedPreferences.getString("userid", null);
         name = sharedPreferences.getString("username", null);
+        if (name == null) {
+            name = getIntent().getStringExtra("username");
+        }
         profilePicUrl = sharedPreferences.getString("profilePicUrl", null);
 
         continues = findViewById(R.id.continueBtn);
@@ -95,31 +93,19 @@ public class ReferralActivity extends AppCompatActivity {
     }
 
     public void onReferralFound(String referrerUserId) {
-        DatabaseReference referrerRef = databaseReference.child(referrerUserId);
-        DatabaseReference currentUserRef = databaseReference.child(userId);
-
-        currentUserRef.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                String referUser = snapshot.child("username").getValue(String.class);
-                if (referUser == null) referUser = "Unknown";
-
-                Map<String, Object> updates = new HashMap<>();
-                updates.put("refer_UserId", userId);
-                updates.put("refer_username", referUser);
-
-                referrerRef.child("referrals").push().updateChildren(updates);
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) { }
-        });
-
-        // Update counts and bonuses
-        referrerRef.child("referralCount").setValue(ServerValue.increment(1));
-        referrerRef.child("bonusPoints").setValue(ServerValue.increment(5));
+        if (referrerUserId.equals(userId)) {
+            Toast.makeText(this, "You can't use your own referral code", Toast.LENGTH_SHORT).show();
+            continues.setEnabled(true);
+            return;
+        }
 
-        animateAndProceed();
+        FirebaseDatabase.getInstance().getReference()
+                .updateChildren(ReferralCodeIndex.referralUpdates(referrerUserId, userId, name))
+                .addOnSuccessListener(aVoid -> animateAndProceed())
+                .addOnFailureListener(e -> {
+                    Toast.makeText(ReferralActivity.this, "Error applying referral code", Toast.LENGTH_SHORT).show();
+                    continues.setEnabled(true);
+                });
     }
 
     public void onReferralNotFound() {
@@ -128,27 +114,23 @@ public class ReferralActivity extends AppCompatActivity {
     }
 
     public void findReferrer(String referralCode) {
-        databaseReference.orderByChild("referralCode").equalTo(referralCode)
-                .addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                        if (dataSnapshot.exists()) {
-                            for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                                String referrerUserId = snapshot.getKey();
-                                onReferralFound(referrerUserId);
-                                return;
-                            }
-                        } else {
-                            onReferralNotFound();
-                        }
-                    }
-
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError databaseError) {
-                        Toast.makeText(ReferralActivity.this, "Error retrieving referral info", Toast.LENGTH_SHORT).show();
-                        continues.setEnabled(true);
-                    }
-                });
+        ReferralCodeIndex.lookup(referralCode, new ReferralCodeIndex.LookupCallback() {
+            @Override
+            public void onFound(String referrerId) {
+                onReferralFound(referrerId);
+            }
+
+            @Override
+            public void onNotFound() {
+                onReferralNotFound();
+            }
+
+            @Override
+            public void onError(DatabaseError error) {
+                Toast.makeText(ReferralActivity.this, "Error retrieving referral info", Toast.LENGTH_SHORT).show();
+                continues.setEnabled(true);
+            }
+        });
     }
 
     private void animateAndProceed() {
@@ -0,0 +1,94 @@
+package network.lynx.app;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves users/{uid}/lastActive for a batch of referrals
+ *
+ * Only the uids of a loaded page are asked for. Each uid costs one scalar
+ * read (all reads share the one database connection), and results are kept
+ * for CACHE_TTL_MS so scrolling back over a page does not refetch it.
+ */
+public class ReferralActivityResolver {
+    // Same threshold UserActivityTracker uses for isActive
+    public static final long ACTIVE_WINDOW_MS = 3L * 24 * 60 * 60 * 1000;
+
+    private static final long CACHE_TTL_MS = 5 * 60 * 1000;
+    private static final int CACHE_SIZE = 500;
+
+    // uid -> {lastActive, fetchedAt}
+    private static final LruCache<String, long[]> cache = new LruCache<>(CACHE_SIZE);
+
+    public interface ResolveCallback {
+        /**
+         * @param lastActive uid -> lastActive millis (0 when unknown)
+         */
+        void onResolved(Map<String, Long> lastActive);
+    }
+
+    private ReferralActivityResolver() {}
+
+    public static boolean isActive(long lastActive, long now) {
+        return lastActive > 0 && now - lastActive <= ACTIVE_WINDOW_MS;
+    }
+
+    public static void resolve(List<String> userIds, ResolveCallback callback) {
+        long now = System.currentTimeMillis();
+        Map<String, Long> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (String uid : userIds) {
+            long[] cached = cache.get(uid);
+            if (cached != null && now - cached[1] < CACHE_TTL_MS) {
+                result.put(uid, cached[0]);
+            } else if (!missing.contains(uid)) {
+                missing.add(uid);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            callback.onResolved(result);
+            return;
+        }
+
+        DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference("users");
+        int[] pending = {missing.size()};
+        for (String uid : missing) {
+            usersRef.child(uid).child("lastActive").addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    Long value = snapshot.getValue(Long.class);
+                    long lastActive = value != null ? value : 0;
+                    cache.put(uid, new long[]{lastActive, System.currentTimeMillis()});
+                    result.put(uid, lastActive);
+                    done();
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    result.put(uid, 0L);
+                    done();
+                }
+
+                private void done() {
+                    if (--pending[0] == 0) {
+                        callback.onResolved(result);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -10,24 +10,42 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 import java.util.Locale;
 
 import network.lynx.app.R;
 import network.lynx.app.ReferralInfo;
 import network.lynx.app.ReferralPingManager;
 
-public class ReferralAdapter extends RecyclerView.Adapter<ReferralAdapter.ReferralViewHolder> {
+public class ReferralAdapter extends ListAdapter<ReferralInfo, ReferralAdapter.ReferralViewHolder> {
 
-    private final List<ReferralInfo> referralList;
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
 
-    public ReferralAdapter(List<ReferralInfo> referralList) {
-        this.referralList = referralList;
+    // Items are replaced, never mutated in place, so appending a page or
+    // flipping one referral to active only rebinds the rows that changed
+    private static final DiffUtil.ItemCallback<ReferralInfo> DIFF_CALLBACK = new DiffUtil.ItemCallback<ReferralInfo>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ReferralInfo oldItem, @NonNull ReferralInfo newItem) {
+            return oldItem.getUserId() != null && oldItem.getUserId().equals(newItem.getUserId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ReferralInfo oldItem, @NonNull ReferralInfo newItem) {
+            return oldItem.getJoinDate() == newItem.getJoinDate()
+                    && oldItem.isActive() == newItem.isActive()
+                    && oldItem.getTotalCommission() == newItem.getTotalCommission()
+                    && (oldItem.getUsername() == null ? newItem.getUsername() == null
+                        : oldItem.getUsername().equals(newItem.getUsername()));
+        }
+    };
+
+    public ReferralAdapter() {
+        super(DIFF_CALLBACK);
     }
 
     @NonNull
@@ -39,7 +57,7 @@ public class ReferralAdapter extends RecyclerView.Adapter<ReferralAdapter.Referr
 
     @Override
     public void onBindViewHolder(@NonNull ReferralViewHolder holder, int position) {
-        ReferralInfo referral = referralList.get(position);
+        ReferralInfo referral = getItem(position);
         Context context = holder.itemView.getContext();
 
         // Handle null or empty username
@@ -76,7 +94,7 @@ public class ReferralAdapter extends RecyclerView.Adapter<ReferralAdapter.Referr
 
         // Set ping button click listener
         holder.pingButton.setOnClickListener(v -> {
-            ReferralPingManager.pingReferral(referral.getUserId(), success -> {
+            ReferralPingManager.pingReferral(context, referral.getUserId(), success -> {
                 if (success) {
                     Toast.makeText(context, "Ping sent to " + referral.getUsername(), Toast.LENGTH_SHORT).show();
                 } else {
@@ -86,11 +104,6 @@ public class ReferralAdapter extends RecyclerView.Adapter<ReferralAdapter.Referr
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return referralList.size();
-    }
-
     static class ReferralViewHolder extends RecyclerView.ViewHolder {
         ImageView userAvatar;
         TextView userName, joinDate, totalEarned, userStatus;
@@ -0,0 +1,221 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REFERRAL CODE ALLOCATOR - The one place referral codes come from
+ *
+ * - Issued codes live in a reserved keyspace: a digit 2-9 followed by five
+ *   characters from an alphabet without look-alikes (0/O, 1/I/L). Legacy
+ *   Base64-derived codes always start with a letter, so the two never overlap
+ * - Candidates are derived from SHA-256(uid:attempt), so retries are stable,
+ *   and each is claimed through ReferralCodeIndex with one conditional write;
+ *   a taken candidate moves on to the next attempt
+ * - A user's code is cached locally once it is confirmed in the index, so
+ *   later calls answer without touching the network
+ */
+public class ReferralCodeAllocator {
+    private static final String TAG = "ReferralCodeAllocator";
+    private static final String PREFS_NAME = "referral_code_allocator";
+    private static final String KEY_CODE = "code_";
+
+    private static final String LEAD = "23456789";
+    private static final String ALPHABET = "23456789ABCDEFGHJKMNPQRSTUVWXYZ";
+    private static final int CODE_LENGTH = 6;
+    private static final int MAX_ATTEMPTS = 8;
+
+    private static ReferralCodeAllocator instance;
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Callers waiting on an allocation already in flight, per user
+    private final Map<String, List<CodeCallback>> pending = new HashMap<>();
+
+    public interface CodeCallback {
+        void onCode(String code);
+        void onError(Exception e);
+    }
+
+    private ReferralCodeAllocator(Context context) {
+        this.context = context.getApplicationContext();
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized ReferralCodeAllocator getInstance(Context context) {
+        if (instance == null) {
+            instance = new ReferralCodeAllocator(context);
+        }
+        return instance;
+    }
+
+    /**
+     * The user's confirmed code, or null until {@link #getCode} has succeeded once.
+     */
+    @Nullable
+    public String getCachedCode(String userId) {
+        return userId == null ? null : prefs.getString(KEY_CODE + userId, null);
+    }
+
+    /**
+     * Get the user's referral code, issuing one if needed. Keeps an existing
+     * profile code when it can be claimed in the index; otherwise (missing,
+     * placeholder, or a legacy duplicate owned by someone else) issues a new one.
+     * Callbacks run on the main thread.
+     */
+    public void getCode(String userId, CodeCallback callback) {
+        if (userId == null || userId.isEmpty()) {
+            callback.onError(new IllegalArgumentException("No user"));
+            return;
+        }
+
+        String cached = getCachedCode(userId);
+        if (cached != null) {
+            callback.onCode(cached);
+            return;
+        }
+
+        synchronized (pending) {
+            List<CodeCallback> waiting = pending.get(userId);
+            if (waiting != null) {
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            pending.put(userId, waiting);
+        }
+
+        FirebaseDatabase.getInstance().getReference("users").child(userId).child("referralCode")
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        String existing = snapshot.getValue(String.class);
+                        if (existing == null || existing.trim().isEmpty()
+                                || "XXXXXX".equals(existing) || "null".equals(existing)) {
+                            claimCandidate(userId, 0);
+                        } else {
+                            claimExisting(userId, existing);
+                        }
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        finish(userId, null, error.toException());
+                    }
+                });
+    }
+
+    private void claimExisting(String userId, String code) {
+        ReferralCodeIndex.claim(userId, code, new ReferralCodeIndex.ClaimCallback() {
+            @Override
+            public void onClaimed(String claimed) {
+                finish(userId, claimed, null);
+            }
+
+            @Override
+            public void onTaken(String taken) {
+                Log.w(TAG, "Legacy code " + taken + " is shared with another user - issuing a new one");
+                claimCandidate(userId, 0);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                finish(userId, null, e);
+            }
+        });
+    }
+
+    private void claimCandidate(String userId, int attempt) {
+        if (attempt >= MAX_ATTEMPTS) {
+            finish(userId, null, new IllegalStateException("No free referral code after " + attempt + " attempts"));
+            return;
+        }
+
+        ReferralCodeIndex.claim(userId, candidate(userId, attempt), new ReferralCodeIndex.ClaimCallback() {
+            @Override
+            public void onClaimed(String claimed) {
+                finish(userId, claimed, null);
+            }
+
+            @Override
+            public void onTaken(String taken) {
+                claimCandidate(userId, attempt + 1);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                finish(userId, null, e);
+            }
+        });
+    }
+
+    /**
+     * Candidate code for an attempt, in the reserved keyspace.
+     */
+    static String candidate(String userId, int attempt) {
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256")
+                    .digest((userId + ":" + attempt).getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            // SHA-256 is always available; keep a deterministic fallback anyway
+            long seed = (userId.hashCode() * 31L + attempt) * 0x9E3779B97F4A7C15L;
+            hash = new byte[CODE_LENGTH];
+            for (int i = 0; i < CODE_LENGTH; i++) {
+                hash[i] = (byte) (seed >>> (i * 8));
+            }
+        }
+
+        StringBuilder code = new StringBuilder(CODE_LENGTH);
+        code.append(LEAD.charAt((hash[0] & 0xFF) % LEAD.length()));
+        for (int i = 1; i < CODE_LENGTH; i++) {
+            code.append(ALPHABET.charAt((hash[i] & 0xFF) % ALPHABET.length()));
+        }
+        return code.toString();
+    }
+
+    private void finish(String userId, @Nullable String code, @Nullable Exception error) {
+        if (code != null) {
+            prefs.edit().putString(KEY_CODE + userId, code).apply();
+            ReferralUtils.saveProfileToPrefs(context, userId, null, null, code);
+        } else {
+            Log.e(TAG, "Referral code allocation failed", error);
+        }
+
+        List<CodeCallback> waiting;
+        synchronized (pending) {
+            waiting = pending.remove(userId);
+        }
+        if (waiting == null) return;
+
+        mainHandler.post(() -> {
+            for (CodeCallback callback : waiting) {
+                if (code != null) {
+                    callback.onCode(code);
+                } else {
+                    callback.onError(error);
+                }
+            }
+        });
+    }
+}
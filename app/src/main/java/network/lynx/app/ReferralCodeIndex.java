@@ -0,0 +1,178 @@
+package network.lynx.app;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Referral code index: referralCodes/{code} -> uid
+ *
+ * A code is claimed together with users/{uid}/referralCode in one multi-path
+ * write. The rules only accept the write while referralCodes/{code} is empty
+ * or already owned by the writer, so a code can never map to two users.
+ * Resolving a code is then a single key read instead of an
+ * orderByChild("referralCode") query over all users.
+ */
+public class ReferralCodeIndex {
+    private static final String TAG = "ReferralCodeIndex";
+    private static final String NODE = "referralCodes";
+    static final String PENDING_CREDITS = "pendingReferralCredits";
+
+    public interface ClaimCallback {
+        void onClaimed(String code);
+        void onTaken(String code);
+        void onError(Exception e);
+    }
+
+    public interface LookupCallback {
+        void onFound(String referrerId);
+        void onNotFound();
+        void onError(DatabaseError error);
+    }
+
+    private ReferralCodeIndex() {}
+
+    public static String normalize(String code) {
+        return code == null ? "" : code.trim().toUpperCase(Locale.US);
+    }
+
+    /**
+     * Claim a code for a user and store it on their profile in one write.
+     * Re-claiming a code the user already owns succeeds.
+     */
+    public static void claim(String userId, String code, ClaimCallback callback) {
+        String key = normalize(code);
+        if (key.isEmpty()) {
+            callback.onError(new IllegalArgumentException("Empty referral code"));
+            return;
+        }
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(NODE + "/" + key, userId);
+        updates.put("users/" + userId + "/referralCode", key);
+
+        DatabaseReference rootRef = FirebaseDatabase.getInstance().getReference();
+        rootRef.updateChildren(updates)
+                .addOnSuccessListener(aVoid -> callback.onClaimed(key))
+                .addOnFailureListener(e -> {
+                    // A denied write means someone else holds the code - confirm before reporting
+                    rootRef.child(NODE).child(key).addListenerForSingleValueEvent(new ValueEventListener() {
+                        @Override
+                        public void onDataChange(@NonNull DataSnapshot snapshot) {
+                            String owner = snapshot.getValue(String.class);
+                            if (owner != null && !owner.equals(userId)) {
+                                callback.onTaken(key);
+                            } else {
+                                callback.onError(e);
+                            }
+                        }
+
+                        @Override
+                        public void onCancelled(@NonNull DatabaseError error) {
+                            callback.onError(e);
+                        }
+                    });
+                });
+    }
+
+    /**
+     * Resolve a code to its owner with one key read. Codes handed out before
+     * the index existed fall back to a single-result profile query until
+     * their owner opens the app and indexes them.
+     */
+    public static void lookup(String code, LookupCallback callback) {
+        String key = normalize(code);
+        if (key.isEmpty() || key.contains(".") || key.contains("/") || key.contains("#")
+                || key.contains("$") || key.contains("[") || key.contains("]")) {
+            callback.onNotFound();
+            return;
+        }
+
+        DatabaseReference rootRef = FirebaseDatabase.getInstance().getReference();
+        rootRef.child(NODE).child(key).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                String referrerId = snapshot.getValue(String.class);
+                if (referrerId != null) {
+                    callback.onFound(referrerId);
+                } else {
+                    lookupLegacy(rootRef, key, callback);
+                }
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onError(error);
+            }
+        });
+    }
+
+    private static void lookupLegacy(DatabaseReference rootRef, String key, LookupCallback callback) {
+        rootRef.child("users").orderByChild("referralCode").equalTo(key).limitToFirst(1)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        for (DataSnapshot user : snapshot.getChildren()) {
+                            callback.onFound(user.getKey());
+                            return;
+                        }
+                        callback.onNotFound();
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        callback.onError(error);
+                    }
+                });
+    }
+
+    /**
+     * Root-relative updates linking a new user to their referrer: the new
+     * user's referredBy, the referrer's referral entry (keyed by the new
+     * user, so repeating the write cannot add a second entry) and the
+     * referrer's counters. Callers add their rewards and write it once.
+     */
+    public static Map<String, Object> referralUpdates(String referrerId, String newUserId, String username) {
+        long now = System.currentTimeMillis();
+
+        Map<String, Object> referral = new HashMap<>();
+        referral.put("userId", newUserId);
+        referral.put("username", username != null ? username : "Unknown User");
+        referral.put("joinDate", now);
+        referral.put("isActive", true);
+        referral.put("totalCommission", 0.0);
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("users/" + newUserId + "/referredBy", referrerId);
+        updates.put("users/" + referrerId + "/referrals/" + newUserId, referral);
+        updates.put("users/" + referrerId + "/referralCount", ServerValue.increment(1));
+        updates.put("users/" + referrerId + "/bonusPoints", ServerValue.increment(5));
+        return updates;
+    }
+
+    /**
+     * The referrer's balance is owner-write only, so their bonus is left
+     * under pendingReferralCredits/{referrer}/{creditId} for them to claim on
+     * their next launch (ReferralCommissionManager.claimPendingCredits).
+     * creditId is the new user's id for a signup bonus, or the id of the
+     * commission entry written in the same update for a mining commission.
+     */
+    public static void addReferrerCredit(Map<String, Object> updates, String referrerId, String creditId, double amount) {
+        updates.put(PENDING_CREDITS + "/" + referrerId + "/" + creditId, amount);
+    }
+
+    static void logLookupError(DatabaseError error) {
+        Log.e(TAG, "Referral code lookup failed", error.toException());
+    }
+}
@@ -1,18 +1,22 @@
 package network.lynx.app;
 
+import android.content.Context;
 import android.util.Log;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
 import com.google.firebase.database.ValueEventListener;
 import java.util.HashMap;
 import java.util.Map;
 
 public class ReferralCommissionManager {
 
-    private static final double COMMISSION_RATE = 0.10; // 10% commission
     private static final String TAG = "ReferralCommission";
+    private static final double SIGNUP_BONUS = 0.1;
 
     public static void distributeMiningCommission(String minerId, double minedAmount) {
         DatabaseReference userRef = FirebaseDatabase.getInstance().getReference("users").child(minerId);
@@ -23,42 +27,36 @@ public class ReferralCommissionManager {
                 if (snapshot.exists()) {
                     String referrerId = snapshot.getValue(String.class);
                     if (referrerId != null && !referrerId.isEmpty()) {
-                        double commissionAmount = minedAmount * COMMISSION_RATE;
-
-                        // Add commission to referrer
-                        DatabaseReference referrerRef = FirebaseDatabase.getInstance()
-                                .getReference("users").child(referrerId);
-
-                        // Update referrer's total coins
-                        referrerRef.child("totalcoins").addListenerForSingleValueEvent(new ValueEventListener() {
-                            @Override
-                            public void onDataChange(DataSnapshot referrerSnapshot) {
-                                Double currentCoins = referrerSnapshot.getValue(Double.class);
-                                if (currentCoins == null) currentCoins = 0.0;
-
-                                double newTotal = currentCoins + commissionAmount;
-                                referrerRef.child("totalcoins").setValue(newTotal);
-
-                                // Record commission transaction
-                                String commissionId = referrerRef.child("commissions").push().getKey();
-                                if (commissionId != null) {
-                                    Map<String, Object> commissionData = new HashMap<>();
-                                    commissionData.put("amount", commissionAmount);
-                                    commissionData.put("fromUser", minerId);
-                                    commissionData.put("timestamp", System.currentTimeMillis());
-                                    commissionData.put("type", "mining_commission");
-
-                                    referrerRef.child("commissions").child(commissionId).setValue(commissionData);
-                                }
-
-                                Log.d(TAG, "Commission distributed: " + commissionAmount + " to " + referrerId);
+                        double commissionAmount = minedAmount * AppConfig.current().referralCommissionRate;
+
+                        // The referrer's balance is owner-write only: record the commission
+                        // and its rollups, and leave the amount for them to claim, in one write
+                        String commissionId = FirebaseDatabase.getInstance().getReference("users")
+                                .child(referrerId).child("commissions").push().getKey();
+                        if (commissionId != null) {
+                            long now = System.currentTimeMillis();
+                            Map<String, Object> commissionData = new HashMap<>();
+                            commissionData.put("amount", commissionAmount);
+                            commissionData.put("fromUser", minerId);
+                            commissionData.put("timestamp", now);
+                            commissionData.put("type", "mining_commission");
+
+                            Map<String, Object> commission = new HashMap<>();
+                            CommissionRollupManager.addCommission(commission, commissionId, commissionData,
+                                    commissionAmount, now);
+
+                            Map<String, Object> updates = new HashMap<>();
+                            String referrerPath = "users/" + referrerId + "/";
+                            for (Map.Entry<String, Object> entry : commission.entrySet()) {
+                                updates.put(referrerPath + entry.getKey(), entry.getValue());
                             }
+                            ReferralCodeIndex.addReferrerCredit(updates, referrerId, commissionId, commissionAmount);
 
-                            @Override
-                            public void onCancelled(DatabaseError error) {
-                                Log.e(TAG, "Failed to update referrer coins", error.toException());
-                            }
-                        });
+                            FirebaseDatabase.getInstance().getReference().updateChildren(updates)
+                                    .addOnSuccessListener(aVoid -> Log.d(TAG, "Commission distributed: "
+                                            + commissionAmount + " to " + referrerId))
+                                    .addOnFailureListener(e -> Log.e(TAG, "Failed to distribute commission", e));
+                        }
                     }
                 }
             }
@@ -70,94 +68,95 @@ public class ReferralCommissionManager {
         });
     }
 
+    /**
+     * Link a new user to the owner of a referral code and pay both signup
+     * bonuses: one index read plus one multi-path write.
+     */
     public static void processReferralSignup(String newUserId, String referralCode) {
         if (referralCode == null || referralCode.isEmpty()) return;
 
-        DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference("users");
-
-        // Find referrer by referral code
-        usersRef.orderByChild("referralCode").equalTo(referralCode)
-                .addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(DataSnapshot snapshot) {
-                        for (DataSnapshot userSnapshot : snapshot.getChildren()) {
-                            String referrerId = userSnapshot.getKey();
-                            if (referrerId != null && !referrerId.equals(newUserId)) {
-
-                                // Set referrer for new user
-                                usersRef.child(newUserId).child("referredBy").setValue(referrerId);
-
-                                // Add to referrer's referral list
-                                Map<String, Object> referralData = new HashMap<>();
-                                referralData.put("userId", newUserId);
-                                referralData.put("timestamp", System.currentTimeMillis());
-                                referralData.put("status", "active");
-
-                                usersRef.child(referrerId).child("referrals").child(newUserId).setValue(referralData);
-
-                                // Give signup bonus to both users
-                                giveSignupBonus(referrerId, newUserId);
-
-                                Log.d(TAG, "Referral processed: " + newUserId + " referred by " + referrerId);
-                                break;
-                            }
-                        }
-                    }
-
-                    @Override
-                    public void onCancelled(DatabaseError error) {
-                        Log.e(TAG, "Failed to process referral", error.toException());
-                    }
-                });
-    }
-
-    private static void giveSignupBonus(String referrerId, String newUserId) {
-        double signupBonus = 0.1; // Bonus amount
-
-        // Give bonus to referrer
-        DatabaseReference referrerRef = FirebaseDatabase.getInstance().getReference("users").child(referrerId);
-        referrerRef.child("totalcoins").addListenerForSingleValueEvent(new ValueEventListener() {
+        ReferralCodeIndex.lookup(referralCode, new ReferralCodeIndex.LookupCallback() {
             @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                Double currentCoins = snapshot.getValue(Double.class);
-                if (currentCoins == null) currentCoins = 0.0;
+            public void onFound(String referrerId) {
+                if (referrerId.equals(newUserId)) return;
 
-                referrerRef.child("totalcoins").setValue(currentCoins + signupBonus);
+                Map<String, Object> updates = ReferralCodeIndex.referralUpdates(referrerId, newUserId, null);
+                addSignupBonus(updates, referrerId, newUserId);
 
-                // Record bonus transaction
-                String bonusId = referrerRef.child("commissions").push().getKey();
-                if (bonusId != null) {
-                    Map<String, Object> bonusData = new HashMap<>();
-                    bonusData.put("amount", signupBonus);
-                    bonusData.put("fromUser", newUserId);
-                    bonusData.put("timestamp", System.currentTimeMillis());
-                    bonusData.put("type", "referral_signup_bonus");
-
-                    referrerRef.child("commissions").child(bonusId).setValue(bonusData);
-                }
+                FirebaseDatabase.getInstance().getReference().updateChildren(updates)
+                        .addOnSuccessListener(aVoid -> Log.d(TAG, "Referral processed: " + newUserId
+                                + " referred by " + referrerId))
+                        .addOnFailureListener(e -> Log.e(TAG, "Failed to process referral", e));
             }
 
             @Override
-            public void onCancelled(DatabaseError error) {
-                Log.e(TAG, "Failed to give referrer bonus", error.toException());
+            public void onNotFound() {
+                Log.d(TAG, "Unknown referral code: " + referralCode);
             }
-        });
 
-        // Give bonus to new user
-        DatabaseReference newUserRef = FirebaseDatabase.getInstance().getReference("users").child(newUserId);
-        newUserRef.child("totalcoins").addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                Double currentCoins = snapshot.getValue(Double.class);
-                if (currentCoins == null) currentCoins = 0.0;
-
-                newUserRef.child("totalcoins").setValue(currentCoins + signupBonus);
+            public void onError(DatabaseError error) {
+                Log.e(TAG, "Failed to process referral", error.toException());
             }
+        });
+    }
 
-            @Override
-            public void onCancelled(DatabaseError error) {
-                Log.e(TAG, "Failed to give new user bonus", error.toException());
+    private static void addSignupBonus(Map<String, Object> updates, String referrerId, String newUserId) {
+        String referrerPath = "users/" + referrerId + "/";
+        String bonusId = FirebaseDatabase.getInstance().getReference("users").child(referrerId)
+                .child("commissions").push().getKey();
+        if (bonusId != null) {
+            long now = System.currentTimeMillis();
+            Map<String, Object> bonusData = new HashMap<>();
+            bonusData.put("amount", SIGNUP_BONUS);
+            bonusData.put("fromUser", newUserId);
+            bonusData.put("timestamp", now);
+            bonusData.put("type", "referral_signup_bonus");
+
+            Map<String, Object> commission = new HashMap<>();
+            CommissionRollupManager.addCommission(commission, bonusId, bonusData, SIGNUP_BONUS, now);
+            for (Map.Entry<String, Object> entry : commission.entrySet()) {
+                updates.put(referrerPath + entry.getKey(), entry.getValue());
             }
-        });
+        }
+
+        // Bonus for the new user; the referrer claims theirs on next launch
+        updates.put("users/" + newUserId + "/totalcoins", ServerValue.increment(SIGNUP_BONUS));
+        ReferralCodeIndex.addReferrerCredit(updates, referrerId, newUserId, SIGNUP_BONUS);
+    }
+
+    /**
+     * Move referral bonuses and mining commissions other users left for the
+     * signed-in user into the reward outbox, then clear them. The reward id
+     * is derived from the credit's key, so a credit claimed twice (e.g. the
+     * delete failed) is rejected as a duplicate by the transaction journal.
+     */
+    public static void claimPendingCredits(Context context) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) return;
+        String userId = user.getUid();
+        Context appContext = context.getApplicationContext();
+        DatabaseReference pendingRef = FirebaseDatabase.getInstance()
+                .getReference(ReferralCodeIndex.PENDING_CREDITS).child(userId);
+
+        pendingRef.get()
+                .addOnSuccessListener(credits -> {
+                    if (!credits.hasChildren()) return;
+                    RewardOutbox outbox = RewardOutbox.getInstance(appContext);
+                    Map<String, Object> claimed = new HashMap<>();
+                    for (DataSnapshot credit : credits.getChildren()) {
+                        Double amount = credit.getValue(Double.class);
+                        if (amount != null && amount > 0) {
+                            outbox.enqueue(userId, "referral_" + credit.getKey(), amount,
+                                    "referral", "Referral bonus");
+                        }
+                        claimed.put(credit.getKey(), null);
+                    }
+                    // The outbox has persisted the rewards, so the entries can go
+                    pendingRef.updateChildren(claimed)
+                            .addOnSuccessListener(aVoid -> Log.d(TAG, "Claimed " + claimed.size() + " referral credits"))
+                            .addOnFailureListener(e -> Log.w(TAG, "Failed to clear referral credits", e));
+                })
+                .addOnFailureListener(e -> Log.w(TAG, "Failed to read referral credits", e));
     }
-}
\ No newline at end of file
+}
@@ -5,7 +5,6 @@ import android.content.ClipboardManager;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Bundle;
-import android.util.Base64;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -112,17 +111,10 @@ public class ReferralFragment extends Fragment {
                         Log.d(TAG, "Referral code loaded from cache immediately: " + cachedCode);
                     }
                 } else {
-                    // Generate and cache immediately if not available
-                    String generatedCode = generateReferralCode(userId);
-                    currentReferralCode = generatedCode;
                     if (referralCode != null) {
-                        referralCode.setText(generatedCode);
+                        referralCode.setText("Loading...");
                     }
-                    ReferralUtils.saveProfileToPrefs(getContext(), userId,
-                            sharedPreferences.getString("userName", null),
-                            sharedPreferences.getString("userEmail", null),
-                            generatedCode);
-                    Log.d(TAG, "Generated and cached referral code immediately: " + generatedCode);
+                    requestReferralCode();
                 }
             } else {
                 // Show loading placeholder
@@ -239,13 +231,6 @@ public class ReferralFragment extends Fragment {
                 Log.d(TAG, "Invite button clicked!");
                 Context context = getContext();
                 if (context != null) {
-                    // Ensure we have a referral code before sharing
-                    if (currentReferralCode == null || currentReferralCode.isEmpty() || currentReferralCode.equals("Loading...")) {
-                        if (userId != null) {
-                            currentReferralCode = generateReferralCode(userId);
-                            ReferralUtils.saveProfileToPrefs(context, userId, null, null, currentReferralCode);
-                        }
-                    }
                     ReferralUtils.shareReferral(context);
                 } else {
                     Log.e(TAG, "Context is null, cannot share");
@@ -271,8 +256,6 @@ public class ReferralFragment extends Fragment {
     }
 
     private void loadUserProfile() {
-        Log.d(TAG, "loadUserProfile called, databaseReference: " + (databaseReference != null ? "not null" : "null"));
-
         // Ensure sharedPreferences is initialized
         if (sharedPreferences == null) {
             if (getContext() != null) {
@@ -296,126 +279,43 @@ public class ReferralFragment extends Fragment {
 
         // Persist into the fragment field so inner classes can safely reference it
         this.userId = userId;
+        requestReferralCode();
+    }
 
-        if (databaseReference != null) {
-            Log.d(TAG, "Loading referral code from Firebase...");
-            databaseReference.addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    Log.d(TAG, "Firebase onDataChange called, snapshot exists: " + snapshot.exists());
-                    if (snapshot.exists()) {
-                        String fetchedReferralCode = snapshot.child("referralCode").getValue(String.class);
-                        Log.d(TAG, "Fetched referral code from Firebase: " + fetchedReferralCode);
-
-                        // If referral code is null or placeholder, generate a new one (exactly like
-                        // ProfileEditActivity)
-                        if (fetchedReferralCode == null || fetchedReferralCode.isEmpty()
-                                || fetchedReferralCode.equals("XXXXXX")) {
-                            String userId = sharedPreferences.getString("userid", null);
-                            if (userId != null) {
-                                fetchedReferralCode = generateReferralCode(userId);
-                                // Save to SharedPreferences using ReferralUtils
-                                ReferralUtils.saveProfileToPrefs(getContext(), userId, sharedPreferences.getString("userName", null),
-                                        sharedPreferences.getString("userEmail", null), fetchedReferralCode);
-                                // Save to Firebase
-                                databaseReference.child("referralCode").setValue(fetchedReferralCode);
-                                Log.d(TAG, "Generated and saved referral code to both SharedPreferences and Firebase: "
-                                        + fetchedReferralCode);
-                            }
-                        }
+    /**
+     * Show the user's referral code from ReferralCodeAllocator, which answers
+     * from its cache after the first call and issues a code if there is none.
+     */
+    private void requestReferralCode() {
+        if (userId == null || userId.isEmpty() || getContext() == null) {
+            Log.e(TAG, "Cannot load referral code - no userId available");
+            return;
+        }
 
-                        // Update UI with referral code and set currentReferralCode
-                        if (fetchedReferralCode != null && !fetchedReferralCode.isEmpty() && referralCode != null) {
-                            currentReferralCode = fetchedReferralCode;
-                            referralCode.setText(fetchedReferralCode);
-                            // Save to SharedPreferences for next time using ReferralUtils
-                            ReferralUtils.saveProfileToPrefs(getContext(), ReferralFragment.this.userId, sharedPreferences.getString("userName", null),
-                                    sharedPreferences.getString("userEmail", null), fetchedReferralCode);
-                            Log.d(TAG, "Referral code loaded from Firebase and saved to SharedPreferences: "
-                                    + fetchedReferralCode);
-                        } else {
-                            // Fallback: generate code if still null
-                            String userId = sharedPreferences.getString("userid", null);
-                            if (userId != null) {
-                                String generatedCode = generateReferralCode(userId);
-                                currentReferralCode = generatedCode;
-                                if (referralCode != null) {
-                                    referralCode.setText(generatedCode);
-                                }
-                                // Save to SharedPreferences
-                                ReferralUtils.saveProfileToPrefs(getContext(), userId, sharedPreferences.getString("userName", null),
-                                        sharedPreferences.getString("userEmail", null), generatedCode);
-                                Log.d(TAG, "Generated referral code and saved to SharedPreferences: " + generatedCode);
-                            }
-                        }
-                    } else {
-                        // User doesn't exist in Firebase, generate code anyway
-                        String userId = sharedPreferences.getString("userid", null);
-                        if (userId != null) {
-                            String generatedCode = generateReferralCode(userId);
-                            currentReferralCode = generatedCode;
-                            if (referralCode != null) {
-                                referralCode.setText(generatedCode);
-                            }
-                            // Save to SharedPreferences
-                            ReferralUtils.saveProfileToPrefs(getContext(), userId, sharedPreferences.getString("userName", null),
-                                    sharedPreferences.getString("userEmail", null), generatedCode);
-                            // Try to save to Firebase
-                            if (databaseReference != null) {
-                                databaseReference.child("referralCode").setValue(generatedCode);
-                            }
-                            Log.d(TAG, "Generated referral code for new user and saved to SharedPreferences: "
-                                    + generatedCode);
-                        }
-                    }
+        ReferralCodeAllocator.getInstance(requireContext()).getCode(userId, new ReferralCodeAllocator.CodeCallback() {
+            @Override
+            public void onCode(String code) {
+                if (!isAdded()) return;
+                currentReferralCode = code;
+                if (referralCode != null) {
+                    referralCode.setText(code);
                 }
+            }
 
-                @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    Log.e(TAG, "Error loading user profile", error.toException());
-                    // Generate and show referral code even on error (like ProfileEditActivity)
-                    String userId = sharedPreferences.getString("userid", null);
-                    if (userId != null) {
-                        String generatedCode = generateReferralCode(userId);
-                        currentReferralCode = generatedCode;
-                        if (referralCode != null) {
-                            referralCode.setText(generatedCode);
-                        }
-                        // Save to SharedPreferences
-                        ReferralUtils.saveProfileToPrefs(getContext(), userId, sharedPreferences.getString("userName", null),
-                                sharedPreferences.getString("userEmail", null), generatedCode);
-                        Log.d(TAG, "Generated referral code on error and saved to SharedPreferences: " + generatedCode);
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error loading referral code", e);
+                if (isAdded() && (currentReferralCode == null || currentReferralCode.isEmpty())) {
+                    String cached = ReferralUtils.getCachedReferralCode(getContext());
+                    if (cached != null && !cached.isEmpty()) {
+                        currentReferralCode = cached;
+                        if (referralCode != null) referralCode.setText(cached);
                     } else {
-                        ToastUtils.showInfo(getContext(), "Failed to load profile");
+                        ToastUtils.showError(getContext(), "Failed to load referral data");
                     }
                 }
-            });
-        } else {
-            // databaseReference is null, try to generate code from userId
-            Log.w(TAG, "databaseReference is null, generating code from userId");
-            userId = sharedPreferences.getString("userid", null);
-            if (userId == null || userId.isEmpty()) {
-                FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
-                if (currentUser != null) {
-                    userId = currentUser.getUid();
-                    sharedPreferences.edit().putString("userid", userId).apply();
-                }
             }
-
-            if (userId != null) {
-                String generatedCode = generateReferralCode(userId);
-                currentReferralCode = generatedCode;
-                if (referralCode != null) {
-                    referralCode.setText(generatedCode);
-                }
-                // Save to SharedPreferences
-                ReferralUtils.saveProfileToPrefs(getContext(), userId, sharedPreferences.getString("userName", null),
-                        sharedPreferences.getString("userEmail", null), generatedCode);
-                Log.d(TAG, "Generated referral code (no database) and saved to SharedPreferences: " + generatedCode);
-            } else {
-                Log.e(TAG, "Cannot generate referral code - no userId available");
-            }
-        }
+        });
     }
 
     /**
@@ -490,60 +390,6 @@ public class ReferralFragment extends Fragment {
                         return;
 
                     try {
-                        String fetchedReferralCode = null;
-
-                        if (snapshot.exists()) {
-                            fetchedReferralCode = snapshot.child("referralCode").getValue(String.class);
-                            Log.d(TAG, "Fetched referral code from Firebase: '" + fetchedReferralCode + "'");
-                        } else {
-                            Log.w(TAG, "User snapshot does not exist in Firebase");
-                        }
-
-                        // CRITICAL: Use the EXACT SAME LOGIC as ProfileEditActivity
-                        // If referral code is null, empty, or placeholder, generate a new one
-                        if (fetchedReferralCode == null || fetchedReferralCode.isEmpty()
-                                || "XXXXXX".equals(fetchedReferralCode)) {
-                            Log.d(TAG, "Referral code invalid or missing, generating new one for userId: " + userId);
-                            currentReferralCode = generateReferralCode(userId);
-
-                            // Save to Firebase (this matches ProfileEditActivity behavior)
-                            if (userRef != null && currentReferralCode != null) {
-                                // Save to SharedPreferences immediately
-                                ReferralUtils.saveProfileToPrefs(getContext(), userId, sharedPreferences.getString("userName", null),
-                                        sharedPreferences.getString("userEmail", null), currentReferralCode);
-                                userRef.child("referralCode").setValue(currentReferralCode)
-                                        .addOnSuccessListener(aVoid -> {
-                                            Log.d(TAG, "Successfully saved new referral code to Firebase: "
-                                                    + currentReferralCode);
-                                            // Update UI after successful save
-                                            if (isAdded() && referralCode != null) {
-                                                referralCode.setText(currentReferralCode);
-                                            }
-                                        })
-                                        .addOnFailureListener(e -> {
-                                            Log.e(TAG, "Failed to save referral code to Firebase", e);
-                                            // Still show the generated code locally
-                                            if (isAdded() && referralCode != null) {
-                                                referralCode.setText(currentReferralCode);
-                                            }
-                                        });
-                            }
-                        } else {
-                            // Use existing valid code
-                            currentReferralCode = fetchedReferralCode;
-                            Log.d(TAG, "Using fetched referral code: " + currentReferralCode);
-
-                            // Save to SharedPreferences
-                            ReferralUtils.saveProfileToPrefs(getContext(), userId, sharedPreferences.getString("userName", null),
-                                    sharedPreferences.getString("userEmail", null), currentReferralCode);
-
-                            // Update UI immediately
-                             if (referralCode != null) {
-                                 referralCode.setText(currentReferralCode);
-                             }
-                        }
-
-
                         // Load commission earnings
                         totalCommissionEarned = 0.0;
                         if (snapshot.exists() && snapshot.child("commissions").exists()) {
@@ -620,19 +466,6 @@ public class ReferralFragment extends Fragment {
                     } catch (Exception e) {
                         Log.e(TAG, "Error processing referral data", e);
 
-                        // Fallback: Generate and display a referral code
-                        if (userId != null) {
-                            currentReferralCode = generateReferralCode(userId);
-                            if (referralCode != null) {
-                                referralCode.setText(currentReferralCode);
-                            }
-                            // Save to SharedPreferences
-                            ReferralUtils.saveProfileToPrefs(getContext(), userId, sharedPreferences.getString("userName", null),
-                                    sharedPreferences.getString("userEmail", null), currentReferralCode);
-                            Log.d(TAG, "Generated referral code on exception and saved to SharedPreferences: "
-                                    + currentReferralCode);
-                        }
-
                         if (getContext() != null) {
                             ToastUtils.showError(getContext(), "Error loading referral data");
                         }
@@ -645,39 +478,8 @@ public class ReferralFragment extends Fragment {
                 Log.e(TAG, "Database error loading referral data", error.toException());
                 if (getActivity() != null && isAdded()) {
                     requireActivity().runOnUiThread(() -> {
-                        // Fallback: Generate and display a referral code (like ProfileEditActivity
-                        // does)
-                        if (userId != null) {
-                            currentReferralCode = generateReferralCode(userId);
-                            if (referralCode != null) {
-                                referralCode.setText(currentReferralCode);
-                                Log.d(TAG, "Displayed fallback referral code: " + currentReferralCode);
-                            }
-                            // Save to SharedPreferences
-                            ReferralUtils.saveProfileToPrefs(getContext(), userId, sharedPreferences.getString("userName", null),
-                                    sharedPreferences.getString("userEmail", null), currentReferralCode);
-                            // Try to save to Firebase in background (non-blocking)
-                            if (userRef != null) {
-                                userRef.child("referralCode").setValue(currentReferralCode)
-                                        .addOnSuccessListener(
-                                                aVoid -> Log.d(TAG, "Saved fallback referral code to Firebase"))
-                                        .addOnFailureListener(
-                                                e -> Log.w(TAG, "Could not save fallback referral code", e));
-                            }
-                            Log.d(TAG, "Generated referral code on cancellation and saved to SharedPreferences: "
-                                    + currentReferralCode);
-                        } else {
-                            // Only show error if we can't generate a referral code
-                            if (getContext() != null) {
-                                // Prefer cached code over showing N/A
-                                String cached = ReferralUtils.getCachedReferralCode(getContext());
-                                if (cached != null && !cached.isEmpty()) {
-                                    currentReferralCode = cached;
-                                    if (referralCode != null) referralCode.setText(cached);
-                                } else {
-                                    ToastUtils.showError(getContext(), "Failed to load referral data");
-                                }
-                            }
+                        if (getContext() != null) {
+                            ToastUtils.showError(getContext(), "Failed to load referral data");
                         }
                     });
                 }
@@ -827,37 +629,4 @@ public class ReferralFragment extends Fragment {
         }
         Log.d(TAG, "ReferralFragment destroyed - listeners cleaned up");
     }
-
-    /**
-     * Generates a consistent referral code based on user ID
-     * IMPORTANT: This must match EXACTLY with ProfileEditActivity's
-     * generateReferralCode method
-     */
-    private String generateReferralCode(String uid) {
-        if (uid == null || uid.isEmpty()) {
-            return "LYNX" + (System.currentTimeMillis() % 10000);
-        }
-
-        try {
-            // Create a consistent referral code based on user ID
-            String encoded = Base64.encodeToString(uid.getBytes(), Base64.NO_WRAP);
-            String code = encoded.replaceAll("[^A-Za-z0-9]", "").toUpperCase();
-
-            // Ensure we have at least 6 characters
-            if (code.length() >= 6) {
-                return code.substring(0, 6);
-            } else {
-                // Pad with numbers if too short (use StringBuilder to avoid repeated concatenation)
-                StringBuilder padded = new StringBuilder(code);
-                while (padded.length() < 6) {
-                    padded.append(Math.abs(uid.hashCode() % 10));
-                }
-                return padded.substring(0, 6);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error generating referral code", e);
-            // Fallback: Use hash-based code
-            return "LYNX" + Math.abs(uid.hashCode() % 10000);
-        }
-    }
 }
@@ -0,0 +1,247 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pages of users/{uid}/referrals, newest joinDate first
+ *
+ * - Pages are indexed range queries (orderByChild joinDate, endBefore the
+ *   previous page's last entry, limitToLast PAGE_SIZE)
+ * - The last MAX_CACHED_PAGES pages are kept in memory, so reopening the
+ *   tab or scrolling back does not go to the network
+ * - Entries in the old shape (refer_UserId / refer_username, no joinDate)
+ *   are rewritten once per user before the first page is read; the join
+ *   date is recovered from the push key. A failed migration is retried in
+ *   the next session, not on every page load
+ */
+public class ReferralPageSource {
+    private static final String TAG = "ReferralPageSource";
+    private static final String PREFS_NAME = "referral_pages";
+    private static final String KEY_MIGRATED = "migrated_";
+    private static final String PUSH_CHARS = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    public static final int PAGE_SIZE = 20;
+    private static final int MAX_CACHED_PAGES = 10;
+    private static final int MIGRATION_BATCH = 100;
+
+    private static final LruCache<String, Page> pageCache = new LruCache<>(MAX_CACHED_PAGES);
+    // Users whose migration has already been attempted in this process
+    private static final Set<String> migrationAttempted = Collections.synchronizedSet(new HashSet<>());
+
+    private final SharedPreferences prefs;
+    private final String userId;
+    private final DatabaseReference referralsRef;
+
+    public static class Cursor {
+        final long joinDate;
+        final String key;
+
+        Cursor(long joinDate, String key) {
+            this.joinDate = joinDate;
+            this.key = key;
+        }
+    }
+
+    public static class Page {
+        public final List<ReferralInfo> items;
+        @Nullable
+        public final Cursor next;
+
+        Page(List<ReferralInfo> items, @Nullable Cursor next) {
+            this.items = Collections.unmodifiableList(items);
+            this.next = next;
+        }
+    }
+
+    public interface PageCallback {
+        void onPage(Page page);
+        void onError(String error);
+    }
+
+    public ReferralPageSource(Context context, String userId) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.userId = userId;
+        this.referralsRef = FirebaseDatabase.getInstance().getReference("users").child(userId).child("referrals");
+    }
+
+    /**
+     * In-memory copy of a page, or null.
+     */
+    @Nullable
+    public Page getCachedPage(@Nullable Cursor cursor) {
+        return pageCache.get(cacheKey(cursor));
+    }
+
+    /**
+     * Load a page from the network and cache it.
+     *
+     * @param cursor null for the newest page, otherwise the previous page's next
+     */
+    public void loadPage(@Nullable Cursor cursor, PageCallback callback) {
+        if (cursor == null && !prefs.getBoolean(KEY_MIGRATED + userId, false)
+                && migrationAttempted.add(userId)) {
+            migrateLegacyEntries(() -> loadPage(cursor, callback));
+            return;
+        }
+
+        Query query = referralsRef.orderByChild("joinDate");
+        if (cursor != null) {
+            query = query.endBefore(cursor.joinDate, cursor.key);
+        }
+
+        query.limitToLast(PAGE_SIZE).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                List<ReferralInfo> items = new ArrayList<>();
+                Cursor last = null;
+                for (DataSnapshot child : snapshot.getChildren()) {
+                    String referUserId = child.child("userId").getValue(String.class);
+                    Long joinDate = child.child("joinDate").getValue(Long.class);
+                    if (joinDate != null) {
+                        // Ascending order - the first child is the oldest on this page
+                        if (last == null) last = new Cursor(joinDate, child.getKey());
+                    }
+                    if (referUserId == null) continue;
+
+                    String username = child.child("username").getValue(String.class);
+                    ReferralInfo info = new ReferralInfo(referUserId,
+                            username != null ? username : "Unknown User",
+                            joinDate != null ? joinDate : 0);
+                    Boolean isActive = child.child("isActive").getValue(Boolean.class);
+                    info.setActive(isActive != null && isActive);
+                    Double commission = child.child("totalCommission").getValue(Double.class);
+                    info.setTotalCommission(commission != null ? commission : 0.0);
+                    items.add(info);
+                }
+                Collections.reverse(items);
+
+                Page page = new Page(items, snapshot.getChildrenCount() < PAGE_SIZE ? null : last);
+                pageCache.put(cacheKey(cursor), page);
+                callback.onPage(page);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onError(error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Drop all cached pages, e.g. after pull-to-refresh.
+     */
+    public void invalidate() {
+        pageCache.evictAll();
+    }
+
+    private String cacheKey(@Nullable Cursor cursor) {
+        return cursor == null ? userId + ":head" : userId + ":" + cursor.joinDate + "/" + cursor.key;
+    }
+
+    // ============================================
+    // ONE-TIME MIGRATION
+    // ============================================
+
+    /**
+     * Rewrite old-shape entries (no joinDate) in bounded batches. Runs until
+     * a batch comes back short; the per-user flag is only set on success.
+     */
+    private void migrateLegacyEntries(Runnable then) {
+        referralsRef.orderByChild("joinDate").endAt((String) null).limitToFirst(MIGRATION_BATCH)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        Map<String, Object> updates = new HashMap<>();
+                        for (DataSnapshot child : snapshot.getChildren()) {
+                            String key = child.getKey();
+                            if (key == null) continue;
+
+                            String referUserId = child.child("refer_UserId").getValue(String.class);
+                            if (referUserId == null) referUserId = child.child("userId").getValue(String.class);
+                            if (referUserId == null) {
+                                // Unusable, and never shown; a joinDate keeps it out of the next batch
+                                updates.put(key + "/joinDate", pushKeyTime(key));
+                                continue;
+                            }
+
+                            String username = child.child("refer_username").getValue(String.class);
+                            if (username == null) username = child.child("username").getValue(String.class);
+                            Double commission = child.child("totalCommission").getValue(Double.class);
+
+                            Map<String, Object> entry = new HashMap<>();
+                            entry.put("userId", referUserId);
+                            entry.put("username", username != null ? username : "Unknown User");
+                            entry.put("joinDate", pushKeyTime(key));
+                            entry.put("isActive", false);
+                            entry.put("totalCommission", commission != null ? commission : 0.0);
+                            updates.put(key, entry);
+                        }
+
+                        if (updates.isEmpty()) {
+                            prefs.edit().putBoolean(KEY_MIGRATED + userId, true).apply();
+                            then.run();
+                            return;
+                        }
+
+                        boolean more = snapshot.getChildrenCount() >= MIGRATION_BATCH;
+                        referralsRef.updateChildren(updates)
+                                .addOnSuccessListener(aVoid -> {
+                                    Log.d(TAG, "Migrated " + updates.size() + " referral entries");
+                                    if (more) {
+                                        migrateLegacyEntries(then);
+                                    } else {
+                                        prefs.edit().putBoolean(KEY_MIGRATED + userId, true).apply();
+                                        then.run();
+                                    }
+                                })
+                                .addOnFailureListener(e -> {
+                                    // Show what we have; try again next session
+                                    Log.e(TAG, "Referral migration failed", e);
+                                    then.run();
+                                });
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        Log.e(TAG, "Failed to read legacy referrals", error.toException());
+                        then.run();
+                    }
+                });
+    }
+
+    /**
+     * Creation time encoded in the first 8 characters of a push key, or now
+     * when the key was not generated by push().
+     */
+    static long pushKeyTime(String key) {
+        if (key.length() < 8) return System.currentTimeMillis();
+        long time = 0;
+        for (int i = 0; i < 8; i++) {
+            int value = PUSH_CHARS.indexOf(key.charAt(i));
+            if (value < 0) return System.currentTimeMillis();
+            time = time * 64 + value;
+        }
+        return time > 0 && time <= System.currentTimeMillis() ? time : System.currentTimeMillis();
+    }
+}
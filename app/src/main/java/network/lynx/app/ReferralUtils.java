@@ -3,13 +3,11 @@ package network.lynx.app;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.util.Base64;
 import android.util.Log;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
-import java.util.Locale;
 
 public class ReferralUtils {
     private static final String TAG = "ReferralUtils";
@@ -102,62 +100,53 @@ public class ReferralUtils {
         return getCachedReferralCode(ctx, null);
     }
 
-    public static String generateReferralCode(String uid) {
-        if (uid == null || uid.isEmpty()) {
-            return "LYNX" + (System.currentTimeMillis() % 10000);
-        }
-
-        try {
-            String encoded = Base64.encodeToString(uid.getBytes(), Base64.NO_WRAP);
-            String code = encoded.replaceAll("[^A-Za-z0-9]", "").toUpperCase(Locale.US);
-            if (code.length() >= 6) return code.substring(0, 6);
-            StringBuilder padded = new StringBuilder(code);
-            while (padded.length() < 6) {
-                padded.append(Math.abs(uid.hashCode() % 10));
-            }
-            return padded.substring(0, 6);
-        } catch (Exception e) {
-            Log.e(TAG, "Error generating referral code", e);
-            return "LYNX" + Math.abs(uid.hashCode() % 10000);
-        }
-    }
-
-    // Share referral code using the cached value or generate one for the current user
+    // Share referral code using the cached value, or have ReferralCodeAllocator issue one first
     public static void shareReferral(Context ctx) {
         if (ctx == null) return;
         try {
             // Try to get cached code (per-user)
             String code = getCachedReferralCode(ctx);
+            if (code != null && !code.isEmpty()) {
+                startShare(ctx, code);
+                return;
+            }
 
             // If not found, try to derive uid from global pointer or Firebase
-            if (code == null || code.isEmpty()) {
-                String uid = null;
+            String uid = null;
+            try {
+                SharedPreferences global = ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                uid = global.getString(KEY_USER_ID, null);
+            } catch (Exception ignored) {
+            }
+
+            if ((uid == null || uid.isEmpty())) {
                 try {
-                    SharedPreferences global = ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-                    uid = global.getString(KEY_USER_ID, null);
+                    FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+                    if (user != null) uid = user.getUid();
                 } catch (Exception ignored) {
                 }
+            }
 
-                if ((uid == null || uid.isEmpty())) {
-                    try {
-                        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
-                        if (user != null) uid = user.getUid();
-                    } catch (Exception ignored) {
-                    }
-                }
+            if (uid == null || uid.isEmpty()) return;
 
-                if (uid != null && !uid.isEmpty()) {
-                    code = getCachedReferralCode(ctx, uid);
-                    if (code == null || code.isEmpty()) {
-                        code = generateReferralCode(uid);
-                        // Save generated code back to user prefs
-                        saveProfileToPrefs(ctx, uid, null, null, code);
-                    }
+            ReferralCodeAllocator.getInstance(ctx).getCode(uid, new ReferralCodeAllocator.CodeCallback() {
+                @Override
+                public void onCode(String issued) {
+                    startShare(ctx, issued);
                 }
-            }
 
-            if (code == null || code.isEmpty()) return;
+                @Override
+                public void onError(Exception e) {
+                    Log.e(TAG, "No referral code to share", e);
+                }
+            });
+        } catch (Exception e) {
+            Log.e(TAG, "Error sharing referral", e);
+        }
+    }
 
+    private static void startShare(Context ctx, String code) {
+        try {
             String inviteLink = "https://play.google.com/store/apps/details?id=network.lynx.app&ref=" + code;
             String message = "Join Lynx Network and start earning!\n\n" +
                     "Use my referral code: " + code + "\n" +
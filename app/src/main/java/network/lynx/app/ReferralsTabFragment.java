@@ -3,6 +3,7 @@ package network.lynx.app;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -32,16 +33,25 @@ import network.lynx.app.ReferralAdapter;
 import network.lynx.app.ReferralInfo;
 
 public class ReferralsTabFragment extends Fragment {
+    private static final String TAG = "ReferralsTabFragment";
+    private static final int PREFETCH_DISTANCE = 5;
+    private static final int MAX_LOADED_REFERRALS = 500;
 
     private TextView totalReferralsCount, activeUsersCount, totalEarningsCount, emptyReferralsText;
     private Button inviteFriendsButton;
     private RecyclerView referralsRecyclerView;
     private ReferralAdapter referralAdapter;
-    private List<ReferralInfo> referralList = new ArrayList<>();
+    private final List<ReferralInfo> referralList = new ArrayList<>();
     private String referralCode;
 
-    // Track listeners for cleanup
-    private ValueEventListener referralsListener;
+    // Paging state
+    private ReferralPageSource pageSource;
+    private ReferralPageSource.Cursor nextCursor;
+    private boolean loading;
+    private boolean endReached;
+    private long referralCount;
+    private final Map<String, Long> lastActiveByUser = new HashMap<>();
+
     private DatabaseReference userRef;
 
     @Nullable
@@ -65,202 +75,187 @@ public class ReferralsTabFragment extends Fragment {
     }
 
     private void setupRecyclerView() {
-        referralAdapter = new ReferralAdapter(referralList);
-        referralsRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        referralAdapter = new ReferralAdapter();
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        referralsRecyclerView.setLayoutManager(layoutManager);
         referralsRecyclerView.setAdapter(referralAdapter);
+
+        // Load the next page when the user nears the end of what is loaded
+        referralsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0) return;
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= referralList.size() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
     }
 
     private void loadReferralData() {
         String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
         userRef = FirebaseDatabase.getInstance().getReference("users").child(userId);
 
-        // OPTIMIZATION: Check cached referral code first to avoid Firebase read
-        String cachedCode = ReferralUtils.getCachedReferralCode(getContext(), userId);
-        if (cachedCode != null && !cachedCode.isEmpty() && !cachedCode.equals("XXXXXX")) {
-            referralCode = cachedCode;
-        } else {
-            // Get referral code from Firebase if not cached - use single value event
-            userRef.child("referralCode").addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    referralCode = snapshot.getValue(String.class);
-
-                    // If referral code is null or placeholder, generate a new one
-                    if (referralCode == null || referralCode.isEmpty() || referralCode.equals("XXXXXX")) {
-                        referralCode = generateReferralCode(userId);
-                        // Save to Firebase
-                        userRef.child("referralCode").setValue(referralCode);
-                    }
-
-                    // Save to centralized SharedPreferences cache for app-wide reuse
-                    ReferralUtils.saveProfileToPrefs(getContext(), userId, null, null, referralCode);
-                }
-
-                @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    // Handle error - try to generate code if possible
-                    if (referralCode == null || referralCode.isEmpty()) {
-                        referralCode = generateReferralCode(userId);
-                        ReferralUtils.saveProfileToPrefs(getContext(), userId, null, null, referralCode);
-                    }
-                }
-            });
-        }
-
-        // Remove existing listener to prevent duplicates
-        if (referralsListener != null) {
-            userRef.child("referrals").removeEventListener(referralsListener);
-        }
+        // Cached after the first call; issues a code if the user has none yet
+        ReferralCodeAllocator.getInstance(requireContext()).getCode(userId, new ReferralCodeAllocator.CodeCallback() {
+            @Override
+            public void onCode(String code) {
+                referralCode = code;
+            }
 
-        // OPTIMIZATION: Use single value event listener instead of continuous listener
-        referralsListener = new ValueEventListener() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                if (!isAdded()) return;
+            public void onError(Exception e) {
+                referralCode = ReferralUtils.getCachedReferralCode(getContext(), userId);
+            }
+        });
 
-                referralList.clear();
-                int totalReferrals = 0;
-                int activeUsers = 0;
-                double totalEarnings = 0.0;
-
-                for (DataSnapshot referralSnapshot : snapshot.getChildren()) {
-                    String referralId = referralSnapshot.getKey();
-
-                    // Check if using old structure (refer_UserId)
-                    if (referralSnapshot.child("refer_UserId").exists()) {
-                        String referUserId = referralSnapshot.child("refer_UserId").getValue(String.class);
-                        String referUsername = referralSnapshot.child("refer_username").getValue(String.class);
-
-                        if (referUserId != null) {
-                            // Create ReferralInfo object
-                            ReferralInfo referralInfo = new ReferralInfo();
-                            referralInfo.setUserId(referUserId);
-                            referralInfo.setUsername(referUsername != null ? referUsername : "Unknown User");
-                            referralInfo.setJoinDate(System.currentTimeMillis());
-                            referralInfo.setActive(false);
-                            referralInfo.setTotalCommission(0.0);
-
-                            // Add to list
-                            referralList.add(referralInfo);
-                            totalReferrals++;
-
-                            // OPTIMIZATION: Only migrate if not already in new structure
-                            // This reduces unnecessary Firebase writes
-                            migrateReferralDataOnce(userId, referralId, referralInfo);
-                        }
-                    }
-                    // Using new structure
-                    else {
-                        ReferralInfo referralInfo = new ReferralInfo();
-
-                        // Get userId
-                        String referUserId = referralSnapshot.child("userId").getValue(String.class);
-                        if (referUserId == null) continue;
-                        referralInfo.setUserId(referUserId);
-
-                        // Get username
-                        String username = referralSnapshot.child("username").getValue(String.class);
-                        referralInfo.setUsername(username != null ? username : "Unknown User");
-
-                        // Get join date
-                        Long joinDate = referralSnapshot.child("joinDate").getValue(Long.class);
-                        referralInfo.setJoinDate(joinDate != null ? joinDate : System.currentTimeMillis());
-
-                        // Get active status
-                        Boolean isActive = referralSnapshot.child("isActive").getValue(Boolean.class);
-                        referralInfo.setActive(isActive != null && isActive);
-
-                        // Get commission
-                        Double commission = referralSnapshot.child("totalCommission").getValue(Double.class);
-                        referralInfo.setTotalCommission(commission != null ? commission : 0.0);
-
-                        // Add to list
-                        referralList.add(referralInfo);
-                        totalReferrals++;
-
-                        if (referralInfo.isActive()) {
-                            activeUsers++;
-                        }
-
-                        totalEarnings += referralInfo.getTotalCommission();
-                    }
-                }
+        pageSource = new ReferralPageSource(requireContext(), userId);
+        referralList.clear();
+        nextCursor = null;
+        endReached = false;
 
-                // Update UI
-                totalReferralsCount.setText(String.valueOf(totalReferrals));
-                activeUsersCount.setText(String.valueOf(activeUsers));
-                totalEarningsCount.setText(String.format("%.2f", totalEarnings));
+        // Show the last known first page straight away, then refresh it
+        ReferralPageSource.Page cached = pageSource.getCachedPage(null);
+        if (cached != null) {
+            appendPage(cached);
+        }
+        loadPage(null);
+        loadTotals(userId);
+    }
 
-                referralAdapter.notifyDataSetChanged();
+    private void loadNextPage() {
+        if (loading || endReached || nextCursor == null) return;
+        if (referralList.size() >= MAX_LOADED_REFERRALS) return;
+        loadPage(nextCursor);
+    }
 
-                // Show empty state if no referrals
-                if (referralList.isEmpty()) {
-                    emptyReferralsText.setVisibility(View.VISIBLE);
-                    referralsRecyclerView.setVisibility(View.GONE);
-                } else {
-                    emptyReferralsText.setVisibility(View.GONE);
-                    referralsRecyclerView.setVisibility(View.VISIBLE);
+    private void loadPage(@Nullable ReferralPageSource.Cursor cursor) {
+        loading = true;
+        pageSource.loadPage(cursor, new ReferralPageSource.PageCallback() {
+            @Override
+            public void onPage(ReferralPageSource.Page page) {
+                loading = false;
+                if (!isAdded()) return;
+                if (cursor == null) {
+                    referralList.clear();
                 }
+                appendPage(page);
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                // Handle error
+            public void onError(String error) {
+                loading = false;
+                Log.e(TAG, "Failed to load referrals: " + error);
+                if (isAdded()) updateEmptyState();
             }
-        };
+        });
+    }
 
-        userRef.child("referrals").addListenerForSingleValueEvent(referralsListener);
+    private void appendPage(ReferralPageSource.Page page) {
+        long now = System.currentTimeMillis();
+        List<String> userIds = new ArrayList<>();
+        for (ReferralInfo info : page.items) {
+            Long lastActive = lastActiveByUser.get(info.getUserId());
+            referralList.add(lastActive != null ? withActive(info, lastActive, now) : info);
+            userIds.add(info.getUserId());
+        }
+        nextCursor = page.next;
+        endReached = page.next == null;
+
+        submitList();
+        resolveActivity(userIds);
     }
 
-    // OPTIMIZATION: Only migrate once, not on every load
-    private void migrateReferralDataOnce(String userId, String referralId, ReferralInfo referralInfo) {
-        DatabaseReference refRef = FirebaseDatabase.getInstance().getReference("users").child(userId).child("referrals").child(referralId);
-
-        Map<String, Object> updatedReferral = new HashMap<>();
-        updatedReferral.put("userId", referralInfo.getUserId());
-        updatedReferral.put("username", referralInfo.getUsername());
-        updatedReferral.put("joinDate", referralInfo.getJoinDate());
-        updatedReferral.put("isActive", referralInfo.isActive());
-        updatedReferral.put("totalCommission", referralInfo.getTotalCommission());
-        // Remove old fields
-        updatedReferral.put("refer_UserId", null);
-        updatedReferral.put("refer_username", null);
-
-        refRef.updateChildren(updatedReferral);
+    /**
+     * Look up lastActive for one page of referrals and resubmit only if a
+     * status actually changed.
+     */
+    private void resolveActivity(List<String> userIds) {
+        if (userIds.isEmpty()) return;
+        ReferralActivityResolver.resolve(userIds, lastActive -> {
+            if (!isAdded()) return;
+            lastActiveByUser.putAll(lastActive);
+
+            long now = System.currentTimeMillis();
+            boolean changed = false;
+            for (int i = 0; i < referralList.size(); i++) {
+                ReferralInfo info = referralList.get(i);
+                Long value = lastActive.get(info.getUserId());
+                if (value == null) continue;
+                if (info.isActive() != ReferralActivityResolver.isActive(value, now)) {
+                    referralList.set(i, withActive(info, value, now));
+                    changed = true;
+                }
+            }
+            if (changed) {
+                submitList();
+            }
+        });
     }
 
-    private void shareAppInvite() {
-        // Keep for backwards compatibility but delegate to ReferralUtils
-        ReferralUtils.shareReferral(getContext());
+    private static ReferralInfo withActive(ReferralInfo info, long lastActive, long now) {
+        boolean active = ReferralActivityResolver.isActive(lastActive, now);
+        if (info.isActive() == active) return info;
+        ReferralInfo copy = new ReferralInfo(info.getUserId(), info.getUsername(), info.getJoinDate());
+        copy.setActive(active);
+        copy.setTotalCommission(info.getTotalCommission());
+        return copy;
     }
 
-    @Override
-    public void onDestroyView() {
-        super.onDestroyView();
-        // OPTIMIZATION: Clean up Firebase listeners
-        if (referralsListener != null && userRef != null) {
-            userRef.child("referrals").removeEventListener(referralsListener);
-            referralsListener = null;
-        }
+    private void submitList() {
+        referralAdapter.submitList(new ArrayList<>(referralList));
+        updateCounts();
+        updateEmptyState();
     }
 
     /**
-     * Generate a unique referral code from user ID
+     * Header totals come from counters rather than the loaded pages, so they
+     * stay correct while only part of the list is in memory.
      */
-    private String generateReferralCode(String uid) {
-        if (uid == null || uid.isEmpty()) {
-            return "LYNX" + System.currentTimeMillis() % 10000;
-        }
-        try {
-            String encoded = android.util.Base64.encodeToString(uid.getBytes(), android.util.Base64.NO_WRAP);
-            String code = encoded.replaceAll("[^A-Za-z0-9]", "").toUpperCase();
-            if (code.length() >= 6) {
-                return code.substring(0, 6);
-            } else {
-                return code + uid.hashCode() % 1000;
+    private void loadTotals(String userId) {
+        userRef.child("referralCount").addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Long count = snapshot.getValue(Long.class);
+                referralCount = count != null ? count : 0;
+                if (isAdded()) updateCounts();
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.w(TAG, "Failed to read referralCount", error.toException());
+            }
+        });
+
+        CommissionRollupManager.loadTotals(requireContext(), userId, totals -> {
+            if (isAdded()) {
+                totalEarningsCount.setText(String.format("%.2f", totals.allTime));
             }
-        } catch (Exception e) {
-            return "LYX" + Math.abs(uid.hashCode() % 100000);
+        });
+    }
+
+    private void updateCounts() {
+        int activeUsers = 0;
+        for (ReferralInfo info : referralList) {
+            if (info.isActive()) activeUsers++;
+        }
+        totalReferralsCount.setText(String.valueOf(Math.max(referralCount, referralList.size())));
+        activeUsersCount.setText(String.valueOf(activeUsers));
+    }
+
+    private void updateEmptyState() {
+        if (referralList.isEmpty()) {
+            emptyReferralsText.setVisibility(View.VISIBLE);
+            referralsRecyclerView.setVisibility(View.GONE);
+        } else {
+            emptyReferralsText.setVisibility(View.GONE);
+            referralsRecyclerView.setVisibility(View.VISIBLE);
         }
     }
-}
\ No newline at end of file
+
+    private void shareAppInvite() {
+        // Keep for backwards compatibility but delegate to ReferralUtils
+        ReferralUtils.shareReferral(getContext());
+    }
+}
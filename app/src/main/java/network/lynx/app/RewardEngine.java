@@ -0,0 +1,201 @@
+package network.lynx.app;
+
+import android.content.Context;
+
+import java.util.Random;
+
+/**
+ * REWARD ENGINE - One place where random rewards are decided and paid
+ *
+ * - Weighted outcomes are sampled from precomputed alias tables (Vose's
+ *   method): one random index and one coin toss per draw, however many
+ *   outcomes a table has
+ * - One RNG for every game; setSeed() makes a sequence of outcomes
+ *   reproducible in tests
+ * - credit()/debit() are the only way a game changes the balance: credits
+ *   go through WalletManager into the reward outbox, debits through its
+ *   balance transaction, which reports whether the stake was taken
+ *
+ * Used by the spin wheel, scratch cards, mystery boxes, the daily spin and
+ * coin flip.
+ */
+public class RewardEngine {
+
+    // ScratchCardManager.RewardType, in declaration order
+    public static final AliasTable SCRATCH_CARD = AliasTable.of(scratchCardWeights());
+
+    // DailyEventsManager.SpinWheelResult segments
+    public static final AliasTable DAILY_SPIN = AliasTable.of(DailyEventsManager.SpinWheelResult.SEGMENT_WEIGHTS);
+
+    // Mystery box extra: tokens only, scratch cards, boost
+    public static final AliasTable MYSTERY_BONUS = AliasTable.of(70, 20, 10);
+    public static final int BONUS_TOKENS = 0;
+    public static final int BONUS_SCRATCH_CARDS = 1;
+    public static final int BONUS_BOOST = 2;
+
+    // Spin lucky multiplier: none, or a 2x-5x multiplier
+    public static final AliasTable LUCKY_MULTIPLIER = AliasTable.of(80, 20);
+
+    private static RewardEngine instance;
+
+    private final Context context;
+    private final Random random;
+
+    /**
+     * Precomputed table for sampling outcome i with probability
+     * weights[i] / sum(weights) in constant time.
+     */
+    public static final class AliasTable {
+        private final double[] probability;
+        private final double[] threshold;
+        private final int[] alias;
+
+        private AliasTable(double[] weights) {
+            int n = weights.length;
+            if (n == 0) throw new IllegalArgumentException("No outcomes");
+
+            double sum = 0;
+            for (double w : weights) {
+                if (!(w >= 0) || Double.isInfinite(w)) {
+                    throw new IllegalArgumentException("Invalid weight: " + w);
+                }
+                sum += w;
+            }
+            if (sum <= 0) throw new IllegalArgumentException("Weights sum to zero");
+
+            probability = new double[n];
+            threshold = new double[n];
+            alias = new int[n];
+
+            // Scale so the average column is 1, then pair each short column with a tall one
+            double[] scaled = new double[n];
+            int[] small = new int[n];
+            int[] large = new int[n];
+            int smallCount = 0, largeCount = 0;
+            for (int i = 0; i < n; i++) {
+                probability[i] = weights[i] / sum;
+                scaled[i] = probability[i] * n;
+                if (scaled[i] < 1.0) small[smallCount++] = i;
+                else large[largeCount++] = i;
+            }
+
+            while (smallCount > 0 && largeCount > 0) {
+                int s = small[--smallCount];
+                int l = large[--largeCount];
+                threshold[s] = scaled[s];
+                alias[s] = l;
+                scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+                if (scaled[l] < 1.0) small[smallCount++] = l;
+                else large[largeCount++] = l;
+            }
+            // Whatever is left is full up to rounding error
+            while (largeCount > 0) {
+                int l = large[--largeCount];
+                threshold[l] = 1.0;
+                alias[l] = l;
+            }
+            while (smallCount > 0) {
+                int s = small[--smallCount];
+                threshold[s] = 1.0;
+                alias[s] = s;
+            }
+        }
+
+        public static AliasTable of(double... weights) {
+            return new AliasTable(weights.clone());
+        }
+
+        public int sample(Random random) {
+            int column = random.nextInt(threshold.length);
+            return random.nextDouble() < threshold[column] ? column : alias[column];
+        }
+
+        public int size() {
+            return probability.length;
+        }
+
+        /**
+         * Exact probability of outcome i, for tests and odds disclosure.
+         */
+        public double probability(int i) {
+            return probability[i];
+        }
+    }
+
+    RewardEngine(Context context, Random random) {
+        this.context = context;
+        this.random = random;
+    }
+
+    public static synchronized RewardEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new RewardEngine(context.getApplicationContext(), new Random());
+        }
+        return instance;
+    }
+
+    /**
+     * Restart the outcome sequence from a fixed seed.
+     */
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    // ============================================
+    // OUTCOMES
+    // ============================================
+
+    public int draw(AliasTable table) {
+        return table.sample(random);
+    }
+
+    /**
+     * One of n equally likely outcomes.
+     */
+    public int pick(int n) {
+        return random.nextInt(n);
+    }
+
+    /**
+     * Uniform amount in [min, max).
+     */
+    public double between(double min, double max) {
+        return min + random.nextDouble() * (max - min);
+    }
+
+    public boolean chance(double p) {
+        return random.nextDouble() < p;
+    }
+
+    // ============================================
+    // PAYOUT
+    // ============================================
+
+    /**
+     * Pay a reward into the balance and the transaction journal, via the
+     * reward outbox.
+     *
+     * @param type journal type, also the earnings bucket ("spin", "games")
+     */
+    public void credit(double amount, String type, String description) {
+        if (amount <= 0) return;
+        WalletManager.getInstance(context).addTokens(amount, type, description);
+    }
+
+    /**
+     * Take a stake off the balance. Rejected by the balance transaction if
+     * it would go negative; the callback says which happened.
+     */
+    public void debit(double amount, String type, String description, WalletManager.DebitCallback callback) {
+        WalletManager.getInstance(context).deductTokens(amount, type, description, callback);
+    }
+
+    private static double[] scratchCardWeights() {
+        ScratchCardManager.RewardType[] types = ScratchCardManager.RewardType.values();
+        double[] weights = new double[types.length];
+        for (int i = 0; i < types.length; i++) {
+            weights[i] = types[i].getProbability();
+        }
+        return weights;
+    }
+}
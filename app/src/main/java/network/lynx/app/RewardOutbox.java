@@ -0,0 +1,469 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * REWARD OUTBOX - Rewards are on disk before they are sent
+ *
+ * - enqueue() appends the reward to an append-only file (synced to disk)
+ *   with a sequence number and a reward id, then schedules the drain
+ * - DrainWorker runs as unique work with a network constraint and uploads
+ *   what is pending for the signed-in user in batches: one multi-path write
+ *   with the journal entries, their rollups and one summed totalcoins
+ *   increment
+ * - The reward id is the key of its journal entry and the rules refuse to
+ *   overwrite an entry, so a batch that landed but was never acknowledged
+ *   is rejected on retry. It is then replayed one reward at a time, and a
+ *   reward whose entry already exists counts as delivered - exactly once
+ * - Acks are appended to the same file, which is rewritten without the
+ *   delivered records once they outnumber the pending ones
+ *
+ * Stakes and other debits stay on WalletManager's balance transaction,
+ * since they must be checked against the balance before they are shown.
+ */
+public class RewardOutbox {
+    private static final String TAG = "RewardOutbox";
+    private static final String FILE_NAME = "reward_outbox.log";
+    private static final String PREFS_NAME = "reward_outbox";
+    private static final String WORK_NAME = "reward_outbox_drain";
+
+    private static final int MAX_BATCH = 50;
+    private static final int MIN_COMPACT_ACKS = 32;
+    private static final long WRITE_TIMEOUT_SECONDS = 30;
+
+    private static RewardOutbox instance;
+
+    private final Context context;
+    private final AtomicFile file;
+    private final SharedPreferences prefs;
+    private final DatabaseReference rootRef;
+
+    // Undelivered records by sequence number, oldest first
+    private final LinkedHashMap<Long, Record> pending = new LinkedHashMap<>();
+    private long nextSeq = 1;
+    private int ackedInFile = 0;
+    private boolean drainScheduled = false;
+
+    private IssueListener issueListener;
+
+    public static final class Record {
+        public final long seq;
+        public final String id;
+        public final String userId;
+        public final double amount;
+        public final String type;
+        public final String description;
+        public final long timestamp;
+
+        Record(long seq, String id, String userId, double amount, String type, String description, long timestamp) {
+            this.seq = seq;
+            this.id = id;
+            this.userId = userId;
+            this.amount = amount;
+            this.type = type;
+            this.description = description;
+            this.timestamp = timestamp;
+        }
+
+        WalletManager.WalletTransaction toTransaction() {
+            WalletManager.WalletTransaction transaction = new WalletManager.WalletTransaction(type, amount, description);
+            transaction.id = id;
+            transaction.timestamp = timestamp;
+            return transaction;
+        }
+    }
+
+    /**
+     * Told just before a batch is written, so a caller showing the rewards
+     * optimistically can stop counting them once the write's local events
+     * carry them.
+     */
+    public interface IssueListener {
+        void onIssued(String userId, List<String> rewardIds);
+    }
+
+    public static class QueueStats {
+        public int depth;
+        public double pendingAmount;
+        public long oldestAgeMs;
+        public long deliveredTotal;
+        public long duplicatesTotal;
+        public long lastDrainAt;
+    }
+
+    private RewardOutbox(Context context) {
+        this.context = context.getApplicationContext();
+        this.file = new AtomicFile(new File(this.context.getFilesDir(), FILE_NAME));
+        this.prefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.rootRef = FirebaseDatabase.getInstance().getReference();
+        load();
+    }
+
+    public static synchronized RewardOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new RewardOutbox(context);
+        }
+        return instance;
+    }
+
+    public void setIssueListener(IssueListener listener) {
+        this.issueListener = listener;
+    }
+
+    // ============================================
+    // QUEUEING
+    // ============================================
+
+    /**
+     * A fresh reward id. Taken before enqueue() so the caller can show the
+     * reward under the same id the drain will report.
+     */
+    public String newRewardId(String userId) {
+        return rootRef.child("transactions").child(userId).push().getKey();
+    }
+
+    /**
+     * Persist a reward and schedule its upload. Repeating a reward id that
+     * is still pending does nothing.
+     */
+    public void enqueue(String userId, String rewardId, double amount, String type, String description) {
+        Record record;
+        synchronized (this) {
+            for (Record existing : pending.values()) {
+                if (existing.id.equals(rewardId)) return;
+            }
+            record = new Record(nextSeq++, rewardId, userId, amount, type, description, System.currentTimeMillis());
+            pending.put(record.seq, record);
+            try {
+                appendLine(toJson(record));
+            } catch (Exception e) {
+                // Still sent from memory; only a process death before the drain can lose it
+                Log.e(TAG, "Failed to persist reward " + rewardId, e);
+            }
+        }
+
+        TransactionJournal.getInstance(context).mirror(userId, record.toTransaction());
+        scheduleDrain();
+    }
+
+    /**
+     * Schedule the drain if anything is waiting, e.g. from a previous run.
+     */
+    public void drainIfPending() {
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+        }
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        synchronized (this) {
+            // One request waiting to start is enough; it drains everything
+            if (drainScheduled) return;
+            drainScheduled = true;
+        }
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(DrainWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 10, TimeUnit.SECONDS)
+                .build();
+
+        // Runs after a drain already in progress, so nothing added meanwhile is stranded
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    // ============================================
+    // METRICS
+    // ============================================
+
+    public synchronized QueueStats getStats() {
+        QueueStats stats = new QueueStats();
+        stats.depth = pending.size();
+        long oldest = Long.MAX_VALUE;
+        for (Record record : pending.values()) {
+            stats.pendingAmount += record.amount;
+            oldest = Math.min(oldest, record.timestamp);
+        }
+        stats.oldestAgeMs = pending.isEmpty() ? 0 : System.currentTimeMillis() - oldest;
+        stats.deliveredTotal = prefs.getLong("deliveredTotal", 0);
+        stats.duplicatesTotal = prefs.getLong("duplicatesTotal", 0);
+        stats.lastDrainAt = prefs.getLong("lastDrainAt", 0);
+        return stats;
+    }
+
+    public synchronized int getQueueDepth() {
+        return pending.size();
+    }
+
+    // ============================================
+    // DRAINING
+    // ============================================
+
+    /**
+     * Upload everything pending for the user. Blocks - worker thread only.
+     * Throws if a batch could not be delivered; what was acked stays acked.
+     */
+    void drain(String userId) throws Exception {
+        int delivered = 0;
+        int duplicates = 0;
+        List<Record> batch;
+        while (!(batch = nextBatch(userId)).isEmpty()) {
+            List<String> ids = new ArrayList<>();
+            for (Record record : batch) ids.add(record.id);
+            IssueListener listener = issueListener;
+            if (listener != null) listener.onIssued(userId, ids);
+
+            DatabaseError error = write(buildUpdates(userId, batch));
+            if (error == null) {
+                ack(batch);
+                delivered += batch.size();
+                continue;
+            }
+            if (error.getCode() != DatabaseError.PERMISSION_DENIED) throw error.toException();
+
+            // Something in the batch has already landed; find out what, one reward at a time
+            for (Record record : batch) {
+                List<Record> single = Collections.singletonList(record);
+                DatabaseError singleError = write(buildUpdates(userId, single));
+                if (singleError == null) {
+                    delivered++;
+                } else if (singleError.getCode() == DatabaseError.PERMISSION_DENIED && Tasks.await(
+                        rootRef.child("transactions").child(userId).child(record.id).get(),
+                        WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS).exists()) {
+                    duplicates++;
+                } else {
+                    throw singleError.toException();
+                }
+                ack(single);
+            }
+        }
+
+        prefs.edit()
+                .putLong("deliveredTotal", prefs.getLong("deliveredTotal", 0) + delivered)
+                .putLong("duplicatesTotal", prefs.getLong("duplicatesTotal", 0) + duplicates)
+                .putLong("lastDrainAt", System.currentTimeMillis())
+                .apply();
+        Log.d(TAG, "Drained " + delivered + " rewards (" + duplicates + " already delivered), "
+                + getQueueDepth() + " left");
+    }
+
+    /**
+     * Called when a drain request starts running; anything enqueued from now
+     * on needs a request of its own.
+     */
+    synchronized void onDrainStarted() {
+        drainScheduled = false;
+    }
+
+    private synchronized List<Record> nextBatch(String userId) {
+        List<Record> batch = new ArrayList<>();
+        for (Record record : pending.values()) {
+            if (!record.userId.equals(userId)) continue;
+            batch.add(record);
+            if (batch.size() == MAX_BATCH) break;
+        }
+        return batch;
+    }
+
+    private Map<String, Object> buildUpdates(String userId, List<Record> batch) {
+        TransactionJournal journal = TransactionJournal.getInstance(context);
+        Map<String, Object> updates = new HashMap<>();
+        Map<String, Double> increments = new HashMap<>();
+        double total = 0;
+        for (Record record : batch) {
+            journal.collect(userId, record.toTransaction(), true, updates, increments);
+            total += record.amount;
+        }
+        TransactionJournal.putIncrements(updates, increments);
+        updates.put("users/" + userId + "/totalcoins", ServerValue.increment(total));
+        return updates;
+    }
+
+    /**
+     * Write and wait for the server. Returns the error, or null on success.
+     */
+    private DatabaseError write(Map<String, Object> updates) throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        DatabaseError[] result = new DatabaseError[1];
+        rootRef.updateChildren(updates, (error, ref) -> {
+            result[0] = error;
+            done.countDown();
+        });
+        if (!done.await(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            // The SDK keeps the write queued; a retry that duplicates it is rejected
+            throw new TimeoutException("Reward batch not acknowledged");
+        }
+        return result[0];
+    }
+
+    // ============================================
+    // FILE
+    // ============================================
+
+    private synchronized void ack(List<Record> records) throws IOException {
+        JSONArray seqs = new JSONArray();
+        for (Record record : records) {
+            pending.remove(record.seq);
+            seqs.put(record.seq);
+        }
+        try {
+            appendLine(new JSONObject().put("ack", seqs));
+        } catch (org.json.JSONException e) {
+            throw new IOException(e);
+        }
+        ackedInFile += records.size();
+
+        if (ackedInFile >= MIN_COMPACT_ACKS && ackedInFile > pending.size()) {
+            compact();
+        }
+    }
+
+    private static JSONObject toJson(Record record) throws org.json.JSONException {
+        return new JSONObject()
+                .put("s", record.seq)
+                .put("id", record.id)
+                .put("u", record.userId)
+                .put("a", record.amount)
+                .put("t", record.type)
+                .put("d", record.description != null ? record.description : "")
+                .put("ts", record.timestamp);
+    }
+
+    private void appendLine(JSONObject line) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file.getBaseFile(), true)) {
+            out.write((line.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+    }
+
+    /**
+     * Rewrite the file with only the pending records.
+     */
+    private void compact() {
+        FileOutputStream fos = null;
+        try {
+            StringBuilder content = new StringBuilder();
+            for (Record record : pending.values()) {
+                content.append(toJson(record)).append('\n');
+            }
+            fos = file.startWrite();
+            fos.write(content.toString().getBytes(StandardCharsets.UTF_8));
+            file.finishWrite(fos);
+            ackedInFile = 0;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to compact reward outbox", e);
+            if (fos != null) {
+                file.failWrite(fos);
+            }
+        }
+    }
+
+    private void load() {
+        try (FileInputStream fis = file.openRead();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(fis, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JSONObject json;
+                try {
+                    json = new JSONObject(line);
+                } catch (org.json.JSONException e) {
+                    // Torn last line from a process death mid-append
+                    continue;
+                }
+
+                JSONArray acks = json.optJSONArray("ack");
+                if (acks != null) {
+                    for (int i = 0; i < acks.length(); i++) {
+                        pending.remove(acks.optLong(i));
+                    }
+                    ackedInFile += acks.length();
+                    continue;
+                }
+
+                long seq = json.optLong("s");
+                pending.put(seq, new Record(seq, json.optString("id"), json.optString("u"), json.optDouble("a", 0),
+                        json.optString("t"), json.optString("d"), json.optLong("ts")));
+                nextSeq = Math.max(nextSeq, seq + 1);
+            }
+            if (!pending.isEmpty()) {
+                Log.d(TAG, pending.size() + " rewards still queued from an earlier run");
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing queued yet
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read reward outbox", e);
+        }
+    }
+
+    public static class DrainWorker extends Worker {
+
+        public DrainWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+            super(context, params);
+        }
+
+        @NonNull
+        @Override
+        public Result doWork() {
+            RewardOutbox outbox = RewardOutbox.getInstance(getApplicationContext());
+            outbox.onDrainStarted();
+
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            if (user == null) {
+                // Records wait for their user to sign in again
+                return Result.success();
+            }
+
+            try {
+                outbox.drain(user.getUid());
+                return Result.success();
+            } catch (Exception e) {
+                Log.e(TAG, "Reward drain failed, will retry", e);
+                return Result.retry();
+            }
+        }
+    }
+}
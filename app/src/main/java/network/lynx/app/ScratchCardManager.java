@@ -18,7 +18,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Random;
 
 /**
  * Scratch Card Rewards System
@@ -276,34 +275,23 @@ public class ScratchCardManager {
     }
 
     private ScratchCardReward generateReward() {
-        Random random = new Random();
-        int roll = random.nextInt(100);
-
-        int cumulative = 0;
-        RewardType selectedType = RewardType.BETTER_LUCK;
-
-        for (RewardType type : RewardType.values()) {
-            cumulative += type.getProbability();
-            if (roll < cumulative) {
-                selectedType = type;
-                break;
-            }
-        }
+        RewardEngine engine = RewardEngine.getInstance(context);
+        RewardType selectedType = RewardType.values()[engine.draw(RewardEngine.SCRATCH_CARD)];
 
         float value;
         String description;
 
         switch (selectedType) {
             case LYX_SMALL:
-                value = 1 + random.nextFloat() * 4; // 1-5 LYX
+                value = (float) engine.between(1, 5); // 1-5 LYX
                 description = String.format(Locale.getDefault(), "%.1f LYX", value);
                 break;
             case LYX_MEDIUM:
-                value = 5 + random.nextFloat() * 15; // 5-20 LYX
+                value = (float) engine.between(5, 20); // 5-20 LYX
                 description = String.format(Locale.getDefault(), "%.1f LYX", value);
                 break;
             case LYX_LARGE:
-                value = 20 + random.nextFloat() * 80; // 20-100 LYX
+                value = (float) engine.between(20, 100); // 20-100 LYX
                 description = String.format(Locale.getDefault(), "%.1f LYX JACKPOT!", value);
                 break;
             case SPIN_TICKET:
@@ -320,7 +308,7 @@ public class ScratchCardManager {
                 break;
             case MYSTERY_BOX:
                 // Mystery box gives random high value
-                value = 10 + random.nextFloat() * 40;
+                value = (float) engine.between(10, 50);
                 description = String.format(Locale.getDefault(), "Mystery Box: %.1f LYX!", value);
                 break;
             case BETTER_LUCK:
@@ -343,27 +331,7 @@ public class ScratchCardManager {
             case MYSTERY_BOX:
             case BETTER_LUCK:
                 // Add LYX tokens
-                userRef.child("totalcoins").addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(DataSnapshot snapshot) {
-                        Double current = snapshot.getValue(Double.class);
-                        if (current == null) current = 0.0;
-                        userRef.child("totalcoins").setValue(current + reward.value)
-                            .addOnCompleteListener(task -> {
-                                // FIXED: Notify WalletManager so balance updates immediately
-                                if (task.isSuccessful()) {
-                                    try {
-                                        WalletManager.getInstance(context).refreshBalance();
-                                    } catch (Exception e) {
-                                        Log.w(TAG, "Failed to notify WalletManager", e);
-                                    }
-                                }
-                            });
-                    }
-
-                    @Override
-                    public void onCancelled(DatabaseError error) {}
-                });
+                RewardEngine.getInstance(context).credit(reward.value, "games", "Scratch card: " + reward.description);
                 break;
 
             case SPIN_TICKET:
@@ -10,6 +10,7 @@ import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.MutableData;
+import com.google.firebase.database.ServerValue;
 import com.google.firebase.database.Transaction;
 import com.google.firebase.database.ValueEventListener;
 
@@ -34,6 +35,9 @@ import java.util.Map;
  * - Full circle (5 members) = +50% permanent boost
  * - Members must be active (mined in last 24h) to count
  * - Creates social dependency = daily engagement
+ * - Activity is denormalized: starting to mine writes the member's time
+ *   into securityCircle/{owner}/members/{member}/lastActiveTime for every
+ *   circle they are in, so a circle resolves from its one members listener
  *
  * WHY IT WORKS:
  * - Social obligation keeps users coming back
@@ -49,6 +53,7 @@ public class SecurityCircleManager {
     public static final int MAX_CIRCLE_SIZE = 5;
     public static final float BOOST_PER_ACTIVE_MEMBER = 0.10f; // 10% per member
     public static final long ACTIVE_THRESHOLD_MS = 24 * 60 * 60 * 1000; // 24 hours
+    private static final long CACHE_TTL_MS = 60 * 1000; // recount at most once a minute
 
     private static SecurityCircleManager instance;
     private final Context context;
@@ -117,7 +122,8 @@ public class SecurityCircleManager {
 
                         for (DataSnapshot memberSnapshot : snapshot.getChildren()) {
                             CircleMember member = memberSnapshot.getValue(CircleMember.class);
-                            if (member != null) {
+                            // A late activity write can leave a bare lastActiveTime behind a removed member
+                            if (member != null && member.odamUserId != null) {
                                 circleMembers.add(member);
                             }
                         }
@@ -134,50 +140,54 @@ public class SecurityCircleManager {
     }
 
     /**
-     * Check activity status of all circle members
+     * Count active members from the lastActiveTime each member fans out to
+     * this circle when they start mining - no per-member reads
      */
     private void checkActiveMembersStatus() {
-        activeCount = 0;
-        final int[] checkedCount = {0};
-
-        if (circleMembers.isEmpty()) {
-            notifyListener();
-            return;
-        }
+        recountActive();
+        notifyListener();
+    }
 
+    private void recountActive() {
+        long now = System.currentTimeMillis();
+        activeCount = 0;
         for (CircleMember member : circleMembers) {
-            dbRef.child("users").child(member.odamUserId).child("lastMiningTime")
-                    .addListenerForSingleValueEvent(new ValueEventListener() {
-                        @Override
-                        public void onDataChange(DataSnapshot snapshot) {
-                            long lastMining = 0;
-                            if (snapshot.exists() && snapshot.getValue() != null) {
-                                lastMining = ((Number) snapshot.getValue()).longValue();
-                            }
-
-                            member.lastActiveTime = lastMining;
-                            member.isActive = (System.currentTimeMillis() - lastMining) < ACTIVE_THRESHOLD_MS;
+            member.isActive = now - member.lastActiveTime < ACTIVE_THRESHOLD_MS;
+            if (member.isActive) {
+                activeCount++;
+            }
+        }
+        saveActiveCount();
+    }
 
-                            if (member.isActive) {
-                                activeCount++;
-                            }
+    /**
+     * Mark this user active in every circle that includes them. Called when
+     * mining starts; one read of trustedBy and one multi-path write.
+     */
+    public void recordMiningStart() {
+        if (currentUserId == null) return;
 
-                            checkedCount[0]++;
-                            if (checkedCount[0] == circleMembers.size()) {
-                                notifyListener();
-                                saveActiveCount();
-                            }
+        long now = System.currentTimeMillis();
+        dbRef.child("securityCircle").child(currentUserId).child("trustedBy")
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(DataSnapshot snapshot) {
+                        Map<String, Object> updates = new HashMap<>();
+                        updates.put("users/" + currentUserId + "/lastMiningTime", now);
+                        // Server time: the rules reject activity stamped in the future
+                        for (DataSnapshot owner : snapshot.getChildren()) {
+                            updates.put("securityCircle/" + owner.getKey() + "/members/"
+                                    + currentUserId + "/lastActiveTime", ServerValue.TIMESTAMP);
                         }
+                        dbRef.updateChildren(updates)
+                                .addOnFailureListener(e -> Log.e(TAG, "Failed to publish circle activity", e));
+                    }
 
-                        @Override
-                        public void onCancelled(DatabaseError error) {
-                            checkedCount[0]++;
-                            if (checkedCount[0] == circleMembers.size()) {
-                                notifyListener();
-                            }
-                        }
-                    });
-        }
+                    @Override
+                    public void onCancelled(DatabaseError error) {
+                        Log.e(TAG, "Error loading trustedBy", error.toException());
+                    }
+                });
     }
 
     private void notifyListener() {
@@ -187,8 +197,14 @@ public class SecurityCircleManager {
     }
 
     private void saveActiveCount() {
+        StringBuilder times = new StringBuilder();
+        for (CircleMember member : circleMembers) {
+            if (times.length() > 0) times.append(',');
+            times.append(member.lastActiveTime);
+        }
         prefs.edit()
                 .putInt("activeCount", activeCount)
+                .putString("activeTimes", times.toString())
                 .putLong("lastCheck", System.currentTimeMillis())
                 .apply();
     }
@@ -231,6 +247,10 @@ public class SecurityCircleManager {
 
                 // Add to circle
                 CircleMember newMember = new CircleMember(memberUserId, username);
+                Object lastMining = snapshot.child("lastMiningTime").getValue();
+                if (lastMining instanceof Number) {
+                    newMember.lastActiveTime = ((Number) lastMining).longValue();
+                }
 
                 dbRef.child("securityCircle").child(currentUserId)
                         .child("members").child(memberUserId)
@@ -283,17 +303,39 @@ public class SecurityCircleManager {
      * Get current boost multiplier from active circle members
      */
     public float getBoostMultiplier() {
+        if (System.currentTimeMillis() - prefs.getLong("lastCheck", 0) > CACHE_TTL_MS && !circleMembers.isEmpty()) {
+            // Members age out of the 24h window without any data changing
+            recountActive();
+        }
         return 1.0f + (activeCount * BOOST_PER_ACTIVE_MEMBER);
     }
 
     /**
-     * Get cached boost (for when offline)
+     * Get cached boost (for when offline). Within CACHE_TTL_MS of the last
+     * count this is the stored value; after that it is recounted from the
+     * stored member activity times, so it still expires members offline.
      */
     public float getCachedBoost() {
+        long lastCheck = prefs.getLong("lastCheck", 0);
         int cached = prefs.getInt("activeCount", 0);
+        if (System.currentTimeMillis() - lastCheck > CACHE_TTL_MS) {
+            cached = countActive(prefs.getString("activeTimes", ""), System.currentTimeMillis());
+        }
         return 1.0f + (cached * BOOST_PER_ACTIVE_MEMBER);
     }
 
+    private static int countActive(String activeTimes, long now) {
+        int count = 0;
+        if (activeTimes == null || activeTimes.isEmpty()) return count;
+        for (String time : activeTimes.split(",")) {
+            try {
+                if (now - Long.parseLong(time) < ACTIVE_THRESHOLD_MS) count++;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return count;
+    }
+
     public List<CircleMember> getCircleMembers() {
         return circleMembers;
     }
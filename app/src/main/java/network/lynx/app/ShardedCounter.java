@@ -0,0 +1,174 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * SHARDED COUNTER - Contention-free global tallies
+ *
+ * A single global node updated by every client makes transactions retry
+ * under load. Instead, each write adds ServerValue.increment(delta) to one
+ * of SHARD_COUNT randomly chosen shards, which never conflicts.
+ *
+ * Layout under the counter path:
+ *   base        optional starting value (e.g. a pre-sharding total), read-only
+ *   shards/{i}  running sums
+ *
+ * Readers add base and the shards up themselves (SHARD_COUNT small values)
+ * and cache the total locally for CACHE_TTL_MS, so no client-written
+ * aggregate is ever trusted. The rules decide how much one write may add
+ * to a shard; shards never go down and cannot be deleted.
+ */
+public class ShardedCounter {
+    private static final String TAG = "ShardedCounter";
+    private static final String PREFS_NAME = "sharded_counters";
+
+    static final int SHARD_COUNT = 16;
+    private static final long CACHE_TTL_MS = 5 * 60 * 1000; // 5 minutes
+
+    private static final Map<String, ShardedCounter> counters = new HashMap<>();
+
+    private final String path;
+    private final DatabaseReference ref;
+    private final SharedPreferences prefs;
+
+    private double cachedTotal;
+    private long cachedAt;
+    private boolean fetching = false;
+    private final List<TotalCallback> waiting = new ArrayList<>();
+
+    public interface TotalCallback {
+        void onTotal(double total);
+    }
+
+    private ShardedCounter(Context context, String path) {
+        this.path = path;
+        this.ref = FirebaseDatabase.getInstance().getReference(path);
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.cachedTotal = Double.longBitsToDouble(prefs.getLong(path + "|total", 0));
+        this.cachedAt = prefs.getLong(path + "|at", 0);
+    }
+
+    /**
+     * One counter object per database path.
+     */
+    public static synchronized ShardedCounter forPath(Context context, String path) {
+        ShardedCounter counter = counters.get(path);
+        if (counter == null) {
+            counter = new ShardedCounter(context, path);
+            counters.put(path, counter);
+        }
+        return counter;
+    }
+
+    // ============================================
+    // WRITES
+    // ============================================
+
+    public void increment(double delta) {
+        if (delta <= 0) return;
+        ref.child("shards").child(String.valueOf(randomShard())).setValue(ServerValue.increment(delta))
+                .addOnFailureListener(e -> Log.w(TAG, "Failed to increment " + path, e));
+    }
+
+    /**
+     * Put this counter's increment into a multi-path update applied at the
+     * database root, so it lands atomically with the rest of the batch.
+     */
+    public void addIncrement(Map<String, Object> updates, double delta) {
+        if (delta <= 0) return;
+        updates.put(path + "/shards/" + randomShard(), ServerValue.increment(delta));
+    }
+
+    private static int randomShard() {
+        return ThreadLocalRandom.current().nextInt(SHARD_COUNT);
+    }
+
+    // ============================================
+    // READS
+    // ============================================
+
+    /**
+     * Last known total; 0 before the first read.
+     */
+    public synchronized double getCachedTotal() {
+        return cachedTotal;
+    }
+
+    /**
+     * Deliver the total, reading the shards only when the local copy is
+     * older than CACHE_TTL_MS. Concurrent callers share one read.
+     */
+    public void getTotal(@NonNull TotalCallback callback) {
+        boolean fresh;
+        double total;
+        synchronized (this) {
+            fresh = cachedAt > 0 && System.currentTimeMillis() - cachedAt < CACHE_TTL_MS;
+            total = cachedTotal;
+            if (!fresh) {
+                waiting.add(callback);
+                if (fetching) return;
+                fetching = true;
+            }
+        }
+        if (fresh) {
+            callback.onTotal(total);
+            return;
+        }
+
+        ref.get()
+                .addOnSuccessListener(node -> deliver(sum(node)))
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Failed to read " + path, e);
+                    deliver(null);
+                });
+    }
+
+    private static double sum(DataSnapshot node) {
+        Double base = node.child("base").getValue(Double.class);
+        double total = base != null ? base : 0;
+        for (DataSnapshot shard : node.child("shards").getChildren()) {
+            Double value = shard.getValue(Double.class);
+            if (value != null) total += value;
+        }
+        return total;
+    }
+
+    private void deliver(Double value) {
+        List<TotalCallback> callbacks;
+        double total;
+        synchronized (this) {
+            if (value != null) store(value);
+            fetching = false;
+            callbacks = new ArrayList<>(waiting);
+            waiting.clear();
+            total = cachedTotal;
+        }
+        for (TotalCallback callback : callbacks) {
+            callback.onTotal(total);
+        }
+    }
+
+    private void store(double value) {
+        cachedTotal = value;
+        cachedAt = System.currentTimeMillis();
+        prefs.edit()
+                .putLong(path + "|total", Double.doubleToLongBits(value))
+                .putLong(path + "|at", cachedAt)
+                .apply();
+    }
+}
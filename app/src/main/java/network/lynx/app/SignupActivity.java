@@ -8,7 +8,6 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.text.TextUtils;
-import android.util.Base64;
 import android.util.Log;
 import android.view.View;
 import android.widget.CheckBox;
@@ -219,69 +218,59 @@ public class SignupActivity extends AppCompatActivity {
 
     // Add this new method to process referral codes
     private void processReferralCode(String userId, String username, String referralCode) {
-        DatabaseReference usersRef = FirebaseDatabase.getInstance().getReference("users");
-
-        usersRef.orderByChild("referralCode").equalTo(referralCode)
-                .addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                        boolean referralApplied = false;
-                        if (dataSnapshot.exists()) {
-                            for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
-                                String referrerUserId = snapshot.getKey();
-
-                                // Update referrer's data
-                                DatabaseReference referrerRef = usersRef.child(referrerUserId);
-
-                                Map<String, Object> referralData = new HashMap<>();
-                                referralData.put("refer_UserId", userId);
-                                referralData.put("refer_username", username);
-
-                                referrerRef.child("referrals").push().updateChildren(referralData);
-                                referrerRef.child("referralCount").setValue(ServerValue.increment(1));
-                                referrerRef.child("bonusPoints").setValue(ServerValue.increment(5));
-                                referralApplied = true;
-                                ToastUtils.showInfo(SignupActivity.this, "Referral code applied successfully!");
-                                // FIXED: Use 'totalcoins' (lowercase) to match rest of app
-                                usersRef.child(referrerUserId).child("totalcoins").setValue(ServerValue.increment(50));
-
-                            }
-                        } else {
-                            Toast.makeText(SignupActivity.this, "Invalid referral code, but account created successfully", Toast.LENGTH_SHORT).show();
-                        }
-                        if (referralApplied) {
-                            // FIXED: Use 'totalcoins' (lowercase) to match rest of app
-                            usersRef.child(userId).child("totalcoins").setValue(ServerValue.increment(50));
+        ReferralCodeIndex.lookup(referralCode, new ReferralCodeIndex.LookupCallback() {
+            @Override
+            public void onFound(String referrerUserId) {
+                if (referrerUserId.equals(userId)) {
+                    onNotFound();
+                    return;
+                }
+
+                // Referral link, referrer counters and both bonuses in one write
+                Map<String, Object> updates = ReferralCodeIndex.referralUpdates(referrerUserId, userId, username);
+                updates.put("users/" + userId + "/totalcoins", ServerValue.increment(50));
+                ReferralCodeIndex.addReferrerCredit(updates, referrerUserId, userId, 50);
+
+                FirebaseDatabase.getInstance().getReference().updateChildren(updates)
+                        .addOnSuccessListener(aVoid -> {
                             ToastUtils.showInfo(SignupActivity.this, "Referral code applied! 50 coins added.");
-                        } else {
-                            ToastUtils.showInfo(SignupActivity.this, "Invalid referral code, but account created successfully");
-                        }
+                            proceedToMain();
+                        })
+                        .addOnFailureListener(e -> {
+                            Log.e(TAG, "Failed to apply referral", e);
+                            ToastUtils.showInfo(SignupActivity.this, "Error processing referral code");
+                            proceedToMain();
+                        });
+            }
 
-                        // Regardless of referral code validity, proceed to MainActivity
-                        startActivity(new Intent(SignupActivity.this, MainActivity.class));
-                        finish();
-                    }
+            @Override
+            public void onNotFound() {
+                ToastUtils.showInfo(SignupActivity.this, "Invalid referral code, but account created successfully");
+                proceedToMain();
+            }
 
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError databaseError) {
-                        ToastUtils.showInfo(SignupActivity.this, "Error processing referral code");
-                        startActivity(new Intent(SignupActivity.this, MainActivity.class));
-                        finish();
-                    }
-                });
+            @Override
+            public void onError(DatabaseError error) {
+                ReferralCodeIndex.logLookupError(error);
+                ToastUtils.showInfo(SignupActivity.this, "Error processing referral code");
+                proceedToMain();
+            }
+        });
+    }
+
+    private void proceedToMain() {
+        // Regardless of referral code validity, proceed to MainActivity
+        startActivity(new Intent(SignupActivity.this, MainActivity.class));
+        finish();
     }
 
     private void saveUserToDatabase(FirebaseUser user, String username) {
         databaseReference = FirebaseDatabase.getInstance().getReference("users").child(user.getUid());
 
-        // Generate referral code
-        String referralCode = generateReferralCode(user.getUid());
-
         // Create a complete user object with all required fields
         Map<String, Object> userData = new HashMap<>();
         userData.put("username", username);
         userData.put("email", user.getEmail());
-        userData.put("referralCode", referralCode);
         userData.put("totalcoins", 0.0);
         userData.put("dailyStreak", 0);
         userData.put("level", 1);
@@ -295,13 +284,25 @@ public class SignupActivity extends AppCompatActivity {
         userData.put("mining", mining);
 
         // Save to ReferralUtils for immediate local caching (avoids multiple Firebase reads)
-        ReferralUtils.saveProfileToPrefs(this, user.getUid(), username, user.getEmail(), referralCode);
-        Log.d(TAG, "Saved user profile to local prefs: userId=" + user.getUid() + ", email=" + user.getEmail() + ", referralCode=" + referralCode);
+        ReferralUtils.saveProfileToPrefs(this, user.getUid(), username, user.getEmail(), null);
+        Log.d(TAG, "Saved user profile to local prefs: userId=" + user.getUid() + ", email=" + user.getEmail());
 
         // Use setValue for initial creation, then updateChildren won't have issues
         databaseReference.setValue(userData)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "User saved successfully to Firebase");
+                    // Issue the user's referral code (written after the profile so it isn't overwritten)
+                    FirebaseManager.getInstance(this).ensureReferralCode(new FirebaseManager.DataCallback<String>() {
+                        @Override
+                        public void onSuccess(String code) {
+                            Log.d(TAG, "Referral code issued: " + code);
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            Log.w(TAG, "Failed to issue referral code", e);
+                        }
+                    });
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Failed to save user to Firebase: " + e.getMessage(), e);
@@ -310,25 +311,6 @@ public class SignupActivity extends AppCompatActivity {
                 });
     }
 
-    public static String generateReferralCode(String userId) {
-        try {
-            // Use Base64 encoding and clean it up
-            String encoded = Base64.encodeToString(userId.getBytes(), Base64.NO_WRAP);
-            // Remove non-alphanumeric characters and convert to uppercase
-            String cleaned = encoded.replaceAll("[^A-Za-z0-9]", "").toUpperCase();
-            // Take first 6 characters
-            if (cleaned.length() >= 6) {
-                return cleaned.substring(0, 6);
-            } else {
-                // Pad with hash code if too short
-                return cleaned + String.valueOf(Math.abs(userId.hashCode()) % 10000);
-            }
-        } catch (Exception e) {
-            // Fallback: use hash code
-            return "LYX" + String.valueOf(Math.abs(userId.hashCode()) % 100000);
-        }
-    }
-
     /**
      * FIX: Clear old user's preferences to prevent data leaking between accounts
      */
@@ -355,6 +337,7 @@ public class SignupActivity extends AppCompatActivity {
             BoostManager.resetInstance();
             MiningSyncManager.resetInstance();
             MiningStreakManager.resetInstance();
+            StreakEngine.resetInstance();
             AchievementManager.resetInstance();
             HourlyBonusManager.resetInstance();
         } catch (Exception e) {
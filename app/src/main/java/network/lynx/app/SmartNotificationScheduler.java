@@ -7,18 +7,9 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.util.Log;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
 
 public class SmartNotificationScheduler {
     private static final String TAG = "SmartNotificationScheduler";
@@ -26,6 +17,7 @@ public class SmartNotificationScheduler {
 
     // Default optimal times based on user behavior research
     private static final int[] OPTIMAL_HOURS = {9, 12, 15, 18, 20}; // 9AM, 12PM, 3PM, 6PM, 8PM
+    private static final long CHURN_GAP_MS = 2L * 24 * 60 * 60 * 1000;
 
     // Notification types with their priorities and optimal timing
     public static final int MINING_REMINDER = 1001;
@@ -39,89 +31,47 @@ public class SmartNotificationScheduler {
     public static void scheduleSmartNotifications(Context context) {
         if (FirebaseAuth.getInstance().getCurrentUser() == null) return;
 
-        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-        analyzeUserBehaviorAndSchedule(context, userId);
+        analyzeUserBehaviorAndSchedule(context);
     }
 
-    private static void analyzeUserBehaviorAndSchedule(Context context, String userId) {
-        DatabaseReference userRef = FirebaseDatabase.getInstance().getReference("users").child(userId);
-
-        userRef.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                UserBehaviorData behaviorData = analyzeUserBehavior(context, snapshot);
-                scheduleOptimalNotifications(context, behaviorData);
-            }
+    private static void analyzeUserBehaviorAndSchedule(Context context) {
+        // Local O(24) pass over the on-device model - no network read
+        UserBehaviorModel model = UserBehaviorModel.getInstance(context);
+        if (!model.hasData()) {
+            scheduleDefaultNotifications(context);
+            return;
+        }
 
-            @Override
-            public void onCancelled(DatabaseError error) {
-                Log.e(TAG, "Failed to analyze user behavior", error.toException());
-                // Fallback to default scheduling
-                scheduleDefaultNotifications(context);
-            }
-        });
+        UserBehaviorData behaviorData = analyzeUserBehavior(context, model);
+        scheduleOptimalNotifications(context, behaviorData);
     }
 
-    private static UserBehaviorData analyzeUserBehavior(Context context, DataSnapshot userSnapshot) {
+    private static UserBehaviorData analyzeUserBehavior(Context context, UserBehaviorModel model) {
         UserBehaviorData data = new UserBehaviorData();
 
-        // Analyze login patterns
-        DataSnapshot loginHistory = userSnapshot.child("loginHistory");
-        List<Integer> loginHours = new ArrayList<>();
-
-        for (DataSnapshot login : loginHistory.getChildren()) {
-            Long timestamp = login.getValue(Long.class);
-            if (timestamp != null) {
-                Calendar cal = Calendar.getInstance();
-                cal.setTimeInMillis(timestamp);
-                loginHours.add(cal.get(Calendar.HOUR_OF_DAY));
-            }
-        }
-
-        // Find most active hours
-        data.mostActiveHours = findMostFrequentHours(loginHours);
+        // Most active hours from decayed hour-of-day counters
+        List<Integer> topHours = model.getTopHours(3);
+        data.mostActiveHours = topHours.isEmpty() ? getDefaultOptimalHours() : topHours;
 
-        // Analyze mining patterns
-        DataSnapshot miningHistory = userSnapshot.child("miningHistory");
-        data.prefersMorningMining = analyzeTimePreference(miningHistory, 6, 12);
-        data.prefersEveningMining = analyzeTimePreference(miningHistory, 18, 23);
+        // Time-of-day preference (60% threshold)
+        data.prefersMorningMining = model.getHourShare(6, 12) > 0.6;
+        data.prefersEveningMining = model.getHourShare(18, 23) > 0.6;
 
         // Check engagement with previous notifications
         data.engagementRate = getNotificationEngagementRate(context);
 
-        // Analyze user timezone (approximate from login patterns)
-        data.estimatedTimezone = estimateTimezone(loginHours);
-
         // Check user activity level
-        Integer loginStreak = userSnapshot.child("loginStreak").getValue(Integer.class);
-        data.isActiveUser = loginStreak != null && loginStreak > 3;
+        data.isActiveUser = model.getConsecutiveDays() > 3;
 
-        // Check if user is at risk of churning
-        String lastLoginDate = userSnapshot.child("lastLoginDate").getValue(String.class);
-        data.isAtRiskOfChurn = isUserAtRiskOfChurn(lastLoginDate);
+        // At risk of churning: away for more than 2 days, or just back from such a gap
+        long now = System.currentTimeMillis();
+        data.isAtRiskOfChurn = now - model.getLastOpenTime() > CHURN_GAP_MS
+                || (model.getPreviousGapMs() > CHURN_GAP_MS && model.getConsecutiveDays() <= 1);
 
         Log.d(TAG, "User behavior analyzed: " + data.toString());
         return data;
     }
 
-    private static List<Integer> findMostFrequentHours(List<Integer> hours) {
-        Map<Integer, Integer> hourCount = new HashMap<>();
-
-        for (Integer hour : hours) {
-            hourCount.put(hour, hourCount.getOrDefault(hour, 0) + 1);
-        }
-
-        List<Map.Entry<Integer, Integer>> sortedHours = new ArrayList<>(hourCount.entrySet());
-        sortedHours.sort((a, b) -> b.getValue().compareTo(a.getValue()));
-
-        List<Integer> topHours = new ArrayList<>();
-        for (int i = 0; i < Math.min(3, sortedHours.size()); i++) {
-            topHours.add(sortedHours.get(i).getKey());
-        }
-
-        return topHours.isEmpty() ? getDefaultOptimalHours() : topHours;
-    }
-
     private static List<Integer> getDefaultOptimalHours() {
         List<Integer> defaultHours = new ArrayList<>();
         for (int hour : OPTIMAL_HOURS) {
@@ -130,27 +80,6 @@ public class SmartNotificationScheduler {
         return defaultHours;
     }
 
-    private static boolean analyzeTimePreference(DataSnapshot history, int startHour, int endHour) {
-        int count = 0;
-        int total = 0;
-
-        for (DataSnapshot entry : history.getChildren()) {
-            Long timestamp = entry.child("timestamp").getValue(Long.class);
-            if (timestamp != null) {
-                Calendar cal = Calendar.getInstance();
-                cal.setTimeInMillis(timestamp);
-                int hour = cal.get(Calendar.HOUR_OF_DAY);
-
-                total++;
-                if (hour >= startHour && hour <= endHour) {
-                    count++;
-                }
-            }
-        }
-
-        return total > 0 && (count / (double) total) > 0.6; // 60% threshold
-    }
-
     private static double getNotificationEngagementRate(Context context) {
         SharedPreferences prefs = context.getSharedPreferences("notification_analytics", Context.MODE_PRIVATE);
         int sent = prefs.getInt("total_sent", 0);
@@ -159,68 +88,43 @@ public class SmartNotificationScheduler {
         return sent > 0 ? (engaged / (double) sent) : 0.5; // Default 50%
     }
 
-    private static int estimateTimezone(List<Integer> loginHours) {
-        if (loginHours.isEmpty()) return 0;
-
-        // Simple heuristic: if most logins are in typical working hours (9-17), assume local time
-        int workingHourLogins = 0;
-        for (Integer hour : loginHours) {
-            if (hour >= 9 && hour <= 17) {
-                workingHourLogins++;
-            }
-        }
-
-        return workingHourLogins > loginHours.size() / 2 ? 0 : new Random().nextInt(24) - 12;
-    }
-
-    private static boolean isUserAtRiskOfChurn(String lastLoginDate) {
-        if (lastLoginDate == null) return true;
-
-        try {
-            // Simple check: if last login was more than 2 days ago
-            long lastLogin = Long.parseLong(lastLoginDate);
-            long daysSinceLogin = (System.currentTimeMillis() - lastLogin) / (24 * 60 * 60 * 1000);
-            return daysSinceLogin > 2;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     private static void scheduleOptimalNotifications(Context context, UserBehaviorData behaviorData) {
-        // Clear existing notifications
+        // Clear alarms left by older versions - the planner owns scheduling now
         cancelAllNotifications(context);
 
         // Schedule based on user behavior
+        List<NotificationPlanner.Slot> slots = new ArrayList<>();
         if (behaviorData.isAtRiskOfChurn) {
-            scheduleChurnPreventionNotifications(context, behaviorData);
+            scheduleChurnPreventionNotifications(slots, behaviorData);
         } else if (behaviorData.isActiveUser) {
-            scheduleActiveUserNotifications(context, behaviorData);
+            scheduleActiveUserNotifications(slots, behaviorData);
         } else {
-            scheduleNewUserNotifications(context, behaviorData);
+            scheduleNewUserNotifications(slots, behaviorData);
         }
+        NotificationPlanner.getInstance(context).replacePlan(NotificationPlanner.SOURCE_SMART, slots);
 
         Log.d(TAG, "Smart notifications scheduled based on user behavior");
     }
 
-    private static void scheduleChurnPreventionNotifications(Context context, UserBehaviorData data) {
+    private static void scheduleChurnPreventionNotifications(List<NotificationPlanner.Slot> slots, UserBehaviorData data) {
         // More frequent, engaging notifications for users at risk of churning
         List<Integer> optimalHours = data.mostActiveHours;
 
         // Comeback reminder - schedule for user's most active hour
         if (!optimalHours.isEmpty()) {
-            scheduleNotificationAtHour(context, COMEBACK_REMINDER, optimalHours.get(0), 0);
+            scheduleNotificationAtHour(slots, COMEBACK_REMINDER, optimalHours.get(0), 0);
         }
 
         // Achievement unlock notification - create urgency
-        scheduleNotificationAtHour(context, ACHIEVEMENT_UNLOCK,
+        scheduleNotificationAtHour(slots, ACHIEVEMENT_UNLOCK,
                 optimalHours.isEmpty() ? 19 : optimalHours.get(0) + 2, 0);
 
         // Special mining bonus - high value proposition
-        scheduleNotificationAtHour(context, MINING_REMINDER,
+        scheduleNotificationAtHour(slots, MINING_REMINDER,
                 data.prefersMorningMining ? 9 : 20, 0);
     }
 
-    private static void scheduleActiveUserNotifications(Context context, UserBehaviorData data) {
+    private static void scheduleActiveUserNotifications(List<NotificationPlanner.Slot> slots, UserBehaviorData data) {
         // Regular engagement notifications for active users
         List<Integer> optimalHours = data.mostActiveHours;
 
@@ -228,38 +132,42 @@ public class SmartNotificationScheduler {
         int miningHour = data.prefersMorningMining ? 9 :
                 data.prefersEveningMining ? 19 :
                         optimalHours.isEmpty() ? 12 : optimalHours.get(0);
-        scheduleNotificationAtHour(context, MINING_REMINDER, miningHour, 0);
+        scheduleNotificationAtHour(slots, MINING_REMINDER, miningHour, 0);
 
         // Streak bonus - different time to avoid notification fatigue
         int streakHour = getNextOptimalHour(optimalHours, miningHour);
-        scheduleNotificationAtHour(context, STREAK_BONUS, streakHour, 0);
+        scheduleNotificationAtHour(slots, STREAK_BONUS, streakHour, 0);
 
         // Boost available - evening time for engagement
-        scheduleNotificationAtHour(context, BOOST_AVAILABLE, 18, 0);
+        scheduleNotificationAtHour(slots, BOOST_AVAILABLE, 18, 0);
 
         // Weekly challenge - Monday morning
-        scheduleWeeklyNotification(context, WEEKLY_CHALLENGE, Calendar.MONDAY, 10, 0);
+        scheduleWeeklyNotification(slots, WEEKLY_CHALLENGE, Calendar.MONDAY, 10, 0);
     }
 
-    private static void scheduleNewUserNotifications(Context context, UserBehaviorData data) {
+    private static void scheduleNewUserNotifications(List<NotificationPlanner.Slot> slots, UserBehaviorData data) {
         // Gentle onboarding notifications for new users
 
         // Morning mining reminder
-        scheduleNotificationAtHour(context, MINING_REMINDER, 10, 0);
+        scheduleNotificationAtHour(slots, MINING_REMINDER, 10, 0);
 
         // Afternoon engagement
-        scheduleNotificationAtHour(context, STREAK_BONUS, 15, 0);
+        scheduleNotificationAtHour(slots, STREAK_BONUS, 15, 0);
 
         // Evening referral opportunity
-        scheduleNotificationAtHour(context, REFERRAL_REWARD, 19, 0);
+        scheduleNotificationAtHour(slots, REFERRAL_REWARD, 19, 0);
     }
 
     private static void scheduleDefaultNotifications(Context context) {
+        cancelAllNotifications(context);
+
         // Fallback scheduling with proven optimal times
-        scheduleNotificationAtHour(context, MINING_REMINDER, 9, 0);
-        scheduleNotificationAtHour(context, STREAK_BONUS, 12, 0);
-        scheduleNotificationAtHour(context, BOOST_AVAILABLE, 18, 0);
-        scheduleWeeklyNotification(context, WEEKLY_CHALLENGE, Calendar.MONDAY, 10, 0);
+        List<NotificationPlanner.Slot> slots = new ArrayList<>();
+        scheduleNotificationAtHour(slots, MINING_REMINDER, 9, 0);
+        scheduleNotificationAtHour(slots, STREAK_BONUS, 12, 0);
+        scheduleNotificationAtHour(slots, BOOST_AVAILABLE, 18, 0);
+        scheduleWeeklyNotification(slots, WEEKLY_CHALLENGE, Calendar.MONDAY, 10, 0);
+        NotificationPlanner.getInstance(context).replacePlan(NotificationPlanner.SOURCE_SMART, slots);
 
         Log.d(TAG, "Default notifications scheduled");
     }
@@ -273,64 +181,13 @@ public class SmartNotificationScheduler {
         return excludeHour + 4; // Fallback: 4 hours later
     }
 
-    private static void scheduleNotificationAtHour(Context context, int notificationType, int hour, int minute) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.HOUR_OF_DAY, hour);
-        calendar.set(Calendar.MINUTE, minute);
-        calendar.set(Calendar.SECOND, 0);
-
-        // If the time has already passed today, schedule for tomorrow
-        if (calendar.getTimeInMillis() <= System.currentTimeMillis()) {
-            calendar.add(Calendar.DAY_OF_MONTH, 1);
-        }
-
-        // Add some randomization (±30 minutes) to avoid predictability
-        Random random = new Random();
-        int randomMinutes = random.nextInt(61) - 30; // -30 to +30 minutes
-        calendar.add(Calendar.MINUTE, randomMinutes);
-
-        scheduleNotificationAtTime(context, notificationType, calendar.getTimeInMillis());
+    private static void scheduleNotificationAtHour(List<NotificationPlanner.Slot> slots, int notificationType, int hour, int minute) {
+        // Planner adds a stable ±30 minute jitter to avoid predictability
+        slots.add(NotificationPlanner.Slot.daily(notificationType, hour, minute));
     }
 
-    private static void scheduleWeeklyNotification(Context context, int notificationType, int dayOfWeek, int hour, int minute) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(Calendar.DAY_OF_WEEK, dayOfWeek);
-        calendar.set(Calendar.HOUR_OF_DAY, hour);
-        calendar.set(Calendar.MINUTE, minute);
-        calendar.set(Calendar.SECOND, 0);
-
-        // If it's already past this week's target, schedule for next week
-        if (calendar.getTimeInMillis() <= System.currentTimeMillis()) {
-            calendar.add(Calendar.WEEK_OF_YEAR, 1);
-        }
-
-        scheduleNotificationAtTime(context, notificationType, calendar.getTimeInMillis());
-    }
-
-    private static void scheduleNotificationAtTime(Context context, int notificationType, long timeInMillis) {
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        Intent intent = new Intent(context, SmartNotificationReceiver.class);
-        intent.putExtra("notification_type", notificationType);
-
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context,
-                notificationType,
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        if (alarmManager != null) {
-            alarmManager.setRepeating(
-                    AlarmManager.RTC_WAKEUP,
-                    timeInMillis,
-                    AlarmManager.INTERVAL_DAY,
-                    pendingIntent
-            );
-
-            Calendar cal = Calendar.getInstance();
-            cal.setTimeInMillis(timeInMillis);
-            Log.d(TAG, "Smart notification scheduled for: " + cal.getTime() + " (Type: " + notificationType + ")");
-        }
+    private static void scheduleWeeklyNotification(List<NotificationPlanner.Slot> slots, int notificationType, int dayOfWeek, int hour, int minute) {
+        slots.add(NotificationPlanner.Slot.weekly(notificationType, dayOfWeek, hour, minute));
     }
 
     public static void cancelAllNotifications(Context context) {
@@ -359,7 +216,6 @@ public class SmartNotificationScheduler {
         boolean prefersMorningMining = false;
         boolean prefersEveningMining = false;
         double engagementRate = 0.5;
-        int estimatedTimezone = 0;
         boolean isActiveUser = false;
         boolean isAtRiskOfChurn = false;
 
@@ -100,46 +100,61 @@ public class SmartNotificationService extends IntentService {
     protected void onHandleIntent(Intent intent) {
         if (intent != null) {
             int notificationType = intent.getIntExtra("notification_type", -1);
-            createNotificationChannel();
-            handleSmartNotification(notificationType);
+            evaluateBatch(this, new int[]{notificationType});
         }
     }
 
-    private void handleSmartNotification(int notificationType) {
-        // Check if user should receive this notification
-        if (!shouldSendNotification(notificationType)) {
-            Log.d(TAG, "Notification skipped based on smart logic: " + notificationType);
-            return;
+    /**
+     * Evaluate several due notification types in one wakeup. The fatigue
+     * gate (daily limit, recent app open) is checked once for the batch.
+     * Used by NotificationPlanner; legacy alarms go through onHandleIntent.
+     *
+     * @return the number of types evaluated, 0 when the gate skipped the batch
+     */
+    static int evaluateBatch(Context context, int[] notificationTypes) {
+        createNotificationChannel(context);
+
+        // Check if user should receive these notifications
+        if (!shouldSendNotification(context)) {
+            Log.d(TAG, "Notifications skipped based on smart logic: " + notificationTypes.length);
+            return 0;
         }
 
+        for (int notificationType : notificationTypes) {
+            handleSmartNotification(context, notificationType);
+        }
+        return notificationTypes.length;
+    }
+
+    private static void handleSmartNotification(Context context, int notificationType) {
         switch (notificationType) {
             case SmartNotificationScheduler.MINING_REMINDER:
-                checkAndSendMiningReminder();
+                checkAndSendMiningReminder(context);
                 break;
             case SmartNotificationScheduler.STREAK_BONUS:
-                checkAndSendStreakReminder();
+                checkAndSendStreakReminder(context);
                 break;
             case SmartNotificationScheduler.REFERRAL_REWARD:
-                checkAndSendReferralReminder();
+                checkAndSendReferralReminder(context);
                 break;
             case SmartNotificationScheduler.BOOST_AVAILABLE:
-                checkAndSendBoostReminder();
+                checkAndSendBoostReminder(context);
                 break;
             case SmartNotificationScheduler.WEEKLY_CHALLENGE:
-                sendWeeklyChallengeNotification();
+                sendWeeklyChallengeNotification(context);
                 break;
             case SmartNotificationScheduler.COMEBACK_REMINDER:
-                sendComebackNotification();
+                sendComebackNotification(context);
                 break;
             case SmartNotificationScheduler.ACHIEVEMENT_UNLOCK:
-                sendAchievementNotification();
+                sendAchievementNotification(context);
                 break;
         }
     }
 
-    private boolean shouldSendNotification(int notificationType) {
+    private static boolean shouldSendNotification(Context context) {
         // Smart logic to prevent notification fatigue
-        SharedPreferences prefs = getSharedPreferences("smart_notification_prefs", MODE_PRIVATE);
+        SharedPreferences prefs = context.getSharedPreferences("smart_notification_prefs", Context.MODE_PRIVATE);
 
         // Check daily notification limit
         String today = String.valueOf(System.currentTimeMillis() / (24 * 60 * 60 * 1000));
@@ -175,7 +190,7 @@ public class SmartNotificationService extends IntentService {
         return true;
     }
 
-    private void checkAndSendMiningReminder() {
+    private static void checkAndSendMiningReminder(Context context) {
         if (FirebaseAuth.getInstance().getCurrentUser() == null) return;
 
         String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
@@ -192,8 +207,8 @@ public class SmartNotificationService extends IntentService {
                     String title = messages[new Random().nextInt(messages.length / 2) * 2];
                     String message = messages[new Random().nextInt(messages.length / 2) * 2 + 1];
 
-                    sendSmartNotification(title, message, SmartNotificationScheduler.MINING_REMINDER);
-                    trackNotificationSent("mining_reminder");
+                    sendSmartNotification(context, title, message, SmartNotificationScheduler.MINING_REMINDER);
+                    trackNotificationSent(context, "mining_reminder");
                 }
             }
 
@@ -204,7 +219,7 @@ public class SmartNotificationService extends IntentService {
         });
     }
 
-    private void checkAndSendStreakReminder() {
+    private static void checkAndSendStreakReminder(Context context) {
         if (FirebaseAuth.getInstance().getCurrentUser() == null) return;
 
         String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
@@ -222,8 +237,8 @@ public class SmartNotificationService extends IntentService {
                     String title = messages[new Random().nextInt(messages.length / 2) * 2];
                     String message = messages[new Random().nextInt(messages.length / 2) * 2 + 1];
 
-                    sendSmartNotification(title, message, SmartNotificationScheduler.STREAK_BONUS);
-                    trackNotificationSent("streak_reminder");
+                    sendSmartNotification(context, title, message, SmartNotificationScheduler.STREAK_BONUS);
+                    trackNotificationSent(context, "streak_reminder");
                 }
             }
 
@@ -234,7 +249,7 @@ public class SmartNotificationService extends IntentService {
         });
     }
 
-    private void checkAndSendReferralReminder() {
+    private static void checkAndSendReferralReminder(Context context) {
         if (FirebaseAuth.getInstance().getCurrentUser() == null) return;
 
         String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
@@ -249,8 +264,8 @@ public class SmartNotificationService extends IntentService {
                     String title = messages[new Random().nextInt(messages.length / 2) * 2];
                     String message = messages[new Random().nextInt(messages.length / 2) * 2 + 1];
 
-                    sendSmartNotification(title, message, SmartNotificationScheduler.REFERRAL_REWARD);
-                    trackNotificationSent("referral_reminder");
+                    sendSmartNotification(context, title, message, SmartNotificationScheduler.REFERRAL_REWARD);
+                    trackNotificationSent(context, "referral_reminder");
                 }
             }
 
@@ -261,10 +276,10 @@ public class SmartNotificationService extends IntentService {
         });
     }
 
-    private void checkAndSendBoostReminder() {
-        SharedPreferences prefs = getSharedPreferences("TokenPrefs_" +
+    private static void checkAndSendBoostReminder(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences("TokenPrefs_" +
                 (FirebaseAuth.getInstance().getCurrentUser() != null ?
-                        FirebaseAuth.getInstance().getCurrentUser().getUid() : ""), MODE_PRIVATE);
+                        FirebaseAuth.getInstance().getCurrentUser().getUid() : ""), Context.MODE_PRIVATE);
 
         boolean isMiningActive = prefs.getBoolean("isMiningActive", false);
         boolean isBoostActive = prefs.getBoolean("isBoostActive", false);
@@ -274,48 +289,48 @@ public class SmartNotificationService extends IntentService {
             String title = messages[new Random().nextInt(messages.length / 2) * 2];
             String message = messages[new Random().nextInt(messages.length / 2) * 2 + 1];
 
-            sendSmartNotification(title, message, SmartNotificationScheduler.BOOST_AVAILABLE);
-            trackNotificationSent("boost_reminder");
+            sendSmartNotification(context, title, message, SmartNotificationScheduler.BOOST_AVAILABLE);
+            trackNotificationSent(context, "boost_reminder");
         }
     }
 
-    private void sendWeeklyChallengeNotification() {
+    private static void sendWeeklyChallengeNotification(Context context) {
         String[] messages = NOTIFICATION_MESSAGES[4];
         String title = messages[new Random().nextInt(messages.length / 2) * 2];
         String message = messages[new Random().nextInt(messages.length / 2) * 2 + 1];
 
-        sendSmartNotification(title, message, SmartNotificationScheduler.WEEKLY_CHALLENGE);
-        trackNotificationSent("weekly_challenge");
+        sendSmartNotification(context, title, message, SmartNotificationScheduler.WEEKLY_CHALLENGE);
+        trackNotificationSent(context, "weekly_challenge");
     }
 
-    private void sendComebackNotification() {
+    private static void sendComebackNotification(Context context) {
         String[] messages = NOTIFICATION_MESSAGES[5];
         String title = messages[new Random().nextInt(messages.length / 2) * 2];
         String message = messages[new Random().nextInt(messages.length / 2) * 2 + 1];
 
-        sendSmartNotification(title, message, SmartNotificationScheduler.COMEBACK_REMINDER);
-        trackNotificationSent("comeback_reminder");
+        sendSmartNotification(context, title, message, SmartNotificationScheduler.COMEBACK_REMINDER);
+        trackNotificationSent(context, "comeback_reminder");
     }
 
-    private void sendAchievementNotification() {
+    private static void sendAchievementNotification(Context context) {
         String[] messages = NOTIFICATION_MESSAGES[6];
         String title = messages[new Random().nextInt(messages.length / 2) * 2];
         String message = messages[new Random().nextInt(messages.length / 2) * 2 + 1];
 
-        sendSmartNotification(title, message, SmartNotificationScheduler.ACHIEVEMENT_UNLOCK);
-        trackNotificationSent("achievement_unlock");
+        sendSmartNotification(context, title, message, SmartNotificationScheduler.ACHIEVEMENT_UNLOCK);
+        trackNotificationSent(context, "achievement_unlock");
     }
 
-    private void sendSmartNotification(String title, String message, int notificationId) {
-        Intent intent = new Intent(this, MainActivity.class);
+    private static void sendSmartNotification(Context context, String title, String message, int notificationId) {
+        Intent intent = new Intent(context, MainActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
 
         PendingIntent pendingIntent = PendingIntent.getActivity(
-                this, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+                context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
 
-        Bitmap largeIcon = BitmapFactory.decodeResource(getResources(), R.drawable.logo);
+        Bitmap largeIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.logo);
 
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
                 .setSmallIcon(R.drawable.logo)
                 .setLargeIcon(largeIcon)
                 .setContentTitle(title)
@@ -329,14 +344,14 @@ public class SmartNotificationService extends IntentService {
                 .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
                 .setVibrate(new long[]{0, 200, 100, 200}); // Gentler vibration
 
-        NotificationManager notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
         if (notificationManager != null) {
             notificationManager.notify(notificationId, builder.build());
             Log.d(TAG, "Smart notification sent: " + title);
         }
     }
 
-    private void createNotificationChannel() {
+    private static void createNotificationChannel(Context context) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
                     CHANNEL_ID,
@@ -349,15 +364,15 @@ public class SmartNotificationService extends IntentService {
             channel.enableVibration(true);
             channel.setVibrationPattern(new long[]{0, 200, 100, 200});
 
-            NotificationManager notificationManager = getSystemService(NotificationManager.class);
+            NotificationManager notificationManager = context.getSystemService(NotificationManager.class);
             if (notificationManager != null) {
                 notificationManager.createNotificationChannel(channel);
             }
         }
     }
 
-    private void trackNotificationSent(String notificationType) {
-        SharedPreferences prefs = getSharedPreferences("notification_analytics", MODE_PRIVATE);
+    private static void trackNotificationSent(Context context, String notificationType) {
+        SharedPreferences prefs = context.getSharedPreferences("notification_analytics", Context.MODE_PRIVATE);
         int count = prefs.getInt(notificationType + "_sent", 0);
         prefs.edit().putInt(notificationType + "_sent", count + 1).apply();
 
@@ -375,7 +390,11 @@ public class SmartNotificationService extends IntentService {
     }
 
     public static void recordAppOpen(Context context) {
+        long now = System.currentTimeMillis();
         SharedPreferences prefs = context.getSharedPreferences("smart_notification_prefs", Context.MODE_PRIVATE);
-        prefs.edit().putLong("last_app_open", System.currentTimeMillis()).apply();
+        prefs.edit().putLong("last_app_open", now).apply();
+
+        // Feed the on-device model used for scheduling
+        UserBehaviorModel.getInstance(context).recordAppOpen(now);
     }
 }
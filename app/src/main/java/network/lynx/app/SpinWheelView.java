@@ -1,36 +1,30 @@
 package network.lynx.app;
 
-import static android.content.Context.MODE_PRIVATE;
-
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.media.MediaPlayer;
 import android.util.AttributeSet;
+import android.util.Log;
+import android.view.Display;
 import android.view.View;
 import android.view.animation.DecelerateInterpolator;
-import android.widget.Toast;
-
-import androidx.annotation.NonNull;
-
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 
+import java.util.Locale;
 import java.util.Random;
 
 public class SpinWheelView extends View {
 
-    private Paint paint, textPaint, centerPaint;
+    private static final String TAG = "SpinWheelView";
+    private static final long SPIN_DURATION_MS = 4000;
+
+    private Paint paint, textPaint, centerPaint, smallCirclePaint, bitmapPaint;
     private int[] colors = {
             Color.parseColor("#F94144"),
             Color.parseColor("#F3722C"),
@@ -44,10 +38,19 @@ public class SpinWheelView extends View {
     private float angle = 0;
     private boolean spinning = false;
     private MediaPlayer spinSound;
-    private DatabaseReference databaseReference;
-    private FirebaseAuth auth;
-    private SharedPreferences sharedPreferences;
-    private FirebaseUser currentUser;
+    private final Random random = new Random(); // where in the segment to stop - cosmetic only
+
+    // The static wheel face, rasterized once per size and label set; frames only rotate it
+    private Bitmap wheelBitmap;
+    private final Matrix wheelMatrix = new Matrix();
+
+    // Frame timing for the current spin
+    private long lastFrameNanos;
+    private int spinFrames;
+    private int slowFrames;
+    private long maxFrameNanos;
+    private long totalFrameNanos;
+    private long frameBudgetNanos;
 
     public SpinWheelView(Context context, AttributeSet attrs) {
         super(context, attrs);
@@ -62,60 +65,168 @@ public class SpinWheelView extends View {
         centerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
         centerPaint.setColor(Color.parseColor("#1E2237")); // Matches your background
 
+        smallCirclePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        smallCirclePaint.setColor(Color.WHITE);
+
+        bitmapPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+
         spinSound = MediaPlayer.create(context, R.raw.spin); // Add spin.mp3 in res/raw
     }
 
+    /**
+     * Replace the segment labels; the cached wheel face is rebuilt on the next frame.
+     */
+    public void setLabels(String[] labels) {
+        this.labels = labels;
+        releaseWheelBitmap();
+        invalidate();
+    }
+
     @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-        int w = getWidth(), h = getHeight();
-        float radius = Math.min(w, h) / 2 - 20;
-        float centerX = w / 2f, centerY = h / 2f;
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        releaseWheelBitmap();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        releaseWheelBitmap();
+    }
+
+    private void releaseWheelBitmap() {
+        if (wheelBitmap != null) {
+            wheelBitmap.recycle();
+            wheelBitmap = null;
+        }
+    }
+
+    /**
+     * Draw the whole wheel - segments, labels, center circle and dot - into
+     * a square bitmap centred on the wheel. The circles are symmetric, so
+     * rotating the bitmap is the same as rotating the segments.
+     */
+    private void buildWheelBitmap(int w, int h) {
+        int size = Math.min(w, h);
+        wheelBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(wheelBitmap);
+
+        float radius = size / 2 - 20;
+        float center = size / 2f;
         float sweepAngle = 360f / labels.length;
 
-        canvas.save();
-        canvas.rotate(angle, centerX, centerY);
         for (int i = 0; i < labels.length; i++) {
-            paint.setColor(colors[i]);
-            canvas.drawArc(centerX - radius, centerY - radius, centerX + radius, centerY + radius,
+            paint.setColor(colors[i % colors.length]);
+            canvas.drawArc(center - radius, center - radius, center + radius, center + radius,
                     i * sweepAngle, sweepAngle, true, paint);
 
             float textAngle = (i + 0.5f) * sweepAngle;
-            float textX = (float) (centerX + radius / 1.5 * Math.cos(Math.toRadians(textAngle)));
-            float textY = (float) (centerY + radius / 1.5 * Math.sin(Math.toRadians(textAngle)));
+            float textX = (float) (center + radius / 1.5 * Math.cos(Math.toRadians(textAngle)));
+            float textY = (float) (center + radius / 1.5 * Math.sin(Math.toRadians(textAngle)));
             canvas.save();
             canvas.rotate(textAngle, textX, textY);
             canvas.drawText(labels[i], textX, textY, textPaint);
             canvas.restore();
         }
-        canvas.restore();
 
         // Center Circle
-        float centerRadius = radius / 3;
-        canvas.drawCircle(centerX, centerY, centerRadius, centerPaint);
+        canvas.drawCircle(center, center, radius / 3, centerPaint);
 
         // White dot in center
-        Paint smallCirclePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        smallCirclePaint.setColor(Color.WHITE);
-        canvas.drawCircle(centerX, centerY, 25, smallCirclePaint);
+        canvas.drawCircle(center, center, 25, smallCirclePaint);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int w = getWidth(), h = getHeight();
+        if (w == 0 || h == 0) return;
+
+        if (wheelBitmap == null) {
+            buildWheelBitmap(w, h);
+        }
+
+        // One matrix per frame: rotate about the bitmap centre, then centre it in the view
+        float half = wheelBitmap.getWidth() / 2f;
+        wheelMatrix.setRotate(angle, half, half);
+        wheelMatrix.postTranslate(w / 2f - half, h / 2f - half);
+        canvas.drawBitmap(wheelBitmap, wheelMatrix, bitmapPaint);
+
+        if (spinning) {
+            recordFrame();
+        }
+    }
+
+    private void recordFrame() {
+        long now = System.nanoTime();
+        if (lastFrameNanos != 0) {
+            long frame = now - lastFrameNanos;
+            spinFrames++;
+            totalFrameNanos += frame;
+            if (frame > maxFrameNanos) maxFrameNanos = frame;
+            // More than one and a half refresh intervals means a frame was dropped
+            if (frame > frameBudgetNanos * 3 / 2) slowFrames++;
+        }
+        lastFrameNanos = now;
+    }
+
+    private long displayFrameNanos() {
+        Display display = getDisplay();
+        float refreshRate = display != null ? display.getRefreshRate() : 60f;
+        return (long) (1_000_000_000L / (refreshRate > 0 ? refreshRate : 60f));
+    }
+
+    private void resetFrameStats() {
+        frameBudgetNanos = displayFrameNanos();
+        lastFrameNanos = 0;
+        spinFrames = 0;
+        slowFrames = 0;
+        maxFrameNanos = 0;
+        totalFrameNanos = 0;
+    }
+
+    private void logFrameStats() {
+        if (spinFrames == 0) return;
+        Log.d(TAG, String.format(Locale.US,
+                "Spin rendered %d frames, avg %.1f ms, max %.1f ms, %d slow (budget %.1f ms)",
+                spinFrames, totalFrameNanos / 1e6 / spinFrames, maxFrameNanos / 1e6,
+                slowFrames, frameBudgetNanos / 1e6));
+    }
+
+    /**
+     * Frames of the last spin that took longer than 1.5x the display's refresh interval.
+     */
+    public int getLastSpinSlowFrames() {
+        return slowFrames;
     }
 
-    public void spin() {
+    public int getLastSpinFrames() {
+        return spinFrames;
+    }
+
+    /**
+     * Spin and come to rest on the given segment. The outcome is decided by
+     * the caller (RewardEngine); the wheel only shows it.
+     *
+     * @param onLanded run on the main thread once the wheel has stopped, may be null
+     */
+    public void spinTo(int segment, Runnable onLanded) {
         if (spinning) return;
 
         if (spinSound != null) spinSound.start();
 
         spinning = true;
-        float sweep = 360f / labels.length;
 
-        float randomAngle = new Random().nextFloat() * 360;
-        float targetAngle = 360 * 5 + randomAngle; // 5 full rotations + random stop
-        ValueAnimator animator = ValueAnimator.ofFloat(angle, angle + targetAngle);
-        animator.setDuration(4000);
+        // Stop somewhere inside the segment, away from its edges
+        float startAngle = angle;
+        float targetAngle = spinDistance(startAngle, segment, labels.length, 0.15f + random.nextFloat() * 0.7f);
+        ValueAnimator animator = ValueAnimator.ofFloat(0f, 1f);
+        animator.setDuration(SPIN_DURATION_MS);
         animator.setInterpolator(new DecelerateInterpolator());
 
+        resetFrameStats();
         animator.addUpdateListener(animation -> {
-            angle = (float) animation.getAnimatedValue() % 360;
+            angle = (startAngle + animation.getAnimatedFraction() * targetAngle) % 360;
             invalidate();
         });
 
@@ -123,58 +234,38 @@ public class SpinWheelView extends View {
             @Override
             public void onAnimationEnd(Animator animation) {
                 spinning = false;
-
-                float adjustedAngle = (360 - angle + 270) % 360;
-
-                int landedIndex = (int) (adjustedAngle / sweep);
-                String reward = labels[landedIndex];
-
-                ToastUtils.showInfo(getContext(), "You won: " + reward);
-
-                sharedPreferences = getContext().getSharedPreferences("userData", MODE_PRIVATE);
-                auth = FirebaseAuth.getInstance();
-                currentUser = auth.getCurrentUser();
-                String userId = sharedPreferences.getString("userid", null);
-
-                if (currentUser != null && userId != null && !userId.isEmpty()) {
-                    databaseReference = FirebaseDatabase.getInstance().getReference("users").child(userId);
-
-                    int coinsWon = 0;
-                    if (reward.equals("10 Coins")) coinsWon = 10;
-                    else if (reward.equals("50 Coins")) coinsWon = 50;
-                    else if (reward.equals("100 Coins")) coinsWon = 100;
-                    else if (reward.equals("5 Coins")) coinsWon = 5;
-
-                    if (coinsWon > 0) {
-                        int finalCoinsWon = coinsWon;
-                        databaseReference.child("totalcoins").addListenerForSingleValueEvent(new ValueEventListener() {
-                            @Override
-                            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                                Double currentCoins = snapshot.getValue(Double.class);
-                                if (currentCoins == null) currentCoins = 0.0;
-                                Double updatedCoins = currentCoins + finalCoinsWon;
-
-                                databaseReference.child("totalcoins").setValue(updatedCoins)
-                                        .addOnSuccessListener(aVoid -> {
-                                            ToastUtils.showInfo(getContext(), "+ " + finalCoinsWon + " Coins!");
-                                        })
-                                        .addOnFailureListener(e -> {
-                                            ToastUtils.showInfo(getContext(), "Failed to update coins");
-                                        });
-                            }
-
-                            @Override
-                            public void onCancelled(@NonNull DatabaseError error) {
-                                ToastUtils.showInfo(getContext(), "Error: " + error.getMessage());
-                            }
-                        });
-                    }
-                } else {
-                    ToastUtils.showInfo(getContext(), "User not logged in");
-                }
+                logFrameStats();
+                if (onLanded != null) onLanded.run();
             }
         });
 
         animator.start();
     }
+
+    /**
+     * Rotation from {@code startAngle} that leaves the pointer at
+     * {@code position} (0..1) across the segment, after 5 full rotations.
+     * The pointer reads (630 - angle) % 360.
+     */
+    static float spinDistance(float startAngle, int segment, int segments, float position) {
+        float pointerAngle = (segment + position) * (360f / segments);
+        float finalAngle = (630 - pointerAngle) % 360;
+        return 360 * 5 + ((finalAngle - startAngle) % 360 + 360) % 360;
+    }
+
+    /**
+     * Segment under the pointer when the wheel is at {@code angle}.
+     */
+    static int segmentAt(float angle, int segments) {
+        float pointerAngle = ((630 - angle) % 360 + 360) % 360;
+        return (int) (pointerAngle / (360f / segments)) % segments;
+    }
+
+    public boolean isSpinning() {
+        return spinning;
+    }
+
+    public int getSegmentCount() {
+        return labels.length;
+    }
 }
@@ -0,0 +1,476 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * STREAK ENGINE - Day-boundary streaks for every feature
+ *
+ * - A day is an integer epoch day in the device's time zone (UTC millis
+ *   plus the zone offset at that instant), so yesterday is day - 1 and a
+ *   gap is a subtraction - no date strings, no SimpleDateFormat
+ * - Each feature has one compact record at streaks/{uid}/{kind}:
+ *   d = last claimed day, c = current count, b = best count
+ * - A claim is one multi-path write: the new record plus whatever the
+ *   claim pays out. The database rules only accept a record whose day
+ *   moves forward, so a second claim for the same day fails server-side
+ * - Records are read once per session and mirrored in prefs; features
+ *   read them from memory
+ * - Streaks kept before this engine (feature prefs, users/{uid}/lastDate)
+ *   are folded in once, for kinds that have no record yet
+ */
+public class StreakEngine {
+    private static final String TAG = "StreakEngine";
+    private static final String PREFS_NAME = "streak_engine_";
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    public static final String DAILY = "daily";        // Home check-in
+    public static final String MINING = "mining";
+    public static final String SPIN = "spin";
+    public static final String CHECK_IN = "checkIn";   // Rewards hub check-in calendar
+    public static final String MISSIONS = "missions";
+    public static final String LOGIN = "login";        // Weekly login calendar
+
+    private static StreakEngine instance;
+
+    private final SharedPreferences prefs;
+    private final Context context;
+    @Nullable
+    private final String userId;
+    private final DatabaseReference rootRef;
+
+    private final Map<String, Record> records = new HashMap<>();
+    private final Set<String> claiming = new HashSet<>();
+    private final List<Runnable> waitingForLoad = new ArrayList<>();
+    private boolean loaded;
+    private boolean loading;
+
+    public static class Record {
+        public final int lastDay;
+        public final int count;
+        public final int best;
+
+        Record(int lastDay, int count, int best) {
+            this.lastDay = lastDay;
+            this.count = count;
+            this.best = best;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("d", lastDay);
+            map.put("c", count);
+            map.put("b", best);
+            return map;
+        }
+
+        @Nullable
+        static Record fromSnapshot(DataSnapshot snapshot) {
+            Long d = snapshot.child("d").getValue(Long.class);
+            Long c = snapshot.child("c").getValue(Long.class);
+            Long b = snapshot.child("b").getValue(Long.class);
+            if (d == null || c == null) return null;
+            return new Record(d.intValue(), c.intValue(), b != null ? b.intValue() : c.intValue());
+        }
+
+        String encode() {
+            return lastDay + "," + count + "," + best;
+        }
+
+        @Nullable
+        static Record decode(@Nullable String encoded) {
+            if (encoded == null) return null;
+            String[] parts = encoded.split(",");
+            if (parts.length != 3) return null;
+            try {
+                return new Record(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Adds the writes that go with a claim (rewards, legacy mirrors) to the
+     * claim's multi-path update. Paths are relative to the database root.
+     */
+    public interface UpdatesBuilder {
+        void addUpdates(int newCount, Map<String, Object> updates);
+    }
+
+    public interface ClaimCallback {
+        void onClaimed(int newCount);
+        void onAlreadyClaimed();
+        void onError(String message);
+    }
+
+    private StreakEngine(Context context, @Nullable String userId) {
+        this.context = context.getApplicationContext();
+        this.userId = userId;
+        this.prefs = this.context.getSharedPreferences(PREFS_NAME + userId, Context.MODE_PRIVATE);
+        this.rootRef = FirebaseDatabase.getInstance().getReference();
+
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            Record record = Record.decode(String.valueOf(entry.getValue()));
+            if (record != null) records.put(entry.getKey(), record);
+        }
+    }
+
+    public static synchronized StreakEngine getInstance(Context context) {
+        String uid = FirebaseAuth.getInstance().getCurrentUser() != null
+                ? FirebaseAuth.getInstance().getCurrentUser().getUid() : null;
+        if (instance == null || (uid != null && !uid.equals(instance.userId))) {
+            instance = new StreakEngine(context, uid);
+            if (uid != null) instance.whenLoaded(null);
+        }
+        return instance;
+    }
+
+    public static synchronized void resetInstance() {
+        instance = null;
+    }
+
+    // ============================================
+    // CALENDAR ARITHMETIC
+    // ============================================
+
+    public static int today() {
+        return epochDay(System.currentTimeMillis(), TimeZone.getDefault());
+    }
+
+    public static int epochDay(long millis, TimeZone zone) {
+        return (int) Math.floorDiv(millis + zone.getOffset(millis), DAY_MS);
+    }
+
+    /**
+     * UTC millis at which the given local day starts.
+     */
+    public static long startOfDay(int day, TimeZone zone) {
+        long localMidnight = day * DAY_MS;
+        long guess = localMidnight - zone.getOffset(localMidnight);
+        return localMidnight - zone.getOffset(guess);
+    }
+
+    /**
+     * 0 = Sunday ... 6 = Saturday. Epoch day 0 was a Thursday.
+     */
+    public static int dayOfWeek(int day) {
+        return Math.floorMod(day + 4, 7);
+    }
+
+    /**
+     * Epoch day of a "yyyy-MM-dd" or "yyyyMMdd" string, or -1.
+     */
+    public static int parseDay(@Nullable String date) {
+        if (date == null) return -1;
+        String digits = date.length() == 10 && date.charAt(4) == '-' && date.charAt(7) == '-'
+                ? date.substring(0, 4) + date.substring(5, 7) + date.substring(8, 10)
+                : date;
+        if (digits.length() != 8) return -1;
+        for (int i = 0; i < 8; i++) {
+            if (!Character.isDigit(digits.charAt(i))) return -1;
+        }
+        int year = Integer.parseInt(digits.substring(0, 4));
+        int month = Integer.parseInt(digits.substring(4, 6));
+        int dayOfMonth = Integer.parseInt(digits.substring(6, 8));
+        if (month < 1 || month > 12 || dayOfMonth < 1 || dayOfMonth > 31) return -1;
+        return daysFromCivil(year, month, dayOfMonth);
+    }
+
+    /**
+     * "yyyy-MM-dd" (dashed) or "yyyyMMdd" for an epoch day, for the date
+     * strings older screens still store.
+     */
+    public static String formatDay(int day, boolean dashed) {
+        int[] ymd = civilFromDays(day);
+        return String.format(Locale.US, dashed ? "%04d-%02d-%02d" : "%04d%02d%02d", ymd[0], ymd[1], ymd[2]);
+    }
+
+    // Proleptic Gregorian calendar <-> days since 1970-01-01 (H. Hinnant's algorithms)
+    static int daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        int era = (year >= 0 ? year : year - 399) / 400;
+        int yoe = year - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    static int[] civilFromDays(int days) {
+        days += 719468;
+        int era = (days >= 0 ? days : days - 146096) / 146097;
+        int doe = days - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp + (mp < 10 ? 3 : -9);
+        return new int[]{yoe + era * 400 + (month <= 2 ? 1 : 0), month, day};
+    }
+
+    /**
+     * Count a claim today would produce, or -1 when today is already claimed.
+     * A gap of up to 1 + graceDays days continues the streak.
+     */
+    static int nextCount(@Nullable Record record, int today, int graceDays) {
+        if (record == null) return 1;
+        int gap = today - record.lastDay;
+        if (gap <= 0) return -1;
+        return gap <= 1 + graceDays ? record.count + 1 : 1;
+    }
+
+    // ============================================
+    // CACHED READS
+    // ============================================
+
+    @Nullable
+    public synchronized Record get(String kind) {
+        return records.get(kind);
+    }
+
+    /**
+     * The streak as of today: its count while it can still be continued, 0 once broken.
+     */
+    public synchronized int current(String kind, int graceDays) {
+        Record record = records.get(kind);
+        if (record == null) return 0;
+        return today() - record.lastDay <= 1 + graceDays ? record.count : 0;
+    }
+
+    public synchronized int best(String kind) {
+        Record record = records.get(kind);
+        return record != null ? record.best : 0;
+    }
+
+    public synchronized boolean claimedToday(String kind) {
+        Record record = records.get(kind);
+        return record != null && record.lastDay >= today();
+    }
+
+    /**
+     * Run once the server records have been read (immediately if they have).
+     */
+    public void whenLoaded(@Nullable Runnable action) {
+        boolean fetch = false;
+        synchronized (this) {
+            if (!loaded) {
+                if (action != null) waitingForLoad.add(action);
+                if (!loading && userId != null) {
+                    loading = true;
+                    fetch = true;
+                }
+                action = null;
+            }
+        }
+        if (action != null) action.run();
+        if (fetch) fetch();
+    }
+
+    // ============================================
+    // CLAIMS
+    // ============================================
+
+    /**
+     * Claim today for a streak and apply the claim's other writes atomically.
+     */
+    public void claim(String kind, int graceDays, @Nullable UpdatesBuilder builder, ClaimCallback callback) {
+        if (userId == null) {
+            callback.onError("Not logged in");
+            return;
+        }
+
+        whenLoaded(() -> {
+            int today = today();
+            Record previous;
+            synchronized (this) {
+                if (!claiming.add(kind)) {
+                    callback.onAlreadyClaimed();
+                    return;
+                }
+                previous = records.get(kind);
+            }
+
+            int count = nextCount(previous, today, graceDays);
+            if (count < 0) {
+                synchronized (this) {
+                    claiming.remove(kind);
+                }
+                callback.onAlreadyClaimed();
+                return;
+            }
+
+            Record next = new Record(today, count, Math.max(count, previous != null ? previous.best : 0));
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("streaks/" + userId + "/" + kind, next.toMap());
+            if (builder != null) builder.addUpdates(count, updates);
+
+            rootRef.updateChildren(updates)
+                    .addOnSuccessListener(aVoid -> {
+                        synchronized (this) {
+                            claiming.remove(kind);
+                        }
+                        store(kind, next);
+                        Log.d(TAG, kind + " streak claimed: " + count);
+                        callback.onClaimed(count);
+                    })
+                    .addOnFailureListener(e -> {
+                        // The rules reject a day that does not move forward - most likely
+                        // another device claimed today first
+                        Log.w(TAG, "Claim of " + kind + " rejected", e);
+                        refresh(kind, () -> {
+                            synchronized (this) {
+                                claiming.remove(kind);
+                            }
+                            if (claimedToday(kind)) {
+                                callback.onAlreadyClaimed();
+                            } else {
+                                callback.onError(e.getMessage());
+                            }
+                        });
+                    });
+        });
+    }
+
+    private void store(String kind, Record record) {
+        synchronized (this) {
+            records.put(kind, record);
+        }
+        prefs.edit().putString(kind, record.encode()).apply();
+    }
+
+    private void refresh(String kind, Runnable then) {
+        rootRef.child("streaks").child(userId).child(kind)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        Record record = Record.fromSnapshot(snapshot);
+                        if (record != null) store(kind, record);
+                        then.run();
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        then.run();
+                    }
+                });
+    }
+
+    // ============================================
+    // LOADING AND ONE-TIME MIGRATION
+    // ============================================
+
+    private void fetch() {
+        rootRef.child("streaks").child(userId).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                Set<String> onServer = new HashSet<>();
+                for (DataSnapshot child : snapshot.getChildren()) {
+                    Record record = Record.fromSnapshot(child);
+                    if (record != null && child.getKey() != null) {
+                        store(child.getKey(), record);
+                        onServer.add(child.getKey());
+                    }
+                }
+                migrateLegacy(onServer);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                // Work from the prefs copy; claims are still checked by the rules
+                Log.e(TAG, "Failed to load streaks", error.toException());
+                finishLoad();
+            }
+        });
+    }
+
+    /**
+     * Seed kinds that have no server record from the state the features
+     * used to keep themselves. Runs until every kind has a record.
+     */
+    private void migrateLegacy(Set<String> onServer) {
+        Map<String, Object> seeds = new HashMap<>();
+        seedFromPrefs(seeds, onServer, MINING, "MiningStreak_" + userId, "lastMiningDate", "currentStreak", "longestStreak");
+        seedFromPrefs(seeds, onServer, SPIN, "spinPrefs_" + userId, "lastStreakDate", "spinStreak", null);
+        seedFromPrefs(seeds, onServer, CHECK_IN, "DailyEvents_" + userId, "lastCheckIn", "checkInStreak", "longestStreak");
+        seedFromPrefs(seeds, onServer, MISSIONS, "daily_missions", "lastMissionDate", "missionStreak", null);
+
+        if (onServer.contains(DAILY)) {
+            writeSeeds(seeds);
+            return;
+        }
+
+        DatabaseReference userRef = rootRef.child("users").child(userId);
+        Task<DataSnapshot> lastDate = userRef.child("lastDate").get();
+        Task<DataSnapshot> streakCount = userRef.child("streakCount").get();
+        Tasks.whenAllComplete(lastDate, streakCount).addOnCompleteListener(done -> {
+            if (lastDate.isSuccessful() && streakCount.isSuccessful()) {
+                int day = parseDay(lastDate.getResult().getValue(String.class));
+                Long count = streakCount.getResult().getValue(Long.class);
+                if (day >= 0 && count != null && count > 0) {
+                    Record record = new Record(day, count.intValue(), count.intValue());
+                    seeds.put(DAILY, record.toMap());
+                    store(DAILY, record);
+                }
+            }
+            writeSeeds(seeds);
+        });
+    }
+
+    private void seedFromPrefs(Map<String, Object> seeds, Set<String> onServer, String kind, String prefsName,
+                               String dateKey, String countKey, @Nullable String bestKey) {
+        if (onServer.contains(kind)) return;
+        SharedPreferences legacy = context.getSharedPreferences(prefsName, Context.MODE_PRIVATE);
+        int day = parseDay(legacy.getString(dateKey, null));
+        int count = legacy.getInt(countKey, 0);
+        if (day < 0 || count <= 0) return;
+
+        int best = bestKey != null ? Math.max(count, legacy.getInt(bestKey, 0)) : count;
+        Record record = new Record(day, count, best);
+        seeds.put(kind, record.toMap());
+        store(kind, record);
+    }
+
+    private void writeSeeds(Map<String, Object> seeds) {
+        if (!seeds.isEmpty()) {
+            rootRef.child("streaks").child(userId).updateChildren(seeds)
+                    .addOnSuccessListener(aVoid -> Log.d(TAG, "Folded in " + seeds.size() + " legacy streaks"))
+                    .addOnFailureListener(e -> Log.e(TAG, "Failed to write legacy streaks", e));
+        }
+        finishLoad();
+    }
+
+    private void finishLoad() {
+        List<Runnable> actions;
+        synchronized (this) {
+            loaded = true;
+            loading = false;
+            actions = new ArrayList<>(waitingForLoad);
+            waitingForLoad.clear();
+        }
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+}
@@ -32,7 +32,9 @@ public class StreakViewModel extends ViewModel {
             return;
         }
 
+        // Count of the daily check-in record kept by StreakEngine
         FirebaseDatabase.getInstance().getReference("streaks").child(userId)
+                .child(StreakEngine.DAILY).child("c")
                 .addListenerForSingleValueEvent(new ValueEventListener() {
                     @Override
                     public void onDataChange(@NonNull DataSnapshot snapshot) {
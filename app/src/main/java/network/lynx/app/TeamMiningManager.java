@@ -2,6 +2,8 @@ package network.lynx.app;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -11,11 +13,18 @@ import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
 
 /**
  * TEAM MINING SYSTEM - Inspired by Bee Network
@@ -28,6 +37,10 @@ import java.util.List;
  * - Team earns collective points based on member activity
  * - Weekly team leaderboard with rewards
  * - Team boosts mining for all members
+ * - Contributions are coalesced locally and flushed as server-side
+ *   increments; weekly totals roll over lazily per team
+ * - The leaderboard reads a per-week teamRankings projection, and the
+ *   team's rank is cached so the boost never needs a leaderboard download
  */
 public class TeamMiningManager {
     private static final String TAG = "TeamMiningManager";
@@ -39,6 +52,33 @@ public class TeamMiningManager {
     public static final float BOOST_PER_ACTIVE_MEMBER = 0.005f; // 0.5% per active member
     public static final float MAX_MEMBER_BOOST = 0.25f; // 25% max from members
 
+    // Contribution coalescing: pendingContribution_{teamId} = double bits
+    private static final String KEY_PENDING_AMOUNT = "pendingContribution_";
+    private static final long FLUSH_DELAY_MS = 30 * 1000;
+    private static final float FLUSH_THRESHOLD = 10f;
+
+    // Weekly ranking projection: teamRankings/{weekKey}/{teamId} = {name, memberCount, weeklyMined}
+    private static final String RANKINGS_NODE = "teamRankings";
+    private static final int RANKED_TEAMS = 10; // only the top 10 earn a rank bonus
+    private static final long RANK_TTL_MS = 15 * 60 * 1000;
+    private static final String KEY_RANK_TEAM = "rankTeamId";
+    private static final String KEY_RANK_WEEK = "rankWeek";
+    private static final String KEY_RANK = "rank";
+    private static final String KEY_RANK_FETCHED = "rankFetchedAt";
+
+    /**
+     * Competition week, e.g. "2026W42". Deliberately one global boundary
+     * (ISO week, UTC): all teams are ranked against each other, and one
+     * team's members can live in different time zones.
+     */
+    static String weekKey(long timestamp) {
+        Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        cal.setFirstDayOfWeek(Calendar.MONDAY);
+        cal.setMinimalDaysInFirstWeek(4);
+        cal.setTimeInMillis(timestamp);
+        return cal.getWeekYear() + "W" + cal.get(Calendar.WEEK_OF_YEAR);
+    }
+
     private static TeamMiningManager instance;
     private final Context context;
     private final SharedPreferences prefs;
@@ -48,6 +88,11 @@ public class TeamMiningManager {
     private Team currentTeam;
     private TeamUpdateListener listener;
 
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flushContributions;
+    private final List<String> flushesInFlight = new ArrayList<>();
+    private boolean rankRefreshInFlight;
+
     public static class Team {
         public String teamId;
         public String name;
@@ -61,6 +106,7 @@ public class TeamMiningManager {
         public double weeklyMined;
         public int weeklyRank;
         public boolean isOpen;
+        public String weekKey;
 
         public Team() {}
 
@@ -71,6 +117,7 @@ public class TeamMiningManager {
         }
 
         private float getRankBonus() {
+            if (weeklyRank <= 0) return 0f; // unranked
             if (weeklyRank == 1) return 0.50f;
             if (weeklyRank == 2) return 0.40f;
             if (weeklyRank == 3) return 0.30f;
@@ -155,8 +202,16 @@ public class TeamMiningManager {
                     currentTeam = snapshot.getValue(Team.class);
                     if (currentTeam != null) {
                         currentTeam.teamId = teamId;
+                        if (teamId.equals(prefs.getString(KEY_RANK_TEAM, null))) {
+                            currentTeam.weeklyRank = prefs.getInt(KEY_RANK, 0);
+                        }
                         prefs.edit().putString("teamId", teamId).apply();
 
+                        // Contributions coalesced before the app was last closed
+                        if (!pendingTeams().isEmpty()) {
+                            scheduleFlush();
+                        }
+
                         if (listener != null) {
                             listener.onTeamUpdated(currentTeam);
                         }
@@ -213,6 +268,7 @@ public class TeamMiningManager {
                         newTeam.memberCount = 1;
                         newTeam.activeMembers = 1;
                         newTeam.isOpen = isOpen;
+                        newTeam.weekKey = weekKey(newTeam.createdTime);
 
                         String finalUsername = username;
                         dbRef.child("teams").child(teamId).setValue(newTeam)
@@ -277,7 +333,7 @@ public class TeamMiningManager {
                     return;
                 }
 
-                addUserToTeam(teamId, team.memberCount, callback);
+                addUserToTeam(teamId, callback);
             }
 
             @Override
@@ -287,7 +343,7 @@ public class TeamMiningManager {
         });
     }
 
-    private void addUserToTeam(String teamId, int currentMemberCount, JoinTeamCallback callback) {
+    private void addUserToTeam(String teamId, JoinTeamCallback callback) {
         dbRef.child("users").child(currentUserId).child("username")
                 .addListenerForSingleValueEvent(new ValueEventListener() {
                     @Override
@@ -303,16 +359,15 @@ public class TeamMiningManager {
                         member.joinedTime = System.currentTimeMillis();
                         member.role = "member";
 
-                        dbRef.child("teams").child(teamId).child("members")
-                                .child(currentUserId).setValue(member);
+                        // One write, so the rules can tie the count change to the member entry
+                        Map<String, Object> updates = new HashMap<>();
+                        updates.put("teams/" + teamId + "/members/" + currentUserId, member);
+                        updates.put("teams/" + teamId + "/memberCount", ServerValue.increment(1));
+                        updates.put("users/" + currentUserId + "/teamId", teamId);
 
-                        dbRef.child("teams").child(teamId).child("memberCount")
-                                .setValue(currentMemberCount + 1);
-
-                        dbRef.child("users").child(currentUserId)
-                                .child("teamId").setValue(teamId);
-
-                        callback.onSuccess();
+                        dbRef.updateChildren(updates)
+                                .addOnSuccessListener(aVoid -> callback.onSuccess())
+                                .addOnFailureListener(e -> callback.onError(e.getMessage()));
                     }
 
                     @Override
@@ -331,15 +386,16 @@ public class TeamMiningManager {
         String teamId = currentTeam.teamId;
         boolean isCaptain = currentUserId.equals(currentTeam.captainId);
 
-        dbRef.child("teams").child(teamId).child("members")
-                .child(currentUserId).removeValue()
-                .addOnSuccessListener(aVoid -> {
-                    dbRef.child("teams").child(teamId).child("memberCount")
-                            .setValue(Math.max(0, currentTeam.memberCount - 1));
+        // Credit what is still coalesced before the member entry goes away
+        flushContributions();
 
-                    dbRef.child("users").child(currentUserId)
-                            .child("teamId").removeValue();
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("teams/" + teamId + "/members/" + currentUserId, null);
+        updates.put("teams/" + teamId + "/memberCount", ServerValue.increment(-1));
+        updates.put("users/" + currentUserId + "/teamId", null);
 
+        dbRef.updateChildren(updates)
+                .addOnSuccessListener(aVoid -> {
                     if (isCaptain && currentTeam.memberCount <= 1) {
                         dbRef.child("teams").child(teamId).removeValue();
                     }
@@ -351,8 +407,13 @@ public class TeamMiningManager {
                 .addOnFailureListener(e -> callback.onError(e.getMessage()));
     }
 
+    /**
+     * This week's top teams from the teamRankings projection - name,
+     * memberCount and weeklyMined only, already ordered by the index.
+     */
     public void getLeaderboard(int limit, LeaderboardCallback callback) {
-        dbRef.child("teams").orderByChild("weeklyMined").limitToLast(limit)
+        String weekKey = weekKey(System.currentTimeMillis());
+        dbRef.child(RANKINGS_NODE).child(weekKey).orderByChild("weeklyMined").limitToLast(limit)
                 .addListenerForSingleValueEvent(new ValueEventListener() {
                     @Override
                     public void onDataChange(@NonNull DataSnapshot snapshot) {
@@ -365,12 +426,15 @@ public class TeamMiningManager {
                             }
                         }
 
-                        Collections.sort(teams, (a, b) -> Double.compare(b.weeklyMined, a.weeklyMined));
-
+                        // Ascending from the query - highest first for display
+                        Collections.reverse(teams);
                         for (int i = 0; i < teams.size(); i++) {
                             teams.get(i).weeklyRank = i + 1;
                         }
 
+                        if (limit >= RANKED_TEAMS) {
+                            cacheRank(weekKey, teams);
+                        }
                         callback.onSuccess(teams);
                     }
 
@@ -381,34 +445,246 @@ public class TeamMiningManager {
                 });
     }
 
+    /**
+     * Record the current team's position from a top-RANKED_TEAMS result;
+     * outside it the rank bonus is zero, so the exact position doesn't matter.
+     */
+    private void cacheRank(String weekKey, List<Team> ranked) {
+        if (currentTeam == null) return;
+
+        int rank = 0;
+        for (int i = 0; i < ranked.size() && i < RANKED_TEAMS; i++) {
+            if (currentTeam.teamId.equals(ranked.get(i).teamId)) {
+                rank = i + 1;
+                break;
+            }
+        }
+        currentTeam.weeklyRank = rank;
+        prefs.edit()
+                .putString(KEY_RANK_TEAM, currentTeam.teamId)
+                .putString(KEY_RANK_WEEK, weekKey)
+                .putInt(KEY_RANK, rank)
+                .putLong(KEY_RANK_FETCHED, System.currentTimeMillis())
+                .apply();
+    }
+
+    private void refreshRankIfStale() {
+        if (currentTeam == null || rankRefreshInFlight) return;
+
+        String weekKey = weekKey(System.currentTimeMillis());
+        boolean fresh = currentTeam.teamId.equals(prefs.getString(KEY_RANK_TEAM, null))
+                && weekKey.equals(prefs.getString(KEY_RANK_WEEK, null))
+                && System.currentTimeMillis() - prefs.getLong(KEY_RANK_FETCHED, 0) < RANK_TTL_MS;
+        if (fresh) {
+            currentTeam.weeklyRank = prefs.getInt(KEY_RANK, 0);
+            return;
+        }
+
+        rankRefreshInFlight = true;
+        getLeaderboard(RANKED_TEAMS, new LeaderboardCallback() {
+            @Override
+            public void onSuccess(List<Team> teams) {
+                rankRefreshInFlight = false;
+            }
+
+            @Override
+            public void onError(String message) {
+                rankRefreshInFlight = false;
+                Log.w(TAG, "Rank refresh failed: " + message);
+            }
+        });
+    }
+
+    /**
+     * Add to the member's and the team's totals. Contributions are coalesced
+     * locally per team (and survive a restart) and flushed as one multi-path
+     * update of server-side increments, so concurrent members never
+     * overwrite each other.
+     */
     public void contributeToTeam(double amount) {
-        if (currentUserId == null || currentTeam == null) return;
+        if (currentUserId == null || currentTeam == null || amount <= 0) return;
 
-        String teamId = currentTeam.teamId;
+        synchronized (this) {
+            String teamId = currentTeam.teamId;
+            double pending = pendingAmount(teamId) + amount;
+            setPendingAmount(teamId, pending);
+
+            if (pending >= FLUSH_THRESHOLD) {
+                flushContributions();
+            } else {
+                scheduleFlush();
+            }
+        }
+    }
+
+    private void scheduleFlush() {
+        mainHandler.removeCallbacks(flushRunnable);
+        mainHandler.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+    }
+
+    // Stored as raw bits: putFloat would round every coalesced contribution
+    private double pendingAmount(String teamId) {
+        return Double.longBitsToDouble(prefs.getLong(KEY_PENDING_AMOUNT + teamId, 0));
+    }
+
+    private void setPendingAmount(String teamId, double amount) {
+        if (amount <= 1e-9) {
+            prefs.edit().remove(KEY_PENDING_AMOUNT + teamId).apply();
+        } else {
+            prefs.edit().putLong(KEY_PENDING_AMOUNT + teamId, Double.doubleToLongBits(amount)).apply();
+        }
+    }
 
-        // Simple setValue instead of transaction for reliability
-        dbRef.child("teams").child(teamId).child("members")
-                .child(currentUserId).child("contributedAmount")
-                .get().addOnSuccessListener(snapshot -> {
-                    double current = 0;
-                    if (snapshot.exists() && snapshot.getValue() != null) {
-                        current = ((Number) snapshot.getValue()).doubleValue();
+    private List<String> pendingTeams() {
+        List<String> teams = new ArrayList<>();
+        for (String key : prefs.getAll().keySet()) {
+            if (key.startsWith(KEY_PENDING_AMOUNT)) {
+                teams.add(key.substring(KEY_PENDING_AMOUNT.length()));
+            }
+        }
+        return teams;
+    }
+
+    /**
+     * Write everything coalesced so far, one update per team. A team's
+     * pending amount stays stored until its write succeeds and then only
+     * the written part is subtracted, so contributions made meanwhile are
+     * kept. A failed write for the current team is retried; one for a team
+     * the user has left is dropped, since the rules no longer accept it.
+     */
+    public synchronized void flushContributions() {
+        mainHandler.removeCallbacks(flushRunnable);
+        if (currentUserId == null) return;
+
+        for (String teamId : pendingTeams()) {
+            if (!flushesInFlight.contains(teamId)) {
+                flushTeam(teamId);
+            }
+        }
+    }
+
+    private void flushTeam(String teamId) {
+        double amount = pendingAmount(teamId);
+        if (amount <= 0) return;
+
+        String weekKey = weekKey(System.currentTimeMillis());
+        String teamPath = "teams/" + teamId + "/";
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(teamPath + "members/" + currentUserId + "/contributedAmount", ServerValue.increment(amount));
+        updates.put(teamPath + "totalMined", ServerValue.increment(amount));
+        updates.put(teamPath + "weeklyMined", ServerValue.increment(amount));
+        updates.put(teamPath + "weeks/" + weekKey, ServerValue.increment(amount));
+
+        String rankingPath = RANKINGS_NODE + "/" + weekKey + "/" + teamId + "/";
+        updates.put(rankingPath + "weeklyMined", ServerValue.increment(amount));
+        if (currentTeam != null && teamId.equals(currentTeam.teamId)) {
+            updates.put(rankingPath + "name", currentTeam.name);
+            updates.put(rankingPath + "memberCount", currentTeam.memberCount);
+        }
+
+        flushesInFlight.add(teamId);
+        dbRef.updateChildren(updates)
+                .addOnSuccessListener(aVoid -> {
+                    Log.d(TAG, "Flushed team contribution: " + amount);
+                    synchronized (TeamMiningManager.this) {
+                        flushesInFlight.remove(teamId);
+                        double remaining = pendingAmount(teamId) - amount;
+                        setPendingAmount(teamId, remaining);
+                        if (remaining > 1e-9) scheduleFlush();
+                    }
+                    rollOverIfNeeded(teamId, weekKey);
+                })
+                .addOnFailureListener(e -> {
+                    synchronized (TeamMiningManager.this) {
+                        flushesInFlight.remove(teamId);
+                        if (currentTeam != null && teamId.equals(currentTeam.teamId)) {
+                            Log.e(TAG, "Team contribution flush failed, will retry", e);
+                            scheduleFlush();
+                        } else {
+                            Log.w(TAG, "Dropping contribution for a team no longer joined", e);
+                            setPendingAmount(teamId, 0);
+                        }
                     }
-                    dbRef.child("teams").child(teamId).child("members")
-                            .child(currentUserId).child("contributedAmount")
-                            .setValue(current + amount);
                 });
+    }
 
-        // Update team weekly total
-        dbRef.child("teams").child(teamId).child("weeklyMined")
-                .get().addOnSuccessListener(snapshot -> {
-                    double current = 0;
-                    if (snapshot.exists() && snapshot.getValue() != null) {
-                        current = ((Number) snapshot.getValue()).doubleValue();
+    /**
+     * Weekly rollover, done lazily per team by whichever member flushes first
+     * in a new week - no scan of the teams node. weeks/{weekKey} always holds
+     * each week's total, so it doubles as the archive; the member that moves
+     * teams/{id}/weekKey forward subtracts the archived week from weeklyMined.
+     * Contributions already counted towards the new week are left in place.
+     * A team from before weekKey has no archive to subtract, so its
+     * weeklyMined is reset to what weeks/{weekKey} holds.
+     */
+    private void rollOverIfNeeded(String teamId, String weekKey) {
+        if (currentTeam != null && teamId.equals(currentTeam.teamId) && weekKey.equals(currentTeam.weekKey)) {
+            return;
+        }
+
+        DatabaseReference teamRef = dbRef.child("teams").child(teamId);
+        String[] previousWeek = new String[1];
+        teamRef.child("weekKey").runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                String current = currentData.getValue(String.class);
+                if (weekKey.equals(current)) {
+                    return Transaction.abort();
+                }
+                previousWeek[0] = current;
+                currentData.setValue(weekKey);
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                if (error != null) {
+                    Log.e(TAG, "Weekly rollover failed", error.toException());
+                    return;
+                }
+                if (!committed) {
+                    // Someone else rolled over
+                    return;
+                }
+                if (previousWeek[0] == null) {
+                    resetWeeklyMined(teamRef, teamId, weekKey);
+                    return;
+                }
+
+                teamRef.child("weeks").child(previousWeek[0]).get().addOnSuccessListener(snapshot -> {
+                    Object value = snapshot.getValue();
+                    double archived = value instanceof Number ? ((Number) value).doubleValue() : 0;
+                    if (archived > 0) {
+                        teamRef.child("weeklyMined").setValue(ServerValue.increment(-archived));
                     }
-                    dbRef.child("teams").child(teamId).child("weeklyMined")
-                            .setValue(current + amount);
+                    Log.d(TAG, "Rolled team " + teamId + " over from " + previousWeek[0] + ", archived " + archived);
                 });
+            }
+        });
+    }
+
+    /**
+     * weeklyMined and weeks/{weekKey} are read from one snapshot (a flush
+     * updates both atomically), and the difference is applied as an
+     * increment so flushes landing after the read are kept.
+     */
+    private void resetWeeklyMined(DatabaseReference teamRef, String teamId, String weekKey) {
+        teamRef.get()
+                .addOnSuccessListener(snapshot -> {
+                    Object week = snapshot.child("weeks").child(weekKey).getValue();
+                    Object weekly = snapshot.child("weeklyMined").getValue();
+                    double thisWeek = week instanceof Number ? ((Number) week).doubleValue() : 0;
+                    double current = weekly instanceof Number ? ((Number) weekly).doubleValue() : 0;
+                    if (current == thisWeek) return;
+
+                    teamRef.child("weeklyMined").setValue(ServerValue.increment(thisWeek - current))
+                            .addOnSuccessListener(aVoid -> Log.d(TAG, "Reset weeklyMined of team " + teamId
+                                    + " from " + current + " to " + thisWeek))
+                            .addOnFailureListener(e -> Log.e(TAG, "Failed to reset weeklyMined", e));
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to read team for rollover", e));
     }
 
     public Team getCurrentTeam() {
@@ -419,8 +695,14 @@ public class TeamMiningManager {
         return currentTeam != null;
     }
 
+    /**
+     * Boost for the mining rate. Uses the cached rank and refreshes it in the
+     * background once RANK_TTL_MS has passed - never waits on the network.
+     */
     public float getTeamBoost() {
-        return currentTeam != null ? currentTeam.getBoostMultiplier() : 1.0f;
+        if (currentTeam == null) return 1.0f;
+        refreshRankIfStale();
+        return currentTeam.getBoostMultiplier();
     }
 
     public interface CreateTeamCallback {
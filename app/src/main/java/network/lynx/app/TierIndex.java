@@ -0,0 +1,100 @@
+package network.lynx.app;
+
+/**
+ * Sorted tier thresholds with binary-search lookup.
+ *
+ * Used for levels, VIP tiers, mining phases and streak milestones, where the
+ * question is always "which tier does this value fall into". Tables are tiny,
+ * but the lookups run on every balance update and mining rate calculation.
+ */
+public final class TierIndex {
+    private final double[] thresholds;
+
+    private TierIndex(double[] thresholds) {
+        if (thresholds.length == 0) throw new IllegalArgumentException("No tiers");
+        for (int i = 0; i < thresholds.length; i++) {
+            if (Double.isNaN(thresholds[i]) || Double.isInfinite(thresholds[i])) {
+                throw new IllegalArgumentException("Invalid threshold: " + thresholds[i]);
+            }
+            if (i > 0 && thresholds[i] <= thresholds[i - 1]) {
+                throw new IllegalArgumentException("Thresholds must be strictly ascending");
+            }
+        }
+        this.thresholds = thresholds;
+    }
+
+    public static TierIndex of(double... thresholds) {
+        return new TierIndex(thresholds.clone());
+    }
+
+    /**
+     * Parse a comma-separated list such as "0,500,2000".
+     *
+     * @throws IllegalArgumentException if it is empty, not numeric or not ascending
+     */
+    public static TierIndex parse(String csv) {
+        if (csv == null || csv.trim().isEmpty()) throw new IllegalArgumentException("No tiers");
+        String[] parts = csv.split(",");
+        double[] thresholds = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            thresholds[i] = Double.parseDouble(parts[i].trim());
+        }
+        return new TierIndex(thresholds);
+    }
+
+    /**
+     * Index of the last threshold that is <= value, or -1 if value is below all of them.
+     */
+    public int floor(double value) {
+        int lo = 0, hi = thresholds.length - 1, result = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (thresholds[mid] <= value) {
+                result = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Index of the last threshold that is strictly below value, or -1.
+     */
+    public int lower(double value) {
+        int lo = 0, hi = thresholds.length - 1, result = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (thresholds[mid] < value) {
+                result = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    public double threshold(int i) {
+        return thresholds[i];
+    }
+
+    public int size() {
+        return thresholds.length;
+    }
+
+    /**
+     * Comma-separated form, the inverse of {@link #parse}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < thresholds.length; i++) {
+            if (i > 0) sb.append(',');
+            double t = thresholds[i];
+            sb.append(t == Math.rint(t) ? String.valueOf((long) t) : String.valueOf(t));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,367 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.ValueEventListener;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TRANSACTION JOURNAL - Append-only history at transactions/{uid}
+ *
+ * - Every entry is written in one multi-path update together with its
+ *   rollups: users/{uid}/{type}Earnings and earnings/{uid}/daily/{epochDay}
+ *   are bumped with ServerValue.increment, so totals never need a scan
+ * - History is read in pages ordered by timestamp (endBefore/limitToLast)
+ * - The newest MIRROR_SIZE entries and the dashboard summary fields are
+ *   mirrored to a small file so screens can render before the network answers
+ */
+public class TransactionJournal {
+    private static final String TAG = "TransactionJournal";
+    private static final String FILE_NAME = "transaction_journal.json";
+    private static final int MIRROR_SIZE = 50;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    public static final int DEFAULT_PAGE_SIZE = 25;
+
+    private static TransactionJournal instance;
+    private final AtomicFile file;
+    private final DatabaseReference rootRef;
+
+    // Mirror state for mirrorUserId
+    private String mirrorUserId;
+    private final List<Entry> mirrorEntries = new ArrayList<>();
+    private final Map<String, Double> mirrorSummary = new LinkedHashMap<>();
+
+    public static class Entry {
+        public final String id;
+        public final String type;
+        public final double amount;
+        public final long timestamp;
+        public final String description;
+
+        public Entry(String id, String type, double amount, long timestamp, String description) {
+            this.id = id;
+            this.type = type;
+            this.amount = amount;
+            this.timestamp = timestamp;
+            this.description = description;
+        }
+    }
+
+    public interface PageCallback {
+        /**
+         * @param page       newest first
+         * @param nextCursor pass to fetchPage for the next page, or null when done
+         */
+        void onPage(List<Entry> page, @Nullable Entry nextCursor);
+        void onError(String error);
+    }
+
+    public interface SummaryCallback {
+        void onSummary(Map<String, Double> values);
+    }
+
+    private TransactionJournal(Context context) {
+        this.file = new AtomicFile(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        this.rootRef = FirebaseDatabase.getInstance().getReference();
+        loadMirror();
+    }
+
+    public static synchronized TransactionJournal getInstance(Context context) {
+        if (instance == null) {
+            instance = new TransactionJournal(context);
+        }
+        return instance;
+    }
+
+    // ============================================
+    // WRITING
+    // ============================================
+
+    /**
+     * Append an entry. With {@code rollup} the category and daily totals are
+     * incremented in the same write; pass false for entries whose totals are
+     * maintained elsewhere.
+     */
+    public Task<Void> append(String userId, WalletManager.WalletTransaction transaction, boolean rollup) {
+        String key = rootRef.child("transactions").child(userId).push().getKey();
+        transaction.id = key;
+
+        Map<String, Object> updates = new HashMap<>();
+        Map<String, Double> increments = new HashMap<>();
+        collect(userId, transaction, rollup, updates, increments);
+        putIncrements(updates, increments);
+
+        mirror(userId, transaction);
+        return rootRef.updateChildren(updates);
+    }
+
+    /**
+     * Add an entry keyed by {@code transaction.id} to a multi-path batch.
+     * Rollups are summed into {@code increments} by path, so several entries
+     * can share one write; turn them into updates with {@link #putIncrements}.
+     */
+    void collect(String userId, WalletManager.WalletTransaction transaction, boolean rollup,
+                 Map<String, Object> updates, Map<String, Double> increments) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("type", transaction.type);
+        entry.put("amount", transaction.amount);
+        entry.put("timestamp", transaction.timestamp);
+        entry.put("description", transaction.description);
+        entry.put("status", transaction.status);
+        updates.put("transactions/" + userId + "/" + transaction.id, entry);
+
+        if (rollup && transaction.amount != 0) {
+            addIncrement(increments, "users/" + userId + "/" + transaction.type + "Earnings", transaction.amount);
+            addIncrement(increments, "earnings/" + userId + "/daily/" + (transaction.timestamp / DAY_MS),
+                    transaction.amount);
+        }
+    }
+
+    static void addIncrement(Map<String, Double> increments, String path, double amount) {
+        Double current = increments.get(path);
+        increments.put(path, current != null ? current + amount : amount);
+    }
+
+    static void putIncrements(Map<String, Object> updates, Map<String, Double> increments) {
+        for (Map.Entry<String, Double> increment : increments.entrySet()) {
+            updates.put(increment.getKey(), ServerValue.increment(increment.getValue()));
+        }
+    }
+
+    /**
+     * Show an entry in the local history before it has been uploaded.
+     */
+    synchronized void mirror(String userId, WalletManager.WalletTransaction transaction) {
+        if (userId.equals(mirrorUserId)) {
+            mirrorEntries.add(0, new Entry(transaction.id, transaction.type, transaction.amount,
+                    transaction.timestamp, transaction.description));
+            trimMirror();
+            saveMirror();
+        }
+    }
+
+    // ============================================
+    // READING
+    // ============================================
+
+    /**
+     * Fetch one page of history, newest first.
+     *
+     * @param cursor null for the first page, otherwise the nextCursor of the previous page
+     */
+    public void fetchPage(String userId, @Nullable Entry cursor, int pageSize, PageCallback callback) {
+        Query query = rootRef.child("transactions").child(userId).orderByChild("timestamp");
+        if (cursor != null) {
+            query = query.endBefore(cursor.timestamp, cursor.id);
+        }
+
+        query.limitToLast(pageSize).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                List<Entry> page = new ArrayList<>();
+                for (DataSnapshot child : snapshot.getChildren()) {
+                    String type = child.child("type").getValue(String.class);
+                    Double amount = child.child("amount").getValue(Double.class);
+                    Long timestamp = child.child("timestamp").getValue(Long.class);
+                    if (type == null || amount == null || timestamp == null) continue;
+                    page.add(new Entry(child.getKey(), type, amount, timestamp,
+                            child.child("description").getValue(String.class)));
+                }
+                Collections.reverse(page);
+
+                if (cursor == null) {
+                    replaceMirrorEntries(userId, page);
+                }
+
+                Entry next = page.size() < pageSize || page.isEmpty() ? null : page.get(page.size() - 1);
+                callback.onPage(page, next);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onError(error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Read the given scalar fields under users/{uid} (e.g. "spinEarnings",
+     * "miningStats/totalMined"). Missing or non-numeric fields are left out.
+     * The result is mirrored for {@link #getCachedSummary}.
+     */
+    public void loadSummary(String userId, String[] fields, SummaryCallback callback) {
+        DatabaseReference userRef = rootRef.child("users").child(userId);
+        Map<String, Double> values = new HashMap<>();
+        int[] pending = {fields.length};
+
+        for (String field : fields) {
+            userRef.child(field).addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(@NonNull DataSnapshot snapshot) {
+                    Object value = snapshot.getValue();
+                    if (value instanceof Number) {
+                        values.put(field, ((Number) value).doubleValue());
+                    }
+                    done();
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    Log.w(TAG, "Failed to read " + field, error.toException());
+                    done();
+                }
+
+                private void done() {
+                    if (--pending[0] == 0) {
+                        replaceMirrorSummary(userId, values);
+                        callback.onSummary(values);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Newest mirrored entries for the user, or an empty list.
+     */
+    public synchronized List<Entry> getCachedEntries(String userId) {
+        return userId.equals(mirrorUserId) ? new ArrayList<>(mirrorEntries) : new ArrayList<>();
+    }
+
+    /**
+     * Last summary loaded for the user, or an empty map.
+     */
+    public synchronized Map<String, Double> getCachedSummary(String userId) {
+        return userId.equals(mirrorUserId) ? new HashMap<>(mirrorSummary) : new HashMap<>();
+    }
+
+    // ============================================
+    // LOCAL MIRROR
+    // ============================================
+
+    private synchronized void replaceMirrorEntries(String userId, List<Entry> newest) {
+        switchMirrorUser(userId);
+        mirrorEntries.clear();
+        mirrorEntries.addAll(newest);
+        trimMirror();
+        saveMirror();
+    }
+
+    private synchronized void replaceMirrorSummary(String userId, Map<String, Double> values) {
+        switchMirrorUser(userId);
+        mirrorSummary.putAll(values);
+        saveMirror();
+    }
+
+    private void switchMirrorUser(String userId) {
+        if (!userId.equals(mirrorUserId)) {
+            mirrorUserId = userId;
+            mirrorEntries.clear();
+            mirrorSummary.clear();
+        }
+    }
+
+    private void trimMirror() {
+        while (mirrorEntries.size() > MIRROR_SIZE) {
+            mirrorEntries.remove(mirrorEntries.size() - 1);
+        }
+    }
+
+    private void saveMirror() {
+        FileOutputStream fos = null;
+        try {
+            JSONArray entries = new JSONArray();
+            for (Entry entry : mirrorEntries) {
+                entries.put(new JSONObject()
+                        .put("id", entry.id)
+                        .put("type", entry.type)
+                        .put("amount", entry.amount)
+                        .put("timestamp", entry.timestamp)
+                        .put("description", entry.description != null ? entry.description : ""));
+            }
+            JSONObject summary = new JSONObject();
+            for (Map.Entry<String, Double> value : mirrorSummary.entrySet()) {
+                summary.put(value.getKey(), value.getValue().doubleValue());
+            }
+            JSONObject root = new JSONObject()
+                    .put("uid", mirrorUserId)
+                    .put("entries", entries)
+                    .put("summary", summary);
+
+            fos = file.startWrite();
+            fos.write(root.toString().getBytes(StandardCharsets.UTF_8));
+            file.finishWrite(fos);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to save journal mirror", e);
+            if (fos != null) {
+                file.failWrite(fos);
+            }
+        }
+    }
+
+    private void loadMirror() {
+        try (FileInputStream fis = file.openRead()) {
+            byte[] bytes = new byte[fis.available()];
+            int read = 0;
+            while (read < bytes.length) {
+                int n = fis.read(bytes, read, bytes.length - read);
+                if (n < 0) break;
+                read += n;
+            }
+            JSONObject root = new JSONObject(new String(bytes, 0, read, StandardCharsets.UTF_8));
+            mirrorUserId = root.optString("uid", null);
+
+            JSONArray entries = root.optJSONArray("entries");
+            if (entries != null) {
+                for (int i = 0; i < entries.length(); i++) {
+                    JSONObject entry = entries.getJSONObject(i);
+                    mirrorEntries.add(new Entry(entry.optString("id"), entry.optString("type"),
+                            entry.optDouble("amount", 0), entry.optLong("timestamp"),
+                            entry.optString("description")));
+                }
+            }
+
+            JSONObject summary = root.optJSONObject("summary");
+            if (summary != null) {
+                java.util.Iterator<String> keys = summary.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    mirrorSummary.put(key, summary.optDouble(key, 0));
+                }
+            }
+        } catch (java.io.FileNotFoundException e) {
+            // Nothing mirrored yet
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable journal mirror", e);
+            mirrorUserId = null;
+            mirrorEntries.clear();
+            mirrorSummary.clear();
+        }
+    }
+}
@@ -24,7 +24,6 @@ import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.Query;
 import com.google.firebase.database.ValueEventListener;
 
 import java.text.SimpleDateFormat;
@@ -32,6 +31,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -71,6 +71,9 @@ public class TrustDashboardActivity extends AppCompatActivity {
     private TransactionAdapter transactionAdapter;
     private List<Transaction> transactions = new ArrayList<>();
     private TextView noTransactionsText;
+    private MaterialButton loadMoreTransactionsBtn;
+    private TransactionJournal.Entry transactionCursor;
+    private boolean loadingTransactions = false;
 
     // Withdrawal Preview
     private MaterialCardView withdrawalCard;
@@ -87,6 +90,14 @@ public class TrustDashboardActivity extends AppCompatActivity {
     // Mainnet target date - January 1, 2027
     private static final long MAINNET_LAUNCH_DATE = 1798761600000L; // Jan 1, 2027 00:00:00 UTC
 
+    // Paged history is capped so a long scroll cannot grow without bound
+    private static final int MAX_LOADED_TRANSACTIONS = 200;
+
+    private static final String[] SUMMARY_FIELDS = {
+            "miningStats/sessionsCompleted", "miningStats/totalMined", "totalcoins", "createdAt",
+            "referralEarnings", "bonusEarnings", "totalStreak", "spinEarnings", "gamesEarnings"
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -131,6 +142,7 @@ public class TrustDashboardActivity extends AppCompatActivity {
         transactionRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         transactionAdapter = new TransactionAdapter(transactions);
         transactionRecyclerView.setAdapter(transactionAdapter);
+        loadMoreTransactionsBtn = findViewById(R.id.loadMoreTransactionsBtn);
 
         // Withdrawal
         withdrawalCard = findViewById(R.id.withdrawalCard);
@@ -149,6 +161,8 @@ public class TrustDashboardActivity extends AppCompatActivity {
             showWithdrawalInfo();
         });
 
+        loadMoreTransactionsBtn.setOnClickListener(v -> loadMoreTransactions());
+
         // Copy user ID for verification
         if (totalBalanceLabel != null) {
             totalBalanceLabel.setOnLongClickListener(v -> {
@@ -163,8 +177,7 @@ public class TrustDashboardActivity extends AppCompatActivity {
 
     private void loadData() {
         loadBalance();
-        loadMiningStats();
-        loadEarningsBreakdown();
+        loadStats();
         loadTransactionHistory();
         updateMainnetCountdown();
         setupTrustBadges();
@@ -216,157 +229,190 @@ public class TrustDashboardActivity extends AppCompatActivity {
             }
         });
 
-        // Refresh from Firebase to ensure it's up to date
+        // Make sure the wallet's live balance listener is running
         walletManager.refreshBalance();
     }
 
-    private void loadMiningStats() {
-        userRef.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                // Mining sessions
-                int sessions = 0;
-                if (snapshot.child("miningStats/sessionsCompleted").exists()) {
-                    sessions = snapshot.child("miningStats/sessionsCompleted").getValue(Integer.class);
-                }
-                miningSessionsCount.setText(String.valueOf(sessions));
-
-                // Total mined
-                double totalMined = 0;
-                if (snapshot.child("miningStats/totalMined").exists()) {
-                    totalMined = ((Number) snapshot.child("miningStats/totalMined").getValue()).doubleValue();
-                } else if (snapshot.child("totalcoins").exists()) {
-                    totalMined = ((Number) snapshot.child("totalcoins").getValue()).doubleValue();
-                }
-                totalMinedText.setText(String.format(Locale.US, "%.2f LYX", totalMined));
-
-                // Calculate average daily
-                long accountCreated = 0;
-                if (snapshot.child("createdAt").exists()) {
-                    accountCreated = snapshot.child("createdAt").getValue(Long.class);
-                }
-                if (accountCreated > 0) {
-                    long daysActive = Math.max(1, (System.currentTimeMillis() - accountCreated) / (24 * 60 * 60 * 1000));
-                    double avgDaily = totalMined / daysActive;
-                    avgDailyText.setText(String.format(Locale.US, "%.2f LYX/day", avgDaily));
-                } else {
-                    avgDailyText.setText("--");
-                }
-            }
+    /**
+     * Stats and earnings come from a handful of scalar fields (the category
+     * totals are rolled up at write time). The last result is mirrored on
+     * device, so the cards fill in before the network answers.
+     */
+    private void loadStats() {
+        TransactionJournal journal = TransactionJournal.getInstance(this);
+        Map<String, Double> cached = journal.getCachedSummary(userId);
+        if (!cached.isEmpty()) {
+            showMiningStats(cached);
+            showEarningsBreakdown(cached);
+        }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {}
+        journal.loadSummary(userId, SUMMARY_FIELDS, values -> {
+            if (isFinishing() || isDestroyed()) return;
+            showMiningStats(values);
+            showEarningsBreakdown(values);
         });
     }
 
-    private void loadEarningsBreakdown() {
-        userRef.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                // Referral earnings
-                double referralEarnings = 0;
-                if (snapshot.child("referralEarnings").exists()) {
-                    referralEarnings = ((Number) snapshot.child("referralEarnings").getValue()).doubleValue();
-                }
-                referralEarningsText.setText(String.format(Locale.US, "%.2f LYX", referralEarnings));
-
-                // Bonus earnings (daily check-in, hourly bonus, etc.)
-                double bonusEarnings = 0;
-                if (snapshot.child("bonusEarnings").exists()) {
-                    bonusEarnings = ((Number) snapshot.child("bonusEarnings").getValue()).doubleValue();
-                } else if (snapshot.child("totalStreak").exists()) {
-                    bonusEarnings = ((Number) snapshot.child("totalStreak").getValue()).doubleValue();
-                }
-                bonusEarningsText.setText(String.format(Locale.US, "%.2f LYX", bonusEarnings));
+    private static double valueOf(Map<String, Double> values, String field) {
+        Double value = values.get(field);
+        return value != null ? value : 0;
+    }
 
-                // Games earnings (spin, prediction, etc.)
-                double gamesEarnings = 0;
-                if (snapshot.child("spinEarnings").exists()) {
-                    gamesEarnings += ((Number) snapshot.child("spinEarnings").getValue()).doubleValue();
-                }
-                if (snapshot.child("gamesEarnings").exists()) {
-                    gamesEarnings += ((Number) snapshot.child("gamesEarnings").getValue()).doubleValue();
-                }
-                gamesEarningsText.setText(String.format(Locale.US, "%.2f LYX", gamesEarnings));
-            }
+    private void showMiningStats(Map<String, Double> values) {
+        // Mining sessions
+        int sessions = (int) valueOf(values, "miningStats/sessionsCompleted");
+        miningSessionsCount.setText(String.valueOf(sessions));
+
+        // Total mined
+        double totalMined = values.containsKey("miningStats/totalMined")
+                ? valueOf(values, "miningStats/totalMined")
+                : valueOf(values, "totalcoins");
+        totalMinedText.setText(String.format(Locale.US, "%.2f LYX", totalMined));
+
+        // Calculate average daily
+        long accountCreated = (long) valueOf(values, "createdAt");
+        if (accountCreated > 0) {
+            long daysActive = Math.max(1, (System.currentTimeMillis() - accountCreated) / (24 * 60 * 60 * 1000));
+            double avgDaily = totalMined / daysActive;
+            avgDailyText.setText(String.format(Locale.US, "%.2f LYX/day", avgDaily));
+        } else {
+            avgDailyText.setText("--");
+        }
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {}
-        });
+    private void showEarningsBreakdown(Map<String, Double> values) {
+        // Referral earnings
+        referralEarningsText.setText(String.format(Locale.US, "%.2f LYX", valueOf(values, "referralEarnings")));
+
+        // Bonus earnings (daily check-in, hourly bonus, etc.)
+        double bonusEarnings = values.containsKey("bonusEarnings")
+                ? valueOf(values, "bonusEarnings")
+                : valueOf(values, "totalStreak");
+        bonusEarningsText.setText(String.format(Locale.US, "%.2f LYX", bonusEarnings));
+
+        // Games earnings (spin, prediction, etc.)
+        double gamesEarnings = valueOf(values, "spinEarnings") + valueOf(values, "gamesEarnings");
+        gamesEarningsText.setText(String.format(Locale.US, "%.2f LYX", gamesEarnings));
     }
 
+    /**
+     * First page of the journal - shown from the on-device mirror right away,
+     * then replaced by the network copy. Older pages load on demand.
+     */
     private void loadTransactionHistory() {
-        // Load recent transactions from Firebase
-        Query recentTransactions = userRef.child("transactions")
-                .orderByChild("timestamp")
-                .limitToLast(50);
+        List<TransactionJournal.Entry> cached = TransactionJournal.getInstance(this).getCachedEntries(userId);
+        if (!cached.isEmpty()) {
+            transactions.clear();
+            appendEntries(cached);
+            transactionAdapter.notifyDataSetChanged();
+            updateTransactionVisibility();
+        }
 
-        recentTransactions.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                transactions.clear();
+        loadingTransactions = true;
+        TransactionJournal.getInstance(this).fetchPage(userId, null, TransactionJournal.DEFAULT_PAGE_SIZE,
+                new TransactionJournal.PageCallback() {
+                    @Override
+                    public void onPage(List<TransactionJournal.Entry> page, TransactionJournal.Entry nextCursor) {
+                        if (isFinishing() || isDestroyed()) return;
+                        loadingTransactions = false;
+                        transactions.clear();
+                        appendEntries(page);
+                        transactionCursor = nextCursor;
+
+                        // If no transactions, add some placeholder entries based on stats
+                        if (transactions.isEmpty()) {
+                            addPlaceholderTransactions();
+                        }
 
-                for (DataSnapshot txSnapshot : snapshot.getChildren()) {
-                    try {
-                        String type = txSnapshot.child("type").getValue(String.class);
-                        Double amount = txSnapshot.child("amount").getValue(Double.class);
-                        Long timestamp = txSnapshot.child("timestamp").getValue(Long.class);
-                        String description = txSnapshot.child("description").getValue(String.class);
+                        transactionAdapter.notifyDataSetChanged();
+                        updateTransactionVisibility();
+                    }
 
-                        if (type != null && amount != null && timestamp != null) {
-                            transactions.add(0, new Transaction(type, amount, timestamp, description));
-                        }
-                    } catch (Exception e) {
-                        // Skip malformed transactions
+                    @Override
+                    public void onError(String error) {
+                        loadingTransactions = false;
+                        updateTransactionVisibility();
                     }
-                }
+                });
+    }
 
-                // If no transactions, add some placeholder entries based on stats
-                if (transactions.isEmpty()) {
-                    addPlaceholderTransactions();
-                }
+    private void loadMoreTransactions() {
+        if (loadingTransactions || transactionCursor == null) return;
+        loadingTransactions = true;
+        loadMoreTransactionsBtn.setEnabled(false);
+
+        TransactionJournal.getInstance(this).fetchPage(userId, transactionCursor, TransactionJournal.DEFAULT_PAGE_SIZE,
+                new TransactionJournal.PageCallback() {
+                    @Override
+                    public void onPage(List<TransactionJournal.Entry> page, TransactionJournal.Entry nextCursor) {
+                        if (isFinishing() || isDestroyed()) return;
+                        loadingTransactions = false;
+                        loadMoreTransactionsBtn.setEnabled(true);
+
+                        int start = transactions.size();
+                        appendEntries(page);
+                        transactionCursor = nextCursor;
+                        transactionAdapter.notifyItemRangeInserted(start, transactions.size() - start);
+                        updateTransactionVisibility();
+                    }
 
-                transactionAdapter.notifyDataSetChanged();
-                noTransactionsText.setVisibility(transactions.isEmpty() ? View.VISIBLE : View.GONE);
-                transactionRecyclerView.setVisibility(transactions.isEmpty() ? View.GONE : View.VISIBLE);
-            }
+                    @Override
+                    public void onError(String error) {
+                        loadingTransactions = false;
+                        loadMoreTransactionsBtn.setEnabled(true);
+                    }
+                });
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {}
-        });
+    private void appendEntries(List<TransactionJournal.Entry> entries) {
+        for (TransactionJournal.Entry entry : entries) {
+            if (transactions.size() >= MAX_LOADED_TRANSACTIONS) break;
+            transactions.add(new Transaction(entry.type, entry.amount, entry.timestamp,
+                    entry.description == null || entry.description.isEmpty() ? null : entry.description));
+        }
+    }
+
+    private void updateTransactionVisibility() {
+        noTransactionsText.setVisibility(transactions.isEmpty() ? View.VISIBLE : View.GONE);
+        transactionRecyclerView.setVisibility(transactions.isEmpty() ? View.GONE : View.VISIBLE);
+        boolean hasMore = transactionCursor != null && transactions.size() < MAX_LOADED_TRANSACTIONS;
+        loadMoreTransactionsBtn.setVisibility(hasMore ? View.VISIBLE : View.GONE);
     }
 
     private void addPlaceholderTransactions() {
         // Add some recent activity indicators if no formal transactions exist
-        userRef.addListenerForSingleValueEvent(new ValueEventListener() {
+        userRef.child("mining/startTime").addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
-                long now = System.currentTimeMillis();
-
                 // Check last mining
-                if (snapshot.child("mining/startTime").exists()) {
-                    Long startTime = snapshot.child("mining/startTime").getValue(Long.class);
-                    if (startTime != null && startTime > 0) {
-                        transactions.add(new Transaction("mining", 0, startTime, "Mining session started"));
-                    }
+                Long startTime = snapshot.getValue(Long.class);
+                if (startTime != null && startTime > 0) {
+                    transactions.add(new Transaction("mining", 0, startTime, "Mining session started"));
+                    transactionAdapter.notifyItemInserted(transactions.size() - 1);
+                    updateTransactionVisibility();
                 }
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {}
+        });
 
+        userRef.child("lastDate").addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
                 // Check last check-in
-                if (snapshot.child("lastDate").exists()) {
-                    String lastDate = snapshot.child("lastDate").getValue(String.class);
-                    if (lastDate != null) {
-                        try {
-                            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-                            Date date = sdf.parse(lastDate);
-                            if (date != null) {
-                                transactions.add(new Transaction("checkin", 5, date.getTime(), "Daily check-in"));
-                            }
-                        } catch (Exception ignored) {}
-                    }
+                String lastDate = snapshot.getValue(String.class);
+                if (lastDate != null) {
+                    try {
+                        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+                        Date date = sdf.parse(lastDate);
+                        if (date != null) {
+                            transactions.add(new Transaction("checkin", 5, date.getTime(), "Daily check-in"));
+                            transactionAdapter.notifyItemInserted(transactions.size() - 1);
+                            updateTransactionVisibility();
+                        }
+                    } catch (Exception ignored) {}
                 }
-
-                transactionAdapter.notifyDataSetChanged();
-                noTransactionsText.setVisibility(transactions.isEmpty() ? View.VISIBLE : View.GONE);
             }
 
             @Override
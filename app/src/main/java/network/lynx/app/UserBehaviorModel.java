@@ -0,0 +1,264 @@
+package network.lynx.app;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-device model of when the user opens the app
+ *
+ * - Fixed-size hour-of-day (24) and day-of-week (7) counters
+ * - Counters decay exponentially (14-day half-life), so old habits fade
+ * - Updated incrementally on each app open; queries are O(24)
+ * - Checkpointed to a ~150 byte file, at most once per CHECKPOINT_INTERVAL_MS
+ *   (measured from the file's modification time, so it holds across
+ *   processes) or every CHECKPOINT_EVERY_OPENS opens, and when the app goes
+ *   to the background. The file is written on a background thread
+ */
+public class UserBehaviorModel {
+    private static final String TAG = "UserBehaviorModel";
+    private static final String FILE_NAME = "behavior_model.bin";
+    private static final int MAGIC = 0x42484D31; // "BHM1"
+
+    private static final long HALF_LIFE_MS = 14L * 24 * 60 * 60 * 1000;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long CHECKPOINT_INTERVAL_MS = 60L * 60 * 1000;
+    private static final int CHECKPOINT_EVERY_OPENS = 5;
+
+    private static UserBehaviorModel instance;
+    private final AtomicFile file;
+    // One thread, so checkpoints reach the file in the order they were taken
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    private final float[] hourWeights = new float[24];
+    private final float[] dayWeights = new float[7];
+    private long lastDecayTime = 0;
+    private long lastOpenTime = 0;
+    private long previousGapMs = 0;
+    private int consecutiveDays = 0;
+    private int totalOpens = 0;
+
+    private long lastCheckpointTime = 0;
+    private int opensSinceCheckpoint = 0;
+
+    private UserBehaviorModel(Context context) {
+        this.file = new AtomicFile(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        load();
+    }
+
+    public static synchronized UserBehaviorModel getInstance(Context context) {
+        if (instance == null) {
+            instance = new UserBehaviorModel(context);
+        }
+        return instance;
+    }
+
+    // ============================================
+    // UPDATES
+    // ============================================
+
+    public synchronized void recordAppOpen(long now) {
+        decayTo(now);
+
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(now);
+        hourWeights[cal.get(Calendar.HOUR_OF_DAY)] += 1f;
+        dayWeights[cal.get(Calendar.DAY_OF_WEEK) - 1] += 1f;
+
+        if (lastOpenTime > 0) {
+            long lastDay = localEpochDay(lastOpenTime);
+            long today = localEpochDay(now);
+            if (today == lastDay + 1) {
+                consecutiveDays++;
+            } else if (today > lastDay + 1) {
+                consecutiveDays = 1;
+            }
+            previousGapMs = now - lastOpenTime;
+        } else {
+            consecutiveDays = 1;
+        }
+        lastOpenTime = now;
+        totalOpens++;
+        opensSinceCheckpoint++;
+
+        if (opensSinceCheckpoint >= CHECKPOINT_EVERY_OPENS
+                || now - lastCheckpointTime >= CHECKPOINT_INTERVAL_MS) {
+            checkpoint(now);
+        }
+    }
+
+    private void decayTo(long now) {
+        if (lastDecayTime > 0 && now > lastDecayTime) {
+            float factor = (float) Math.pow(0.5, (now - lastDecayTime) / (double) HALF_LIFE_MS);
+            for (int i = 0; i < 24; i++) hourWeights[i] *= factor;
+            for (int i = 0; i < 7; i++) dayWeights[i] *= factor;
+        }
+        lastDecayTime = now;
+    }
+
+    // ============================================
+    // QUERIES
+    // ============================================
+
+    public synchronized boolean hasData() {
+        return totalOpens > 0;
+    }
+
+    /**
+     * Up to {@code count} hours with the highest weight, best first.
+     */
+    public synchronized List<Integer> getTopHours(int count) {
+        List<Integer> top = new ArrayList<>(count);
+        boolean[] taken = new boolean[24];
+        for (int n = 0; n < count; n++) {
+            int best = -1;
+            for (int h = 0; h < 24; h++) {
+                if (!taken[h] && hourWeights[h] > 0 && (best < 0 || hourWeights[h] > hourWeights[best])) {
+                    best = h;
+                }
+            }
+            if (best < 0) break;
+            taken[best] = true;
+            top.add(best);
+        }
+        return top;
+    }
+
+    /**
+     * Share of activity that falls in [startHour, endHour].
+     */
+    public synchronized double getHourShare(int startHour, int endHour) {
+        double inRange = 0;
+        double total = 0;
+        for (int h = 0; h < 24; h++) {
+            total += hourWeights[h];
+            if (h >= startHour && h <= endHour) {
+                inRange += hourWeights[h];
+            }
+        }
+        return total > 0 ? inRange / total : 0;
+    }
+
+    /**
+     * Calendar.DAY_OF_WEEK with the highest weight, or -1 without data.
+     */
+    public synchronized int getMostActiveDayOfWeek() {
+        int best = -1;
+        for (int d = 0; d < 7; d++) {
+            if (dayWeights[d] > 0 && (best < 0 || dayWeights[d] > dayWeights[best])) {
+                best = d;
+            }
+        }
+        return best < 0 ? -1 : best + Calendar.SUNDAY;
+    }
+
+    public synchronized int getConsecutiveDays() {
+        return consecutiveDays;
+    }
+
+    public synchronized long getLastOpenTime() {
+        return lastOpenTime;
+    }
+
+    /**
+     * Gap between the latest open and the one before it.
+     */
+    public synchronized long getPreviousGapMs() {
+        return previousGapMs;
+    }
+
+    private static long localEpochDay(long timeMs) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(timeMs);
+        long offset = cal.get(Calendar.ZONE_OFFSET) + cal.get(Calendar.DST_OFFSET);
+        return Math.floorDiv(timeMs + offset, DAY_MS);
+    }
+
+    // ============================================
+    // PERSISTENCE
+    // ============================================
+
+    /**
+     * Save opens not yet on disk, e.g. when the app goes to the background.
+     */
+    public synchronized void checkpoint() {
+        if (opensSinceCheckpoint > 0) {
+            checkpoint(System.currentTimeMillis());
+        }
+    }
+
+    // Serialized under the lock; the file write happens on the writer thread
+    private void checkpoint(long now) {
+        byte[] bytes;
+        try {
+            bytes = serialize();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to serialize behavior model", e);
+            return;
+        }
+        lastCheckpointTime = now;
+        opensSinceCheckpoint = 0;
+        writer.execute(() -> write(bytes));
+    }
+
+    private byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(160);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeLong(lastDecayTime);
+        out.writeLong(lastOpenTime);
+        out.writeLong(previousGapMs);
+        out.writeInt(consecutiveDays);
+        out.writeInt(totalOpens);
+        for (float w : hourWeights) out.writeFloat(w);
+        for (float w : dayWeights) out.writeFloat(w);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void write(byte[] bytes) {
+        FileOutputStream fos = null;
+        try {
+            fos = file.startWrite();
+            fos.write(bytes);
+            file.finishWrite(fos);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to checkpoint behavior model", e);
+            if (fos != null) {
+                file.failWrite(fos);
+            }
+        }
+    }
+
+    private void load() {
+        try (FileInputStream fis = file.openRead()) {
+            DataInputStream in = new DataInputStream(fis);
+            if (in.readInt() != MAGIC) return;
+            lastDecayTime = in.readLong();
+            lastOpenTime = in.readLong();
+            previousGapMs = in.readLong();
+            consecutiveDays = in.readInt();
+            totalOpens = in.readInt();
+            for (int i = 0; i < 24; i++) hourWeights[i] = in.readFloat();
+            for (int i = 0; i < 7; i++) dayWeights[i] = in.readFloat();
+            lastCheckpointTime = file.getBaseFile().lastModified();
+        } catch (java.io.FileNotFoundException e) {
+            // First run - start empty
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable behavior model", e);
+        }
+    }
+}
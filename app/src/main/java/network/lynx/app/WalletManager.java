@@ -2,9 +2,12 @@ package network.lynx.app;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DataSnapshot;
@@ -14,7 +17,9 @@ import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.MutableData;
 import com.google.firebase.database.ValueEventListener;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -23,6 +28,19 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * Play Store compliant - shows LYX tokens only (in-app currency)
  *
  * NEW: Balance change listeners for real-time UI sync across fragments
+ *
+ * BALANCE:
+ * - One live listener on users/{uid}/totalcoins is the source of truth. Writes
+ *   made on this device (multi-path increments from other managers) show up
+ *   through it straight away as local events, so nobody needs to re-read the
+ *   balance after a write
+ * - addTokens()/deductTokens() add their delta to a pending overlay the moment
+ *   they are called; the shown balance is confirmed + pending
+ * - Credits go through RewardOutbox, which keeps them on disk until they are
+ *   delivered; a credit leaves the overlay when its batch is written, and the
+ *   write's local event brings it into the confirmed balance
+ * - Debits run a balance transaction without local events and leave the
+ *   overlay when it completes, so a rejected debit rolls back
  */
 public class WalletManager {
     private static final String TAG = "WalletManager";
@@ -33,8 +51,20 @@ public class WalletManager {
     private final Context context;
     private final SharedPreferences prefs;
     private final DatabaseReference dbRef;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private String currentUserId;
 
+    // Live listeners for the signed-in user, detached on sign-out or user switch
+    private DatabaseReference balanceRef;
+    private ValueEventListener balanceListener;
+    private DatabaseReference todayEarningsRef;
+    private ValueEventListener todayEarningsListener;
+
+    // Last balance from the server listener, and deltas still in flight by reward or debit id
+    private double confirmedBalance = 0;
+    private final Map<String, Double> pendingDeltas = new HashMap<>();
+    private long nextDebitId = 0;
+
     // NEW: Balance change listeners for real-time sync
     private final List<BalanceChangeListener> balanceListeners = new CopyOnWriteArrayList<>();
 
@@ -46,7 +76,14 @@ public class WalletManager {
         void onBalanceChanged(double newBalance);
     }
 
-    // Wallet data
+    /**
+     * Told whether a deduction was applied or refused.
+     */
+    public interface DebitCallback {
+        void onDebit(boolean applied);
+    }
+
+    // Wallet data (totalBalance = confirmedBalance + pending deltas)
     private double totalBalance = 0;
     private double pendingBalance = 0;
     private double todayEarnings = 0;
@@ -64,13 +101,21 @@ public class WalletManager {
             if (currentUserId == null || !currentUserId.equals(uid)) {
                 currentUserId = uid;
                 Log.d(TAG, "Auth state changed - user signed in: " + uid);
+                synchronized (pendingDeltas) {
+                    pendingDeltas.clear();
+                }
                 loadWallet();
             }
         } else {
             // user signed out
             Log.d(TAG, "Auth state changed - user signed out");
             currentUserId = null;
+            detachListeners();
             // reset balances
+            synchronized (pendingDeltas) {
+                pendingDeltas.clear();
+            }
+            confirmedBalance = 0;
             totalBalance = 0;
             pendingBalance = 0;
             totalMined = 0;
@@ -123,6 +168,15 @@ public class WalletManager {
         this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         this.dbRef = FirebaseDatabase.getInstance().getReference();
 
+        RewardOutbox.getInstance(context).setIssueListener((userId, rewardIds) -> {
+            // No publish here: the batch's local event on totalcoins does that
+            synchronized (pendingDeltas) {
+                for (String id : rewardIds) {
+                    pendingDeltas.remove(id);
+                }
+            }
+        });
+
         FirebaseAuth.getInstance().addAuthStateListener(authStateListener);
 
         if (FirebaseAuth.getInstance().getCurrentUser() != null) {
@@ -143,63 +197,37 @@ public class WalletManager {
     }
 
     /**
-     * Force refresh balance from Firebase and notify all listeners
-     * Call this after updating tokens from other parts of the app
+     * Make sure the balance is live and re-publish it to all listeners.
+     * Does not read from Firebase: the live listener already delivers every
+     * change, including this device's own writes.
      */
     public void refreshBalance() {
         if (currentUserId == null) {
             Log.w(TAG, "Cannot refresh balance - user not logged in");
             return;
         }
-
-        dbRef.child("users").child(currentUserId).child("totalcoins")
-            .addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    if (snapshot.exists() && snapshot.getValue() != null) {
-                        double newBalance = toDouble(snapshot.getValue());
-                        if (newBalance != totalBalance) {
-                            Log.d(TAG, "Balance refreshed from Firebase: " + totalBalance + " -> " + newBalance);
-                            totalBalance = newBalance;
-                            cacheBalance();
-                            notifyListener();
-                        }
-                    }
-                }
-
-                @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    Log.e(TAG, "Failed to refresh balance", error.toException());
-                }
-            });
+        if (balanceListener == null) {
+            loadWallet();
+        } else {
+            publishBalance();
+        }
     }
 
     private void loadWallet() {
         if (currentUserId == null) return;
+        String userId = currentUserId;
+
+        detachListeners();
 
-        dbRef.child("users").child(currentUserId).addValueEventListener(new ValueEventListener() {
+        // FIXED: Use 'totalcoins' (lowercase) to match rest of app
+        balanceRef = dbRef.child("users").child(userId).child("totalcoins");
+        balanceListener = new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
-                if (snapshot.exists()) {
-                    // FIXED: Use 'totalcoins' (lowercase) to match rest of app
-                    if (snapshot.child("totalcoins").exists() && snapshot.child("totalcoins").getValue() != null) {
-                        totalBalance = toDouble(snapshot.child("totalcoins").getValue());
-                    }
-                    if (snapshot.child("pendingCoins").exists() && snapshot.child("pendingCoins").getValue() != null) {
-                        pendingBalance = toDouble(snapshot.child("pendingCoins").getValue());
-                    }
-                    if (snapshot.child("totalMined").exists() && snapshot.child("totalMined").getValue() != null) {
-                        totalMined = toDouble(snapshot.child("totalMined").getValue());
-                    }
-                    if (snapshot.child("referralEarnings").exists() && snapshot.child("referralEarnings").getValue() != null) {
-                        totalReferralEarnings = toDouble(snapshot.child("referralEarnings").getValue());
-                    }
-                    if (snapshot.child("bonusEarnings").exists() && snapshot.child("bonusEarnings").getValue() != null) {
-                        totalBonusEarnings = toDouble(snapshot.child("bonusEarnings").getValue());
-                    }
-                    cacheBalance();
-                    notifyListener();
-                }
+                confirmedBalance = snapshot.getValue() != null ? toDouble(snapshot.getValue()) : 0;
+                // A transaction's server value arrives just before its onComplete, which
+                // is already queued; publishing after it keeps the delta from showing twice
+                mainHandler.post(WalletManager.this::publishBalance);
             }
 
             @Override
@@ -207,34 +235,102 @@ public class WalletManager {
                 Log.e(TAG, "Error loading wallet", error.toException());
                 loadCachedBalance();
             }
-        });
+        };
+        balanceRef.addValueEventListener(balanceListener);
 
+        loadStats(userId);
         loadTodayEarnings();
     }
 
+    /**
+     * The other wallet figures change rarely and only matter on screen, so
+     * they are read once per load instead of being listened to.
+     */
+    private void loadStats(String userId) {
+        String[] fields = {"pendingCoins", "totalMined", "referralEarnings", "bonusEarnings"};
+        TransactionJournal.getInstance(context).loadSummary(userId, fields, values -> {
+            if (!userId.equals(currentUserId)) return;
+            if (values.containsKey("pendingCoins")) pendingBalance = values.get("pendingCoins");
+            if (values.containsKey("totalMined")) totalMined = values.get("totalMined");
+            if (values.containsKey("referralEarnings")) totalReferralEarnings = values.get("referralEarnings");
+            if (values.containsKey("bonusEarnings")) totalBonusEarnings = values.get("bonusEarnings");
+            cacheBalance();
+            notifyListener();
+        });
+    }
+
     private void loadTodayEarnings() {
         if (currentUserId == null) return;
 
         String today = String.valueOf(System.currentTimeMillis() / (24 * 60 * 60 * 1000));
 
-        dbRef.child("earnings").child(currentUserId).child("daily").child(today)
-                .addValueEventListener(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot snapshot) {
-                        if (snapshot.exists() && snapshot.getValue() != null) {
-                            todayEarnings = toDouble(snapshot.getValue());
-                            notifyListener();
-                        } else {
-                            todayEarnings = 0;
-                            notifyListener();
-                        }
-                    }
+        todayEarningsRef = dbRef.child("earnings").child(currentUserId).child("daily").child(today);
+        todayEarningsListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                if (snapshot.exists() && snapshot.getValue() != null) {
+                    todayEarnings = toDouble(snapshot.getValue());
+                    notifyListener();
+                } else {
+                    todayEarnings = 0;
+                    notifyListener();
+                }
+            }
 
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError error) {
-                        Log.e(TAG, "Error loading today earnings", error.toException());
-                    }
-                });
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "Error loading today earnings", error.toException());
+            }
+        };
+        todayEarningsRef.addValueEventListener(todayEarningsListener);
+    }
+
+    private void detachListeners() {
+        if (balanceRef != null && balanceListener != null) {
+            balanceRef.removeEventListener(balanceListener);
+        }
+        if (todayEarningsRef != null && todayEarningsListener != null) {
+            todayEarningsRef.removeEventListener(todayEarningsListener);
+        }
+        balanceRef = null;
+        balanceListener = null;
+        todayEarningsRef = null;
+        todayEarningsListener = null;
+    }
+
+    // ============================================
+    // PENDING OVERLAY
+    // ============================================
+
+    private void addPendingDelta(String id, double amount) {
+        synchronized (pendingDeltas) {
+            pendingDeltas.put(id, amount);
+        }
+    }
+
+    private void removePendingDelta(String id) {
+        synchronized (pendingDeltas) {
+            pendingDeltas.remove(id);
+        }
+    }
+
+    /**
+     * Recompute the shown balance from the confirmed value and whatever is
+     * still in flight, and tell listeners if it moved.
+     */
+    private void publishBalance() {
+        double pending = 0;
+        synchronized (pendingDeltas) {
+            for (double delta : pendingDeltas.values()) {
+                pending += delta;
+            }
+        }
+        double shown = confirmedBalance + pending;
+        if (shown == totalBalance) return;
+
+        totalBalance = shown;
+        cacheBalance();
+        notifyListener();
     }
 
     private void cacheBalance() {
@@ -247,7 +343,8 @@ public class WalletManager {
     }
 
     private void loadCachedBalance() {
-        totalBalance = prefs.getFloat("totalBalance", 0f);
+        confirmedBalance = prefs.getFloat("totalBalance", 0f);
+        totalBalance = confirmedBalance;
         pendingBalance = prefs.getFloat("pendingBalance", 0f);
         totalMined = prefs.getFloat("totalMined", 0f);
         notifyListener();
@@ -315,76 +412,47 @@ public class WalletManager {
     }
 
     /**
-     * Add tokens atomically using Firebase runTransaction to avoid races.
-     * FIXED: Immediately updates local balance and notifies listeners
+     * Credit a reward. It is shown immediately (pending overlay), persisted in
+     * the reward outbox and delivered exactly once, also across restarts.
      */
     public void addTokens(double amount, String type, String description) {
-        if (currentUserId == null || amount <= 0) return;
+        if (amount <= 0 || currentUserId == null) return;
 
-        // FIXED: Immediately update local balance and notify listeners
-        // This ensures UI updates right away, even before Firebase transaction completes
-        totalBalance += amount;
-        cacheBalance();
-        notifyListener();
-        Log.d(TAG, "Local balance immediately updated: +" + amount + " = " + totalBalance);
+        RewardOutbox outbox = RewardOutbox.getInstance(context);
+        String rewardId = outbox.newRewardId(currentUserId);
+        addPendingDelta(rewardId, amount);
+        publishBalance();
+        outbox.enqueue(currentUserId, rewardId, amount, type, description);
 
-        // FIXED: Use 'totalcoins' (lowercase) to match rest of app
-        DatabaseReference totalRef = dbRef.child("users").child(currentUserId).child("totalcoins");
-        totalRef.runTransaction(new com.google.firebase.database.Transaction.Handler() {
-            @NonNull
-            @Override
-            public com.google.firebase.database.Transaction.Result doTransaction(@NonNull MutableData currentData) {
-                double current = 0;
-                Object val = currentData.getValue();
-                if (val != null) {
-                    current = toDouble(val);
-                }
-                currentData.setValue(current + amount);
-                return com.google.firebase.database.Transaction.success(currentData);
-            }
-
-            @Override
-            public void onComplete(DatabaseError error, boolean committed, DataSnapshot snapshot) {
-                if (error != null) {
-                    Log.e(TAG, "Failed to increment totalcoins", error.toException());
-                    // Rollback local change on error
-                    totalBalance -= amount;
-                    cacheBalance();
-                    notifyListener();
-                } else {
-                    Log.d(TAG, "totalcoins incremented by " + amount + " in Firebase");
-                }
-            }
-        });
+        if (listener != null) {
+            WalletTransaction transaction = new WalletTransaction(type, amount, description);
+            transaction.id = rewardId;
+            listener.onTransactionAdded(transaction);
+        }
+    }
 
-        // Update category (e.g., spinEarnings) atomically
-        String categoryKey = type + "Earnings";
-        DatabaseReference catRef = dbRef.child("users").child(currentUserId).child(categoryKey);
-        catRef.runTransaction(new com.google.firebase.database.Transaction.Handler() {
-            @NonNull
-            @Override
-            public com.google.firebase.database.Transaction.Result doTransaction(@NonNull MutableData currentData) {
-                double current = 0;
-                Object val = currentData.getValue();
-                if (val != null) {
-                    current = toDouble(val);
-                }
-                currentData.setValue(current + amount);
-                return com.google.firebase.database.Transaction.success(currentData);
-            }
+    /**
+     * Take tokens off the balance (e.g. a lost bet). The transaction aborts,
+     * and the pending deduction is dropped, if the balance would go negative.
+     * The history entry is not counted in the earnings totals.
+     */
+    public void deductTokens(double amount, String type, String description, @Nullable DebitCallback callback) {
+        if (amount <= 0 || currentUserId == null) {
+            if (callback != null) callback.onDebit(false);
+            return;
+        }
+        double delta = -amount;
+        String userId = currentUserId;
 
-            @Override
-            public void onComplete(DatabaseError error, boolean committed, DataSnapshot snapshot) {
-                if (error != null) {
-                    Log.e(TAG, "Failed to increment category " + categoryKey, error.toException());
-                }
-            }
-        });
+        // Shown right away; the entry leaves the overlay once the server has answered
+        String deltaId = "debit_" + (nextDebitId++);
+        addPendingDelta(deltaId, delta);
+        publishBalance();
+        Log.d(TAG, "Pending balance change: " + delta + " -> " + totalBalance);
 
-        // Update daily earnings atomically
-        String today = String.valueOf(System.currentTimeMillis() / (24 * 60 * 60 * 1000));
-        DatabaseReference dayRef = dbRef.child("earnings").child(currentUserId).child("daily").child(today);
-        dayRef.runTransaction(new com.google.firebase.database.Transaction.Handler() {
+        // FIXED: Use 'totalcoins' (lowercase) to match rest of app
+        DatabaseReference totalRef = dbRef.child("users").child(userId).child("totalcoins");
+        totalRef.runTransaction(new com.google.firebase.database.Transaction.Handler() {
             @NonNull
             @Override
             public com.google.firebase.database.Transaction.Result doTransaction(@NonNull MutableData currentData) {
@@ -393,34 +461,48 @@ public class WalletManager {
                 if (val != null) {
                     current = toDouble(val);
                 }
-                currentData.setValue(current + amount);
+                if (current + delta < 0) {
+                    return com.google.firebase.database.Transaction.abort();
+                }
+                currentData.setValue(current + delta);
                 return com.google.firebase.database.Transaction.success(currentData);
             }
 
             @Override
             public void onComplete(DatabaseError error, boolean committed, DataSnapshot snapshot) {
-                if (error != null) {
-                    Log.e(TAG, "Failed to increment daily earnings", error.toException());
+                // Committed: the listener already has the new total. Failed: drop the delta
+                removePendingDelta(deltaId);
+                publishBalance();
+
+                if (error != null || !committed) {
+                    Log.e(TAG, "Failed to apply " + delta + " to totalcoins",
+                            error != null ? error.toException() : null);
+                    if (callback != null) callback.onDebit(false);
+                    return;
                 }
+                Log.d(TAG, "totalcoins changed by " + delta + " in Firebase");
+                if (callback != null) callback.onDebit(true);
+
+                // History only - a loss is not negative earnings
+                WalletTransaction transaction = new WalletTransaction(type, delta, description);
+                TransactionJournal.getInstance(context).append(userId, transaction, false)
+                        .addOnSuccessListener(aVoid -> {
+                            if (listener != null) {
+                                listener.onTransactionAdded(transaction);
+                            }
+                        })
+                        .addOnFailureListener(e -> Log.e(TAG, "Failed to record " + type + " earnings", e));
             }
-        });
-
-        // Add transaction record after kicking off the increments (transaction id generation is independent)
-        addTransaction(new WalletTransaction(type, amount, description));
+        }, false);
     }
 
+    /**
+     * Record a history entry whose totals are maintained by the caller.
+     */
     public void addTransaction(WalletTransaction transaction) {
         if (currentUserId == null) return;
 
-        DatabaseReference pushRef = dbRef.child("transactions").child(currentUserId).push();
-        String key = pushRef.getKey();
-        if (key == null) {
-            Log.e(TAG, "Failed to create transaction key");
-            return;
-        }
-        transaction.id = key;
-
-        pushRef.setValue(transaction)
+        TransactionJournal.getInstance(context).append(currentUserId, transaction, false)
                 .addOnSuccessListener(aVoid -> {
                     if (listener != null) {
                         listener.onTransactionAdded(transaction);
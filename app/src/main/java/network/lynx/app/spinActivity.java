@@ -18,13 +18,8 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Locale;
-import java.util.Random;
 
 /**
  * PROFESSIONAL SPIN ACTIVITY - ENHANCED FEATURES
@@ -83,8 +78,7 @@ public class spinActivity extends AppCompatActivity {
     private boolean isSpinning = false;
     private CountDownTimer cooldownTimer;
     private TaskManager taskManager;
-    private final Handler uiHandler = new Handler(Looper.getMainLooper());
-    private Random random = new Random();
+    private RewardEngine rewardEngine;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -102,6 +96,7 @@ public class spinActivity extends AppCompatActivity {
 
         // Get WalletManager instance to honor global first-spin-free
         walletManager = WalletManager.getInstance(this);
+        rewardEngine = RewardEngine.getInstance(this);
 
         setupClickListeners();
         updateUI();
@@ -117,6 +112,13 @@ public class spinActivity extends AppCompatActivity {
         spinHintText = findViewById(R.id.spinHintText);
         lastWinText = findViewById(R.id.lastWinText);
 
+        // One wheel segment per base reward, so the wheel stops on what was won
+        String[] labels = new String[SPIN_REWARDS.length];
+        for (int i = 0; i < SPIN_REWARDS.length; i++) {
+            labels[i] = String.format(Locale.US, "%.1f LYX", SPIN_REWARDS[i]);
+        }
+        spinWheel.setLabels(labels);
+
         // Optional enhanced views - gracefully handle if not in layout
         streakText = findViewByIdSafe("streakText");
         multiplierText = findViewByIdSafe("multiplierText");
@@ -178,46 +180,33 @@ public class spinActivity extends AppCompatActivity {
     // ============================================
 
     private void checkAndUpdateStreak() {
-        String today = getTodayDate();
-        String lastStreakDate = prefs.getString("lastStreakDate", "");
-        int currentStreak = prefs.getInt("spinStreak", 0);
-
-        if (lastStreakDate.isEmpty()) {
-            // First time user
-            prefs.edit().putString("lastStreakDate", today).apply();
-        } else if (!lastStreakDate.equals(today)) {
-            // Check if yesterday
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd", Locale.getDefault());
-                Date lastDate = sdf.parse(lastStreakDate);
-                Date todayDate = sdf.parse(today);
-
-                if (lastDate != null && todayDate != null) {
-                    long diffDays = (todayDate.getTime() - lastDate.getTime()) / (24 * 60 * 60 * 1000);
-
-                    if (diffDays == 1) {
-                        // Consecutive day - increment streak
-                        currentStreak++;
-                    } else if (diffDays > 1) {
-                        // Streak broken
-                        currentStreak = 0;
-                    }
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "Error parsing streak date", e);
+        // Opening the wheel counts as today's visit
+        StreakEngine.getInstance(this).claim(StreakEngine.SPIN, 0, null, new StreakEngine.ClaimCallback() {
+            @Override
+            public void onClaimed(int newCount) {
+                if (!isFinishing()) updateStreakUI();
             }
 
-            prefs.edit()
-                    .putString("lastStreakDate", today)
-                    .putInt("spinStreak", currentStreak)
-                    .apply();
-        }
+            @Override
+            public void onAlreadyClaimed() {
+                if (!isFinishing()) updateStreakUI();
+            }
+
+            @Override
+            public void onError(String message) {
+                Log.e(TAG, "Error updating spin streak: " + message);
+            }
+        });
 
         updateStreakUI();
     }
 
+    private int getSpinStreak() {
+        return StreakEngine.getInstance(this).current(StreakEngine.SPIN, 0);
+    }
+
     private void updateStreakUI() {
-        int streak = prefs.getInt("spinStreak", 0);
+        int streak = getSpinStreak();
         float multiplier = getStreakMultiplier();
 
         if (streakText != null) {
@@ -235,7 +224,7 @@ public class spinActivity extends AppCompatActivity {
     }
 
     private float getStreakMultiplier() {
-        int streak = prefs.getInt("spinStreak", 0);
+        int streak = getSpinStreak();
         // Every 7 days = +10% bonus, max 50%
         float bonus = Math.min(streak / 7 * 0.1f, 0.5f);
         return 1.0f + bonus;
@@ -294,9 +283,9 @@ public class spinActivity extends AppCompatActivity {
 
     private float getLuckyMultiplier() {
         // 20% chance of getting a multiplier
-        if (random.nextFloat() < 0.2f) {
+        if (rewardEngine.draw(RewardEngine.LUCKY_MULTIPLIER) == 1) {
             // Random multiplier between 2x and 5x
-            return 2.0f + random.nextFloat() * 3.0f;
+            return (float) rewardEngine.between(2.0, 5.0);
         }
         return 1.0f;
     }
@@ -315,7 +304,7 @@ public class spinActivity extends AppCompatActivity {
     }
 
     private boolean checkJackpot() {
-        return random.nextFloat() < JACKPOT_CHANCE;
+        return rewardEngine.chance(JACKPOT_CHANCE);
     }
 
     private void preloadAd() {
@@ -509,23 +498,28 @@ public class spinActivity extends AppCompatActivity {
         spinButton.setEnabled(false);
         spinButton.setText("🎡  Spinning...");
 
-        spinWheel.spin();
+        // Decide and pay up front, so leaving mid-spin cannot lose the reward;
+        // the wheel then stops on the segment that was won
+        int rewardIndex = rewardEngine.pick(SPIN_REWARDS.length);
+        Runnable showResult = calculateAndGrantReward(rewardIndex);
+        spinWheel.spinTo(rewardIndex, () -> {
+            if (isFinishing() || isDestroyed()) return;
+            isSpinning = false;
+            showResult.run();
+            updateUI();
+        });
 
         if (taskManager != null) {
             taskManager.completeSpinTask();
         }
-
-        // Calculate reward after spin completes
-        uiHandler.postDelayed(() -> {
-            calculateAndGrantReward();
-            isSpinning = false;
-            updateUI();
-        }, 3500);
     }
 
-    private void calculateAndGrantReward() {
-        // Base reward from wheel
-        int rewardIndex = random.nextInt(SPIN_REWARDS.length);
+    /**
+     * Apply multipliers and jackpot to the base reward and pay it.
+     *
+     * @return shows the result once the wheel has stopped
+     */
+    private Runnable calculateAndGrantReward(int rewardIndex) {
         double baseReward = SPIN_REWARDS[rewardIndex];
 
         // Apply multipliers
@@ -548,56 +542,13 @@ public class spinActivity extends AppCompatActivity {
         // Grant reward to user
         grantRewardToUser(finalReward);
 
-        // Show result
-        showSpinResult(baseReward, finalReward, luckyMultiplier, wonJackpot);
+        double shownReward = finalReward;
+        return () -> showSpinResult(baseReward, shownReward, luckyMultiplier, wonJackpot);
     }
 
     private void grantRewardToUser(double reward) {
-        try {
-            if (FirebaseAuth.getInstance().getCurrentUser() == null) return;
-
-            if (walletManager != null) {
-                // Use WalletManager to atomically add tokens and record transaction
-                walletManager.addTokens(reward, "spin", "Wheel spin reward");
-                return;
-            }
-
-            // Fallback: direct firebase updates (kept for backward compatibility)
-            String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
-            DatabaseReference userRef = FirebaseDatabase.getInstance()
-                    .getReference("users").child(userId);
-
-            // FIXED: Use 'totalcoins' (lowercase) to match rest of app
-            userRef.child("totalcoins").get().addOnSuccessListener(snapshot -> {
-                double current = 0;
-                if (snapshot.exists() && snapshot.getValue() != null) {
-                    Object val = snapshot.getValue();
-                    if (val instanceof Number) {
-                        current = ((Number) val).doubleValue();
-                    } else {
-                        try { current = Double.parseDouble(String.valueOf(val)); } catch (Exception ignored) {}
-                    }
-                }
-                userRef.child("totalcoins").setValue(current + reward);
-            });
-
-            // Track spin stats
-            userRef.child("spinStats").child("totalWon").get().addOnSuccessListener(snapshot -> {
-                double totalWon = 0;
-                if (snapshot.exists() && snapshot.getValue() != null) {
-                    Object val = snapshot.getValue();
-                    if (val instanceof Number) {
-                        totalWon = ((Number) val).doubleValue();
-                    } else {
-                        try { totalWon = Double.parseDouble(String.valueOf(val)); } catch (Exception ignored) {}
-                    }
-                }
-                userRef.child("spinStats").child("totalWon").setValue(totalWon + reward);
-            });
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error granting reward", e);
-        }
+        if (FirebaseAuth.getInstance().getCurrentUser() == null) return;
+        rewardEngine.credit(reward, "spin", "Wheel spin reward");
     }
 
     private void showSpinResult(double baseReward, double finalReward, float luckyMultiplier, boolean wonJackpot) {
@@ -788,7 +739,7 @@ public class spinActivity extends AppCompatActivity {
     }
 
     private String getTodayDate() {
-        return new SimpleDateFormat("yyyyMMdd", Locale.getDefault()).format(new Date());
+        return StreakEngine.formatDay(StreakEngine.today(), false);
     }
 
     @Override
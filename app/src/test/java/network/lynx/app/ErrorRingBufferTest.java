@@ -0,0 +1,94 @@
+package network.lynx.app;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ring contents across appends, wrap-around, reopen and concurrent writers.
+ */
+public class ErrorRingBufferTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsEntriesInOrder() throws Exception {
+        ErrorRingBuffer ring = ErrorRingBuffer.open(folder.newFile("ring.bin"));
+        ring.append(ErrorRingBuffer.TYPE_ERROR, ErrorHandler.ErrorCategory.NETWORK, "first", null);
+        ring.append(ErrorRingBuffer.TYPE_CRASH, ErrorHandler.ErrorCategory.UNKNOWN, "second", null);
+
+        List<ErrorRingBuffer.Entry> entries = ring.readPending();
+        assertEquals(2, entries.size());
+        assertEquals("first", entries.get(0).text);
+        assertEquals(ErrorHandler.ErrorCategory.NETWORK, entries.get(0).category);
+        assertEquals(ErrorRingBuffer.TYPE_CRASH, entries.get(1).type);
+        assertTrue(entries.get(0).stamp < entries.get(1).stamp);
+    }
+
+    @Test
+    public void keepsOnlyTheNewestLap() throws Exception {
+        ErrorRingBuffer ring = ErrorRingBuffer.open(folder.newFile("ring.bin"));
+        for (int i = 0; i < 300; i++) {
+            ring.append(ErrorRingBuffer.TYPE_ERROR, ErrorHandler.ErrorCategory.UNKNOWN, "e" + i, null);
+        }
+
+        List<ErrorRingBuffer.Entry> entries = ring.readPending();
+        assertEquals(128, entries.size());
+        assertEquals("e172", entries.get(0).text);
+        assertEquals("e299", entries.get(127).text);
+    }
+
+    @Test
+    public void survivesReopenAndHonoursCheckpoint() throws Exception {
+        File file = folder.newFile("ring.bin");
+        ErrorRingBuffer ring = ErrorRingBuffer.open(file);
+        for (int i = 0; i < 5; i++) {
+            ring.append(ErrorRingBuffer.TYPE_ERROR, ErrorHandler.ErrorCategory.UNKNOWN, "e" + i, null);
+        }
+        ring.markUploaded(ring.readPending().get(2).stamp);
+        ring.flush();
+
+        List<ErrorRingBuffer.Entry> entries = ErrorRingBuffer.open(file).readPending();
+        assertEquals(2, entries.size());
+        assertEquals("e3", entries.get(0).text);
+        assertEquals("e4", entries.get(1).text);
+    }
+
+    @Test
+    public void concurrentReadersNeverSeeTornEntries() throws Exception {
+        ErrorRingBuffer ring = ErrorRingBuffer.open(folder.newFile("ring.bin"));
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            char fill = (char) ('a' + w);
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    char[] text = new char[1 + i % 300];
+                    Arrays.fill(text, fill);
+                    ring.append(ErrorRingBuffer.TYPE_ERROR, ErrorHandler.ErrorCategory.UNKNOWN,
+                            new String(text), null);
+                }
+            }));
+        }
+        for (Thread writer : writers) writer.start();
+
+        boolean running = true;
+        while (running) {
+            running = false;
+            for (Thread writer : writers) running |= writer.isAlive();
+            for (ErrorRingBuffer.Entry entry : ring.readPending()) {
+                char first = entry.text.charAt(0);
+                for (int i = 1; i < entry.text.length(); i++) {
+                    assertEquals("torn entry " + entry.stamp, first, entry.text.charAt(i));
+                }
+            }
+        }
+        for (Thread writer : writers) writer.join();
+    }
+}
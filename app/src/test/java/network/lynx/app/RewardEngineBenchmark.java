@@ -0,0 +1,84 @@
+package network.lynx.app;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Cost per draw of the alias tables next to the cumulative walk they
+ * replaced. Not a pass/fail test; only runs with
+ * ./gradlew testDebugUnitTest -Pbenchmark --tests '*RewardEngineBenchmark'
+ */
+public class RewardEngineBenchmark {
+    private static final long SEED = 42L;
+    private static final int DRAWS = 1_000_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    @BeforeClass
+    public static void onlyWhenRequested() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void dailySpin() {
+        compare("daily spin", RewardEngine.DAILY_SPIN);
+    }
+
+    @Test
+    public void scratchCard() {
+        compare("scratch card", RewardEngine.SCRATCH_CARD);
+    }
+
+    @Test
+    public void largeSkewedTable() {
+        // Where the walk's O(n) starts to show: 64 outcomes, rare ones last
+        double[] weights = new double[64];
+        for (int i = 0; i < weights.length; i++) weights[i] = 64 - i;
+        compare("64 outcomes", RewardEngine.AliasTable.of(weights));
+    }
+
+    private static void compare(String name, RewardEngine.AliasTable table) {
+        double[] cumulative = new double[table.size()];
+        double sum = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            sum += table.probability(i);
+            cumulative[i] = sum;
+        }
+
+        Random aliasRandom = new Random(SEED);
+        Random walkRandom = new Random(SEED);
+        long sink = 0;
+        long aliasNanos = 0, walkNanos = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < DRAWS; i++) sink += table.sample(aliasRandom);
+            long aliasRound = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < DRAWS; i++) sink += walk(cumulative, walkRandom);
+            long walkRound = System.nanoTime() - start;
+
+            if (round >= WARMUP_ROUNDS) {
+                aliasNanos += aliasRound;
+                walkNanos += walkRound;
+            }
+        }
+
+        double draws = (double) MEASURED_ROUNDS * DRAWS;
+        System.out.println(String.format(Locale.US, "%s: alias %.1f ns/draw, cumulative walk %.1f ns/draw (sink %d)",
+                name, aliasNanos / draws, walkNanos / draws, sink));
+    }
+
+    private static int walk(double[] cumulative, Random random) {
+        double r = random.nextDouble();
+        for (int i = 0; i < cumulative.length - 1; i++) {
+            if (r < cumulative[i]) return i;
+        }
+        return cumulative.length - 1;
+    }
+}
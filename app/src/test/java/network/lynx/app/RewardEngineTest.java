@@ -0,0 +1,123 @@
+package network.lynx.app;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Payout distributions of the reward tables, checked with a chi-square
+ * goodness-of-fit test on a fixed seed, and the wheel landing on the
+ * drawn segment.
+ */
+public class RewardEngineTest {
+    private static final int DRAWS = 200_000;
+    private static final long SEED = 42L;
+
+    // Chi-square critical values at p = 0.001, indexed by degrees of freedom
+    private static final double[] CHI_SQUARE_CRITICAL = {
+            0, 10.83, 13.82, 16.27, 18.47, 20.52, 22.46, 24.32, 26.12
+    };
+
+    @Test
+    public void scratchCardMatchesRewardTypeProbabilities() {
+        ScratchCardManager.RewardType[] types = ScratchCardManager.RewardType.values();
+        assertEquals(types.length, RewardEngine.SCRATCH_CARD.size());
+        for (int i = 0; i < types.length; i++) {
+            assertEquals(types[i].getProbability() / 100.0, RewardEngine.SCRATCH_CARD.probability(i), 1e-12);
+        }
+        assertFitsDistribution(RewardEngine.SCRATCH_CARD);
+    }
+
+    @Test
+    public void dailySpinFitsSegmentWeights() {
+        assertEquals(DailyEventsManager.SpinWheelResult.SEGMENT_LABELS.length, RewardEngine.DAILY_SPIN.size());
+        assertEquals(0.25, RewardEngine.DAILY_SPIN.probability(0), 1e-12);
+        assertEquals(0.02, RewardEngine.DAILY_SPIN.probability(7), 1e-12);
+        assertFitsDistribution(RewardEngine.DAILY_SPIN);
+    }
+
+    @Test
+    public void smallTablesFitDistribution() {
+        assertFitsDistribution(RewardEngine.MYSTERY_BONUS);
+        assertFitsDistribution(RewardEngine.LUCKY_MULTIPLIER);
+        assertFitsDistribution(RewardEngine.AliasTable.of(1, 1, 1, 1, 1, 1, 1, 1));
+    }
+
+    @Test
+    public void zeroWeightOutcomeIsNeverDrawn() {
+        RewardEngine.AliasTable table = RewardEngine.AliasTable.of(5, 0, 5);
+        Random random = new Random(SEED);
+        for (int i = 0; i < DRAWS; i++) {
+            assertNotEquals(1, table.sample(random));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeWeight() {
+        RewardEngine.AliasTable.of(1, -1);
+    }
+
+    @Test
+    public void sameSeedGivesSameOutcomes() {
+        RewardEngine first = new RewardEngine(null, new Random());
+        RewardEngine second = new RewardEngine(null, new Random());
+        first.setSeed(SEED);
+        second.setSeed(SEED);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(first.draw(RewardEngine.SCRATCH_CARD), second.draw(RewardEngine.SCRATCH_CARD));
+            assertEquals(first.pick(8), second.pick(8));
+            assertEquals(first.between(1, 5), second.between(1, 5), 0);
+            assertEquals(first.chance(0.5), second.chance(0.5));
+        }
+    }
+
+    @Test
+    public void betweenStaysInRange() {
+        RewardEngine engine = new RewardEngine(null, new Random(SEED));
+        for (int i = 0; i < DRAWS; i++) {
+            double value = engine.between(20, 100);
+            assertTrue(value >= 20 && value < 100);
+        }
+    }
+
+    @Test
+    public void spinLandsOnTheDrawnSegment() {
+        RewardEngine engine = new RewardEngine(null, new Random(SEED));
+        for (int segments = 2; segments <= 8; segments++) {
+            for (int i = 0; i < 1000; i++) {
+                int segment = engine.pick(segments);
+                float start = (float) engine.between(0, 360);
+                float position = (float) engine.between(0.15, 0.85);
+                float distance = SpinWheelView.spinDistance(start, segment, segments, position);
+
+                assertTrue(distance >= 360 * 5 && distance <= 360 * 6);
+                assertEquals(segment, SpinWheelView.segmentAt((start + distance) % 360, segments));
+            }
+        }
+    }
+
+    private static void assertFitsDistribution(RewardEngine.AliasTable table) {
+        Random random = new Random(SEED);
+        int[] counts = new int[table.size()];
+        for (int i = 0; i < DRAWS; i++) {
+            counts[table.sample(random)]++;
+        }
+
+        double chiSquare = 0;
+        int degrees = -1;
+        for (int i = 0; i < counts.length; i++) {
+            double expected = table.probability(i) * DRAWS;
+            if (expected == 0) {
+                assertEquals(0, counts[i]);
+                continue;
+            }
+            chiSquare += (counts[i] - expected) * (counts[i] - expected) / expected;
+            degrees++;
+        }
+        assertTrue("chi-square " + chiSquare + " with " + degrees + " degrees of freedom",
+                chiSquare < CHI_SQUARE_CRITICAL[degrees]);
+    }
+}
@@ -0,0 +1,110 @@
+package network.lynx.app;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.DoubleToIntFunction;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Cost per lookup of the level, VIP, phase and milestone lookups next to a
+ * linear scan over the same thresholds. Not a pass/fail test; only runs with
+ * ./gradlew testDebugUnitTest -Pbenchmark --tests '*TierIndexBenchmark'
+ */
+public class TierIndexBenchmark {
+    private static final long SEED = 42L;
+    private static final int LOOKUPS = 1_000_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    @BeforeClass
+    public static void onlyWhenRequested() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void levels() {
+        TierIndex tiers = AppConfig.levelTiers();
+        compare("level", 2000,
+                coins -> LevelSystem.getNewLevel(coins, 0),
+                coins -> {
+                    int level = 1;
+                    for (int i = 0; i < tiers.size(); i++) {
+                        if (coins > tiers.threshold(i)) level = i + 2;
+                    }
+                    return level;
+                });
+    }
+
+    @Test
+    public void vipTiers() {
+        compare("vip", 100_000,
+                coins -> EngagementFeaturesManager.VIPTier.fromCoins(coins).ordinal(),
+                linearFloor(AppConfig.vipTiers()));
+    }
+
+    @Test
+    public void miningPhases() {
+        TierIndex tiers = AppConfig.miningPhaseTiers();
+        compare("phase", tiers.threshold(tiers.size() - 1) * 2,
+                tiers::floor,
+                linearFloor(tiers));
+    }
+
+    @Test
+    public void milestones() {
+        compare("milestone", 400,
+                streak -> daysOf(MiningStreakManager.getMilestoneForStreak((int) streak)),
+                streak -> {
+                    MiningStreakManager.StreakMilestone result = null;
+                    for (MiningStreakManager.StreakMilestone milestone : MiningStreakManager.MILESTONES) {
+                        if (streak >= milestone.daysRequired) result = milestone;
+                    }
+                    return daysOf(result);
+                });
+    }
+
+    private static void compare(String name, double maxValue, DoubleToIntFunction search, DoubleToIntFunction scan) {
+        double[] values = new double[LOOKUPS];
+        Random random = new Random(SEED);
+        for (int i = 0; i < LOOKUPS; i++) values[i] = random.nextDouble() * maxValue;
+
+        long sink = 0;
+        long searchNanos = 0, scanNanos = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (double value : values) sink += search.applyAsInt(value);
+            long searchRound = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (double value : values) sink += scan.applyAsInt(value);
+            long scanRound = System.nanoTime() - start;
+
+            if (round >= WARMUP_ROUNDS) {
+                searchNanos += searchRound;
+                scanNanos += scanRound;
+            }
+        }
+
+        double lookups = (double) MEASURED_ROUNDS * LOOKUPS;
+        System.out.println(String.format(Locale.US, "%s: lookup %.1f ns, linear scan %.1f ns (sink %d)",
+                name, searchNanos / lookups, scanNanos / lookups, sink));
+    }
+
+    private static DoubleToIntFunction linearFloor(TierIndex tiers) {
+        return value -> {
+            int result = -1;
+            for (int i = 0; i < tiers.size(); i++) {
+                if (value >= tiers.threshold(i)) result = i;
+            }
+            return result;
+        };
+    }
+
+    private static int daysOf(MiningStreakManager.StreakMilestone milestone) {
+        return milestone != null ? milestone.daysRequired : -1;
+    }
+}
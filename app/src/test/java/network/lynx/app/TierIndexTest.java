@@ -0,0 +1,92 @@
+package network.lynx.app;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tier lookups checked against the linear scans they replaced.
+ */
+public class TierIndexTest {
+    private static final long SEED = 42L;
+    private static final int LOOKUPS = 200_000;
+
+    @Test
+    public void floorAndLowerAtBoundaries() {
+        TierIndex tiers = TierIndex.of(0, 500, 2000);
+        assertEquals(-1, tiers.floor(-1));
+        assertEquals(0, tiers.floor(0));
+        assertEquals(0, tiers.floor(499.99));
+        assertEquals(1, tiers.floor(500));
+        assertEquals(2, tiers.floor(1e12));
+
+        assertEquals(-1, tiers.lower(0));
+        assertEquals(0, tiers.lower(500));
+        assertEquals(1, tiers.lower(500.01));
+    }
+
+    @Test
+    public void levelsMatchOriginalRules() {
+        for (int coins = -10; coins <= 1500; coins++) {
+            assertEquals("coins " + coins, originalLevel(coins), LevelSystem.getNewLevel(coins, 0));
+        }
+    }
+
+    @Test
+    public void vipTiersMatchLinearScan() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < LOOKUPS; i++) {
+            double coins = random.nextDouble() * 100_000 - 100;
+            assertEquals(linearVip(coins), EngagementFeaturesManager.VIPTier.fromCoins(coins));
+        }
+        assertEquals(EngagementFeaturesManager.VIPTier.SILVER, EngagementFeaturesManager.VIPTier.fromCoins(500));
+    }
+
+    @Test
+    public void milestonesMatchLinearScan() {
+        for (int streak = -1; streak <= 400; streak++) {
+            MiningStreakManager.StreakMilestone expected = null;
+            for (MiningStreakManager.StreakMilestone milestone : MiningStreakManager.MILESTONES) {
+                if (streak >= milestone.daysRequired) expected = milestone;
+            }
+            assertSame("streak " + streak, expected, MiningStreakManager.getMilestoneForStreak(streak));
+        }
+    }
+
+    @Test
+    public void parseRoundTrips() {
+        TierIndex tiers = TierIndex.parse(" 0, 500,2000.5 ");
+        assertEquals(3, tiers.size());
+        assertEquals("0,500,2000.5", tiers.toString());
+        assertEquals(tiers.toString(), TierIndex.parse(tiers.toString()).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsortedThresholds() {
+        TierIndex.of(0, 2000, 500);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsGarbage() {
+        TierIndex.parse("0,lots");
+    }
+
+    private static int originalLevel(double totalCoins) {
+        if (totalCoins > 1000) return 5;
+        else if (totalCoins > 500) return 4;
+        else if (totalCoins > 250) return 3;
+        else if (totalCoins > 100) return 2;
+        return 1;
+    }
+
+    private static EngagementFeaturesManager.VIPTier linearVip(double coins) {
+        double[] required = {0, 500, 2000, 10000, 50000};
+        EngagementFeaturesManager.VIPTier result = EngagementFeaturesManager.VIPTier.BRONZE;
+        for (EngagementFeaturesManager.VIPTier tier : EngagementFeaturesManager.VIPTier.values()) {
+            if (coins >= required[tier.ordinal()]) result = tier;
+        }
+        return result;
+    }
+}